@@ -1,6 +1,7 @@
 package com.andreiromila.vetl.advice;
 
 import com.andreiromila.vetl.exceptions.HttpException;
+import com.andreiromila.vetl.exceptions.HttpValidationException;
 import com.andreiromila.vetl.responses.ErrorResponse;
 import com.andreiromila.vetl.responses.ValidationError;
 import jakarta.servlet.http.HttpServletRequest;
@@ -94,6 +95,22 @@ public class GlobalControllerAdvice {
         return ResponseEntity.badRequest().body(errorResponse);
     }
 
+    /**
+     * Validation errors found by the services, same format as the request body validation
+     *
+     * @param exception {@link HttpValidationException} The exception
+     * @param request   {@link HttpServletRequest} The request
+     *
+     * @return Response entity with formatted body
+     */
+    @ExceptionHandler(HttpValidationException.class)
+    public ResponseEntity<ErrorResponse> handleServiceValidationException(HttpValidationException exception, HttpServletRequest request) {
+
+        final ErrorResponse errorResponse = new ErrorResponse(400, exception.getMessage(), exception.getValidationErrors(), request.getServletPath());
+
+        return ResponseEntity.badRequest().body(errorResponse);
+    }
+
     /**
      * Generic exception handler for custom, semantic HTTP exceptions.
      * It extracts the HttpStatus and message from the exception and builds a
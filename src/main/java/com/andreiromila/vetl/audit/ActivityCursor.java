@@ -0,0 +1,118 @@
+package com.andreiromila.vetl.audit;
+
+import com.andreiromila.vetl.exceptions.HttpBadRequestException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Keyset position in the activity feed: the sort property and direction
+ * plus the sort value, creation date and id of the last entry returned.
+ * <p>
+ * Entries are ordered by the sort property, then by creation date and id
+ * in the same direction. Clients receive the cursor as an opaque, URL safe
+ * string and send it back to get the next page; the sort travels inside
+ * the cursor so it can not change between pages. The first page has no
+ * position.
+ *
+ * @param property  {@link String} The sort property, one of {@link #PROPERTIES}
+ * @param direction {@link Sort.Direction} The sort direction
+ * @param value     {@link String} The sort value of the last entry, null when sorted by creation date or for system actions
+ * @param createdAt {@link Instant} The creation date of the last entry, null on the first page
+ * @param id        {@link Long} The id of the last entry, null on the first page
+ */
+public record ActivityCursor(
+        String property,
+        Sort.Direction direction,
+        String value,
+        Instant createdAt,
+        Long id
+) {
+
+    /**
+     * Properties a cursor can sort by, each one leads an index ending with the creation date
+     */
+    public static final Set<String> PROPERTIES = Set.of("createdAt", "actorUsername", "actionType");
+
+    /**
+     * Returns the cursor of the first page for the requested sort
+     *
+     * @param sort {@link Sort} The requested sort, only its first allowed property is used
+     * @return The first page cursor, newest first when no property is allowed
+     */
+    public static ActivityCursor first(final Sort sort) {
+        return sort.stream()
+                .filter(order -> PROPERTIES.contains(order.getProperty()))
+                .findFirst()
+                .map(order -> new ActivityCursor(order.getProperty(), order.getDirection(), null, null, null))
+                .orElse(new ActivityCursor("createdAt", Sort.Direction.DESC, null, null, null));
+    }
+
+    /**
+     * Returns the cursor positioned after the given entry
+     *
+     * @param last {@link AuditLog} The last entry of the current page
+     * @return The cursor of the next page, same sort
+     */
+    public ActivityCursor after(final AuditLog last) {
+        final String next = switch (property) {
+            case "actorUsername" -> last.actorUsername();
+            case "actionType" -> last.actionType().name();
+            default -> null;
+        };
+        return new ActivityCursor(property, direction, next, last.createdAt(), last.id());
+    }
+
+    /**
+     * Whether this is the cursor of the first page
+     *
+     * @return {@code true} if there is no position yet
+     */
+    public boolean isFirst() {
+        return id == null;
+    }
+
+    /**
+     * Encodes the cursor as an opaque, URL safe string
+     *
+     * @return The encoded cursor
+     */
+    public String encode() {
+        // The value goes last, it may contain the separator
+        final String raw = String.join("|", property, direction.name(), String.valueOf(id), String.valueOf(createdAt), value == null ? "" : value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor previously returned by {@link #encode()}
+     *
+     * @param cursor {@link String} The encoded cursor
+     * @return The decoded cursor
+     * @throws HttpBadRequestException If the cursor is malformed
+     */
+    public static ActivityCursor decode(final String cursor) {
+        try {
+            final String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            final String[] parts = raw.split("\\|", 5);
+
+            if (parts.length != 5 || !PROPERTIES.contains(parts[0])) {
+                throw new IllegalArgumentException("Unexpected cursor format");
+            }
+
+            // Usernames are never empty, an empty value is a system action
+            final String value = parts[0].equals("createdAt") || parts[4].isEmpty() ? null : parts[4];
+            if (parts[0].equals("actionType") && value == null) {
+                throw new IllegalArgumentException("Missing action type");
+            }
+
+            return new ActivityCursor(parts[0], Sort.Direction.valueOf(parts[1]), value, Instant.parse(parts[3]), Long.valueOf(parts[2]));
+
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new HttpBadRequestException("Invalid cursor.");
+        }
+    }
+}
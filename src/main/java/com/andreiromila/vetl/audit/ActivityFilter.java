@@ -0,0 +1,142 @@
+package com.andreiromila.vetl.audit;
+
+import com.andreiromila.vetl.exceptions.HttpBadRequestException;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * Filters of the activity feed, all optional and combined with AND.
+ * <p>
+ * Every filter is backed by an index ending with {@code created_at}, see
+ * the {@code V12} migration; the target id can only be used with its type.
+ * Sorted by date any filter combines, sorted by the actor or the action
+ * only the filter of the same column does (see {@link #checkSortedBy}).
+ *
+ * @param actorUsername {@link String} The username of the actor
+ * @param actionType    {@link AuditActionType} The action
+ * @param targetType    {@link AuditTargetType} The type of the target
+ * @param targetId      {@link String} The id of the target, requires the target type
+ * @param from          {@link Instant} Oldest entry, inclusive
+ * @param to            {@link Instant} Newest entry, exclusive
+ */
+public record ActivityFilter(
+        String actorUsername,
+        AuditActionType actionType,
+        AuditTargetType targetType,
+        String targetId,
+        Instant from,
+        Instant to
+) {
+
+    /**
+     * No filter at all
+     */
+    public static final ActivityFilter NONE = new ActivityFilter(null, null, null, null, null, null);
+
+    /**
+     * Parses the request parameters, blank values are ignored
+     *
+     * @param actor      {@link String} The actor username
+     * @param actionType {@link String} The action type, case-insensitive
+     * @param targetType {@link String} The target type, case-insensitive
+     * @param targetId   {@link String} The target id
+     * @param from       {@link String} ISO-8601 instant, inclusive
+     * @param to         {@link String} ISO-8601 instant, exclusive
+     * @return The filter
+     * @throws HttpBadRequestException If a value is invalid
+     */
+    public static ActivityFilter parse(final String actor,
+                                       final String actionType,
+                                       final String targetType,
+                                       final String targetId,
+                                       final String from,
+                                       final String to) {
+
+        final ActivityFilter filter = new ActivityFilter(
+                blankToNull(actor),
+                parseEnum(AuditActionType.class, actionType, "action type"),
+                parseEnum(AuditTargetType.class, targetType, "target type"),
+                blankToNull(targetId),
+                parseInstant(from, "from"),
+                parseInstant(to, "to")
+        );
+
+        if (filter.targetId() != null && filter.targetType() == null) {
+            throw new HttpBadRequestException("The target id filter requires the target type.");
+        }
+
+        if (filter.from() != null && filter.to() != null && !filter.from().isBefore(filter.to())) {
+            throw new HttpBadRequestException("Invalid time range, from must be before to.");
+        }
+
+        return filter;
+    }
+
+    /**
+     * Checks the feed can be read in the sort order from an index. Sorted
+     * by the actor or the action, the index of that column gives the order:
+     * another filter would need the index of its own column and a filesort,
+     * and a time range alone would scan that whole index.
+     *
+     * @param property {@link String} The sort property, one of {@link ActivityCursor#PROPERTIES}
+     * @throws HttpBadRequestException If the filters and the sort can not be served by one index
+     */
+    public void checkSortedBy(final String property) {
+
+        final boolean byActor = property.equals("actorUsername");
+        final boolean byAction = property.equals("actionType");
+        if (!byActor && !byAction) {
+            return;
+        }
+
+        final boolean sameColumn = byActor ? actorUsername != null : actionType != null;
+        final boolean otherColumn = (byActor ? actionType != null : actorUsername != null) || targetType != null;
+        final boolean timeRange = from != null || to != null;
+
+        if (otherColumn || (timeRange && !sameColumn)) {
+            throw new HttpBadRequestException("Sorted by %s, the only filters allowed are the %s and a time range along with it; sort by createdAt to combine the others."
+                    .formatted(property, byActor ? "actor" : "action type"));
+        }
+    }
+
+    /**
+     * Whether any filter is set
+     *
+     * @return {@code true} if there is no filter
+     */
+    public boolean isEmpty() {
+        return equals(NONE);
+    }
+
+    private static String blankToNull(final String value) {
+        return value == null || value.isBlank() ? null : value.strip();
+    }
+
+    private static <E extends Enum<E>> E parseEnum(final Class<E> type, final String value, final String name) {
+
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+
+        try {
+            return Enum.valueOf(type, value.strip().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new HttpBadRequestException("Invalid %s: %s.".formatted(name, value));
+        }
+    }
+
+    private static Instant parseInstant(final String value, final String name) {
+
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+
+        try {
+            return Instant.parse(value.strip());
+        } catch (DateTimeParseException e) {
+            throw new HttpBadRequestException("Invalid %s, expected an ISO-8601 instant like 2025-01-31T10:15:30Z.".formatted(name));
+        }
+    }
+}
@@ -1,64 +1,86 @@
 package com.andreiromila.vetl.audit;
 
-import com.andreiromila.vetl.user.User;
+import com.andreiromila.vetl.outbox.OutboxEvent;
+import com.andreiromila.vetl.outbox.OutboxEventType;
+import com.andreiromila.vetl.outbox.OutboxHandler;
 import com.andreiromila.vetl.user.event.UserCreatedEvent;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.event.EventListener;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
-import java.time.Instant;
+import java.util.List;
 
+/**
+ * Writes the audit entries of the created and imported users, relayed by
+ * the outbox. The entries are inserted in the transaction that marks the
+ * events processed, a redelivered event is never audited twice.
+ */
 @Slf4j
 @Component
-public class AuditEventListener {
+public class AuditEventListener implements OutboxHandler {
 
-    private final AuditLogRepository auditLogRepository;
+    private final AuditLogWriter auditLogWriter;
     private final ObjectMapper objectMapper;
 
-    public AuditEventListener(AuditLogRepository auditLogRepository, ObjectMapper objectMapper) {
-        this.auditLogRepository = auditLogRepository;
+    public AuditEventListener(AuditLogWriter auditLogWriter, ObjectMapper objectMapper) {
+        this.auditLogWriter = auditLogWriter;
         this.objectMapper = objectMapper;
     }
 
-    @EventListener
-    public void handleUserCreatedEvent(final UserCreatedEvent event) {
+    @Override
+    public String name() {
+        return "AUDIT";
+    }
+
+    @Override
+    public OutboxEventType type() {
+        return OutboxEventType.USER_CREATED;
+    }
 
-        final User actor = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        final User target = event.getUser();
+    /**
+     * Writes one entry per created user, with a single batched insert
+     *
+     * @param events {@link List} The user created events
+     */
+    @Override
+    public void handle(final List<OutboxEvent> events) {
 
-        final String details = getRawDetails(target);
+        final List<AuditLog> logs = events.stream()
+                .map(event -> {
+                    final UserCreatedEvent target = event.payload(objectMapper, UserCreatedEvent.class);
 
-        final AuditLog log = new AuditLog(
-                null,
+                    return new AuditLog(
+                            null,
 
-                actor.getId(),
-                actor.getUsername(),
+                            target.actorId(),
+                            target.actorUsername(),
 
-                AuditActionType.USER_CREATED,
-                AuditTargetType.USER,
+                            AuditActionType.USER_CREATED,
+                            AuditTargetType.USER,
 
-                target.getId().toString(),
-                target.getFullName(),
+                            target.userId().toString(),
+                            target.fullName(),
 
-                details,
+                            getRawDetails(target),
 
-                Instant.now()
-        );
+                            // When it happened, not when it was relayed
+                            event.createdAt()
+                    );
+                })
+                .toList();
 
-        auditLogRepository.save(log);
+        auditLogWriter.write(logs);
     }
 
-    private String getRawDetails(User target) {
+    private String getRawDetails(UserCreatedEvent target) {
         try {
             // Create a custom details node
             final ObjectNode details = objectMapper.createObjectNode();
 
-            details.put("username", target.getUsername());
-            details.put("email", target.getEmail());
+            details.put("username", target.username());
+            details.put("email", target.email());
 
             return objectMapper.writeValueAsString(details);
 
@@ -0,0 +1,19 @@
+package com.andreiromila.vetl.audit;
+
+import org.springframework.data.domain.Slice;
+
+public interface AuditLogFilterRepository {
+
+    /**
+     * Reads the activity feed from the cursor position instead of skipping
+     * rows, and without counting them. Every filter and sort is served by a
+     * range scan of one index, see the {@code V12} migration.
+     *
+     * @param filter {@link ActivityFilter} The filters
+     * @param cursor {@link ActivityCursor} The sort and position to continue from
+     * @param size   {@link Integer} The maximum number of entries to return
+     * @return The slice of entries, {@link Slice#hasNext()} tells if there are more
+     */
+    Slice<AuditLog> scroll(final ActivityFilter filter, final ActivityCursor cursor, final int size);
+
+}
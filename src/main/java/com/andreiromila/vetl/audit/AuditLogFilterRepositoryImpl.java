@@ -0,0 +1,215 @@
+package com.andreiromila.vetl.audit;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Audit log filter repository implementation.
+ * <p>
+ * The feed is ordered by the sort column, then by {@code (created_at, id)}
+ * in the same direction, and seeks past the cursor with expanded OR
+ * conditions that MySQL turns into index ranges (row constructor
+ * comparisons are not). Only the actor can be null: system actions sort
+ * first ascending and last descending, like MySQL does.
+ */
+@Repository
+public class AuditLogFilterRepositoryImpl implements AuditLogFilterRepository {
+
+    /**
+     * Sortable properties mapped to their column
+     */
+    static final Map<String, String> SORT_COLUMNS = Map.of(
+            "createdAt", "created_at",
+            "actorUsername", "actor_username",
+            "actionType", "action_type"
+    );
+
+    /**
+     * Maps an {@code audit_log} row, also used by {@link RecentActivity}
+     */
+    static final RowMapper<AuditLog> ROW_MAPPER = (rs, rowNum) -> new AuditLog(
+            rs.getLong("id"),
+            rs.getObject("actor_id", Long.class),
+            rs.getString("actor_username"),
+            AuditActionType.valueOf(rs.getString("action_type")),
+            AuditTargetType.valueOf(rs.getString("target_type")),
+            rs.getString("target_id"),
+            rs.getString("target_display_name"),
+            rs.getString("details"),
+            rs.getTimestamp("created_at").toInstant()
+    );
+
+    /**
+     * Contains the named parameter jdbc template
+     */
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructs the repository
+     *
+     * @param jdbcTemplate {@link NamedParameterJdbcTemplate} Named parameter jdbc template
+     */
+    public AuditLogFilterRepositoryImpl(final NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Slice<AuditLog> scroll(final ActivityFilter filter, final ActivityCursor cursor, final int size) {
+
+        final MapSqlParameterSource params = new MapSqlParameterSource("limit", size + 1);
+
+        final List<AuditLog> logs = jdbcTemplate.query(sql(filter, cursor, params), params, ROW_MAPPER);
+        final boolean hasNext = logs.size() > size;
+
+        return new SliceImpl<>(hasNext ? logs.subList(0, size) : logs, PageRequest.ofSize(size), hasNext);
+    }
+
+    /**
+     * Builds the feed query, on the index that gives the filters in the
+     * sort order, see {@link ActivityFilter#checkSortedBy(String)}
+     *
+     * @return The query, its parameters are added to {@code params}
+     */
+    static String sql(final ActivityFilter filter, final ActivityCursor cursor, final MapSqlParameterSource params) {
+
+        final List<String> conditions = filter(filter, params);
+
+        final String column = SORT_COLUMNS.get(cursor.property());
+        final String direction = cursor.direction().name();
+
+        if (!cursor.isFirst()) {
+            conditions.add(seek(column, cursor, params));
+        }
+
+        final String orderBy = column.equals("created_at")
+                ? "a.created_at %1$s, a.id %1$s".formatted(direction)
+                : "a.%1$s %2$s, a.created_at %2$s, a.id %2$s".formatted(column, direction);
+
+        return """
+                SELECT a.id, a.actor_id, a.actor_username, a.action_type, a.target_type,
+                       a.target_id, a.target_display_name, a.details, a.created_at
+                FROM audit_log a FORCE INDEX (%s)
+                %s
+                ORDER BY %s
+                LIMIT :limit
+                """.formatted(index(filter, column), conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions), orderBy);
+    }
+
+    /**
+     * Chooses the index, forced so that a small or skewed table never
+     * turns the feed into a filesort
+     *
+     * @return The index name
+     */
+    static String index(final ActivityFilter filter, final String column) {
+
+        // Sorted by another column, the filter of that column (if any) uses the same index
+        if (column.equals("actor_username")) {
+            return "idx_audit_log_actor";
+        }
+        if (column.equals("action_type")) {
+            return "idx_audit_log_action";
+        }
+
+        // Sorted by date, the most selective filter with an index
+        if (filter.targetId() != null) {
+            return "idx_audit_log_target";
+        }
+        if (filter.actorUsername() != null) {
+            return "idx_audit_log_actor";
+        }
+        if (filter.actionType() != null) {
+            return "idx_audit_log_action";
+        }
+        if (filter.targetType() != null) {
+            return "idx_audit_log_target_type";
+        }
+        return "idx_audit_log_created_at";
+    }
+
+    /**
+     * Builds the equality and time range conditions
+     *
+     * @return The conditions, mutable so the seek can be added
+     */
+    private static List<String> filter(final ActivityFilter filter, final MapSqlParameterSource params) {
+
+        final List<String> conditions = new ArrayList<>();
+
+        if (filter.actorUsername() != null) {
+            conditions.add("a.actor_username = :actor");
+            params.addValue("actor", filter.actorUsername());
+        }
+
+        if (filter.actionType() != null) {
+            conditions.add("a.action_type = :actionType");
+            params.addValue("actionType", filter.actionType().name());
+        }
+
+        if (filter.targetType() != null) {
+            conditions.add("a.target_type = :targetType");
+            params.addValue("targetType", filter.targetType().name());
+        }
+
+        if (filter.targetId() != null) {
+            conditions.add("a.target_id = :targetId");
+            params.addValue("targetId", filter.targetId());
+        }
+
+        if (filter.from() != null) {
+            conditions.add("a.created_at >= :from");
+            params.addValue("from", Timestamp.from(filter.from()));
+        }
+
+        if (filter.to() != null) {
+            conditions.add("a.created_at < :to");
+            params.addValue("to", Timestamp.from(filter.to()));
+        }
+
+        return conditions;
+    }
+
+    /**
+     * Builds the condition of the rows after the cursor
+     *
+     * @return The keyset condition
+     */
+    private static String seek(final String column, final ActivityCursor cursor, final MapSqlParameterSource params) {
+
+        final boolean ascending = cursor.direction().isAscending();
+        final String operator = ascending ? ">" : "<";
+
+        params.addValue("createdAt", Timestamp.from(cursor.createdAt()));
+        params.addValue("id", cursor.id());
+
+        // Same sort value, then the creation date and the id
+        final String tail = "(a.created_at %1$s :createdAt OR (a.created_at = :createdAt AND a.id %1$s :id))".formatted(operator);
+
+        if (column.equals("created_at")) {
+            return tail;
+        }
+
+        if (cursor.value() == null) {
+            // After a system action: ascending every actor follows, descending only the older system actions
+            return ascending
+                    ? "(a.%1$s IS NOT NULL OR (a.%1$s IS NULL AND %2$s))".formatted(column, tail)
+                    : "(a.%1$s IS NULL AND %2$s)".formatted(column, tail);
+        }
+
+        params.addValue("value", cursor.value());
+
+        // Descending, the system actions come after every actor
+        final String nulls = ascending || !column.equals("actor_username") ? "" : " OR a.%s IS NULL".formatted(column);
+        return "(a.%1$s %2$s :value%3$s OR (a.%1$s = :value AND %4$s))".formatted(column, operator, nulls, tail);
+    }
+}
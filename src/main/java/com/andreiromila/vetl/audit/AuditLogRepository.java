@@ -1,11 +1,25 @@
 package com.andreiromila.vetl.audit;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Repository interface for AuditLog entities.
  * Extends PagingAndSortingRepository to support pagination and sorting out of the box.
  */
-public interface AuditLogRepository extends CrudRepository<AuditLog, Long>, PagingAndSortingRepository<AuditLog, Long> {
+public interface AuditLogRepository extends AuditLogFilterRepository, CrudRepository<AuditLog, Long>, PagingAndSortingRepository<AuditLog, Long> {
+
+    /**
+     * Finds a slice of audit log entries without counting them,
+     * one extra row is read to know whether there is a next slice.
+     *
+     * @param pageable {@link Pageable} The pagination and sorting information.
+     * @return A {@link Slice} of {@link AuditLog} entities.
+     */
+    @Transactional(readOnly = true)
+    Slice<AuditLog> findAllBy(Pageable pageable);
+
 }
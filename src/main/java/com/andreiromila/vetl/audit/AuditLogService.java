@@ -1,30 +1,96 @@
 package com.andreiromila.vetl.audit;
 
-import org.springframework.data.domain.Page;
+import com.andreiromila.vetl.exceptions.HttpBadRequestException;
+import com.andreiromila.vetl.responses.EstimatedPage;
+import com.andreiromila.vetl.responses.TotalCountCache;
+import com.andreiromila.vetl.responses.TotalMode;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Service for querying and managing audit log data.
  */
 @Service
 public class AuditLogService {
 
+    /**
+     * The listing key of the approximate totals
+     */
+    private static final String TOTAL_KEY = "audit_log";
+
+    /**
+     * The sort of the dashboard feed, the one kept in memory
+     */
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "createdAt");
+
     private final AuditLogRepository auditLogRepository;
 
-    public AuditLogService(final AuditLogRepository auditLogRepository) {
+    private final TotalCountCache totalCountCache;
+
+    private final RecentActivity recentActivity;
+
+    public AuditLogService(final AuditLogRepository auditLogRepository, final TotalCountCache totalCountCache, final RecentActivity recentActivity) {
         this.auditLogRepository = auditLogRepository;
+        this.totalCountCache = totalCountCache;
+        this.recentActivity = recentActivity;
     }
 
     /**
-     * Retrieves a paginated list of the most recent audit log entries.
+     * Retrieves the most recent audit log entries, counting them as requested.
+     * The table only grows, so the exact count gets slower over time.
+     * The first page sorted by creation date is served from the {@link RecentActivity}
+     * without any query. Unless an exact total was requested, its running total
+     * is returned as an estimate: it is counted once and incremented from then on.
+     * Not transactional: a transaction would take a connection even for the
+     * in-memory page, every repository call is read-only on its own.
      * @param pageable Pagination information (should be sorted by createdAt descending).
-     * @return A Page of AuditLog entities.
+     * @param totalMode How the total is computed, null when not requested (exact
+     *                  unless the page is served from memory).
+     * @return A Slice of AuditLog entities, a Page when it has a total.
+     */
+    public Slice<AuditLog> findRecentActivity(Pageable pageable, TotalMode totalMode) {
+
+        if (pageable.getPageNumber() == 0 && pageable.getSort().equals(NEWEST_FIRST)) {
+            final Optional<RecentActivity.Snapshot> latest = recentActivity.latest(pageable.getPageSize());
+            if (latest.isPresent()) {
+                final List<AuditLog> content = latest.get().content();
+                if (totalMode == TotalMode.EXACT) {
+                    return new PageImpl<>(content, pageable, auditLogRepository.count());
+                }
+                return totalMode == TotalMode.NONE
+                        ? new SliceImpl<>(content, pageable, latest.get().total() > content.size())
+                        : new EstimatedPage<>(content, pageable, latest.get().total());
+            }
+        }
+
+        return switch (totalMode == null ? TotalMode.EXACT : totalMode) {
+            case EXACT -> auditLogRepository.findAll(pageable);
+            case NONE -> auditLogRepository.findAllBy(pageable);
+            case APPROXIMATE -> totalCountCache.estimate(TOTAL_KEY, auditLogRepository.findAllBy(pageable), auditLogRepository::count);
+        };
+    }
+
+    /**
+     * Retrieves the filtered activity from the cursor position, without
+     * counting it: deep pages are as fast as the first one.
+     * @param filter The filters, combined with AND.
+     * @param cursor The sort and position to continue from.
+     * @param size The maximum number of entries.
+     * @return A Slice of AuditLog entities.
+     * @throws HttpBadRequestException If the filters can not be combined with the sort.
      */
     @Transactional(readOnly = true)
-    public Page<AuditLog> findRecentActivity(Pageable pageable) {
-        return auditLogRepository.findAll(pageable);
+    public Slice<AuditLog> scrollActivity(ActivityFilter filter, ActivityCursor cursor, int size) {
+        filter.checkSortedBy(cursor.property());
+        return auditLogRepository.scroll(filter, cursor, size);
     }
 
 }
@@ -0,0 +1,165 @@
+package com.andreiromila.vetl.audit;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writer of the audit log.
+ * <p>
+ * Entries are written with one batched multi-row INSERT per call, in the
+ * caller's transaction: an entry of a rolled back change is never written
+ * and a committed change is never left unaudited. Entries are not held in
+ * memory, where a stopping node would lose them. Written entries are
+ * handed to the {@link RecentActivity}, with the creation time rounded to
+ * the second like the {@code created_at} column stores it.
+ * <p>
+ * Exported meters: {@code vetl.audit.batch.size} (distribution),
+ * {@code vetl.audit.flush} (latency) and {@code vetl.audit.written}.
+ */
+@Component
+public class AuditLogWriter implements MeterBinder {
+
+    private static final String INSERT = """
+            INSERT INTO audit_log (actor_id, actor_username, action_type, target_type, target_id, target_display_name, details, created_at)
+            VALUES (:actorId, :actorUsername, :actionType, :targetType, :targetId, :targetDisplayName, :details, :createdAt)
+            """;
+
+    /**
+     * Contains the named parameter jdbc template
+     */
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Receives the written entries
+     */
+    private final RecentActivity recentActivity;
+
+    private final LongAdder written = new LongAdder();
+
+    /**
+     * Set once the meters are bound
+     */
+    private volatile DistributionSummary batchSizes;
+    private volatile Timer flushes;
+
+    /**
+     * Constructs the writer with required dependencies
+     *
+     * @param jdbcTemplate   {@link NamedParameterJdbcTemplate} Named parameter jdbc template
+     * @param recentActivity {@link RecentActivity} Receives the written entries
+     */
+    public AuditLogWriter(final NamedParameterJdbcTemplate jdbcTemplate, final RecentActivity recentActivity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.recentActivity = recentActivity;
+    }
+
+    /**
+     * Writes the entries with one batched INSERT, in the current transaction,
+     * and hands them to the latest activity
+     *
+     * @param logs {@link List} The audit entries
+     */
+    public void write(final List<AuditLog> logs) {
+        if (!logs.isEmpty()) {
+            recentActivity.append(insert(logs));
+        }
+    }
+
+    /**
+     * Runs one batched INSERT, multi-row with {@code rewriteBatchedStatements}
+     *
+     * @param logs {@link List} The entries
+     * @return The entries with their generated id, same order
+     */
+    private List<AuditLog> insert(final List<AuditLog> logs) {
+        final List<AuditLog> rounded = logs.stream()
+                .map(entry -> new AuditLog(null, entry.actorId(), entry.actorUsername(), entry.actionType(), entry.targetType(),
+                        entry.targetId(), entry.targetDisplayName(), entry.details(), toSeconds(entry.createdAt())))
+                .toList();
+
+        final SqlParameterSource[] params = rounded.stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("actorId", entry.actorId())
+                        .addValue("actorUsername", entry.actorUsername())
+                        .addValue("actionType", entry.actionType().name())
+                        .addValue("targetType", entry.targetType().name())
+                        .addValue("targetId", entry.targetId())
+                        .addValue("targetDisplayName", entry.targetDisplayName())
+                        .addValue("details", entry.details())
+                        .addValue("createdAt", Timestamp.from(entry.createdAt())))
+                .toArray(SqlParameterSource[]::new);
+
+        final KeyHolder keys = new GeneratedKeyHolder();
+        final long start = System.nanoTime();
+        jdbcTemplate.batchUpdate(INSERT, params, keys, new String[]{"id"});
+        written.add(logs.size());
+
+        final Timer timer = flushes;
+        final DistributionSummary summary = batchSizes;
+        if (timer != null && summary != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            summary.record(logs.size());
+        }
+
+        final List<Map<String, Object>> ids = keys.getKeyList();
+        final List<AuditLog> inserted = new ArrayList<>(logs.size());
+        for (int i = 0; i < rounded.size(); i++) {
+            final AuditLog entry = rounded.get(i);
+            final Long id = i < ids.size() ? ((Number) ids.get(i).values().iterator().next()).longValue() : null;
+            inserted.add(new AuditLog(id, entry.actorId(), entry.actorUsername(), entry.actionType(), entry.targetType(),
+                    entry.targetId(), entry.targetDisplayName(), entry.details(), entry.createdAt()));
+        }
+
+        return inserted;
+    }
+
+    /**
+     * Rounds to the second, half up, as MySQL stores an instant in a
+     * {@code TIMESTAMP} column without fraction
+     *
+     * @param instant {@link Instant} The instant
+     * @return The instant the column keeps
+     */
+    static Instant toSeconds(final Instant instant) {
+        return instant.plusMillis(500).truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    /**
+     * Registers the writer meters
+     *
+     * @param registry {@link MeterRegistry} The meter registry
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        batchSizes = DistributionSummary.builder("vetl.audit.batch.size")
+                .description("Audit entries per batched INSERT")
+                .register(registry);
+
+        flushes = Timer.builder("vetl.audit.flush")
+                .description("Time to write one batch of audit entries")
+                .publishPercentileHistogram()
+                .register(registry);
+
+        FunctionCounter.builder("vetl.audit.written", written, LongAdder::sum)
+                .description("Audit entries written")
+                .register(registry);
+    }
+}
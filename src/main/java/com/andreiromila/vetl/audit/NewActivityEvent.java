@@ -0,0 +1,22 @@
+package com.andreiromila.vetl.audit;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+
+/**
+ * Event published by the {@link RecentActivity} with the entries it just
+ * received: written on this node once committed, or written on another
+ * node and found by a reload. Each entry is published once, oldest first.
+ */
+@Getter
+public class NewActivityEvent extends ApplicationEvent {
+
+    private final List<AuditLog> entries;
+
+    public NewActivityEvent(Object source, List<AuditLog> entries) {
+        super(source);
+        this.entries = entries;
+    }
+}
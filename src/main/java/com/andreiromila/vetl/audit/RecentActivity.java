@@ -0,0 +1,544 @@
+package com.andreiromila.vetl.audit;
+
+import com.andreiromila.vetl.invalidation.CacheInvalidationEvent;
+import com.andreiromila.vetl.invalidation.InvalidationBus;
+import com.andreiromila.vetl.invalidation.InvalidationTopic;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size ring buffer of the latest audit entries, serves the first
+ * page of the activity feed (the dashboard) without touching the database.
+ * <p>
+ * The buffer is loaded on startup with the newest entries and the total
+ * count, and every entry written by the {@link AuditLogWriter} is appended
+ * once committed: a new entry overwrites the oldest slot, an entry older
+ * than the newest ones (a delayed write) is moved into its place. Entries
+ * written on other nodes arrive through the {@link InvalidationBus}: the
+ * buffer is marked stale and reloaded once, by the next read. While
+ * followed (by the live activity stream) it is reloaded in the background
+ * as soon as they arrive instead, once for the invalidations received
+ * together, off the invalidation poll.
+ * <p>
+ * The table is only counted by the first load. Every invalidation carries
+ * the number of entries written and the first id, so the total is
+ * incremented with it and a reload seeks the entries from the earliest
+ * pending id on the primary key, instead of reading the newest ones again.
+ * An invalidation the bus gives up on is never added, so the total is an
+ * estimate.
+ * <p>
+ * Entries not seen before are published as a {@link NewActivityEvent}.
+ * <p>
+ * Exported meters: {@code vetl.audit.recent.hits}, {@code vetl.audit.recent.misses}
+ * (pages read from the database instead) and {@code vetl.audit.recent.reloads}.
+ */
+@Log4j2
+@Component
+public class RecentActivity implements MeterBinder, SmartInitializingSingleton {
+
+    private static final String SELECT_LATEST = """
+            SELECT id, actor_id, actor_username, action_type, target_type, target_id, target_display_name, details, created_at
+            FROM audit_log
+            ORDER BY created_at DESC, id DESC
+            LIMIT :limit
+            """;
+
+    private static final String SELECT_SINCE = """
+            SELECT id, actor_id, actor_username, action_type, target_type, target_id, target_display_name, details, created_at
+            FROM audit_log
+            WHERE id >= :since
+            ORDER BY id DESC
+            LIMIT :limit
+            """;
+
+    private static final String COUNT = "SELECT COUNT(*) FROM audit_log";
+
+    /**
+     * The database order of the feed, {@code created_at} then {@code id}
+     * ascending; entries without an id come first within their second
+     */
+    private static final Comparator<AuditLog> CREATION_ORDER = Comparator.comparing(AuditLog::createdAt)
+            .thenComparing(AuditLog::id, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /**
+     * Entries counted for an invalidation published before the key carried their number
+     */
+    private static final long UNCOUNTED = 1;
+
+    /**
+     * The latest entries and the total, newest first
+     *
+     * @param content {@link List} At most the requested entries
+     * @param total   {@link Long} Every entry of the audit log, a running estimate
+     */
+    public record Snapshot(List<AuditLog> content, long total) { }
+
+    /**
+     * Contains the named parameter jdbc template
+     */
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Tells the other nodes about the new entries
+     */
+    private final InvalidationBus invalidationBus;
+
+    /**
+     * Publishes the entries not seen before
+     */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Runs the reloads of the followed buffer
+     */
+    private final TaskExecutor taskExecutor;
+
+    /**
+     * Buffer configuration
+     */
+    private final RecentActivityProperties properties;
+
+    /**
+     * The slots, the newest entry is right before {@link #head}
+     */
+    private final AuditLog[] ring;
+
+    /**
+     * The slot of the next entry, the oldest one once full
+     */
+    private int head;
+
+    /**
+     * Used slots
+     */
+    private int size;
+
+    /**
+     * Every entry of the audit log, as of the first load plus the entries written since
+     */
+    private long total;
+
+    /**
+     * Set once loaded, reads fall back to the database before
+     */
+    private boolean loaded;
+
+    /**
+     * The earliest first id of the entries other nodes wrote since the
+     * last reload, null to read the newest entries
+     */
+    private Long since;
+
+    /**
+     * Set when another node wrote entries
+     */
+    private volatile boolean stale;
+
+    /**
+     * Set while a reload is scheduled, the invalidations received meanwhile share it
+     */
+    private final AtomicBoolean reloadScheduled = new AtomicBoolean();
+
+    /**
+     * Number of followers, entries of other nodes are reloaded right away while positive
+     */
+    private final AtomicInteger followers = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+
+    /**
+     * Constructs the buffer, the entries are loaded on startup
+     *
+     * @param jdbcTemplate    {@link NamedParameterJdbcTemplate} Named parameter jdbc template
+     * @param invalidationBus {@link InvalidationBus} Tells the other nodes about the new entries
+     * @param eventPublisher  {@link ApplicationEventPublisher} Publishes the entries not seen before
+     * @param taskExecutor    {@link TaskExecutor} Runs the reloads of the followed buffer
+     * @param properties      {@link RecentActivityProperties} Buffer configuration
+     */
+    public RecentActivity(final NamedParameterJdbcTemplate jdbcTemplate,
+                          final InvalidationBus invalidationBus,
+                          final ApplicationEventPublisher eventPublisher,
+                          @Qualifier("applicationTaskExecutor") final TaskExecutor taskExecutor,
+                          final RecentActivityProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.invalidationBus = invalidationBus;
+        this.eventPublisher = eventPublisher;
+        this.taskExecutor = taskExecutor;
+        this.properties = properties;
+        this.ring = new AuditLog[Math.max(1, properties.capacity())];
+    }
+
+    /**
+     * Loads the latest entries once every bean is ready
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (properties.enabled()) {
+            reload();
+            log.info("Loaded the {} latest of {} audit entries.", size(), total());
+        }
+    }
+
+    /**
+     * Appends entries just written, once the current transaction commits
+     * (right away without a transaction), and tells the other nodes in the
+     * same transaction
+     *
+     * @param logs {@link List} The written entries
+     */
+    public void append(final List<AuditLog> logs) {
+        if (!properties.enabled() || logs.isEmpty()) {
+            return;
+        }
+
+        invalidationBus.publish(InvalidationTopic.ACTIVITY, key(logs), null);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addAll(logs);
+                }
+            });
+        } else {
+            addAll(logs);
+        }
+    }
+
+    /**
+     * Counts the entries another node wrote and marks the buffer stale,
+     * schedules a reload while followed
+     *
+     * @param event {@link CacheInvalidationEvent} The received invalidation
+     */
+    @EventListener
+    public void onInvalidation(final CacheInvalidationEvent event) {
+        if (event.getTopic() != InvalidationTopic.ACTIVITY) {
+            return;
+        }
+
+        final String[] parts = event.getKey().split(":", 2);
+        final long written = parse(parts[0], UNCOUNTED);
+        final long firstId = parts.length == 2 ? parse(parts[1], 0) : 0;
+
+        synchronized (this) {
+            total += written;
+            // Without the first id (published by an older node) the newest entries are read
+            since = firstId == 0 ? null : earliest(since, firstId);
+        }
+
+        stale = true;
+
+        if (followers.get() > 0) {
+            scheduleReload();
+        }
+    }
+
+    /**
+     * Starts following the entries written on other nodes, every call
+     * must be paired with {@link #unfollow()}
+     */
+    public void follow() {
+        // Catch up first, the entries written while nobody followed are not new
+        if (followers.getAndIncrement() == 0 && stale) {
+            tryReload();
+        }
+    }
+
+    /**
+     * Stops following the entries written on other nodes
+     */
+    public void unfollow() {
+        followers.decrementAndGet();
+    }
+
+    /**
+     * Returns the newest entries, reloading them first if another node wrote some
+     *
+     * @param count {@link Integer} The number of entries
+     * @return The entries and the total, empty if the buffer can not serve them
+     */
+    public Optional<Snapshot> latest(final int count) {
+        if (!properties.enabled() || count > ring.length) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        if (stale) {
+            reload();
+        }
+
+        synchronized (this) {
+            if (!loaded) {
+                misses.increment();
+                return Optional.empty();
+            }
+
+            final List<AuditLog> content = new ArrayList<>(Math.min(count, size));
+            for (int i = 0; i < Math.min(count, size); i++) {
+                content.add(ring[slot(i)]);
+            }
+
+            hits.increment();
+            return Optional.of(new Snapshot(content, total));
+        }
+    }
+
+    /**
+     * Reloads on the task executor, unless a reload is already waiting to run
+     */
+    private void scheduleReload() {
+        if (reloadScheduled.compareAndSet(false, true)) {
+            taskExecutor.execute(() -> {
+                reloadScheduled.set(false);
+                tryReload();
+            });
+        }
+    }
+
+    private void tryReload() {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            // Still stale, the next read or invalidation tries again
+            log.warn("Could not reload the latest activity: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the key of the invalidation of written entries: their number
+     * and the first id, e.g. {@code 3:1042}
+     *
+     * @param logs {@link List} The written entries
+     * @return The invalidation key
+     */
+    static String key(final List<AuditLog> logs) {
+        final long firstId = logs.stream()
+                .map(AuditLog::id)
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue)
+                .min()
+                .orElse(0);
+
+        return firstId == 0 ? String.valueOf(logs.size()) : logs.size() + ":" + firstId;
+    }
+
+    private static long parse(final String value, final long fallback) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static Long earliest(final Long since, final long id) {
+        return since == null ? id : Math.min(since, id);
+    }
+
+    /**
+     * Reads the entries written on other nodes since the last reload (the
+     * newest ones on the first load), adds the ones not buffered yet and
+     * publishes them (none on the first load). Only the first load counts
+     * the table.
+     */
+    void reload() {
+        stale = false;
+
+        final Long from;
+        final boolean counted;
+        synchronized (this) {
+            from = loaded ? since : null;
+            since = null;
+            counted = loaded;
+        }
+
+        final List<AuditLog> entries;
+        final Long count;
+        try {
+            entries = from == null
+                    ? jdbcTemplate.query(SELECT_LATEST, new MapSqlParameterSource("limit", ring.length), AuditLogFilterRepositoryImpl.ROW_MAPPER)
+                    : jdbcTemplate.query(SELECT_SINCE, new MapSqlParameterSource().addValue("since", from).addValue("limit", ring.length), AuditLogFilterRepositoryImpl.ROW_MAPPER);
+            count = counted ? null : jdbcTemplate.queryForObject(COUNT, new MapSqlParameterSource(), Long.class);
+        } catch (RuntimeException e) {
+            // Still stale, the next read tries again from the same id
+            synchronized (this) {
+                if (from != null) {
+                    since = earliest(since, from);
+                }
+            }
+            stale = true;
+            throw e;
+        }
+
+        final List<AuditLog> fresh = new ArrayList<>();
+
+        synchronized (this) {
+            // Merged, the entries appended meanwhile are kept and not added twice
+            final Set<Long> known = ids();
+            for (AuditLog entry : entries.reversed()) {
+                if (!known.contains(entry.id()) && add(entry) && counted) {
+                    fresh.add(entry);
+                }
+            }
+
+            if (!counted) {
+                total = count == null ? size : count;
+            }
+            loaded = true;
+        }
+
+        reloads.increment();
+        publish(fresh);
+    }
+
+    /**
+     * Adds the committed entries, a reload may have found some of them already
+     *
+     * @param logs {@link List} The written entries
+     */
+    private void addAll(final List<AuditLog> logs) {
+        final List<AuditLog> fresh = new ArrayList<>(logs.size());
+
+        synchronized (this) {
+            final Set<Long> known = ids();
+            for (AuditLog entry : logs) {
+                if (entry.id() == null || !known.contains(entry.id())) {
+                    fresh.add(entry);
+                    add(entry);
+                }
+            }
+            total += fresh.size();
+        }
+
+        publish(fresh);
+    }
+
+    /**
+     * Returns the ids of the buffered entries, called with the lock held
+     */
+    private Set<Long> ids() {
+        final Set<Long> ids = new HashSet<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add(ring[slot(i)].id());
+        }
+        ids.remove(null);
+        return ids;
+    }
+
+    /**
+     * Publishes the entries not seen before, outside the lock
+     */
+    private void publish(final List<AuditLog> fresh) {
+        if (!fresh.isEmpty()) {
+            eventPublisher.publishEvent(new NewActivityEvent(this, List.copyOf(fresh)));
+        }
+    }
+
+    /**
+     * Adds an entry in creation order, ties by id like the database, the
+     * oldest entry leaves once full
+     *
+     * @param entry {@link AuditLog} The entry
+     * @return {@code false} if older than every kept entry
+     */
+    private boolean add(final AuditLog entry) {
+
+        // Entries newer than this one, usually none
+        int newer = 0;
+        while (newer < size && CREATION_ORDER.compare(ring[slot(newer)], entry) > 0) {
+            newer++;
+        }
+
+        // Older than every kept entry, not among the latest
+        if (newer == ring.length) {
+            return false;
+        }
+
+        int slot = head;
+        head = (head + 1) % ring.length;
+        size = Math.min(size + 1, ring.length);
+
+        // Shift the newer entries up to free the slot of this one
+        for (int i = 0; i < newer; i++) {
+            final int previous = (slot - 1 + ring.length) % ring.length;
+            ring[slot] = ring[previous];
+            slot = previous;
+        }
+        ring[slot] = entry;
+        return true;
+    }
+
+    /**
+     * Returns the slot of the i-th newest entry
+     */
+    private int slot(final int index) {
+        return (head - 1 - index + 2 * ring.length) % ring.length;
+    }
+
+    /**
+     * Returns the number of buffered entries
+     *
+     * @return The buffer size
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the total number of audit entries known to the buffer
+     *
+     * @return The total
+     */
+    public synchronized long total() {
+        return total;
+    }
+
+    /**
+     * Registers the buffer meters
+     *
+     * @param registry {@link MeterRegistry} The meter registry
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        FunctionCounter.builder("vetl.audit.recent.hits", hits, LongAdder::sum)
+                .description("Activity pages served from memory")
+                .register(registry);
+
+        FunctionCounter.builder("vetl.audit.recent.misses", misses, LongAdder::sum)
+                .description("Activity pages the buffer could not serve")
+                .register(registry);
+
+        FunctionCounter.builder("vetl.audit.recent.reloads", reloads, LongAdder::sum)
+                .description("Reloads of the latest activity from the database")
+                .register(registry);
+    }
+}
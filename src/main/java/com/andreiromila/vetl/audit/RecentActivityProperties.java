@@ -0,0 +1,19 @@
+package com.andreiromila.vetl.audit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties for the in-memory latest activity.
+ *
+ * @param enabled  {@link Boolean} Whether the first page of the activity feed is served from memory
+ * @param capacity {@link Integer} Latest entries kept, larger pages are read from the database
+ */
+@ConfigurationProperties(prefix = "application.audit.recent")
+public record RecentActivityProperties(
+        @DefaultValue("true")
+        boolean enabled,
+
+        @DefaultValue("50")
+        int capacity
+) { }
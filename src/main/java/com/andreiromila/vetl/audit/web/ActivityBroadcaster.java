@@ -0,0 +1,422 @@
+package com.andreiromila.vetl.audit.web;
+
+import com.andreiromila.vetl.audit.AuditLog;
+import com.andreiromila.vetl.audit.NewActivityEvent;
+import com.andreiromila.vetl.audit.RecentActivity;
+import com.andreiromila.vetl.exceptions.HttpServiceUnavailableException;
+import com.andreiromila.vetl.token.AccessTokenClaims;
+import com.andreiromila.vetl.token.RevokedTokens;
+import com.andreiromila.vetl.user.UserService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * Fans the new audit entries out to the open activity streams.
+ * <p>
+ * Every subscriber has a bounded buffer and a virtual thread that sends
+ * it, parked while the stream is idle. The entries of a
+ * {@link NewActivityEvent} are serialized once and offered to every
+ * buffer without blocking: the publisher is the thread that committed the
+ * audit entries (or the invalidation poll), a subscriber whose buffer is
+ * full is dropped instead, the client reconnects and reloads the first
+ * page. Heartbeat comments keep the idle streams open through proxies and
+ * find the closed ones.
+ * <p>
+ * Only the sender touches the emitter: sending and completing lock it, and
+ * a send may be stuck behind a stalled client. Closing a stream marks it
+ * closed and wakes the sender, which completes it.
+ * <p>
+ * A stream outlives the access token check of the request that opened it:
+ * it times out when the access token expires, at the latest, and every
+ * heartbeat checks the token and the user again, and closes the streams of
+ * revoked tokens and disabled (or deleted) users.
+ * <p>
+ * Entries reach the stream through the {@link RecentActivity}, which is
+ * followed while there are subscribers: without it (disabled) the streams
+ * only receive heartbeats.
+ * <p>
+ * Exported meters: {@code vetl.activity.stream.subscribers} (gauge),
+ * {@code vetl.activity.stream.sent}, {@code vetl.activity.stream.dropped}
+ * (slow subscribers) and {@code vetl.activity.stream.revoked}.
+ */
+@Log4j2
+@Component
+public class ActivityBroadcaster implements MeterBinder, DisposableBean {
+
+    /**
+     * Queued in place of an entry to send a heartbeat, entries are never empty
+     */
+    private static final String HEARTBEAT = "";
+
+    /**
+     * Receives the entries and follows the other nodes
+     */
+    private final RecentActivity recentActivity;
+
+    /**
+     * Serializes the entries
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Stream configuration
+     */
+    private final ActivityStreamProperties properties;
+
+    /**
+     * Loads the users of the streams on every heartbeat
+     */
+    private final UserService userService;
+
+    /**
+     * Knows the revoked tokens
+     */
+    private final RevokedTokens revokedTokens;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Open streams, reserved before the subscriber is added so the limit holds
+     */
+    private final AtomicInteger connected = new AtomicInteger();
+
+    /**
+     * Creates the sender of every subscriber
+     */
+    private final ThreadFactory senders;
+
+    /**
+     * Creates the emitter of every subscriber, from its timeout in milliseconds
+     */
+    private final LongFunction<SseEmitter> emitters;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder revoked = new LongAdder();
+
+    /**
+     * Constructs the broadcaster
+     *
+     * @param recentActivity {@link RecentActivity} Receives the entries and follows the other nodes
+     * @param objectMapper   {@link ObjectMapper} Serializes the entries
+     * @param properties     {@link ActivityStreamProperties} Stream configuration
+     * @param userService    {@link UserService} Loads the users of the streams on every heartbeat
+     * @param revokedTokens  {@link RevokedTokens} Knows the revoked tokens
+     */
+    public ActivityBroadcaster(final RecentActivity recentActivity,
+                               final ObjectMapper objectMapper,
+                               final ActivityStreamProperties properties,
+                               final UserService userService,
+                               final RevokedTokens revokedTokens) {
+        this(recentActivity, objectMapper, properties, userService, revokedTokens,
+                Thread.ofVirtual().name("activity-stream-", 0).factory(),
+                SseEmitter::new);
+    }
+
+    /**
+     * Constructs the broadcaster with the factories of the senders and emitters
+     *
+     * @param senders  {@link ThreadFactory} Creates the sender of every subscriber
+     * @param emitters {@link LongFunction} Creates the emitter of every subscriber, from its timeout in milliseconds
+     */
+    ActivityBroadcaster(final RecentActivity recentActivity,
+                        final ObjectMapper objectMapper,
+                        final ActivityStreamProperties properties,
+                        final UserService userService,
+                        final RevokedTokens revokedTokens,
+                        final ThreadFactory senders,
+                        final LongFunction<SseEmitter> emitters) {
+        this.recentActivity = recentActivity;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.userService = userService;
+        this.revokedTokens = revokedTokens;
+        this.senders = senders;
+        this.emitters = emitters;
+    }
+
+    /**
+     * Opens a stream of the entries written from now on, until the
+     * configured timeout or the expiration of the access token
+     *
+     * @param claims {@link AccessTokenClaims} The access token of the request, checked again on every heartbeat
+     * @return The emitter of the stream
+     * @throws HttpServiceUnavailableException If this node has no room for another stream
+     */
+    public SseEmitter subscribe(final AccessTokenClaims claims) {
+
+        if (connected.incrementAndGet() > properties.maxSubscribers()) {
+            connected.decrementAndGet();
+            throw new HttpServiceUnavailableException("Too many activity streams, try again later.");
+        }
+
+        final Subscriber subscriber = new Subscriber(
+                claims,
+                emitters.apply(timeout(claims)),
+                new ArrayBlockingQueue<>(Math.max(1, properties.bufferSize()))
+        );
+
+        subscriber.emitter.onCompletion(() -> close(subscriber));
+        subscriber.emitter.onTimeout(() -> close(subscriber));
+        subscriber.emitter.onError(e -> close(subscriber));
+
+        recentActivity.follow();
+        subscribers.add(subscriber);
+
+        // Commits the response headers right away
+        subscriber.queue.offer(HEARTBEAT);
+        subscriber.sender = senders.newThread(() -> send(subscriber));
+        subscriber.sender.start();
+
+        return subscriber.emitter;
+    }
+
+    /**
+     * Returns the timeout of a new stream, capped at the remaining lifetime
+     * of its access token
+     *
+     * @param claims {@link AccessTokenClaims} The access token of the request
+     * @return The timeout in milliseconds, at least one
+     */
+    private long timeout(final AccessTokenClaims claims) {
+        final long remaining = Duration.between(Instant.now(), claims.expiresAt()).toMillis();
+        return Math.max(1, Math.min(properties.timeout().toMillis(), remaining));
+    }
+
+    /**
+     * Offers the new entries to every subscriber, drops the ones without room
+     *
+     * @param event {@link NewActivityEvent} The new entries
+     */
+    @EventListener
+    public void onNewActivity(final NewActivityEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        // Serialized once for every subscriber
+        final List<String> payloads = new ArrayList<>(event.getEntries().size());
+        for (AuditLog entry : event.getEntries()) {
+            try {
+                payloads.add(objectMapper.writeValueAsString(ActivityLogView.from(entry, objectMapper)));
+            } catch (JsonProcessingException e) {
+                log.warn("Could not serialize the audit entry {}: {}", entry.id(), e.getMessage());
+            }
+        }
+
+        for (Subscriber subscriber : subscribers) {
+            for (String payload : payloads) {
+                if (!subscriber.queue.offer(payload)) {
+                    drop(subscriber);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the streams whose token or user is no longer valid, and sends
+     * a heartbeat to every other subscriber
+     */
+    @Scheduled(fixedDelayString = "${application.audit.stream.heartbeat:30s}")
+    public void heartbeat() {
+
+        // Every user is loaded once, most have a single stream
+        final Map<String, Boolean> enabled = new HashMap<>();
+
+        for (Subscriber subscriber : subscribers) {
+            if (revokedTokens.isRevoked(subscriber.claims.uuid())
+                    || !enabled.computeIfAbsent(subscriber.claims.username(), this::isEnabled)) {
+                if (close(subscriber)) {
+                    revoked.increment();
+                }
+                continue;
+            }
+
+            if (!subscriber.queue.offer(HEARTBEAT)) {
+                drop(subscriber);
+            }
+        }
+    }
+
+    /**
+     * Tells whether a user may keep its streams open
+     *
+     * @param username {@link String} The username
+     * @return {@code false} if the user is disabled or deleted
+     */
+    private boolean isEnabled(final String username) {
+        try {
+            return userService.loadUserByUsername(username).isEnabled();
+        } catch (UsernameNotFoundException e) {
+            return false;
+        } catch (RuntimeException e) {
+            // Kept open, checked again on the next heartbeat
+            log.warn("Could not check the user [{}] of an activity stream: {}", username, e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Sends the buffered entries until the stream closes, on the virtual
+     * thread of the subscriber, then completes it
+     *
+     * @param subscriber {@link Subscriber} The subscriber
+     */
+    private void send(final Subscriber subscriber) {
+        try {
+            while (!subscriber.closed.get()) {
+                final String payload = subscriber.queue.take();
+
+                if (payload.isEmpty()) {
+                    subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    subscriber.emitter.send(SseEmitter.event().name("activity").data(payload));
+                    sent.increment();
+                }
+            }
+
+            // Closed while sending, a no-op if the emitter already completed
+            subscriber.emitter.complete();
+        } catch (InterruptedException e) {
+            // Closed while waiting
+            subscriber.emitter.complete();
+            Thread.currentThread().interrupt();
+        } catch (IOException | IllegalStateException e) {
+            // The client went away, the container reports the error to the emitter
+            close(subscriber);
+        }
+    }
+
+    /**
+     * Closes the stream of a subscriber that can not keep up, without
+     * waiting for its sender
+     *
+     * @param subscriber {@link Subscriber} The slow subscriber
+     */
+    private void drop(final Subscriber subscriber) {
+        if (close(subscriber)) {
+            dropped.increment();
+            log.debug("Dropped a slow activity stream subscriber.");
+        }
+    }
+
+    /**
+     * Removes a subscriber and wakes its sender to complete the stream, once
+     *
+     * @param subscriber {@link Subscriber} The subscriber
+     * @return {@code true} if it was still open
+     */
+    private boolean close(final Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return false;
+        }
+
+        subscribers.remove(subscriber);
+        connected.decrementAndGet();
+        recentActivity.unfollow();
+
+        final Thread sender = subscriber.sender;
+        if (sender != null && sender != Thread.currentThread()) {
+            sender.interrupt();
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the open streams
+     *
+     * @return The number of subscribers
+     */
+    public int subscribers() {
+        return connected.get();
+    }
+
+    /**
+     * Closes the open streams before the application stops
+     */
+    @Override
+    public void destroy() {
+        for (Subscriber subscriber : subscribers) {
+            close(subscriber);
+        }
+    }
+
+    /**
+     * Registers the stream meters
+     *
+     * @param registry {@link MeterRegistry} The meter registry
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("vetl.activity.stream.subscribers", connected, AtomicInteger::get)
+                .description("Open activity streams")
+                .register(registry);
+
+        FunctionCounter.builder("vetl.activity.stream.sent", sent, LongAdder::sum)
+                .description("Audit entries sent to the activity streams")
+                .register(registry);
+
+        FunctionCounter.builder("vetl.activity.stream.dropped", dropped, LongAdder::sum)
+                .description("Activity streams closed because the subscriber could not keep up")
+                .register(registry);
+
+        FunctionCounter.builder("vetl.activity.stream.revoked", revoked, LongAdder::sum)
+                .description("Activity streams closed because the token was revoked or the user disabled")
+                .register(registry);
+    }
+
+    /**
+     * An open stream, its token, its buffer and its sender
+     */
+    private static final class Subscriber {
+
+        private final AccessTokenClaims claims;
+
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<String> queue;
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        /**
+         * Set right after the subscriber is added
+         */
+        private volatile Thread sender;
+
+        private Subscriber(final AccessTokenClaims claims, final SseEmitter emitter, final BlockingQueue<String> queue) {
+            this.claims = claims;
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+    }
+}
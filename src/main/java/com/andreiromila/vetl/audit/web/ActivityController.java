@@ -1,17 +1,29 @@
 package com.andreiromila.vetl.audit.web;
 
+import com.andreiromila.vetl.audit.ActivityCursor;
+import com.andreiromila.vetl.audit.ActivityFilter;
 import com.andreiromila.vetl.audit.AuditLog;
 import com.andreiromila.vetl.audit.AuditLogService;
+import com.andreiromila.vetl.datasource.WithoutDatabaseBulkhead;
+import com.andreiromila.vetl.exceptions.HttpBadRequestException;
+import com.andreiromila.vetl.exceptions.HttpUnauthorizedException;
+import com.andreiromila.vetl.responses.CursorPage;
 import com.andreiromila.vetl.responses.CustomPage;
+import com.andreiromila.vetl.responses.TotalMode;
+import com.andreiromila.vetl.token.AccessTokenClaims;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Set;
@@ -32,28 +44,67 @@ public class ActivityController {
     public static final Set<String> SORTING_COLUMNS = Set.of("createdAt", "actorUsername", "actionType");
 
     private final AuditLogService auditService;
+    private final ActivityBroadcaster broadcaster;
     private final ObjectMapper objectMapper;
 
-    public ActivityController(AuditLogService auditService, ObjectMapper objectMapper) {
+    public ActivityController(AuditLogService auditService, ActivityBroadcaster broadcaster, ObjectMapper objectMapper) {
         this.auditService = auditService;
+        this.broadcaster = broadcaster;
         this.objectMapper = objectMapper;
     }
 
     /**
      * Retrieves a paginated list of recent activity logs for the dashboard.
      * Accessible by any authenticated user. The result is sorted by creation date descending.
+     * <p>
+     * When the {@code cursor} parameter is present (empty for the first page)
+     * the keyset mode is used instead: the response is a {@link CursorPage}
+     * with the cursor of the next page, and the entries can be filtered by
+     * actor, action type, target and time range. Only the first allowed sort
+     * property is used, and the following pages keep the sort encoded in the
+     * cursor; the filters must be sent again with every page.
      *
-     * @param pageable Provides pagination info. Defaults to the first 5 entries.
-     * @return A ResponseEntity containing a Page of ActivityLogView objects.
+     * @param pageable   Provides pagination info. Defaults to the first 5 entries.
+     * @param total      How the total is computed: exact, approximate or none. Exact by
+     *                   default, except for the first page served from memory, which
+     *                   has an estimated total unless exact is requested.
+     * @param cursor     An optional cursor, switches to the keyset mode.
+     * @param actor      Keyset mode only, the username of the actor.
+     * @param actionType Keyset mode only, the action type.
+     * @param targetType Keyset mode only, the target type.
+     * @param targetId   Keyset mode only, the target id (requires the target type).
+     * @param from       Keyset mode only, ISO-8601 instant of the oldest entry, inclusive.
+     * @param to         Keyset mode only, ISO-8601 instant of the newest entry, exclusive.
+     * @return A ResponseEntity containing a Page (or CursorPage) of ActivityLogView objects.
      */
     @GetMapping
-    public ResponseEntity<CustomPage<ActivityLogView>> getRecentActivity(@PageableDefault(size = 5) Pageable pageable) {
+    public ResponseEntity<?> getRecentActivity(@PageableDefault(size = 5) Pageable pageable,
+                                               @RequestParam(value = "total", required = false) String total,
+                                               @RequestParam(value = "cursor", required = false) String cursor,
+                                               @RequestParam(value = "actor", required = false) String actor,
+                                               @RequestParam(value = "actionType", required = false) String actionType,
+                                               @RequestParam(value = "targetType", required = false) String targetType,
+                                               @RequestParam(value = "targetId", required = false) String targetId,
+                                               @RequestParam(value = "from", required = false) String from,
+                                               @RequestParam(value = "to", required = false) String to) {
+
+        final ActivityFilter filter = ActivityFilter.parse(actor, actionType, targetType, targetId, from, to);
+
+        if (cursor != null) {
+            return ResponseEntity.ok(scroll(filter, cursor, pageable));
+        }
+
+        // The offset mode has no filter index to seek on
+        if (!filter.isEmpty()) {
+            throw new HttpBadRequestException("The activity filters require the cursor parameter, empty for the first page.");
+        }
 
         // Let's make sure the user doesn't try something else
         final Pageable safePageable = getPageableWithSafeSort(pageable, SORTING_COLUMNS, Sort.by(DESC, "createdAt"));
 
-        // Get the page
-        final Page<AuditLog> auditLogPage = auditService.findRecentActivity(safePageable);
+        // Get the page, without total the service picks the cheapest one
+        final TotalMode totalMode = total == null || total.isBlank() ? null : TotalMode.parse(total);
+        final Slice<AuditLog> auditLogPage = auditService.findRecentActivity(safePageable, totalMode);
 
         // Map the data to the view
         final List<ActivityLogView> activityViews = auditLogPage.getContent().stream()
@@ -61,13 +112,66 @@ public class ActivityController {
                 .toList();
 
         // Create the custom page
-        final CustomPage<ActivityLogView> response = new CustomPage<>(
-                activityViews,
-                auditLogPage.getPageable(),
-                auditLogPage.getTotalElements()
-        );
+        final CustomPage<ActivityLogView> response = CustomPage.from(activityViews, auditLogPage);
 
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Streams the new activity as server-sent events, one {@code activity}
+     * event with an ActivityLogView per entry, instead of polling the feed.
+     * Accessible by any authenticated user.
+     * <p>
+     * Only the entries written after the subscription are sent: clients load
+     * the first page of the feed, then open the stream, and start over when
+     * it closes (timeout, or dropped for not reading fast enough).
+     * <p>
+     * Open streams hold no connection, they are limited by the broadcaster
+     * instead of the database bulkhead. The access token and the user are
+     * checked again on every heartbeat, the stream closes once either is
+     * revoked or disabled, and at the latest when the access token expires:
+     * clients reconnect with the refreshed one.
+     *
+     * @return The event stream.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @WithoutDatabaseBulkhead
+    public SseEmitter streamActivity() {
+
+        // Set by the JWT filter, the stream is bound to the token
+        if (!(SecurityContextHolder.getContext().getAuthentication().getDetails() instanceof AccessTokenClaims claims)) {
+            throw new HttpUnauthorizedException("The activity stream requires an access token.");
+        }
+
+        return broadcaster.subscribe(claims);
+    }
+
+    /**
+     * Keyset mode of the activity feed
+     *
+     * @param filter   {@link ActivityFilter} The filters
+     * @param cursor   {@link String} The cursor from the previous page, blank for the first page
+     * @param pageable {@link Pageable} Page size and, for the first page, the sort
+     * @return The cursor page
+     */
+    private CursorPage<ActivityLogView> scroll(final ActivityFilter filter, final String cursor, final Pageable pageable) {
+
+        // The first page takes the sort from the request, the next ones from the cursor
+        final ActivityCursor position = cursor.isBlank()
+                ? ActivityCursor.first(pageable.getSort())
+                : ActivityCursor.decode(cursor);
+
+        final Slice<AuditLog> slice = auditService.scrollActivity(filter, position, pageable.getPageSize());
+
+        final List<ActivityLogView> activityViews = slice.getContent().stream()
+                .map(it -> ActivityLogView.from(it, objectMapper))
+                .toList();
+
+        final String nextCursor = slice.hasNext()
+                ? position.after(slice.getContent().getLast()).encode()
+                : null;
+
+        return new CursorPage<>(activityViews, pageable.getPageSize(), nextCursor);
+    }
+
 }
@@ -0,0 +1,29 @@
+package com.andreiromila.vetl.audit.web;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the live activity stream.
+ *
+ * @param maxSubscribers {@link Integer} Open streams per node, more are rejected with a 503
+ * @param bufferSize     {@link Integer} Entries waiting to be sent to one subscriber, a slower one is dropped
+ * @param heartbeat      {@link Duration} Interval of the comments that keep idle streams open and find closed ones
+ * @param timeout        {@link Duration} Lifetime of a stream, shorter when the access token expires first, the client reconnects after it
+ */
+@ConfigurationProperties(prefix = "application.audit.stream")
+public record ActivityStreamProperties(
+        @DefaultValue("5000")
+        int maxSubscribers,
+
+        @DefaultValue("100")
+        int bufferSize,
+
+        @DefaultValue("30s")
+        Duration heartbeat,
+
+        @DefaultValue("30m")
+        Duration timeout
+) { }
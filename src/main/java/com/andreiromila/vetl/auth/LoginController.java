@@ -1,12 +1,18 @@
 package com.andreiromila.vetl.auth;
 
+import com.andreiromila.vetl.datasource.BulkheadGroup;
+import com.andreiromila.vetl.datasource.DatabaseBulkheads;
+import com.andreiromila.vetl.datasource.WithoutDatabaseBulkhead;
+import com.andreiromila.vetl.security.ClientAddressResolver;
 import com.andreiromila.vetl.token.TokenService;
 import com.andreiromila.vetl.token.TokenWithExpiration;
 import com.andreiromila.vetl.user.User;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
@@ -34,46 +40,86 @@ public class LoginController {
      */
     private final TokenService tokenService;
 
+    /**
+     * Failed login throttle
+     */
+    private final LoginThrottle loginThrottle;
+
+    /**
+     * Resolves the client address behind the load balancer
+     */
+    private final ClientAddressResolver clientAddressResolver;
+
+    /**
+     * Limits the token writes, the password hash is limited by the encoder
+     */
+    private final DatabaseBulkheads bulkheads;
+
     /**
      * Constructs controller with required authentication dependencies
      *
      * @param authenticationManager {@link AuthenticationManager} Spring Security's authentication coordinator
      * @param tokenService          {@link TokenService} Token service bean
+     * @param loginThrottle         {@link LoginThrottle} Failed login throttle
+     * @param clientAddressResolver {@link ClientAddressResolver} Resolves the client address behind the load balancer
+     * @param bulkheads             {@link DatabaseBulkheads} Limits the token writes
      */
-    public LoginController(final AuthenticationManager authenticationManager, final TokenService tokenService) {
+    public LoginController(final AuthenticationManager authenticationManager,
+                           final TokenService tokenService,
+                           final LoginThrottle loginThrottle,
+                           final ClientAddressResolver clientAddressResolver,
+                           final DatabaseBulkheads bulkheads) {
         this.authenticationManager = authenticationManager;
         this.tokenService = tokenService;
+        this.loginThrottle = loginThrottle;
+        this.clientAddressResolver = clientAddressResolver;
+        this.bulkheads = bulkheads;
     }
 
     /**
      * Authenticates user credentials and initiates secure session
      * <ol>
+     *  <li> Reject right away if the username or the client has too many recent failures
      *  <li> Convert credentials to authentication token
      *  <li> Delegate to authentication provider chain
      *  <li> Return secured response on successful verification
      * </ol>
      *
+     * @param request     {@link HttpServletRequest} The servlet request, used for the client address
      * @param credentials {@link LoginRequest} Login request payload containing username/password
      * @return ResponseEntity with authentication token (implementation pending)
      */
     @PostMapping
-    public ResponseEntity<?> login(@RequestHeader("User-Agent") String userAgent, @RequestBody LoginRequest credentials) {
+    @WithoutDatabaseBulkhead
+    public ResponseEntity<?> login(@RequestHeader("User-Agent") String userAgent, HttpServletRequest request, @RequestBody LoginRequest credentials) {
+
+        // The real client, not the load balancer every request comes through
+        final String address = clientAddressResolver.resolve(request);
+
+        // Fail fast, before paying for a password hash
+        loginThrottle.checkAllowed(credentials.username(), address);
 
         // Try to authenticate
-        final Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(credentials.username(), credentials.password())
-        );
+        final Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(credentials.username(), credentials.password())
+            );
+        } catch (AuthenticationException e) {
+            loginThrottle.recordFailure(credentials.username(), address);
+            throw e;
+        }
+
+        loginThrottle.recordSuccess(credentials.username());
 
         // Get the authenticated user
         final User user = (User) authentication.getPrincipal();
 
-        // Now let's generate the token
-        final TokenWithExpiration token = tokenService.createToken(user.getUsername(), userAgent);
+        // Now let's generate the access and refresh tokens, only this write takes a database slot
+        final TokenWithExpiration token = bulkheads.call(BulkheadGroup.WRITE, () -> tokenService.createToken(user.getUsername(), userAgent));
 
         // Return the response
-        return ResponseEntity.ok(
-                new LoginResponse(token.tokenUuid(), token.token(), token.expiresAt())
-        );
+        return ResponseEntity.ok(LoginResponse.from(token));
     }
 
 }
@@ -1,9 +1,30 @@
 package com.andreiromila.vetl.auth;
 
+import com.andreiromila.vetl.token.TokenWithExpiration;
+
 import java.time.ZonedDateTime;
 
 public record LoginResponse(
         String tokenUuid,
         String token,
-        ZonedDateTime expiresAt
-) { }
\ No newline at end of file
+        ZonedDateTime expiresAt,
+        String refreshToken,
+        ZonedDateTime refreshExpiresAt
+) {
+
+    /**
+     * Creates the response from the generated tokens
+     *
+     * @param token {@link TokenWithExpiration} The access and refresh tokens
+     * @return The login response
+     */
+    public static LoginResponse from(final TokenWithExpiration token) {
+        return new LoginResponse(
+                token.tokenUuid(),
+                token.token(),
+                token.expiresAt(),
+                token.refreshToken(),
+                token.refreshExpiresAt()
+        );
+    }
+}
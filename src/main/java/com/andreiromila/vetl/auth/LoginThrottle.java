@@ -0,0 +1,156 @@
+package com.andreiromila.vetl.auth;
+
+import com.andreiromila.vetl.exceptions.HttpTooManyRequestsException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Brute-force protection for the login endpoint.
+ * <p>
+ * Every failed credential check costs a full BCrypt verification, so the
+ * failures are counted per username and per client address in a sliding
+ * window and, once a limit is reached, further attempts are rejected with
+ * a {@link HttpTooManyRequestsException} (429) <b>before</b> the
+ * authentication manager is invoked. Counters live in fixed-size, lock-free
+ * {@link SlidingWindowCounter}s, the memory used does not depend on the
+ * number of usernames or addresses seen.
+ * <p>
+ * Counters are per node, a cluster of N nodes allows up to N times the
+ * configured limits in the worst case.
+ * <p>
+ * Exported meters: {@code vetl.login.failures} and
+ * {@code vetl.login.throttled} (per {@code key}: username or address).
+ */
+@Component
+public class LoginThrottle implements MeterBinder {
+
+    private final LoginThrottleProperties properties;
+
+    private final Clock clock;
+
+    private final SlidingWindowCounter usernames;
+
+    private final SlidingWindowCounter addresses;
+
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder throttledByUsername = new LongAdder();
+    private final LongAdder throttledByAddress = new LongAdder();
+
+    /**
+     * Creates the throttle
+     *
+     * @param properties {@link LoginThrottleProperties} Throttle configuration
+     */
+    public LoginThrottle(final LoginThrottleProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    /**
+     * Creates the throttle with the given clock, used by the tests
+     *
+     * @param properties {@link LoginThrottleProperties} Throttle configuration
+     * @param clock      {@link Clock} The time source
+     */
+    LoginThrottle(final LoginThrottleProperties properties, final Clock clock) {
+        this.properties = properties;
+        this.clock = clock;
+        this.usernames = new SlidingWindowCounter(properties.slots(), properties.window().toMillis());
+        this.addresses = new SlidingWindowCounter(properties.slots(), properties.window().toMillis());
+    }
+
+    /**
+     * Rejects the attempt if the username or the address has too many recent failures
+     *
+     * @param username {@link String} The username trying to log in (may be null)
+     * @param address  {@link String} The client address
+     * @throws HttpTooManyRequestsException If a limit has been reached
+     */
+    public void checkAllowed(final String username, final String address) {
+
+        if (!properties.enabled()) {
+            return;
+        }
+
+        final long now = clock.millis();
+
+        if (addresses.count(address, now) >= properties.maxFailuresPerAddress()) {
+            throttledByAddress.increment();
+            throw new HttpTooManyRequestsException("Too many failed login attempts, please try again later.");
+        }
+
+        if (username != null && usernames.count(normalize(username), now) >= properties.maxFailuresPerUsername()) {
+            throttledByUsername.increment();
+            throw new HttpTooManyRequestsException("Too many failed login attempts, please try again later.");
+        }
+    }
+
+    /**
+     * Counts a failed credential check
+     *
+     * @param username {@link String} The username that failed (may be null)
+     * @param address  {@link String} The client address
+     */
+    public void recordFailure(final String username, final String address) {
+
+        if (!properties.enabled()) {
+            return;
+        }
+
+        final long now = clock.millis();
+
+        failures.increment();
+        addresses.increment(address, now);
+
+        if (username != null) {
+            usernames.increment(normalize(username), now);
+        }
+    }
+
+    /**
+     * Clears the username failures after a successful login,
+     * the address keeps its count (it may be guessing other accounts)
+     *
+     * @param username {@link String} The authenticated username
+     */
+    public void recordSuccess(final String username) {
+        if (properties.enabled()) {
+            usernames.reset(normalize(username));
+        }
+    }
+
+    /**
+     * Registers the throttle meters
+     *
+     * @param registry {@link MeterRegistry} The meter registry
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+
+        FunctionCounter.builder("vetl.login.failures", failures, LongAdder::sum)
+                .description("Failed login attempts")
+                .register(registry);
+
+        FunctionCounter.builder("vetl.login.throttled", throttledByUsername, LongAdder::sum)
+                .description("Login attempts rejected before checking the credentials")
+                .tag("key", "username")
+                .register(registry);
+
+        FunctionCounter.builder("vetl.login.throttled", throttledByAddress, LongAdder::sum)
+                .description("Login attempts rejected before checking the credentials")
+                .tag("key", "address")
+                .register(registry);
+    }
+
+    /**
+     * Usernames are matched case-insensitively by the database collation
+     */
+    private static String normalize(final String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+}
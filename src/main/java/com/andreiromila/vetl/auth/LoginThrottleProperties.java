@@ -0,0 +1,33 @@
+package com.andreiromila.vetl.auth;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the login brute-force throttle.
+ *
+ * @param enabled                {@link Boolean} Whether failed logins are throttled
+ * @param window                 {@link Duration} Length of the sliding window failures are counted in
+ * @param maxFailuresPerUsername {@link Integer} Failed logins allowed for one username within the window
+ * @param maxFailuresPerAddress  {@link Integer} Failed logins allowed from one client address within the window
+ * @param slots                  {@link Integer} Counter slots per key kind, rounded up to a power of two
+ */
+@ConfigurationProperties(prefix = "application.security.login-throttle")
+public record LoginThrottleProperties(
+        @DefaultValue("true")
+        boolean enabled,
+
+        @DefaultValue("15m")
+        Duration window,
+
+        @DefaultValue("10")
+        int maxFailuresPerUsername,
+
+        @DefaultValue("100")
+        int maxFailuresPerAddress,
+
+        @DefaultValue("65536")
+        int slots
+) { }
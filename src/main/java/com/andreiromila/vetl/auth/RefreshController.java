@@ -0,0 +1,63 @@
+package com.andreiromila.vetl.auth;
+
+import com.andreiromila.vetl.exceptions.HttpUnauthorizedException;
+import com.andreiromila.vetl.token.TokenService;
+import com.andreiromila.vetl.token.TokenWithExpiration;
+import io.jsonwebtoken.JwtException;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Rest controller exchanging refresh tokens
+ * for new short-lived access tokens
+ */
+@Log4j2
+@RestController
+@RequestMapping("/api/v1/refresh")
+public class RefreshController {
+
+    /**
+     * Token service bean
+     */
+    private final TokenService tokenService;
+
+    /**
+     * Refresh controller constructor
+     *
+     * @param tokenService {@link TokenService} Token service bean
+     */
+    public RefreshController(final TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    /**
+     * Issues a new access token for a valid, non revoked refresh token
+     *
+     * @param userAgent {@link String} The client User-Agent, must match the one used to login
+     * @param request   {@link RefreshRequest} The refresh token payload
+     * @return The new access token and the same refresh token
+     */
+    @PostMapping
+    public ResponseEntity<LoginResponse> refresh(@RequestHeader("User-Agent") String userAgent, @RequestBody RefreshRequest request) {
+
+        try {
+
+            // Validate the refresh token against the database and issue a new access token
+            final TokenWithExpiration token = tokenService.refresh(request.refreshToken(), userAgent);
+
+            return ResponseEntity.ok(LoginResponse.from(token));
+
+        } catch (JwtException | IllegalArgumentException e) {
+
+            // Do not leak why the token was rejected
+            log.warn("Refresh rejected: {}", e.getMessage());
+            throw new HttpUnauthorizedException("Invalid refresh token.");
+        }
+    }
+
+}
@@ -0,0 +1,8 @@
+package com.andreiromila.vetl.auth;
+
+import lombok.Builder;
+
+@Builder
+public record RefreshRequest(
+        String refreshToken
+) { }
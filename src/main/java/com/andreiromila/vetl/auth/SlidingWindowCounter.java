@@ -0,0 +1,137 @@
+package com.andreiromila.vetl.auth;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, lock-free sliding window counter.
+ * <p>
+ * Keys are hashed (with a random seed, so an attacker can not choose
+ * colliding keys) into a fixed number of slots; memory does not grow with
+ * the number of distinct keys, e.g. a flood of random usernames. Each slot
+ * is a single {@code long} updated with CAS, packing the window number
+ * (32 bits), the previous window count (16 bits) and the current window
+ * count (16 bits). The sliding count is approximated by weighting the
+ * previous window with the part of it still inside the sliding window.
+ * <p>
+ * Two keys sharing a slot share their count, with enough slots for the
+ * active keys this is rare and only makes the limit stricter.
+ */
+final class SlidingWindowCounter {
+
+    private static final long COUNT_MASK = 0xFFFF;
+
+    private static final long WINDOW_MASK = 0xFFFFFFFFL;
+
+    private final AtomicLongArray slots;
+
+    private final int mask;
+
+    private final long windowMillis;
+
+    private final long seed = new SecureRandom().nextLong();
+
+    /**
+     * Creates the counter
+     *
+     * @param slots        {@link Integer} Number of slots, rounded up to a power of two
+     * @param windowMillis {@link Long} The window length in milliseconds
+     */
+    SlidingWindowCounter(final int slots, final long windowMillis) {
+        final int size = Integer.highestOneBit(Math.max(2, slots) - 1) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.windowMillis = Math.max(1, windowMillis);
+    }
+
+    /**
+     * Adds one to the key count
+     *
+     * @param key {@link String} The key
+     * @param now {@link Long} Current time in milliseconds
+     * @return The sliding count, including this one
+     */
+    long increment(final String key, final long now) {
+
+        final int index = index(key);
+        final long window = window(now);
+
+        while (true) {
+            final long current = slots.get(index);
+            final long rolled = roll(current, window);
+            final long updated = count(rolled) < COUNT_MASK ? rolled + 1 : rolled;
+
+            if (slots.compareAndSet(index, current, updated)) {
+                return estimate(updated, now);
+            }
+        }
+    }
+
+    /**
+     * Returns the sliding count of the key
+     *
+     * @param key {@link String} The key
+     * @param now {@link Long} Current time in milliseconds
+     * @return The approximate number of increments within the last window
+     */
+    long count(final String key, final long now) {
+        return estimate(roll(slots.get(index(key)), window(now)), now);
+    }
+
+    /**
+     * Clears the key count (and the count of any key sharing its slot)
+     *
+     * @param key {@link String} The key
+     */
+    void reset(final String key) {
+        slots.set(index(key), 0);
+    }
+
+    /**
+     * Moves the slot to the given window, shifting or dropping the old counts
+     */
+    private static long roll(final long slot, final long window) {
+
+        final long slotWindow = slot >>> 32;
+
+        if (slotWindow == window) {
+            return slot;
+        }
+
+        // The current count becomes the previous one only for the next window
+        final long previous = slotWindow == ((window - 1) & WINDOW_MASK) ? count(slot) : 0;
+        return (window << 32) | (previous << 16);
+    }
+
+    /**
+     * The window number of the given time, truncated to the 32 bits of the slot
+     */
+    private long window(final long now) {
+        return (now / windowMillis) & WINDOW_MASK;
+    }
+
+    private long estimate(final long slot, final long now) {
+        final double elapsed = (double) (now % windowMillis) / windowMillis;
+        final long previous = (slot >>> 16) & COUNT_MASK;
+        return count(slot) + (long) Math.floor(previous * (1 - elapsed));
+    }
+
+    private static long count(final long slot) {
+        return slot & COUNT_MASK;
+    }
+
+    /**
+     * Seeded 64-bit FNV-1a over the characters of the key
+     */
+    private int index(final String key) {
+        long hash = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+}
@@ -0,0 +1,22 @@
+package com.andreiromila.vetl.datasource;
+
+/**
+ * The kinds of database-bound work limited by a {@link DatabaseBulkhead}
+ */
+public enum BulkheadGroup {
+
+    /**
+     * Token validation and principal loading in the authorization filter
+     */
+    AUTH,
+
+    /**
+     * Read requests: searches, listings, exports
+     */
+    READ,
+
+    /**
+     * Requests changing data
+     */
+    WRITE
+}
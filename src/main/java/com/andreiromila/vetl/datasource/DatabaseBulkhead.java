@@ -0,0 +1,150 @@
+package com.andreiromila.vetl.datasource;
+
+import com.andreiromila.vetl.exceptions.HttpServiceUnavailableException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the concurrent work of one {@link BulkheadGroup}.
+ * <p>
+ * Request threads are virtual, so nothing bounds how many requests wait for
+ * a pooled connection; a burst ends in connection timeouts for everyone.
+ * Here at most {@code maxConcurrent} run, {@code maxQueue} wait in order
+ * for at most {@code maxWait}, and the rest are rejected with a 503.
+ */
+public class DatabaseBulkhead {
+
+    private static final String BUSY = "The server is busy, please try again shortly.";
+
+    private final BulkheadGroup group;
+
+    private final DatabaseBulkheadProperties.Group limits;
+
+    private final Semaphore permits;
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Set once the meters are bound
+     */
+    private volatile Timer waitTimer;
+
+    /**
+     * Constructs the bulkhead of a group
+     *
+     * @param group  {@link BulkheadGroup} The group
+     * @param limits {@link DatabaseBulkheadProperties.Group} The group limits
+     */
+    public DatabaseBulkhead(final BulkheadGroup group, final DatabaseBulkheadProperties.Group limits) {
+        this.group = group;
+        this.limits = limits;
+        this.permits = new Semaphore(Math.max(1, limits.maxConcurrent()), true);
+    }
+
+    /**
+     * Takes a slot, waiting at most {@code maxWait}; every successful call
+     * must be followed by {@link #release()}
+     *
+     * @throws HttpServiceUnavailableException If the queue is full or the wait times out
+     */
+    public void acquire() {
+
+        // Fast path, no wait to record
+        if (permits.tryAcquire()) {
+            record(0);
+            return;
+        }
+
+        if (queued.incrementAndGet() > limits.maxQueue()) {
+            queued.decrementAndGet();
+            rejected.increment();
+            throw new HttpServiceUnavailableException(BUSY);
+        }
+
+        final long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(limits.maxWait().toNanos(), TimeUnit.NANOSECONDS)) {
+                rejected.increment();
+                throw new HttpServiceUnavailableException(BUSY);
+            }
+            record(System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HttpServiceUnavailableException(BUSY);
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * Frees the slot taken by {@link #acquire()}
+     */
+    public void release() {
+        permits.release();
+    }
+
+    private void record(final long waitNanos) {
+        final Timer timer = waitTimer;
+        if (timer != null) {
+            timer.record(waitNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Returns the work waiting for a slot
+     *
+     * @return The queue depth
+     */
+    public int queued() {
+        return queued.get();
+    }
+
+    /**
+     * Returns the work currently running
+     *
+     * @return The used slots
+     */
+    public int active() {
+        return Math.max(1, limits.maxConcurrent()) - permits.availablePermits();
+    }
+
+    /**
+     * Registers the meters of the group
+     *
+     * @param registry {@link MeterRegistry} The meter registry
+     */
+    void bindTo(final MeterRegistry registry) {
+        final String tag = group.name().toLowerCase(Locale.ROOT);
+
+        waitTimer = Timer.builder("vetl.db.bulkhead.wait")
+                .description("Time waited for a bulkhead slot")
+                .tag("group", tag)
+                .publishPercentileHistogram()
+                .register(registry);
+
+        Gauge.builder("vetl.db.bulkhead.queued", this, DatabaseBulkhead::queued)
+                .description("Work waiting for a bulkhead slot")
+                .tag("group", tag)
+                .register(registry);
+
+        Gauge.builder("vetl.db.bulkhead.active", this, DatabaseBulkhead::active)
+                .description("Work holding a bulkhead slot")
+                .tag("group", tag)
+                .register(registry);
+
+        FunctionCounter.builder("vetl.db.bulkhead.rejected", rejected, LongAdder::sum)
+                .description("Work rejected because the bulkhead was saturated")
+                .tag("group", tag)
+                .register(registry);
+    }
+}
@@ -0,0 +1,28 @@
+package com.andreiromila.vetl.datasource;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers the {@link DatabaseBulkheadInterceptor} for every controller
+ */
+@Configuration
+public class DatabaseBulkheadConfig implements WebMvcConfigurer {
+
+    private final DatabaseBulkheadInterceptor interceptor;
+
+    /**
+     * Constructs the configuration
+     *
+     * @param interceptor {@link DatabaseBulkheadInterceptor} The bulkhead interceptor
+     */
+    public DatabaseBulkheadConfig(final DatabaseBulkheadInterceptor interceptor) {
+        this.interceptor = interceptor;
+    }
+
+    @Override
+    public void addInterceptors(final InterceptorRegistry registry) {
+        registry.addInterceptor(interceptor);
+    }
+}
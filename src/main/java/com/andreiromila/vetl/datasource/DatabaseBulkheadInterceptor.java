@@ -0,0 +1,136 @@
+package com.andreiromila.vetl.datasource;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs every controller call inside the bulkhead of its group: safe
+ * methods are reads, everything else writes. A rejection is thrown before
+ * the controller and answered as a 503 by the controller advice.
+ * <p>
+ * Streamed responses keep their slot until the body is written on the
+ * async thread, so the export counts against the reads while it runs.
+ * Methods annotated with {@link WithoutDatabaseBulkhead} are skipped.
+ */
+@Component
+public class DatabaseBulkheadInterceptor implements AsyncHandlerInterceptor {
+
+    /**
+     * Request attribute holding the {@link Permit} of the taken slot
+     */
+    private static final String ACQUIRED = DatabaseBulkheadInterceptor.class.getName() + ".ACQUIRED";
+
+    /**
+     * The bulkheads bean
+     */
+    private final DatabaseBulkheads bulkheads;
+
+    /**
+     * Constructs the interceptor
+     *
+     * @param bulkheads {@link DatabaseBulkheads} The bulkheads bean
+     */
+    public DatabaseBulkheadInterceptor(final DatabaseBulkheads bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    @Override
+    public boolean preHandle(final HttpServletRequest request, final HttpServletResponse response, final Object handler) {
+
+        // Only controllers, and once per request (not on error or async dispatches)
+        if (!(handler instanceof HandlerMethod method) || request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+
+        if (method.hasMethodAnnotation(WithoutDatabaseBulkhead.class)) {
+            return true;
+        }
+
+        final BulkheadGroup group = groupOf(request);
+        if (bulkheads.acquire(group)) {
+            request.setAttribute(ACQUIRED, new Permit(group));
+        }
+
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(final HttpServletRequest request, final HttpServletResponse response, final Object handler) {
+        // Kept until the async processing ends, the body is still to be written
+        if (request.getAttribute(ACQUIRED) instanceof Permit permit) {
+            request.getAsyncContext().addListener(permit);
+        }
+    }
+
+    @Override
+    public void afterCompletion(final HttpServletRequest request, final HttpServletResponse response, final Object handler, final Exception ex) {
+        // Also called after the async dispatch, once the body is written
+        if (!request.isAsyncStarted() && request.getAttribute(ACQUIRED) instanceof Permit permit) {
+            request.removeAttribute(ACQUIRED);
+            permit.release();
+        }
+    }
+
+    /**
+     * Classifies the request by its method
+     *
+     * @param request {@link HttpServletRequest} The request
+     * @return {@link BulkheadGroup#READ} for safe methods, {@link BulkheadGroup#WRITE} otherwise
+     */
+    static BulkheadGroup groupOf(final HttpServletRequest request) {
+        final HttpMethod method = HttpMethod.valueOf(request.getMethod());
+        return method == HttpMethod.GET || method == HttpMethod.HEAD || method == HttpMethod.OPTIONS
+                ? BulkheadGroup.READ
+                : BulkheadGroup.WRITE;
+    }
+
+    /**
+     * A taken slot, released once whether the request ends with its
+     * dispatch or with the async timeout or error
+     */
+    private final class Permit implements AsyncListener {
+
+        private final BulkheadGroup group;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(final BulkheadGroup group) {
+            this.group = group;
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                bulkheads.release(group);
+            }
+        }
+
+        @Override
+        public void onComplete(final AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(final AsyncEvent event) {
+            // Followed by onComplete
+        }
+
+        @Override
+        public void onError(final AsyncEvent event) {
+            // Followed by onComplete
+        }
+
+        @Override
+        public void onStartAsync(final AsyncEvent event) {
+            // Nothing to do
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.andreiromila.vetl.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the database bulkheads, one per
+ * {@link BulkheadGroup}.
+ *
+ * @param enabled Whether the requests are limited
+ * @param auth    {@link Group} The authorization filter limits
+ * @param read    {@link Group} The read request limits
+ * @param write   {@link Group} The write request limits
+ */
+@ConfigurationProperties(prefix = "application.datasource.bulkhead")
+public record DatabaseBulkheadProperties(
+        @DefaultValue("true")
+        boolean enabled,
+
+        @DefaultValue
+        Group auth,
+
+        @DefaultValue
+        Group read,
+
+        @DefaultValue
+        Group write
+) {
+
+    /**
+     * Returns the limits of a group
+     *
+     * @param group {@link BulkheadGroup} The group
+     * @return The group limits
+     */
+    public Group of(final BulkheadGroup group) {
+        return switch (group) {
+            case AUTH -> auth;
+            case READ -> read;
+            case WRITE -> write;
+        };
+    }
+
+    /**
+     * Limits of one group
+     *
+     * @param maxConcurrent {@link Integer} Work running at once, keep the sum close to the connection pool size
+     * @param maxQueue      {@link Integer} Work waiting for a slot, beyond that it is rejected right away
+     * @param maxWait       {@link Duration} Maximum time waiting for a slot before rejecting
+     */
+    public record Group(
+            @DefaultValue("10")
+            int maxConcurrent,
+
+            @DefaultValue("100")
+            int maxQueue,
+
+            @DefaultValue("1s")
+            Duration maxWait
+    ) { }
+}
@@ -0,0 +1,103 @@
+package com.andreiromila.vetl.datasource;
+
+import com.andreiromila.vetl.exceptions.HttpServiceUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The {@link DatabaseBulkhead} of every {@link BulkheadGroup}.
+ * <p>
+ * Exported meters, tagged by {@code group}: {@code vetl.db.bulkhead.wait}
+ * (histogram), {@code vetl.db.bulkhead.queued}, {@code vetl.db.bulkhead.active}
+ * and {@code vetl.db.bulkhead.rejected}.
+ */
+@Component
+public class DatabaseBulkheads implements MeterBinder {
+
+    /**
+     * Bulkhead configuration
+     */
+    private final DatabaseBulkheadProperties properties;
+
+    private final Map<BulkheadGroup, DatabaseBulkhead> bulkheads = new EnumMap<>(BulkheadGroup.class);
+
+    /**
+     * Constructs the bulkheads
+     *
+     * @param properties {@link DatabaseBulkheadProperties} Bulkhead configuration
+     */
+    public DatabaseBulkheads(final DatabaseBulkheadProperties properties) {
+        this.properties = properties;
+        for (BulkheadGroup group : BulkheadGroup.values()) {
+            bulkheads.put(group, new DatabaseBulkhead(group, properties.of(group)));
+        }
+    }
+
+    /**
+     * Takes a slot of the group, see {@link DatabaseBulkhead#acquire()}
+     *
+     * @param group {@link BulkheadGroup} The group
+     * @return {@code true} if a slot was taken and must be released, {@code false} when disabled
+     * @throws HttpServiceUnavailableException If the group is saturated
+     */
+    public boolean acquire(final BulkheadGroup group) {
+        if (!properties.enabled()) {
+            return false;
+        }
+        bulkheads.get(group).acquire();
+        return true;
+    }
+
+    /**
+     * Frees a slot taken by {@link #acquire(BulkheadGroup)}
+     *
+     * @param group {@link BulkheadGroup} The group
+     */
+    public void release(final BulkheadGroup group) {
+        bulkheads.get(group).release();
+    }
+
+    /**
+     * Runs the work holding a slot of the group
+     *
+     * @param group {@link BulkheadGroup} The group
+     * @param work  {@link Supplier} The database-bound work
+     * @return The work result
+     * @throws HttpServiceUnavailableException If the group is saturated
+     */
+    public <T> T call(final BulkheadGroup group, final Supplier<T> work) {
+        final boolean acquired = acquire(group);
+        try {
+            return work.get();
+        } finally {
+            if (acquired) {
+                release(group);
+            }
+        }
+    }
+
+    /**
+     * Returns the bulkhead of a group
+     *
+     * @param group {@link BulkheadGroup} The group
+     * @return The bulkhead
+     */
+    public DatabaseBulkhead get(final BulkheadGroup group) {
+        return bulkheads.get(group);
+    }
+
+    /**
+     * Registers the meters of every group
+     *
+     * @param registry {@link MeterRegistry} The meter registry
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        bulkheads.values().forEach(bulkhead -> bulkhead.bindTo(registry));
+    }
+}
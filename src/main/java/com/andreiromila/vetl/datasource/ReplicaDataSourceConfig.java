@@ -0,0 +1,100 @@
+package com.andreiromila.vetl.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Replaces the auto-configured data source with one routing the read-only
+ * transactions to the replicas, when {@code application.datasource.replicas.enabled}.
+ * <p>
+ * The primary pool is built from {@code spring.datasource} like the
+ * auto-configured one; Flyway and every read-write transaction use it.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.datasource.replicas", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    /**
+     * Creates the primary and replica pools behind the router
+     *
+     * @param dataSourceProperties {@link DataSourceProperties} The primary connection
+     * @param properties           {@link ReplicaProperties} The replica connections
+     * @param environment          {@link Environment} Binds the {@code spring.datasource.hikari} settings
+     * @return The routing data source
+     */
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(final DataSourceProperties dataSourceProperties,
+                                                             final ReplicaProperties properties,
+                                                             final Environment environment) {
+
+        final HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+
+        final Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (ReplicaProperties.Replica replica : properties.instances()) {
+
+            final HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(dataSourceProperties.determineDriverClassName())
+                    .url(replica.url())
+                    .username(replica.username() != null ? replica.username() : dataSourceProperties.determineUsername())
+                    .password(replica.password() != null ? replica.password() : dataSourceProperties.determinePassword())
+                    .build();
+
+            dataSource.setPoolName("replica-" + replica.name());
+            dataSource.setReadOnly(true);
+            dataSource.setMaximumPoolSize(properties.maximumPoolSize());
+
+            // A replica down on startup is only excluded from the reads
+            dataSource.setInitializationFailTimeout(-1);
+
+            replicas.put(replica.name(), dataSource);
+        }
+
+        return new ReplicaRoutingDataSource(primary, replicas);
+    }
+
+    /**
+     * The application data source, the routing happens on the first
+     * statement, once the transaction is known to be read-only
+     *
+     * @param routingDataSource {@link ReplicaRoutingDataSource} The router
+     * @return The lazy connection proxy
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(final ReplicaRoutingDataSource routingDataSource) {
+        return lazy(routingDataSource);
+    }
+
+    /**
+     * Wraps the router, with the MySQL defaults so the proxy does not
+     * probe a connection to find them
+     *
+     * @param routingDataSource {@link ReplicaRoutingDataSource} The router
+     * @return The lazy connection proxy
+     */
+    static LazyConnectionDataSourceProxy lazy(final ReplicaRoutingDataSource routingDataSource) {
+        final LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(routingDataSource);
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        return proxy;
+    }
+}
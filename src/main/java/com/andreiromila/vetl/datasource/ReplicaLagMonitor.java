@@ -0,0 +1,112 @@
+package com.andreiromila.vetl.datasource;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Scheduled check of the replication lag, a replica serves reads only
+ * while it is reachable and no more than {@code max-lag} behind the primary.
+ * <p>
+ * The lag query defaults to {@code SHOW REPLICA STATUS} and its
+ * {@code Seconds_Behind_Source} column ({@code Seconds_Behind_Master} on
+ * older servers); any other query returning the lag in seconds in its first
+ * column can be configured. An empty result means the instance is not
+ * replicating and a null lag means the replication is stopped: either way
+ * the replica serves no reads.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(prefix = "application.datasource.replicas", name = "enabled", havingValue = "true")
+public class ReplicaLagMonitor {
+
+    /**
+     * Routes the reads, receives the health of every replica
+     */
+    private final ReplicaRoutingDataSource routingDataSource;
+
+    /**
+     * Replica configuration
+     */
+    private final ReplicaProperties properties;
+
+    /**
+     * Constructs the monitor
+     *
+     * @param routingDataSource {@link ReplicaRoutingDataSource} Routes the reads
+     * @param properties        {@link ReplicaProperties} Replica configuration
+     */
+    public ReplicaLagMonitor(final ReplicaRoutingDataSource routingDataSource, final ReplicaProperties properties) {
+        this.routingDataSource = routingDataSource;
+        this.properties = properties;
+    }
+
+    /**
+     * Checks every replica, the first check runs on startup since the
+     * replicas do not serve reads until checked
+     */
+    @Scheduled(fixedDelayString = "${application.datasource.replicas.lag-check-interval:5s}")
+    public void check() {
+        for (Map.Entry<String, DataSource> replica : routingDataSource.replicas().entrySet()) {
+
+            final Optional<Duration> lag = lag(replica.getKey(), replica.getValue());
+            final boolean healthy = lag.isPresent() && lag.get().compareTo(properties.maxLag()) <= 0;
+
+            if (!healthy && routingDataSource.isHealthy(replica.getKey())) {
+                log.warn("Replica {} lag is {}, the maximum is {}.", replica.getKey(), lag.map(Duration::toString).orElse("unknown"), properties.maxLag());
+            }
+
+            routingDataSource.setHealthy(replica.getKey(), healthy);
+        }
+    }
+
+    /**
+     * Reads the replication lag
+     *
+     * @param name       {@link String} The replica name
+     * @param dataSource {@link DataSource} The replica pool
+     * @return The lag, empty if unreachable or not replicating
+     */
+    private Optional<Duration> lag(final String name, final DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(properties.lagQuery())) {
+
+            // Not a replica (reset, standalone or the wrong server), its data may never catch up
+            if (!rs.next()) {
+                return Optional.empty();
+            }
+
+            final long seconds = rs.getLong(lagColumn(rs.getMetaData()));
+            return rs.wasNull() ? Optional.empty() : Optional.of(Duration.ofSeconds(seconds));
+
+        } catch (SQLException e) {
+            log.warn("Cannot read the lag of replica {}: {}", name, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Finds the lag column of {@code SHOW REPLICA STATUS}, the first one otherwise
+     */
+    private static int lagColumn(final ResultSetMetaData metaData) throws SQLException {
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            final String label = metaData.getColumnLabel(i);
+            if (label.equalsIgnoreCase("Seconds_Behind_Source") || label.equalsIgnoreCase("Seconds_Behind_Master")) {
+                return i;
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,49 @@
+package com.andreiromila.vetl.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Configuration properties for the read replicas.
+ * <p>
+ * When enabled, read-only transactions are served by the replicas and
+ * everything else by the primary ({@code spring.datasource}). The lag check
+ * interval is {@code application.datasource.replicas.lag-check-interval}.
+ *
+ * @param enabled         {@link Boolean} Whether the read-only transactions are routed to the replicas
+ * @param instances       {@link List} The replica connections
+ * @param maxLag          {@link Duration} Replicas further behind the primary are not used
+ * @param lagQuery        {@link String} Reads the replication lag, see {@link ReplicaLagMonitor}
+ * @param maximumPoolSize {@link Integer} Connections per replica pool
+ */
+@ConfigurationProperties(prefix = "application.datasource.replicas")
+public record ReplicaProperties(
+        @DefaultValue("false")
+        boolean enabled,
+
+        @DefaultValue
+        List<Replica> instances,
+
+        @DefaultValue("5s")
+        Duration maxLag,
+
+        @DefaultValue("SHOW REPLICA STATUS")
+        String lagQuery,
+
+        @DefaultValue("10")
+        int maximumPoolSize
+) {
+
+    /**
+     * A replica connection, the credentials default to the primary ones
+     *
+     * @param name     {@link String} Identifies the replica in the logs and meters
+     * @param url      {@link String} The JDBC url
+     * @param username {@link String} The user, optional
+     * @param password {@link String} The password, optional
+     */
+    public record Replica(String name, String url, String username, String password) { }
+}
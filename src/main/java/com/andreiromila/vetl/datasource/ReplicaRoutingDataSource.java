@@ -0,0 +1,206 @@
+package com.andreiromila.vetl.datasource;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends the read-only transactions to the replicas and everything else
+ * to the primary.
+ * <p>
+ * The replicas are used in turn, skipping those marked unhealthy by the
+ * {@link ReplicaLagMonitor} (too far behind, or unreachable). Without a
+ * healthy replica, or if the replica connection fails, the primary serves
+ * the read. Read-only methods called inside a read-write transaction join
+ * it and read from the primary, so they see its own writes.
+ * <p>
+ * The routing happens when the connection is obtained: it must be wrapped
+ * in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * so the transaction is read-only by the time the first statement runs.
+ * <p>
+ * Exported meters: {@code vetl.datasource.connections} tagged by
+ * {@code target} (primary, replica or fallback) and
+ * {@code vetl.datasource.replicas.healthy}.
+ */
+@Log4j2
+public class ReplicaRoutingDataSource extends AbstractDataSource implements MeterBinder, AutoCloseable {
+
+    /**
+     * The route of the primary
+     */
+    static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+
+    /**
+     * Replica data sources by name, in the configuration order
+     */
+    private final Map<String, DataSource> replicas;
+
+    private final List<String> names;
+
+    /**
+     * Replicas that can serve reads, replicas start unhealthy until checked
+     */
+    private final Set<String> healthy = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final LongAdder primaryConnections = new LongAdder();
+    private final LongAdder replicaConnections = new LongAdder();
+    private final LongAdder fallbackConnections = new LongAdder();
+
+    /**
+     * Constructs the routing data source
+     *
+     * @param primary  {@link DataSource} Serves the writes, and the reads without a healthy replica
+     * @param replicas {@link Map} The replica data sources by name
+     */
+    public ReplicaRoutingDataSource(final DataSource primary, final Map<String, DataSource> replicas) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.names = new ArrayList<>(replicas.keySet());
+    }
+
+    /**
+     * Returns the replica data sources, for the lag checks
+     *
+     * @return The replicas by name
+     */
+    public Map<String, DataSource> replicas() {
+        return replicas;
+    }
+
+    /**
+     * Includes or excludes a replica from the reads
+     *
+     * @param name    {@link String} The replica name
+     * @param healthy {@link Boolean} Whether the replica can serve reads
+     */
+    public void setHealthy(final String name, final boolean healthy) {
+        final boolean changed = healthy ? this.healthy.add(name) : this.healthy.remove(name);
+        if (changed) {
+            log.info("Replica {} is now {}.", name, healthy ? "serving reads" : "excluded from reads");
+        }
+    }
+
+    /**
+     * Checks if the replica currently serves reads
+     *
+     * @param name {@link String} The replica name
+     * @return {@code true} if healthy
+     */
+    public boolean isHealthy(final String name) {
+        return healthy.contains(name);
+    }
+
+    /**
+     * Chooses the next healthy replica for read-only transactions
+     *
+     * @return The replica name, {@link #PRIMARY} for writes or without a healthy replica
+     */
+    String route() {
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || healthy.isEmpty()) {
+            return PRIMARY;
+        }
+
+        // Round robin, starting from the next position and skipping the unhealthy ones
+        final int start = Math.floorMod(next.getAndIncrement(), names.size());
+        for (int i = 0; i < names.size(); i++) {
+            final String name = names.get((start + i) % names.size());
+            if (healthy.contains(name)) {
+                return name;
+            }
+        }
+
+        return PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+
+        final String key = route();
+        if (PRIMARY.equals(key)) {
+            primaryConnections.increment();
+            return primary.getConnection();
+        }
+
+        try {
+            final Connection connection = replicas.get(key).getConnection();
+            replicaConnections.increment();
+            return connection;
+        } catch (SQLException e) {
+            // Excluded until the next lag check finds it reachable again
+            log.warn("Replica {} is unreachable, reading from the primary: {}", key, e.getMessage());
+            setHealthy(key, false);
+            fallbackConnections.increment();
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        // Explicit credentials are only meant for the primary
+        primaryConnections.increment();
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * Closes the pools
+     */
+    @Override
+    public void close() throws Exception {
+        for (DataSource dataSource : replicas.values()) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    /**
+     * Registers the routing meters
+     *
+     * @param registry {@link MeterRegistry} The meter registry
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        FunctionCounter.builder("vetl.datasource.connections", primaryConnections, LongAdder::sum)
+                .description("Connections obtained by target")
+                .tag("target", "primary")
+                .register(registry);
+
+        FunctionCounter.builder("vetl.datasource.connections", replicaConnections, LongAdder::sum)
+                .description("Connections obtained by target")
+                .tag("target", "replica")
+                .register(registry);
+
+        FunctionCounter.builder("vetl.datasource.connections", fallbackConnections, LongAdder::sum)
+                .description("Connections obtained by target")
+                .tag("target", "fallback")
+                .register(registry);
+
+        Gauge.builder("vetl.datasource.replicas.healthy", healthy, Set::size)
+                .description("Replicas currently serving reads")
+                .register(registry);
+    }
+}
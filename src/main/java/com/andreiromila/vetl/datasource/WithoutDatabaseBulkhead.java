@@ -0,0 +1,17 @@
+package com.andreiromila.vetl.datasource;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Leaves a controller method out of the {@link DatabaseBulkheadInterceptor},
+ * for endpoints whose time goes to something else than the database: open
+ * streams, password hashing, file uploads. Their database work, if any,
+ * takes its slot itself with {@link DatabaseBulkheads#call}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface WithoutDatabaseBulkhead {
+}
@@ -0,0 +1,22 @@
+package com.andreiromila.vetl.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * An exception that represents an HTTP 503 Service Unavailable status.
+ * <p>
+ * This should be thrown when a bounded resource (e.g. a worker pool or
+ * a database bulkhead) is saturated and the request is rejected right
+ * away instead of queuing; the client may retry shortly.
+ */
+public class HttpServiceUnavailableException extends HttpException {
+
+    /**
+     * Constructs a new HttpServiceUnavailableException with a detail message.
+     *
+     * @param message {@link String} The error message explaining which resource is saturated.
+     */
+    public HttpServiceUnavailableException(String message) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, message);
+    }
+}
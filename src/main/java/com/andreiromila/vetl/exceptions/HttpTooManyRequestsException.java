@@ -0,0 +1,21 @@
+package com.andreiromila.vetl.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * An exception that represents an HTTP 429 Too Many Requests status.
+ * <p>
+ * This should be thrown when a client (or an account) exceeded its allowed
+ * rate of requests and has to slow down before trying again.
+ */
+public class HttpTooManyRequestsException extends HttpException {
+
+    /**
+     * Constructs a new HttpTooManyRequestsException with a detail message.
+     *
+     * @param message {@link String} The error message explaining which limit was reached.
+     */
+    public HttpTooManyRequestsException(String message) {
+        super(HttpStatus.TOO_MANY_REQUESTS, message);
+    }
+}
@@ -0,0 +1,21 @@
+package com.andreiromila.vetl.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * An exception that represents an HTTP 401 Unauthorized status.
+ * <p>
+ * This should be thrown when the provided credentials, such as a
+ * refresh token, are invalid, expired or have been revoked.
+ */
+public class HttpUnauthorizedException extends HttpException {
+
+    /**
+     * Constructs a new HttpUnauthorizedException with a detail message.
+     *
+     * @param message {@link String} The error message explaining why the request is unauthorized.
+     */
+    public HttpUnauthorizedException(String message) {
+        super(HttpStatus.UNAUTHORIZED, message);
+    }
+}
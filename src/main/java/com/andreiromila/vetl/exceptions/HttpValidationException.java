@@ -0,0 +1,29 @@
+package com.andreiromila.vetl.exceptions;
+
+import com.andreiromila.vetl.responses.ValidationError;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * An exception that represents an HTTP 400 Bad Request with field errors.
+ * <p>
+ * For validations done by the services (e.g. over a whole batch) that must
+ * be reported like the bean validation errors of a request body.
+ */
+@Getter
+public class HttpValidationException extends HttpBadRequestException {
+
+    private final List<ValidationError> validationErrors;
+
+    /**
+     * Constructs a new HttpValidationException with the field errors.
+     *
+     * @param message          {@link String} The error message.
+     * @param validationErrors {@link List} The errors, one per invalid field.
+     */
+    public HttpValidationException(String message, List<ValidationError> validationErrors) {
+        super(message);
+        this.validationErrors = List.copyOf(validationErrors);
+    }
+}
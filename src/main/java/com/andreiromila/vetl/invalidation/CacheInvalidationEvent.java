@@ -0,0 +1,30 @@
+package com.andreiromila.vetl.invalidation;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.time.Instant;
+
+/**
+ * Event published on a node when another node invalidated a cached entry.
+ * Local caches listen to it and evict the matching entry.
+ */
+@Getter
+public class CacheInvalidationEvent extends ApplicationEvent {
+
+    private final InvalidationTopic topic;
+
+    private final String key;
+
+    /**
+     * Expiration of the invalidated entry, only set for {@link InvalidationTopic#TOKEN}
+     */
+    private final Instant expiresAt;
+
+    public CacheInvalidationEvent(Object source, InvalidationTopic topic, String key, Instant expiresAt) {
+        super(source);
+        this.topic = topic;
+        this.key = key;
+        this.expiresAt = expiresAt;
+    }
+}
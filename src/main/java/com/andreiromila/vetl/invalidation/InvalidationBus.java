@@ -0,0 +1,288 @@
+package com.andreiromila.vetl.invalidation;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cluster-wide cache invalidation bus backed by the {@code cache_invalidation} table.
+ * <p>
+ * Services {@link #publish(InvalidationTopic, String, Instant) publish} a row in
+ * the same transaction as the change, so other nodes only see committed changes.
+ * Every node tails the table with a monotonic id cursor and republishes the rows
+ * of other nodes as {@link CacheInvalidationEvent}s for its local caches.
+ * <p>
+ * Auto increment ids become visible out of order when transactions commit out
+ * of order, and rolled back inserts leave permanent holes. When the next id is
+ * missing the cursor waits for it at most {@link InvalidationProperties#gapGrace()}
+ * and rows already applied past the hole are not applied twice.
+ */
+@Log4j2
+@Component
+public class InvalidationBus implements MeterBinder, SmartInitializingSingleton {
+
+    private static final String INSERT = """
+            INSERT INTO cache_invalidation (topic, entity_key, expires_at, origin)
+            VALUES (:topic, :key, :expiresAt, :origin)
+            """;
+
+    private static final String SELECT_AFTER = """
+            SELECT id, topic, entity_key, expires_at, origin
+            FROM cache_invalidation
+            WHERE id > :cursor
+            ORDER BY id
+            LIMIT :limit
+            """;
+
+    private static final String DELETE_BEFORE = "DELETE FROM cache_invalidation WHERE created_at < :threshold LIMIT :limit";
+
+    /**
+     * Contains the named parameter jdbc template
+     */
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Publishes the received invalidations to the local caches
+     */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Bus configuration
+     */
+    private final InvalidationProperties properties;
+
+    /**
+     * Identifies the rows published by this node (application context)
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * Every id up to the cursor has been applied or given up on
+     */
+    private long cursor;
+
+    /**
+     * Ids past the cursor that were already applied
+     */
+    private final NavigableSet<Long> applied = new TreeSet<>();
+
+    /**
+     * When the cursor got stuck at a missing id, null if it is not
+     */
+    private Instant blockedSince;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder gapsSkipped = new LongAdder();
+
+    /**
+     * Invalidation bus constructor
+     *
+     * @param jdbcTemplate   {@link NamedParameterJdbcTemplate} Named parameter jdbc template
+     * @param eventPublisher {@link ApplicationEventPublisher} Event publisher
+     * @param properties     {@link InvalidationProperties} Bus configuration
+     */
+    public InvalidationBus(final NamedParameterJdbcTemplate jdbcTemplate,
+                           final ApplicationEventPublisher eventPublisher,
+                           final InvalidationProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.properties = properties;
+    }
+
+    /**
+     * Starts tailing from the current end of the log, the local
+     * caches are empty so older changes are irrelevant
+     */
+    @Override
+    public synchronized void afterSingletonsInstantiated() {
+        if (properties.enabled()) {
+            final Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM cache_invalidation", new MapSqlParameterSource(), Long.class);
+            cursor = max == null ? 0 : max;
+        }
+    }
+
+    /**
+     * Records a change for the other nodes. Joins the current transaction,
+     * if it rolls back the change is never seen.
+     *
+     * @param topic     {@link InvalidationTopic} The kind of cached entry
+     * @param key       {@link String} The token uuid or username
+     * @param expiresAt {@link Instant} Expiration of the entry, may be null
+     */
+    public void publish(final InvalidationTopic topic, final String key, final Instant expiresAt) {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        jdbcTemplate.update(INSERT, new MapSqlParameterSource()
+                .addValue("topic", topic.name())
+                .addValue("key", key)
+                .addValue("expiresAt", expiresAt == null ? null : Timestamp.from(expiresAt))
+                .addValue("origin", nodeId));
+
+        published.increment();
+    }
+
+    /**
+     * Records changes of many entries of the same topic with a single batch
+     * statement. Joins the current transaction like {@link #publish(InvalidationTopic, String, Instant)}.
+     *
+     * @param topic {@link InvalidationTopic} The kind of cached entry
+     * @param keys  {@link Collection} The token uuids or usernames
+     */
+    public void publishAll(final InvalidationTopic topic, final Collection<String> keys) {
+        if (!properties.enabled() || keys.isEmpty()) {
+            return;
+        }
+
+        final SqlParameterSource[] batch = keys.stream()
+                .map(key -> new MapSqlParameterSource()
+                        .addValue("topic", topic.name())
+                        .addValue("key", key)
+                        .addValue("expiresAt", null)
+                        .addValue("origin", nodeId))
+                .toArray(SqlParameterSource[]::new);
+
+        jdbcTemplate.batchUpdate(INSERT, batch);
+        published.add(batch.length);
+    }
+
+    /**
+     * Reads the rows past the cursor and publishes the ones from other nodes
+     */
+    @Scheduled(fixedDelayString = "${application.invalidation.poll-interval:1s}")
+    public synchronized void poll() {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        final List<Row> rows = jdbcTemplate.query(SELECT_AFTER,
+                new MapSqlParameterSource()
+                        .addValue("cursor", cursor)
+                        .addValue("limit", properties.batchSize()),
+                (rs, rowNum) -> new Row(
+                        rs.getLong("id"),
+                        InvalidationTopic.valueOf(rs.getString("topic")),
+                        rs.getString("entity_key"),
+                        rs.getTimestamp("expires_at") == null ? null : rs.getTimestamp("expires_at").toInstant(),
+                        rs.getString("origin")
+                ));
+
+        for (Row row : rows) {
+            // Rows past a missing id are read again until the cursor moves
+            if (!applied.add(row.id())) {
+                continue;
+            }
+
+            // Our own changes were already applied locally
+            if (!nodeId.equals(row.origin())) {
+                eventPublisher.publishEvent(new CacheInvalidationEvent(this, row.topic(), row.key(), row.expiresAt()));
+                received.increment();
+            }
+        }
+
+        advance(Instant.now());
+    }
+
+    /**
+     * Moves the cursor over the contiguous applied ids, skipping a
+     * missing range once it has been waited for long enough
+     *
+     * @param now {@link Instant} The current instant
+     */
+    private void advance(final Instant now) {
+        while (!applied.isEmpty()) {
+
+            if (applied.first() == cursor + 1) {
+                cursor = applied.pollFirst();
+                blockedSince = null;
+                continue;
+            }
+
+            // The next id is missing: uncommitted yet or rolled back
+            if (blockedSince == null) {
+                blockedSince = now;
+            }
+
+            if (blockedSince.plus(properties.gapGrace()).isAfter(now)) {
+                return;
+            }
+
+            log.debug("Skipping invalidation ids {} to {}.", cursor + 1, applied.first() - 1);
+            gapsSkipped.increment();
+            cursor = applied.first() - 1;
+            blockedSince = null;
+        }
+    }
+
+    /**
+     * Deletes the rows older than the retention, in batches
+     */
+    @Scheduled(fixedDelayString = "${application.invalidation.purge-interval:5m}")
+    public void purge() {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        final MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("threshold", Timestamp.from(Instant.now().minus(properties.retention())))
+                .addValue("limit", properties.batchSize());
+
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(DELETE_BEFORE, params);
+        } while (deleted == properties.batchSize());
+    }
+
+    /**
+     * Returns the id of the last row applied without holes
+     *
+     * @return The current cursor
+     */
+    public synchronized long cursor() {
+        return cursor;
+    }
+
+    /**
+     * Registers the bus meters
+     *
+     * @param registry {@link MeterRegistry} The meter registry
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        FunctionCounter.builder("vetl.invalidation.published", published, LongAdder::sum)
+                .description("Invalidations published by this node")
+                .register(registry);
+
+        FunctionCounter.builder("vetl.invalidation.received", received, LongAdder::sum)
+                .description("Invalidations received from other nodes")
+                .register(registry);
+
+        FunctionCounter.builder("vetl.invalidation.gaps.skipped", gapsSkipped, LongAdder::sum)
+                .description("Missing id ranges given up on after the grace period")
+                .register(registry);
+    }
+
+    /**
+     * A change log row
+     */
+    private record Row(long id, InvalidationTopic topic, String key, Instant expiresAt, String origin) { }
+}
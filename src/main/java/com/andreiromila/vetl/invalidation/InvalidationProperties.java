@@ -0,0 +1,32 @@
+package com.andreiromila.vetl.invalidation;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the cluster-wide cache invalidation bus.
+ * <p>
+ * The poll interval ({@code application.invalidation.poll-interval}) bounds
+ * how long another node keeps serving a stale entry.
+ *
+ * @param enabled   {@link Boolean} Whether changes are published and tailed
+ * @param batchSize {@link Integer} Maximum number of rows read per poll
+ * @param gapGrace  {@link Duration} How long a missing id (uncommitted or rolled back insert) is waited for
+ * @param retention {@link Duration} How long rows are kept before being purged
+ */
+@ConfigurationProperties(prefix = "application.invalidation")
+public record InvalidationProperties(
+        @DefaultValue("true")
+        boolean enabled,
+
+        @DefaultValue("500")
+        int batchSize,
+
+        @DefaultValue("10s")
+        Duration gapGrace,
+
+        @DefaultValue("1h")
+        Duration retention
+) { }
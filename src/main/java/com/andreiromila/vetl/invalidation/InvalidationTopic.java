@@ -0,0 +1,23 @@
+package com.andreiromila.vetl.invalidation;
+
+/**
+ * Kinds of cached entries that can be invalidated across nodes
+ */
+public enum InvalidationTopic {
+
+    /**
+     * A token was revoked, the key is the token uuid
+     */
+    TOKEN,
+
+    /**
+     * A user changed, the key is the username
+     */
+    PRINCIPAL,
+
+    /**
+     * Audit entries were written, the key is their number and the first id, e.g. {@code 3:1042}
+     */
+    ACTIVITY
+
+}
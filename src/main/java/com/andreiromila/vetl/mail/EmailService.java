@@ -53,8 +53,9 @@ public class EmailService {
      *
      * @param user           The {@link User} object representing the recipient.
      * @param activationLink The unique URL the user will click to activate their account.
+     * @return {@code true} if the email was handed to the SMTP server, failures are logged.
      */
-    public void sendActivationEmail(User user, String activationLink) {
+    public boolean sendActivationEmail(User user, String activationLink) {
 
         try {
 
@@ -81,9 +82,11 @@ public class EmailService {
             emailSender.send(message);
 
             log.info("HTML activation email sent successfully to {}", user.getEmail());
+            return true;
 
         } catch (Exception e) {
             log.error("Failed to send HTML activation email to {}: {}", user.getEmail(), e.getMessage(), e);
+            return false;
         }
     }
 }
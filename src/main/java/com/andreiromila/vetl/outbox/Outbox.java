@@ -0,0 +1,544 @@
+package com.andreiromila.vetl.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transactional outbox backed by the {@code outbox_event} table.
+ * <p>
+ * Services {@link #append(OutboxEventType, Object) append} their domain
+ * events in the same transaction as the change: a rolled back change has no
+ * event, a committed one is never lost. One row is written per
+ * {@link OutboxHandler} of the event type.
+ * <p>
+ * The relay claims pending rows with a lease (so several nodes can relay
+ * without handling the same row twice), hands them to their handler in
+ * batches and marks them processed in the handler transaction. The lease is
+ * renewed before every handler call, and only rows still leased by the
+ * claim are marked: a call whose rows were reclaimed by another relay
+ * meanwhile is rolled back. It runs every
+ * {@code application.outbox.poll-interval} and right after a transaction
+ * that appended events commits. A failed delivery is retried with an
+ * exponential delay up to {@link OutboxProperties#maxAttempts()}.
+ * <p>
+ * Exported meters: {@code vetl.outbox.appended}, {@code vetl.outbox.dispatched},
+ * {@code vetl.outbox.failed}, {@code vetl.outbox.delay} (from the event to
+ * its successful delivery) and {@code vetl.outbox.pending} (the backlog of
+ * each handler, counted after every relay run).
+ */
+@Log4j2
+@Component
+public class Outbox implements MeterBinder {
+
+    private static final String INSERT = """
+            INSERT INTO outbox_event (event_type, handler, payload, available_at, created_at)
+            VALUES (:type, :handler, :payload, :now, :now)
+            """;
+
+    private static final String CLAIM = """
+            UPDATE outbox_event
+            SET locked_by = :claim, locked_until = :until
+            WHERE processed_at IS NULL
+              AND attempts < :maxAttempts
+              AND available_at <= :now
+              AND (locked_until IS NULL OR locked_until < :now)
+            ORDER BY id
+            LIMIT :limit
+            """;
+
+    private static final String SELECT_CLAIMED = """
+            SELECT id, event_type, handler, payload, attempts, created_at
+            FROM outbox_event
+            WHERE locked_by = :claim AND processed_at IS NULL
+            ORDER BY id
+            """;
+
+    private static final String RENEW = """
+            UPDATE outbox_event
+            SET locked_until = :until
+            WHERE id IN (:ids) AND locked_by = :claim AND processed_at IS NULL
+            """;
+
+    private static final String SELECT_OWNED = """
+            SELECT id
+            FROM outbox_event
+            WHERE id IN (:ids) AND locked_by = :claim AND processed_at IS NULL
+            """;
+
+    private static final String MARK_PROCESSED = """
+            UPDATE outbox_event
+            SET processed_at = :now, locked_by = NULL, locked_until = NULL
+            WHERE id IN (:ids) AND locked_by = :claim AND processed_at IS NULL
+            """;
+
+    private static final String MARK_FAILED = """
+            UPDATE outbox_event
+            SET attempts = attempts + 1, available_at = :retryAt, last_error = :error, locked_by = NULL, locked_until = NULL
+            WHERE id = :id AND locked_by = :claim
+            """;
+
+    private static final String COUNT_PENDING = """
+            SELECT handler, COUNT(*) AS pending
+            FROM outbox_event
+            WHERE processed_at IS NULL AND attempts < :maxAttempts
+            GROUP BY handler
+            """;
+
+    private static final String DELETE_PROCESSED = "DELETE FROM outbox_event WHERE processed_at < :threshold LIMIT :limit";
+
+    /**
+     * Upper bound of the retry delay
+     */
+    private static final Duration MAX_RETRY_DELAY = Duration.ofHours(1);
+
+    /**
+     * Contains the named parameter jdbc template
+     */
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Serializes the payloads
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Runs each handler call with the rows update
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Runs the relay after commit
+     */
+    private final TaskExecutor taskExecutor;
+
+    /**
+     * Outbox configuration
+     */
+    private final OutboxProperties properties;
+
+    /**
+     * Handlers by name
+     */
+    private final Map<String, OutboxHandler> handlers = new HashMap<>();
+
+    /**
+     * Handler names by event type
+     */
+    private final Map<OutboxEventType, List<String>> handlersByType = new EnumMap<>(OutboxEventType.class);
+
+    /**
+     * Rows waiting for each handler, as of the last relay run
+     */
+    private final Map<String, AtomicLong> pending = new HashMap<>();
+
+    /**
+     * Set while a relay run is scheduled after commit, avoids piling them up
+     */
+    private final AtomicBoolean relayScheduled = new AtomicBoolean();
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * Set once the meters are bound
+     */
+    private volatile Timer delay;
+
+    /**
+     * Constructs the outbox with required dependencies
+     *
+     * @param jdbcTemplate       {@link NamedParameterJdbcTemplate} Named parameter jdbc template
+     * @param objectMapper       {@link ObjectMapper} Serializes the payloads
+     * @param handlers           {@link List} Every outbox handler bean
+     * @param transactionManager {@link PlatformTransactionManager} Runs the handlers in transactions
+     * @param taskExecutor       {@link TaskExecutor} Runs the relay after commit
+     * @param properties         {@link OutboxProperties} Outbox configuration
+     */
+    public Outbox(final NamedParameterJdbcTemplate jdbcTemplate,
+                  final ObjectMapper objectMapper,
+                  final List<OutboxHandler> handlers,
+                  final PlatformTransactionManager transactionManager,
+                  @Qualifier("applicationTaskExecutor") final TaskExecutor taskExecutor,
+                  final OutboxProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.taskExecutor = taskExecutor;
+        this.properties = properties;
+
+        for (OutboxHandler handler : handlers) {
+            if (this.handlers.put(handler.name(), handler) != null) {
+                throw new IllegalStateException("Duplicate outbox handler name: " + handler.name());
+            }
+            handlersByType.computeIfAbsent(handler.type(), type -> new ArrayList<>()).add(handler.name());
+            pending.put(handler.name(), new AtomicLong());
+        }
+    }
+
+    /**
+     * Appends an event, must run in the transaction of the change
+     *
+     * @param type    {@link OutboxEventType} The event type
+     * @param payload {@link Object} The event, serialized as JSON
+     */
+    public void append(final OutboxEventType type, final Object payload) {
+        appendAll(type, List.of(payload));
+    }
+
+    /**
+     * Appends many events of the same type with a single batch statement,
+     * like {@link #append(OutboxEventType, Object)}
+     *
+     * @param type     {@link OutboxEventType} The event type
+     * @param payloads {@link List} The events
+     */
+    public void appendAll(final OutboxEventType type, final List<?> payloads) {
+
+        final List<String> names = handlersByType.getOrDefault(type, List.of());
+        if (names.isEmpty() || payloads.isEmpty()) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Outbox events must be appended in the transaction of the change.");
+        }
+
+        final Timestamp now = Timestamp.from(Instant.now());
+        final List<SqlParameterSource> rows = new ArrayList<>(payloads.size() * names.size());
+
+        for (Object payload : payloads) {
+            final String json = toJson(payload);
+            for (String name : names) {
+                rows.add(new MapSqlParameterSource()
+                        .addValue("type", type.name())
+                        .addValue("handler", name)
+                        .addValue("payload", json)
+                        .addValue("now", now));
+            }
+        }
+
+        jdbcTemplate.batchUpdate(INSERT, rows.toArray(SqlParameterSource[]::new));
+        appended.add(rows.size());
+
+        // Delivered right after commit instead of on the next poll
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                scheduleRelay();
+            }
+        });
+    }
+
+    private String toJson(final Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize the outbox event.", e);
+        }
+    }
+
+    private void scheduleRelay() {
+        if (properties.enabled() && relayScheduled.compareAndSet(false, true)) {
+            taskExecutor.execute(() -> {
+                relayScheduled.set(false);
+                try {
+                    relay();
+                } catch (Exception e) {
+                    log.warn("Outbox relay failed, retrying on the next poll: {}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Delivers the pending events, claim after claim
+     *
+     * @return The number of events handled successfully
+     */
+    @Scheduled(fixedDelayString = "${application.outbox.poll-interval:1s}")
+    public synchronized int relay() {
+        if (!properties.enabled()) {
+            return 0;
+        }
+
+        int total = 0;
+        List<OutboxEvent> claimed;
+
+        do {
+            final String claim = UUID.randomUUID().toString();
+            claimed = claim(claim);
+
+            // Grouped by handler, in id order
+            final Map<String, List<OutboxEvent>> byHandler = new LinkedHashMap<>();
+            claimed.forEach(event -> byHandler.computeIfAbsent(event.handler(), name -> new ArrayList<>()).add(event));
+
+            for (Map.Entry<String, List<OutboxEvent>> entry : byHandler.entrySet()) {
+                final OutboxHandler handler = handlers.get(entry.getKey());
+                if (handler == null) {
+                    fail(claim, entry.getValue(), "No outbox handler named " + entry.getKey());
+                    continue;
+                }
+
+                final List<OutboxEvent> events = entry.getValue();
+                for (int from = 0; from < events.size(); from += handler.batchSize()) {
+                    total += dispatch(handler, claim, events.subList(from, Math.min(events.size(), from + handler.batchSize())));
+                }
+            }
+        } while (claimed.size() == properties.batchSize());
+
+        countPending();
+        return total;
+    }
+
+    /**
+     * Counts the rows left for each handler, including those waiting for a retry
+     */
+    private void countPending() {
+
+        final Map<String, Long> counts = new HashMap<>();
+        jdbcTemplate.query(COUNT_PENDING, new MapSqlParameterSource("maxAttempts", properties.maxAttempts()), rs -> {
+            counts.put(rs.getString("handler"), rs.getLong("pending"));
+        });
+
+        pending.forEach((name, count) -> count.set(counts.getOrDefault(name, 0L)));
+    }
+
+    /**
+     * Takes the lease of the next pending rows
+     *
+     * @param claim {@link String} The claim id, identifies the lease
+     * @return The claimed rows
+     */
+    private List<OutboxEvent> claim(final String claim) {
+
+        final Instant now = Instant.now();
+
+        final int updated = jdbcTemplate.update(CLAIM, new MapSqlParameterSource()
+                .addValue("claim", claim)
+                .addValue("until", Timestamp.from(now.plus(properties.lease())))
+                .addValue("maxAttempts", properties.maxAttempts())
+                .addValue("now", Timestamp.from(now))
+                .addValue("limit", properties.batchSize()));
+
+        if (updated == 0) {
+            return List.of();
+        }
+
+        return jdbcTemplate.query(SELECT_CLAIMED, new MapSqlParameterSource("claim", claim),
+                (rs, rowNum) -> new OutboxEvent(
+                        rs.getLong("id"),
+                        OutboxEventType.valueOf(rs.getString("event_type")),
+                        rs.getString("handler"),
+                        rs.getString("payload"),
+                        rs.getInt("attempts"),
+                        rs.getTimestamp("created_at").toInstant()
+                ));
+    }
+
+    /**
+     * Runs one handler call and marks its events processed in the same
+     * transaction, rolled back if another relay took any of them meanwhile
+     *
+     * @param handler {@link OutboxHandler} The handler
+     * @param claim   {@link String} The claim id the events were leased with
+     * @param claimed {@link List} The events
+     * @return The number of events handled, 0 if the call failed
+     */
+    private int dispatch(final OutboxHandler handler, final String claim, final List<OutboxEvent> claimed) {
+
+        // A full lease for this call, the earlier calls of the claim may have used most of it
+        final List<OutboxEvent> events = renew(claim, claimed);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                handler.handle(events);
+                final int marked = jdbcTemplate.update(MARK_PROCESSED, new MapSqlParameterSource()
+                        .addValue("now", Timestamp.from(Instant.now()))
+                        .addValue("ids", events.stream().map(OutboxEvent::id).toList())
+                        .addValue("claim", claim));
+
+                if (marked != events.size()) {
+                    throw new LeaseLostException(events.size() - marked);
+                }
+            });
+        } catch (LeaseLostException e) {
+            log.warn("Outbox handler {} lost the lease of {} events to another relay, rolled back.", handler.name(), e.lost);
+            return 0;
+        } catch (RuntimeException e) {
+            log.warn("Outbox handler {} failed for {} events: {}", handler.name(), events.size(), e.getMessage());
+            fail(claim, events, e.getMessage());
+            return 0;
+        }
+
+        dispatched.add(events.size());
+
+        final Timer timer = delay;
+        if (timer != null) {
+            final Instant now = Instant.now();
+            events.forEach(event -> timer.record(Duration.between(event.createdAt(), now)));
+        }
+
+        return events.size();
+    }
+
+    /**
+     * Extends the lease of the events
+     *
+     * @param claim  {@link String} The claim id
+     * @param events {@link List} The claimed events
+     * @return The events still leased by the claim
+     */
+    private List<OutboxEvent> renew(final String claim, final List<OutboxEvent> events) {
+
+        final MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("until", Timestamp.from(Instant.now().plus(properties.lease())))
+                .addValue("ids", events.stream().map(OutboxEvent::id).toList())
+                .addValue("claim", claim);
+
+        if (jdbcTemplate.update(RENEW, params) == events.size()) {
+            return events;
+        }
+
+        // The lease expired and another relay reclaimed some of them
+        final Set<Long> owned = new HashSet<>(jdbcTemplate.queryForList(SELECT_OWNED, params, Long.class));
+        return events.stream().filter(event -> owned.contains(event.id())).toList();
+    }
+
+    /**
+     * Releases the rows and schedules their retry
+     *
+     * @param claim  {@link String} The claim id, rows reclaimed since are left alone
+     * @param events {@link List} The failed events
+     * @param error  {@link String} The failure, kept for inspection
+     */
+    private void fail(final String claim, final List<OutboxEvent> events, final String error) {
+
+        final Instant now = Instant.now();
+        final String message = error == null ? "Unknown error" : error.substring(0, Math.min(error.length(), 1000));
+
+        final SqlParameterSource[] params = events.stream()
+                .map(event -> new MapSqlParameterSource()
+                        .addValue("id", event.id())
+                        .addValue("claim", claim)
+                        .addValue("retryAt", Timestamp.from(now.plus(retryDelay(event.attempts()))))
+                        .addValue("error", message))
+                .toArray(SqlParameterSource[]::new);
+
+        jdbcTemplate.batchUpdate(MARK_FAILED, params);
+        failed.add(events.size());
+
+        events.stream()
+                .filter(event -> event.attempts() + 1 >= properties.maxAttempts())
+                .forEach(event -> log.error("Outbox event {} gave up on handler {} after {} attempts: {}", event.id(), event.handler(), event.attempts() + 1, message));
+    }
+
+    /**
+     * Returns the delay before the next attempt, doubled on every failure
+     *
+     * @param attempts {@link Integer} The failed attempts before this one
+     * @return The delay, at most one hour
+     */
+    Duration retryDelay(final int attempts) {
+        final Duration retryDelay = properties.retryDelay().multipliedBy(1L << Math.min(attempts, 20));
+        return retryDelay.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : retryDelay;
+    }
+
+    /**
+     * Deletes the processed rows older than the retention, in batches
+     */
+    @Scheduled(fixedDelayString = "${application.outbox.purge-interval:1h}")
+    public void purge() {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        final MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("threshold", Timestamp.from(Instant.now().minus(properties.retention())))
+                .addValue("limit", properties.batchSize());
+
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(DELETE_PROCESSED, params);
+        } while (deleted == properties.batchSize());
+    }
+
+    /**
+     * Registers the outbox meters
+     *
+     * @param registry {@link MeterRegistry} The meter registry
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        FunctionCounter.builder("vetl.outbox.appended", appended, LongAdder::sum)
+                .description("Outbox rows written, one per event and handler")
+                .register(registry);
+
+        FunctionCounter.builder("vetl.outbox.dispatched", dispatched, LongAdder::sum)
+                .description("Outbox rows handled successfully")
+                .register(registry);
+
+        FunctionCounter.builder("vetl.outbox.failed", failed, LongAdder::sum)
+                .description("Outbox deliveries that failed and were rescheduled")
+                .register(registry);
+
+        pending.forEach((name, count) -> Gauge.builder("vetl.outbox.pending", count, AtomicLong::get)
+                .description("Outbox rows waiting for the handler, counted after every relay run")
+                .tag("handler", name)
+                .register(registry));
+
+        delay = Timer.builder("vetl.outbox.delay")
+                .description("Time from the event to its successful delivery")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Rolls back a handler call whose events were reclaimed by another relay
+     */
+    private static final class LeaseLostException extends RuntimeException {
+
+        private final int lost;
+
+        private LeaseLostException(final int lost) {
+            super("Lost the lease of " + lost + " outbox events.", null, false, false);
+            this.lost = lost;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.andreiromila.vetl.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.time.Instant;
+
+/**
+ * An outbox row claimed for one handler
+ *
+ * @param id        {@link Long} The row id, identifies the delivery
+ * @param type      {@link OutboxEventType} The event type
+ * @param handler   {@link String} The handler name
+ * @param payload   {@link String} The event as JSON
+ * @param attempts  {@link Integer} Failed deliveries so far
+ * @param createdAt {@link Instant} When the event happened
+ */
+public record OutboxEvent(long id, OutboxEventType type, String handler, String payload, int attempts, Instant createdAt) {
+
+    /**
+     * Reads the payload
+     *
+     * @param objectMapper {@link ObjectMapper} The JSON mapper
+     * @param payloadType  {@link Class} The event class
+     * @return The event
+     */
+    public <T> T payload(final ObjectMapper objectMapper, final Class<T> payloadType) {
+        try {
+            return objectMapper.readValue(payload, payloadType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid payload of outbox event %d.".formatted(id), e);
+        }
+    }
+}
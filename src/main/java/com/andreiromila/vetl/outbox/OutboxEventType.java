@@ -0,0 +1,12 @@
+package com.andreiromila.vetl.outbox;
+
+/**
+ * The domain events carried by the {@link Outbox}
+ */
+public enum OutboxEventType {
+
+    /**
+     * A user was created or imported, the payload is a {@code UserCreatedEvent}
+     */
+    USER_CREATED
+}
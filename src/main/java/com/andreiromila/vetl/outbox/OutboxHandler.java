@@ -0,0 +1,46 @@
+package com.andreiromila.vetl.outbox;
+
+import java.util.List;
+
+/**
+ * Processes the events of one type relayed by the {@link Outbox}.
+ * <p>
+ * Delivery is at least once: an event may be handled again after a failure
+ * or a crash, handlers must be idempotent. Each call runs in a transaction
+ * that also marks the events processed, so database-only handlers are
+ * effectively exactly once.
+ */
+public interface OutboxHandler {
+
+    /**
+     * Returns the handler name, stored with the pending rows: renaming a
+     * handler leaves its pending rows without a handler
+     *
+     * @return The name, at most 50 characters
+     */
+    String name();
+
+    /**
+     * Returns the event type handled
+     *
+     * @return The event type
+     */
+    OutboxEventType type();
+
+    /**
+     * Returns the maximum number of events per call; a failed call retries
+     * all of its events, handlers with external side effects use 1
+     *
+     * @return The batch size
+     */
+    default int batchSize() {
+        return 100;
+    }
+
+    /**
+     * Handles a batch of events, throws to have them retried later
+     *
+     * @param events {@link List} The events, in order
+     */
+    void handle(List<OutboxEvent> events);
+}
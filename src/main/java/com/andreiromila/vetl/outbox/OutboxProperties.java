@@ -0,0 +1,39 @@
+package com.andreiromila.vetl.outbox;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the transactional outbox relay.
+ * The intervals are {@code application.outbox.poll-interval} and
+ * {@code application.outbox.purge-interval}.
+ *
+ * @param enabled     {@link Boolean} Whether this node relays the events, they are always written
+ * @param batchSize   {@link Integer} Rows claimed at once
+ * @param lease       {@link Duration} How long claimed rows are reserved, must cover handling a whole claim
+ * @param maxAttempts {@link Integer} Failed deliveries before giving up, the row is kept for inspection
+ * @param retryDelay  {@link Duration} Delay before the first retry, doubled on every failure (at most one hour)
+ * @param retention   {@link Duration} How long processed rows are kept before being purged
+ */
+@ConfigurationProperties(prefix = "application.outbox")
+public record OutboxProperties(
+        @DefaultValue("true")
+        boolean enabled,
+
+        @DefaultValue("100")
+        int batchSize,
+
+        @DefaultValue("5m")
+        Duration lease,
+
+        @DefaultValue("10")
+        int maxAttempts,
+
+        @DefaultValue("10s")
+        Duration retryDelay,
+
+        @DefaultValue("7d")
+        Duration retention
+) { }
@@ -0,0 +1,17 @@
+package com.andreiromila.vetl.responses;
+
+import java.util.List;
+
+/**
+ * Contains the cursor (keyset) page format
+ *
+ * @param content    {@link List} The list of content
+ * @param size       {@link Integer} The requested page size
+ * @param nextCursor {@link String} Opaque cursor of the next page, null on the last page
+ * @param <T>        The type for the content
+ */
+public record CursorPage<T>(
+        List<T> content,
+        int size,
+        String nextCursor
+) { }
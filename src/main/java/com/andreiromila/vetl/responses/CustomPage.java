@@ -1,6 +1,8 @@
 package com.andreiromila.vetl.responses;
 
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -10,8 +12,10 @@ import java.util.List;
  * @param content       {@link List} The list of content
  * @param size          {@link Integer} The page size
  * @param page          {@link Integer} The page number (1 based)
- * @param totalElements {@link Integer} Total number of elements in the database
- * @param totalPages    {@link Integer} Total number of pages
+ * @param totalElements {@link Integer} Total number of elements in the database, -1 when not counted
+ * @param totalPages    {@link Integer} Total number of pages, -1 when not counted
+ * @param exactTotal    {@link Boolean} Whether the total is an exact count (false for estimates and when not counted)
+ * @param hasNext       {@link Boolean} Whether there is a next page, known even without a total
  * @param <T>           The type for the content
  */
 public record CustomPage<T>(
@@ -19,7 +23,9 @@ public record CustomPage<T>(
         int size,
         int page,
         long totalElements,
-        int totalPages
+        int totalPages,
+        boolean exactTotal,
+        boolean hasNext
 ) {
 
     /**
@@ -30,7 +36,28 @@ public record CustomPage<T>(
      * @param totalElements {@link Long} The total number of elements in the database
      */
     public CustomPage(List<T> content, Pageable pageable, long totalElements) {
-        this(content, pageable.getPageSize(), page(pageable), totalElements, totalPages(pageable, totalElements));
+        this(content, pageable.getPageSize(), page(pageable), totalElements, totalPages(pageable, totalElements),
+                true, pageable.getOffset() + content.size() < totalElements);
+    }
+
+    /**
+     * Creates the custom page from a spring slice: a {@link Page} has an exact
+     * total, an {@link EstimatedPage} an estimated one and a plain slice none.
+     *
+     * @param content {@link List} The (mapped) content for the page
+     * @param slice   {@link Slice} The slice read from the database
+     * @return The custom page
+     */
+    public static <T> CustomPage<T> from(final List<T> content, final Slice<?> slice) {
+
+        final Pageable pageable = slice.getPageable();
+
+        if (slice instanceof Page<?> page) {
+            return new CustomPage<>(content, pageable.getPageSize(), page(pageable), page.getTotalElements(),
+                    totalPages(pageable, page.getTotalElements()), !(page instanceof EstimatedPage<?>), slice.hasNext());
+        }
+
+        return new CustomPage<>(content, pageable.getPageSize(), page(pageable), -1, -1, false, slice.hasNext());
     }
 
     /**
@@ -56,4 +83,4 @@ public record CustomPage<T>(
         return (int) Math.ceil((double) totalElements / pageable.getPageSize());
     }
 
-}
\ No newline at end of file
+}
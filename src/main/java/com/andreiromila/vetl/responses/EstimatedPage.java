@@ -0,0 +1,38 @@
+package com.andreiromila.vetl.responses;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page whose total is an estimate (e.g. a cached count) instead of
+ * an exact count; {@link CustomPage} reports it as not exact.
+ *
+ * @param <T> The type for the content
+ */
+public class EstimatedPage<T> extends PageImpl<T> {
+
+    /**
+     * Creates the page
+     *
+     * @param content  {@link List} The page content
+     * @param pageable {@link Pageable} The page information
+     * @param total    {@link Long} The estimated total
+     */
+    public EstimatedPage(final List<T> content, final Pageable pageable, final long total) {
+        super(content, pageable, total);
+    }
+
+    /**
+     * Maps the content keeping the page an estimated one
+     *
+     * @param converter {@link Function} The content converter
+     * @return The converted page
+     */
+    @Override
+    public <U> EstimatedPage<U> map(final Function<? super T, ? extends U> converter) {
+        return new EstimatedPage<>(getConvertedContent(converter), getPageable(), getTotalElements());
+    }
+}
@@ -0,0 +1,85 @@
+package com.andreiromila.vetl.responses;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Recent row counts backing the {@link TotalMode#APPROXIMATE} totals.
+ * <p>
+ * A listing (and filter) is counted at most once per {@code ttl}, every
+ * other request reuses that count; the total may be off by the rows
+ * added or removed since. Hit and miss counters are exported as the
+ * {@code cache.*} meters tagged with {@code cache=totals}.
+ */
+@Component
+public class TotalCountCache implements MeterBinder {
+
+    /**
+     * The cache name used for the exported meters
+     */
+    static final String CACHE_NAME = "totals";
+
+    /**
+     * Counts by listing key
+     */
+    private final Cache<String, Long> cache;
+
+    /**
+     * Builds the cache with the configured bounds
+     *
+     * @param properties {@link TotalCountProperties} Cache configuration
+     */
+    public TotalCountCache(final TotalCountProperties properties) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maxSize())
+                .expireAfterWrite(properties.ttl())
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Turns a slice into a page with an estimated total.
+     * <p>
+     * The estimate never contradicts the slice: it covers at least the rows
+     * already seen, and on the last slice the total is known exactly.
+     *
+     * @param key     {@link String} The listing key, e.g. the table and filter
+     * @param slice   {@link Slice} The slice read without counting
+     * @param counter {@link LongSupplier} Counts the rows when there is no recent count
+     * @return An exact page on the last slice, an {@link EstimatedPage} otherwise
+     */
+    public <T> Slice<T> estimate(final String key, final Slice<T> slice, final LongSupplier counter) {
+
+        final Pageable pageable = slice.getPageable();
+        final long seen = (pageable.isPaged() ? pageable.getOffset() : 0) + slice.getNumberOfElements();
+
+        if (!slice.hasNext() && (slice.hasContent() || pageable.getOffset() == 0)) {
+            return new PageImpl<>(slice.getContent(), pageable, seen);
+        }
+
+        final long cached = cache.get(key, ignored -> counter.getAsLong());
+        final long total = Math.max(cached, seen + (slice.hasNext() ? 1 : 0));
+
+        return new EstimatedPage<>(slice.getContent(), pageable, total);
+    }
+
+    /**
+     * Registers the cache meters
+     *
+     * @param registry {@link MeterRegistry} The meter registry
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+}
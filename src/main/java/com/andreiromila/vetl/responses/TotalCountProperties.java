@@ -0,0 +1,21 @@
+package com.andreiromila.vetl.responses;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the approximate totals of paginated endpoints.
+ *
+ * @param ttl     {@link Duration} How long a count is reused
+ * @param maxSize {@link Long} Maximum number of cached counts (one per listing and filter)
+ */
+@ConfigurationProperties(prefix = "application.pagination.total-cache")
+public record TotalCountProperties(
+        @DefaultValue("1m")
+        Duration ttl,
+
+        @DefaultValue("1000")
+        long maxSize
+) { }
@@ -0,0 +1,47 @@
+package com.andreiromila.vetl.responses;
+
+import com.andreiromila.vetl.exceptions.HttpBadRequestException;
+
+import java.util.Locale;
+
+/**
+ * How a paginated endpoint computes the total of a {@link CustomPage},
+ * requested with the {@code total} parameter.
+ */
+public enum TotalMode {
+
+    /**
+     * Counts the matching rows on every request (the default)
+     */
+    EXACT,
+
+    /**
+     * Reuses a recent count, see {@link TotalCountCache}
+     */
+    APPROXIMATE,
+
+    /**
+     * No count at all, the page only tells whether there is a next one
+     */
+    NONE;
+
+    /**
+     * Parses the request parameter, case-insensitively
+     *
+     * @param value {@link String} The parameter value, null for the default
+     * @return The total mode
+     * @throws HttpBadRequestException If the value is not a known mode
+     */
+    public static TotalMode parse(final String value) {
+
+        if (value == null || value.isBlank()) {
+            return EXACT;
+        }
+
+        try {
+            return valueOf(value.strip().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new HttpBadRequestException("Invalid total mode, expected one of: exact, approximate, none.");
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.andreiromila.vetl.role;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable, in-memory snapshot of the {@code role} table.
+ * <p>
+ * The table holds a handful of seeded rows that almost never change, so
+ * it is read once and kept in memory. A user's roles are represented as a
+ * bitmask (bit {@code n} set for the role with id {@code n}), the catalog
+ * turns a mask into the shared, immutable {@link Role} set and
+ * {@code ROLE_} prefixed authorities; both are built once per distinct
+ * mask instead of on every request. Role checks ({@code hasRole} in
+ * {@code @PreAuthorize}) read those shared authorities.
+ * <p>
+ * The snapshot is refreshed every {@code application.role.catalog.refresh-interval}
+ * and can be refreshed on demand with {@link #refresh()}; readers always
+ * see a complete snapshot, never a partially loaded one.
+ */
+@Log4j2
+@Component
+public class RoleCatalog implements SmartInitializingSingleton {
+
+    /**
+     * Highest role id that fits in the mask (bit 63 is the sign bit)
+     */
+    static final long MAX_ROLE_ID = 62;
+
+    /**
+     * Role persistence component
+     */
+    private final RoleRepository roleRepository;
+
+    /**
+     * The current snapshot, replaced as a whole on refresh
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * Constructs the catalog, the roles are loaded on startup
+     *
+     * @param roleRepository {@link RoleRepository} Role persistence component
+     */
+    public RoleCatalog(final RoleRepository roleRepository) {
+        this.roleRepository = roleRepository;
+    }
+
+    /**
+     * Loads the roles once every bean is ready
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        refresh();
+    }
+
+    /**
+     * Reloads the roles from the database and swaps the snapshot
+     */
+    @Scheduled(
+            fixedDelayString = "${application.role.catalog.refresh-interval:10m}",
+            initialDelayString = "${application.role.catalog.refresh-interval:10m}"
+    )
+    public void refresh() {
+        snapshot = new Snapshot(roleRepository.findAll());
+        log.debug("Loaded {} roles.", snapshot.roles.size());
+    }
+
+    /**
+     * Returns every role, ordered by id
+     *
+     * @return The immutable list of roles
+     */
+    public List<Role> findAll() {
+        return snapshot().roles;
+    }
+
+    /**
+     * Finds a role by its id
+     *
+     * @param id {@link Long} The role id
+     * @return The role, if it exists
+     */
+    public Optional<Role> findById(final long id) {
+        return Optional.ofNullable(snapshot().byId.get(id));
+    }
+
+    /**
+     * Returns the roles of a mask
+     *
+     * @param mask {@link Long} The role bitmask
+     * @return The immutable (shared) set of roles, unknown bits are ignored
+     */
+    public Set<Role> roles(final long mask) {
+        return snapshot().entry(mask).roles();
+    }
+
+    /**
+     * Returns the {@code ROLE_} prefixed authorities of a mask
+     *
+     * @param mask {@link Long} The role bitmask
+     * @return The immutable (shared) list of authorities, unknown bits are ignored
+     */
+    public List<GrantedAuthority> authorities(final long mask) {
+        return snapshot().entry(mask).authorities();
+    }
+
+    /**
+     * Returns the mask bit of a role id
+     *
+     * @param roleId {@link Long} The role id
+     * @return The single bit mask of the role
+     * @throws IllegalArgumentException If the id does not fit in the mask
+     */
+    public static long bit(final long roleId) {
+        if (roleId < 0 || roleId > MAX_ROLE_ID) {
+            throw new IllegalArgumentException("Role id out of the mask range: " + roleId);
+        }
+        return 1L << roleId;
+    }
+
+    /**
+     * Builds the mask of a collection of role ids
+     *
+     * @param roleIds {@link Collection} The role ids
+     * @return The role bitmask
+     */
+    public static long mask(final Collection<Long> roleIds) {
+        long mask = 0;
+        for (Long id : roleIds) {
+            mask |= bit(id);
+        }
+        return mask;
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            // Used before the startup load (e.g. another bean initializing)
+            synchronized (this) {
+                if (snapshot == null) {
+                    refresh();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Roles and authorities of one mask
+     *
+     * @param roles       {@link Set} The roles
+     * @param authorities {@link List} The ROLE_ prefixed authorities
+     */
+    private record Entry(Set<Role> roles, List<GrantedAuthority> authorities) { }
+
+    /**
+     * One immutable load of the role table
+     */
+    private static final class Snapshot {
+
+        private final List<Role> roles;
+
+        private final Map<Long, Role> byId;
+
+        /**
+         * Bits of the loaded roles, unknown bits are dropped before the lookup
+         */
+        private final long knownMask;
+
+        /**
+         * Entries per mask, there are at most 2^roles of them
+         */
+        private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+        private Snapshot(final List<Role> loaded) {
+
+            for (Role role : loaded) {
+                // Fail the load rather than build wrong masks
+                bit(role.id());
+            }
+
+            this.roles = loaded.stream().sorted(Comparator.comparing(Role::id)).toList();
+            this.byId = roles.stream().collect(Collectors.toUnmodifiableMap(Role::id, Function.identity()));
+            this.knownMask = mask(byId.keySet());
+        }
+
+        private Entry entry(final long mask) {
+            return entries.computeIfAbsent(mask & knownMask, this::build);
+        }
+
+        private Entry build(final long mask) {
+
+            final Set<Role> selected = new LinkedHashSet<>();
+            final List<GrantedAuthority> authorities = new ArrayList<>();
+
+            for (Role role : roles) {
+                if ((mask & bit(role.id())) != 0) {
+                    selected.add(role);
+                    authorities.add(new SimpleGrantedAuthority("ROLE_" + role.name()));
+                }
+            }
+
+            return new Entry(Set.copyOf(selected), List.copyOf(authorities));
+        }
+    }
+}
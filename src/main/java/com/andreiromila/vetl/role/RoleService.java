@@ -12,25 +12,25 @@ import java.util.List;
 public class RoleService {
 
     /**
-     * The data access layer for roles.
+     * The in-memory role catalog.
      */
-    private final RoleRepository roleRepository;
+    private final RoleCatalog roleCatalog;
 
     /**
-     * Constructs the RoleService with the required repository.
+     * Constructs the RoleService with the required catalog.
      *
-     * @param roleRepository {@link RoleRepository} The data access layer for roles.
+     * @param roleCatalog {@link RoleCatalog} The in-memory role catalog.
      */
-    public RoleService(RoleRepository roleRepository) {
-        this.roleRepository = roleRepository;
+    public RoleService(RoleCatalog roleCatalog) {
+        this.roleCatalog = roleCatalog;
     }
 
     /**
-     * Retrieves all roles from the database.
+     * Retrieves all roles from the in-memory catalog.
      *
-     * @return A {@link List} of all {@link Role} entities.
+     * @return A {@link List} of all {@link Role} entities, ordered by id.
      */
     public List<Role> findAll() {
-        return roleRepository.findAll();
+        return roleCatalog.findAll();
     }
 }
@@ -0,0 +1,193 @@
+package com.andreiromila.vetl.security;
+
+import com.andreiromila.vetl.exceptions.HttpServiceUnavailableException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link PasswordEncoder} running the (CPU bound) delegate on a dedicated,
+ * bounded pool of platform threads.
+ * <p>
+ * Request threads are virtual, without a bound a login burst would run as
+ * many BCrypt computations as there are requests and starve every core.
+ * Here at most {@code threads} hashes run at once and {@code queueCapacity}
+ * wait; anything beyond that, or waiting longer than {@code timeout}, is
+ * rejected right away with a {@link HttpServiceUnavailableException} (503).
+ * <p>
+ * Exported meters: {@code vetl.password.hashing} (count and time per
+ * {@code operation}), {@code vetl.password.hashing.rejected},
+ * {@code vetl.password.hashing.queued} and {@code vetl.password.hashing.active}.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, MeterBinder, AutoCloseable {
+
+    /**
+     * The actual encoder, e.g. BCrypt
+     */
+    private final PasswordEncoder delegate;
+
+    /**
+     * Pool configuration
+     */
+    private final PasswordHashingProperties properties;
+
+    /**
+     * The bounded hashing pool
+     */
+    private final ThreadPoolExecutor executor;
+
+    private final Operation encode = new Operation();
+    private final Operation matches = new Operation();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates the encoder and starts its pool
+     *
+     * @param delegate   {@link PasswordEncoder} The actual encoder
+     * @param properties {@link PasswordHashingProperties} Pool configuration
+     */
+    public BoundedPasswordEncoder(final PasswordEncoder delegate, final PasswordHashingProperties properties) {
+        this.delegate = delegate;
+        this.properties = properties;
+
+        final AtomicInteger counter = new AtomicInteger();
+        final int threads = properties.effectiveThreads();
+
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.queueCapacity())),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    @Override
+    public String encode(final CharSequence rawPassword) {
+        return run(encode, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(final CharSequence rawPassword, final String encodedPassword) {
+        return run(matches, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(final String encodedPassword) {
+        // Only parses the hash, no need for the pool
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Runs an operation on the pool and waits for its result
+     *
+     * @param operation {@link Operation} The operation timing
+     * @param task      {@link Callable} The hashing work
+     * @return The task result
+     * @throws HttpServiceUnavailableException If the pool is saturated or the result takes too long
+     */
+    private <T> T run(final Operation operation, final Callable<T> task) {
+
+        final Future<T> future;
+
+        try {
+            future = executor.submit(() -> {
+                final long start = System.nanoTime();
+                try {
+                    return task.call();
+                } finally {
+                    operation.record(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new HttpServiceUnavailableException("The server is busy, please try again shortly.");
+        }
+
+        try {
+            return future.get(properties.timeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new HttpServiceUnavailableException("The server is busy, please try again shortly.");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing a password.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Registers the hashing meters
+     *
+     * @param registry {@link MeterRegistry} The meter registry
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        encode.bindTo(registry, "encode");
+        matches.bindTo(registry, "matches");
+
+        FunctionCounter.builder("vetl.password.hashing.rejected", rejected, LongAdder::sum)
+                .description("Hashing requests rejected because the pool was saturated")
+                .register(registry);
+
+        Gauge.builder("vetl.password.hashing.queued", executor, pool -> pool.getQueue().size())
+                .description("Hashing requests waiting for a thread")
+                .register(registry);
+
+        Gauge.builder("vetl.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hashing threads currently working")
+                .register(registry);
+    }
+
+    /**
+     * Stops the pool
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Count and total time of one kind of operation
+     */
+    private static final class Operation {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        private void record(final long elapsed) {
+            count.increment();
+            nanos.add(elapsed);
+        }
+
+        private void bindTo(final MeterRegistry registry, final String name) {
+            FunctionTimer.builder("vetl.password.hashing", this, op -> op.count.sum(), op -> op.nanos.sum(), TimeUnit.NANOSECONDS)
+                    .description("Password hashing operations executed on the bounded pool")
+                    .tag("operation", name)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.andreiromila.vetl.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Resolves the address of the client behind the trusted proxies.
+ * <p>
+ * The {@code X-Forwarded-For} header is only believed when the request
+ * comes from a trusted proxy, and is read from the right: every proxy
+ * appends the address it received the request from, the first untrusted
+ * one is the client. Anything to its left was sent by the client itself
+ * and is ignored, so a client can not pick its own address.
+ */
+@Component
+public class ClientAddressResolver {
+
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    /**
+     * Matchers of the trusted proxies
+     */
+    private final List<IpAddressMatcher> trusted;
+
+    /**
+     * Constructs the resolver
+     *
+     * @param properties {@link TrustedProxiesProperties} The trusted proxies
+     */
+    public ClientAddressResolver(final TrustedProxiesProperties properties) {
+        this.trusted = properties.trusted().stream()
+                .map(IpAddressMatcher::new)
+                .toList();
+    }
+
+    /**
+     * Returns the address of the client
+     *
+     * @param request {@link HttpServletRequest} The servlet request
+     * @return The first untrusted address of the forwarding chain, the remote address without proxies
+     */
+    public String resolve(final HttpServletRequest request) {
+
+        String address = request.getRemoteAddr();
+        final String forwardedFor = request.getHeader(FORWARDED_FOR);
+
+        if (forwardedFor == null || !isTrusted(address)) {
+            return address;
+        }
+
+        // From the closest hop back to the client
+        final String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0 && isTrusted(address); i--) {
+            final String hop = hops[i].trim();
+
+            // A malformed hop ends the chain, the last trusted proxy is all we know
+            if (!isAddress(hop)) {
+                break;
+            }
+            address = hop;
+        }
+
+        return address;
+    }
+
+    /**
+     * Whether the address belongs to a trusted proxy
+     */
+    private boolean isTrusted(final String address) {
+        if (!isAddress(address)) {
+            return false;
+        }
+
+        try {
+            return trusted.stream().anyMatch(matcher -> matcher.matches(address));
+        } catch (IllegalArgumentException e) {
+            // Looked like an address but is not one
+            return false;
+        }
+    }
+
+    /**
+     * Whether the value is an IP address literal, host names are never resolved
+     */
+    private static boolean isAddress(final String value) {
+        if (value == null || value.isEmpty()) {
+            return false;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (Character.digit(c, 16) < 0 && c != '.' && c != ':') {
+                return false;
+            }
+        }
+
+        // Hexadecimal letters alone, like "cafe", are host names too
+        return value.indexOf('.') > 0 || value.indexOf(':') >= 0;
+    }
+}
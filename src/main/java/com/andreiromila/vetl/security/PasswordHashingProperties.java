@@ -0,0 +1,35 @@
+package com.andreiromila.vetl.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the bounded password hashing pool.
+ *
+ * @param threads       {@link Integer} Hashing threads, 0 uses half of the available processors
+ * @param queueCapacity {@link Integer} Hashing requests allowed to wait for a thread before rejecting
+ * @param timeout       {@link Duration} Maximum time a request waits for its result
+ */
+@ConfigurationProperties("application.security.password-hashing")
+public record PasswordHashingProperties(
+        @DefaultValue("0")
+        int threads,
+
+        @DefaultValue("64")
+        int queueCapacity,
+
+        @DefaultValue("5s")
+        Duration timeout
+) {
+
+    /**
+     * Returns the number of hashing threads to start
+     *
+     * @return The configured threads or half of the available processors (at least one)
+     */
+    public int effectiveThreads() {
+        return threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+}
@@ -1,8 +1,12 @@
 package com.andreiromila.vetl.security;
 
+import com.andreiromila.vetl.datasource.DatabaseBulkheads;
 import com.andreiromila.vetl.security.filters.JwtAuthorizationFilter;
+import com.andreiromila.vetl.token.TokenActivityTracker;
 import com.andreiromila.vetl.token.TokenService;
 import com.andreiromila.vetl.user.UserService;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -24,6 +28,7 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import org.springframework.web.servlet.HandlerExceptionResolver;
 
 /**
  * Central security configuration defining
@@ -66,12 +71,16 @@ public class SecurityConfig {
      * Strength 10 = 2^10 iterations (1024 rounds)
      * Automatically handles salt generation/storage
      * Recommended alternative to deprecated SHA-based hashing
+     * <p>
+     * Hashing runs on a bounded pool so login bursts
+     * cannot take every core (see {@link BoundedPasswordEncoder})
      *
+     * @param properties {@link PasswordHashingProperties} Hashing pool configuration
      * @return BCrypt password encoder bean
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(final PasswordHashingProperties properties) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), properties);
     }
 
     /**
@@ -116,16 +125,24 @@ public class SecurityConfig {
      *
      * @param http                    {@link HttpSecurity} Security configuration builder
      * @param authenticatedEntryPoint {@link UnauthorizedAuthenticatedEntryPoint} The unauthorized en
+     * @param bulkheads               {@link DatabaseBulkheads} Limits the database work of the authorization filter
+     * @param exceptionResolver       {@link HandlerExceptionResolver} Answers the filter rejections
      * @return Configured security filter chain
      * @throws Exception On configuration errors
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(final HttpSecurity http, final UnauthorizedAuthenticatedEntryPoint authenticatedEntryPoint, final UserService userService, final TokenService tokenService) throws Exception {
+    public SecurityFilterChain securityFilterChain(final HttpSecurity http,
+                                                   final UnauthorizedAuthenticatedEntryPoint authenticatedEntryPoint,
+                                                   final UserService userService,
+                                                   final TokenService tokenService,
+                                                   final TokenActivityTracker activityTracker,
+                                                   final DatabaseBulkheads bulkheads,
+                                                   @Qualifier("handlerExceptionResolver") final HandlerExceptionResolver exceptionResolver) throws Exception {
         return http
                 .cors(Customizer.withDefaults())
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(SecurityConfig::httpAuthorizationsConfig)
-                .addFilterBefore(new JwtAuthorizationFilter(userService, tokenService), UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(new JwtAuthorizationFilter(userService, tokenService, activityTracker, bulkheads, exceptionResolver), UsernamePasswordAuthenticationFilter.class)
                 .sessionManagement(SecurityConfig::stateless)
                 .exceptionHandling(config -> config.authenticationEntryPoint(authenticatedEntryPoint))
                 .build();
@@ -149,9 +166,15 @@ public class SecurityConfig {
         // We need to allow the /error endpoint for everyone
         registry.requestMatchers("/error").permitAll();
 
+        // Streamed responses end with an async dispatch, the request was authorized before streaming
+        registry.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll();
+
         // User registration is allowed for any user
         registry.requestMatchers(HttpMethod.POST, "/api/v1/login").permitAll();
 
+        // The refresh token is the credential, the access token may already be expired
+        registry.requestMatchers(HttpMethod.POST, "/api/v1/refresh").permitAll();
+
         // Allow public access to the activation endpoints (GET for validation, POST for commitment)
         registry.requestMatchers(HttpMethod.GET, "/api/v1/users/{username}/activations/{token}").permitAll();
         registry.requestMatchers(HttpMethod.POST, "/api/v1/users/{username}/activations").permitAll();
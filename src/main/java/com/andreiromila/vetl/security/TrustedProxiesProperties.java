@@ -0,0 +1,18 @@
+package com.andreiromila.vetl.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * Configuration properties for the proxies in front of the application.
+ *
+ * @param trusted {@link List} Addresses or CIDR ranges of the load balancers and proxies whose
+ *                {@code X-Forwarded-For} header is believed, the private and loopback ranges by default
+ */
+@ConfigurationProperties("application.security.proxies")
+public record TrustedProxiesProperties(
+        @DefaultValue({"10.0.0.0/8", "172.16.0.0/12", "192.168.0.0/16", "100.64.0.0/10", "127.0.0.0/8", "::1", "fc00::/7"})
+        List<String> trusted
+) { }
@@ -1,5 +1,10 @@
 package com.andreiromila.vetl.security.filters;
 
+import com.andreiromila.vetl.datasource.BulkheadGroup;
+import com.andreiromila.vetl.datasource.DatabaseBulkheads;
+import com.andreiromila.vetl.exceptions.HttpServiceUnavailableException;
+import com.andreiromila.vetl.token.AccessTokenClaims;
+import com.andreiromila.vetl.token.TokenActivityTracker;
 import com.andreiromila.vetl.token.TokenService;
 import com.andreiromila.vetl.user.User;
 import com.andreiromila.vetl.user.UserService;
@@ -11,6 +16,7 @@ import lombok.extern.log4j.Log4j2;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
 
 import java.io.IOException;
 
@@ -31,15 +37,40 @@ public class JwtAuthorizationFilter extends OncePerRequestFilter {
      */
     private final TokenService tokenService;
 
+    /**
+     * Token activity tracker bean
+     */
+    private final TokenActivityTracker activityTracker;
+
+    /**
+     * Database bulkheads bean
+     */
+    private final DatabaseBulkheads bulkheads;
+
+    /**
+     * The handler exception resolver bean
+     */
+    private final HandlerExceptionResolver exceptionResolver;
+
     /**
      * The JWT authorization filter constructor
      *
-     * @param userService  {@link UserService} User service bean
-     * @param tokenService {@link TokenService} Token service bean
+     * @param userService       {@link UserService} User service bean
+     * @param tokenService      {@link TokenService} Token service bean
+     * @param activityTracker   {@link TokenActivityTracker} Token activity tracker bean
+     * @param bulkheads         {@link DatabaseBulkheads} Database bulkheads bean
+     * @param exceptionResolver {@link HandlerExceptionResolver} The handler exception resolver bean
      */
-    public JwtAuthorizationFilter(final UserService userService, final TokenService tokenService) {
+    public JwtAuthorizationFilter(final UserService userService,
+                                  final TokenService tokenService,
+                                  final TokenActivityTracker activityTracker,
+                                  final DatabaseBulkheads bulkheads,
+                                  final HandlerExceptionResolver exceptionResolver) {
         this.userService = userService;
         this.tokenService = tokenService;
+        this.activityTracker = activityTracker;
+        this.bulkheads = bulkheads;
+        this.exceptionResolver = exceptionResolver;
     }
 
     /**
@@ -58,7 +89,15 @@ public class JwtAuthorizationFilter extends OncePerRequestFilter {
         final String authorizationHeader = request.getHeader("Authorization");
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            UsernamePasswordAuthenticationToken authentication = getAuthentication(request, authorizationHeader);
+            final UsernamePasswordAuthenticationToken authentication;
+            try {
+                // The principal may be loaded from the database
+                authentication = bulkheads.call(BulkheadGroup.AUTH, () -> getAuthentication(request, authorizationHeader));
+            } catch (HttpServiceUnavailableException e) {
+                // Saturated, answer 503 instead of continuing unauthenticated
+                exceptionResolver.resolveException(request, response, null, e);
+                return;
+            }
             SecurityContextHolder.getContext().setAuthentication(authentication);
         }
 
@@ -68,7 +107,8 @@ public class JwtAuthorizationFilter extends OncePerRequestFilter {
     /**
      * Validates the token and returns the username
      * and password authentication to be stored in
-     * the {@link SecurityContextHolder}
+     * the {@link SecurityContextHolder}, with the
+     * {@link AccessTokenClaims} as its details
      *
      * @param request             {@link HttpServletRequest} The http servlet request
      * @param authorizationHeader {@link String} The authorization bearer token
@@ -81,8 +121,9 @@ public class JwtAuthorizationFilter extends OncePerRequestFilter {
             final String token = authorizationHeader.substring(7);
             final String userAgent = request.getHeader("User-Agent");
 
-            // Parse, validate and extract the username from the token
-            final String username = tokenService.extractUsername(token, userAgent);
+            // Parse, validate and extract the token id and username
+            final AccessTokenClaims claims = tokenService.validateAccessToken(token, userAgent);
+            final String username = claims.username();
             final User userDetails = userService.loadUserByUsername(username);
 
             // Now, what if the user is locked?
@@ -91,8 +132,13 @@ public class JwtAuthorizationFilter extends OncePerRequestFilter {
                 return null;
             }
 
-            // Return the authentication token
-            return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+            // In memory only, written to the token table in batches
+            activityTracker.record(claims.uuid());
+
+            // Return the authentication token, long-lived streams check the token again later
+            final UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+            authentication.setDetails(claims);
+            return authentication;
 
         } catch (Exception e) {
 
@@ -0,0 +1,16 @@
+package com.andreiromila.vetl.token;
+
+import java.time.Instant;
+
+/**
+ * The verified claims of an access token.
+ *
+ * @param uuid      {@link String} The stored token uuid (JWT id)
+ * @param username  {@link String} The authenticated username
+ * @param expiresAt {@link Instant} When the access token expires
+ */
+public record AccessTokenClaims(
+        String uuid,
+        String username,
+        Instant expiresAt
+) { }
@@ -0,0 +1,116 @@
+package com.andreiromila.vetl.token;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Minimal thread-safe Bloom filter for string keys.
+ * <p>
+ * {@link #mightContain(String)} never returns {@code false} for a key that
+ * was added, it may return {@code true} for a key that was not (with the
+ * configured probability). Keys cannot be removed, the filter is rebuilt
+ * instead.
+ */
+final class BloomFilter {
+
+    /**
+     * The bit set, 64 bits per word
+     */
+    private final AtomicLongArray words;
+
+    /**
+     * Number of bits in the filter
+     */
+    private final long bitCount;
+
+    /**
+     * Number of bit positions set per key
+     */
+    private final int hashCount;
+
+    /**
+     * Creates a filter sized for the expected number of keys
+     *
+     * @param expectedInsertions {@link Long} Expected number of keys
+     * @param falsePositiveRate  {@link Double} Desired false positive probability, between 0 and 1
+     */
+    BloomFilter(final long expectedInsertions, final double falsePositiveRate) {
+        final long n = Math.max(1, expectedInsertions);
+
+        // Optimal sizes: m = -n ln(p) / ln(2)^2 and k = m / n ln(2)
+        final long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        final int words = (int) Math.max(1, (bits + 63) / 64);
+
+        this.words = new AtomicLongArray(words);
+        this.bitCount = words * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    /**
+     * Adds a key to the filter
+     *
+     * @param key {@link String} The key
+     */
+    void put(final String key) {
+        final long h1 = hash(key);
+        final long h2 = mix(h1);
+
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = index(h1, h2, i);
+            final int word = (int) (bit >>> 6);
+            final long mask = 1L << bit;
+
+            long current;
+            do {
+                current = words.get(word);
+            } while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    /**
+     * Checks whether a key may have been added
+     *
+     * @param key {@link String} The key
+     * @return {@code false} if the key was definitely never added
+     */
+    boolean mightContain(final String key) {
+        final long h1 = hash(key);
+        final long h2 = mix(h1);
+
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = index(h1, h2, i);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Double hashing (Kirsch-Mitzenmacher): the i-th position is h1 + i * h2
+     */
+    private long index(final long h1, final long h2, final int i) {
+        return Math.floorMod(h1 + i * h2, bitCount);
+    }
+
+    /**
+     * 64-bit FNV-1a over the characters of the key
+     */
+    private static long hash(final String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * SplitMix64 finalizer, spreads the bits of a hash
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,19 @@
+package com.andreiromila.vetl.token;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties for the in-memory set of revoked token ids.
+ *
+ * @param expectedInsertions {@link Long} Number of revoked, unexpired tokens the Bloom filter is sized for
+ * @param falsePositiveRate  {@link Double} Bloom filter false positive probability at the expected size
+ */
+@ConfigurationProperties(prefix = "application.token.revocation")
+public record RevokedTokenProperties(
+        @DefaultValue("100000")
+        long expectedInsertions,
+
+        @DefaultValue("0.01")
+        double falsePositiveRate
+) { }
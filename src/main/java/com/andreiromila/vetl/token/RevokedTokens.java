@@ -0,0 +1,191 @@
+package com.andreiromila.vetl.token;
+
+import com.andreiromila.vetl.invalidation.CacheInvalidationEvent;
+import com.andreiromila.vetl.invalidation.InvalidationTopic;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory set of revoked (disabled, not yet expired) token ids.
+ * <p>
+ * Lookups go through a {@link BloomFilter} first: a negative answer is
+ * final and costs a few memory reads, only positives are confirmed in the
+ * exact set. The set is loaded from the {@code token} table on startup and
+ * updated by {@link TokenService#invalidate(String)}, locally or on another
+ * node through the invalidation bus; expired ids are pruned
+ * periodically and the filter rebuilt, since a Bloom filter cannot remove keys.
+ * <p>
+ * Exported meters: {@code vetl.tokens.revoked} (gauge) and
+ * {@code vetl.tokens.revocation.checks} tagged by {@code result}.
+ */
+@Log4j2
+@Component
+public class RevokedTokens implements MeterBinder, SmartInitializingSingleton {
+
+    /**
+     * Token persistence component
+     */
+    private final TokenRepository repository;
+
+    /**
+     * Revocation set configuration
+     */
+    private final RevokedTokenProperties properties;
+
+    /**
+     * The exact set, revoked token id to its expiration
+     */
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+
+    /**
+     * The current filter, replaced on every prune
+     */
+    private volatile BloomFilter filter;
+
+    /**
+     * Checks answered by the filter alone
+     */
+    private final LongAdder negatives = new LongAdder();
+
+    /**
+     * Checks confirmed by the exact set
+     */
+    private final LongAdder positives = new LongAdder();
+
+    /**
+     * Filter positives the exact set rejected
+     */
+    private final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * Constructs the revocation set with required dependencies
+     *
+     * @param repository {@link TokenRepository} Token persistence component
+     * @param properties {@link RevokedTokenProperties} Revocation set configuration
+     */
+    public RevokedTokens(final TokenRepository repository, final RevokedTokenProperties properties) {
+        this.repository = repository;
+        this.properties = properties;
+        this.filter = new BloomFilter(properties.expectedInsertions(), properties.falsePositiveRate());
+    }
+
+    /**
+     * Loads the disabled, unexpired tokens once every bean is ready
+     * and before the application starts serving requests
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        final var tokens = repository.findByEnableFalseAndExpiresAtAfter(Instant.now());
+        tokens.forEach(token -> revoke(token.uuid(), token.expiresAt()));
+        log.info("Loaded {} revoked tokens.", tokens.size());
+    }
+
+    /**
+     * Checks whether a token id has been revoked
+     *
+     * @param uuid {@link String} The token uuid (JWT id)
+     * @return {@code true} if the token is revoked and not yet expired
+     */
+    public boolean isRevoked(final String uuid) {
+
+        // Definitely not revoked, no need to look any further
+        if (!filter.mightContain(uuid)) {
+            negatives.increment();
+            return false;
+        }
+
+        final Instant expiresAt = revoked.get(uuid);
+        if (expiresAt == null || expiresAt.isBefore(Instant.now())) {
+            falsePositives.increment();
+            return false;
+        }
+
+        positives.increment();
+        return true;
+    }
+
+    /**
+     * Adds a token id to the set
+     *
+     * @param uuid      {@link String} The token uuid (JWT id)
+     * @param expiresAt {@link Instant} When the token expires and can be dropped
+     */
+    public synchronized void revoke(final String uuid, final Instant expiresAt) {
+        // Exact set first, a filter hit must always find the entry
+        revoked.put(uuid, expiresAt);
+        filter.put(uuid);
+    }
+
+    /**
+     * Adds a token revoked on another node
+     *
+     * @param event {@link CacheInvalidationEvent} The received invalidation
+     */
+    @EventListener
+    public void onInvalidation(final CacheInvalidationEvent event) {
+        if (event.getTopic() == InvalidationTopic.TOKEN && event.getExpiresAt() != null) {
+            revoke(event.getKey(), event.getExpiresAt());
+        }
+    }
+
+    /**
+     * Drops expired ids and rebuilds the filter from the remaining ones
+     */
+    @Scheduled(fixedDelayString = "${application.token.revocation.prune-interval:10m}")
+    public synchronized void prune() {
+        final Instant now = Instant.now();
+        revoked.values().removeIf(expiresAt -> expiresAt.isBefore(now));
+
+        // Grow the filter if the set outgrew the expected size
+        final BloomFilter rebuilt = new BloomFilter(
+                Math.max(properties.expectedInsertions(), 2L * revoked.size()),
+                properties.falsePositiveRate()
+        );
+        revoked.keySet().forEach(rebuilt::put);
+        filter = rebuilt;
+    }
+
+    /**
+     * Returns the number of revoked, not yet pruned, token ids
+     *
+     * @return The exact set size
+     */
+    public int size() {
+        return revoked.size();
+    }
+
+    /**
+     * Registers the revocation meters
+     *
+     * @param registry {@link MeterRegistry} The meter registry
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("vetl.tokens.revoked", revoked, Map::size)
+                .description("Revoked tokens kept in memory")
+                .register(registry);
+
+        check(registry, "negative", negatives);
+        check(registry, "revoked", positives);
+        check(registry, "false_positive", falsePositives);
+    }
+
+    private static void check(final MeterRegistry registry, final String result, final LongAdder adder) {
+        FunctionCounter.builder("vetl.tokens.revocation.checks", adder, LongAdder::sum)
+                .description("Revocation checks by outcome")
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -2,6 +2,7 @@ package com.andreiromila.vetl.token;
 
 import lombok.Builder;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.ReadOnlyProperty;
 import org.springframework.data.relational.core.mapping.Table;
 
 import java.time.Instant;
@@ -10,11 +11,13 @@ import java.time.Instant;
  * Represents an authentication token entity with expiration tracking.
  * Immutable record using Lombok's builder pattern for object creation.
  *
- * @param uuid      {@link String} Unique identifier (primary key) generated before persistence
- * @param username  {@link String} Associated user reference
- * @param userAgent {@link String} Client device/browser identification for token binding
- * @param enable    {@link Boolean} Activation status flag for token revocation
- * @param expiresAt {@link Instant} Token validity expiration timestamp
+ * @param uuid         {@link String} Unique identifier (primary key) generated before persistence
+ * @param username     {@link String} Associated user reference
+ * @param userAgent    {@link String} Client device/browser identification for token binding
+ * @param enable       {@link Boolean} Activation status flag for token revocation
+ * @param expiresAt    {@link Instant} Token validity expiration timestamp
+ * @param lastUsedAt   {@link Instant} Last authenticated request, written by {@link TokenActivityTracker}
+ * @param requestCount {@link Long} Authenticated requests, written by {@link TokenActivityTracker}
  */
 @Builder(toBuilder = true)
 @Table("token")
@@ -29,5 +32,11 @@ public record Token(
 
         boolean enable,
 
-        Instant expiresAt
-) { }
\ No newline at end of file
+        Instant expiresAt,
+
+        @ReadOnlyProperty
+        Instant lastUsedAt,
+
+        @ReadOnlyProperty
+        long requestCount
+) { }
@@ -0,0 +1,20 @@
+package com.andreiromila.vetl.token;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties for the write-behind token activity tracking.
+ * The flush interval is {@code application.token.activity.flush-interval}.
+ *
+ * @param enabled   {@link Boolean} Whether activity is recorded
+ * @param batchSize {@link Integer} Maximum number of rows per batched UPDATE
+ */
+@ConfigurationProperties(prefix = "application.token.activity")
+public record TokenActivityProperties(
+        @DefaultValue("true")
+        boolean enabled,
+
+        @DefaultValue("500")
+        int batchSize
+) { }
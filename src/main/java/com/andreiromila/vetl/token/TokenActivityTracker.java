@@ -0,0 +1,186 @@
+package com.andreiromila.vetl.token;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind tracking of per-token activity (last use and request count).
+ * <p>
+ * {@link #record(String)} is called on every authenticated request and only
+ * touches memory: a striped {@link LongAdder} for the count and a max-updated
+ * {@link AtomicLong} for the last use. The pending activity is written to the
+ * {@code token} table with a batched UPDATE every
+ * {@code application.token.activity.flush-interval} and on shutdown, so the
+ * stored values lag by at most one interval.
+ * <p>
+ * Exported meters: {@code vetl.tokens.activity.pending} (gauge) and
+ * {@code vetl.tokens.activity.flushed} (rows written).
+ */
+@Log4j2
+@Component
+public class TokenActivityTracker implements MeterBinder, DisposableBean {
+
+    private static final String UPDATE = """
+            UPDATE token
+            SET request_count = request_count + :requests,
+                last_used_at = GREATEST(COALESCE(last_used_at, :lastUsedAt), :lastUsedAt)
+            WHERE uuid = :uuid
+            """;
+
+    /**
+     * Contains the named parameter jdbc template
+     */
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Activity tracking configuration
+     */
+    private final TokenActivityProperties properties;
+
+    /**
+     * Pending activity keyed by token uuid
+     */
+    private final Map<String, Activity> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Rows written since startup
+     */
+    private final LongAdder flushed = new LongAdder();
+
+    /**
+     * Constructs the tracker with required dependencies
+     *
+     * @param jdbcTemplate {@link NamedParameterJdbcTemplate} Named parameter jdbc template
+     * @param properties   {@link TokenActivityProperties} Activity tracking configuration
+     */
+    public TokenActivityTracker(final NamedParameterJdbcTemplate jdbcTemplate, final TokenActivityProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    /**
+     * Records an authenticated request made with the given token
+     *
+     * @param uuid {@link String} The token uuid (JWT id)
+     */
+    public void record(final String uuid) {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        // Plain get first, computeIfAbsent only for the first request of a flush window
+        Activity activity = pending.get(uuid);
+        if (activity == null) {
+            activity = pending.computeIfAbsent(uuid, key -> new Activity());
+        }
+
+        activity.requests.increment();
+        activity.lastUsedAt.accumulateAndGet(System.currentTimeMillis(), Math::max);
+    }
+
+    /**
+     * Writes the pending activity with batched UPDATEs
+     *
+     * @return The number of tokens written
+     */
+    @Scheduled(fixedDelayString = "${application.token.activity.flush-interval:5s}")
+    public synchronized int flush() {
+        final List<SqlParameterSource> batch = new ArrayList<>();
+        int written = 0;
+
+        for (Map.Entry<String, Activity> entry : pending.entrySet()) {
+            final Activity activity = entry.getValue();
+            final long requests = activity.requests.sumThenReset();
+
+            // Nothing since the last flush, drop the entry. A request racing
+            // with the removal may be lost, the counts are best effort
+            if (requests == 0) {
+                pending.remove(entry.getKey(), activity);
+                continue;
+            }
+
+            batch.add(new MapSqlParameterSource()
+                    .addValue("uuid", entry.getKey())
+                    .addValue("requests", requests)
+                    .addValue("lastUsedAt", new Timestamp(activity.lastUsedAt.get())));
+
+            if (batch.size() == properties.batchSize()) {
+                written += write(batch);
+            }
+        }
+
+        written += write(batch);
+        return written;
+    }
+
+    /**
+     * Runs and clears one batch
+     *
+     * @param batch {@link List} The update parameters
+     * @return The number of tokens in the batch
+     */
+    private int write(final List<SqlParameterSource> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        final int size = batch.size();
+        jdbcTemplate.batchUpdate(UPDATE, batch.toArray(SqlParameterSource[]::new));
+        flushed.add(size);
+        batch.clear();
+        return size;
+    }
+
+    /**
+     * Writes whatever is pending before the application stops
+     */
+    @Override
+    public void destroy() {
+        try {
+            log.info("Flushed activity of {} tokens on shutdown.", flush());
+        } catch (Exception e) {
+            log.warn("Could not flush token activity on shutdown: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Registers the activity meters
+     *
+     * @param registry {@link MeterRegistry} The meter registry
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("vetl.tokens.activity.pending", pending, Map::size)
+                .description("Tokens with activity not yet written")
+                .register(registry);
+
+        FunctionCounter.builder("vetl.tokens.activity.flushed", flushed, LongAdder::sum)
+                .description("Token activity rows written")
+                .register(registry);
+    }
+
+    /**
+     * Activity accumulated since the last flush
+     */
+    private static final class Activity {
+        private final LongAdder requests = new LongAdder();
+        private final AtomicLong lastUsedAt = new AtomicLong();
+    }
+}
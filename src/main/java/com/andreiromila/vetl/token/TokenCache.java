@@ -0,0 +1,116 @@
+package com.andreiromila.vetl.token;
+
+import com.andreiromila.vetl.invalidation.CacheInvalidationEvent;
+import com.andreiromila.vetl.invalidation.InvalidationTopic;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Bounded in-memory cache of {@link Token} rows keyed by the JWT id.
+ * <p>
+ * Used by {@link TokenService#refresh(String, String)}. Entries are evicted
+ * by size and by time since they were loaded, so a token revoked directly
+ * in the database is picked up after at most one ttl. Revocations done through {@link TokenService#invalidate(String)}
+ * evict the entry synchronously, on other nodes through the invalidation bus.
+ * <p>
+ * Hit, miss and eviction counters are exported as the {@code cache.*}
+ * meters tagged with {@code cache=tokens}.
+ */
+@Component
+public class TokenCache implements MeterBinder {
+
+    /**
+     * The cache name used for the exported meters
+     */
+    static final String CACHE_NAME = "tokens";
+
+    /**
+     * The underlying cache, keyed by token uuid
+     */
+    private final Cache<String, Token> cache;
+
+    /**
+     * Builds the cache with the configured bounds
+     *
+     * @param properties {@link TokenCacheProperties} Cache configuration
+     */
+    public TokenCache(final TokenCacheProperties properties) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maxSize())
+                .expireAfterWrite(properties.ttl())
+                // Run maintenance on the calling thread so evictions are never deferred
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached token or loads it with the given function.
+     * Missing tokens are not cached, so the next call loads them again.
+     *
+     * @param uuid   {@link String} The token uuid (JWT id)
+     * @param loader {@link Function} Loads the token when it is not cached
+     * @return The token, if it exists
+     */
+    public Optional<Token> get(final String uuid, final Function<String, Optional<Token>> loader) {
+        return Optional.ofNullable(cache.get(uuid, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * Removes a token from the cache
+     *
+     * @param uuid {@link String} The token uuid (JWT id)
+     */
+    public void invalidate(final String uuid) {
+        cache.invalidate(uuid);
+    }
+
+    /**
+     * Evicts a token revoked on another node
+     *
+     * @param event {@link CacheInvalidationEvent} The received invalidation
+     */
+    @EventListener
+    public void onInvalidation(final CacheInvalidationEvent event) {
+        if (event.getTopic() == InvalidationTopic.TOKEN) {
+            invalidate(event.getKey());
+        }
+    }
+
+    /**
+     * Returns a snapshot of the hit, miss and eviction counters
+     *
+     * @return The current cache statistics
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Returns the approximate number of cached tokens
+     *
+     * @return The estimated cache size
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Registers the cache meters
+     *
+     * @param registry {@link MeterRegistry} The meter registry
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+}
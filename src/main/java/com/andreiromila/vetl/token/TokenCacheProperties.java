@@ -0,0 +1,22 @@
+package com.andreiromila.vetl.token;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the in-memory token cache
+ * used when refresh tokens are exchanged.
+ *
+ * @param maxSize {@link Long} Maximum number of tokens kept in memory
+ * @param ttl     {@link Duration} Time a cached token stays valid after being loaded
+ */
+@ConfigurationProperties(prefix = "application.token.cache")
+public record TokenCacheProperties(
+        @DefaultValue("10000")
+        long maxSize,
+
+        @DefaultValue("5m")
+        Duration ttl
+) { }
@@ -0,0 +1,152 @@
+package com.andreiromila.vetl.token;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Scheduled job deleting the tokens that can no longer be used:
+ * <ul>
+ *  <li> Expired tokens, their refresh token is no longer valid
+ *  <li> Revoked tokens, once their last access token has expired
+ * </ul>
+ * Rows are deleted in LIMIT batches, each in its own short transaction,
+ * with a pause between batches so the job never holds locks for long.
+ * <p>
+ * Exported meters: {@code vetl.tokens.purged} tagged by {@code reason}
+ * and {@code vetl.tokens.purge} (run count and total duration).
+ */
+@Log4j2
+@Component
+public class TokenPurgeJob implements MeterBinder {
+
+    /**
+     * Token persistence component
+     */
+    private final TokenRepository repository;
+
+    /**
+     * Token configuration parameters
+     */
+    private final TokenProperties tokenProperties;
+
+    /**
+     * Purge configuration
+     */
+    private final TokenPurgeProperties properties;
+
+    private final LongAdder expiredPurged = new LongAdder();
+    private final LongAdder revokedPurged = new LongAdder();
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+
+    /**
+     * Constructs the purge job with required dependencies
+     *
+     * @param repository      {@link TokenRepository} Token persistence component
+     * @param tokenProperties {@link TokenProperties} Token configuration parameters
+     * @param properties      {@link TokenPurgeProperties} Purge configuration
+     */
+    public TokenPurgeJob(final TokenRepository repository, final TokenProperties tokenProperties, final TokenPurgeProperties properties) {
+        this.repository = repository;
+        this.tokenProperties = tokenProperties;
+        this.properties = properties;
+    }
+
+    /**
+     * Deletes every purgeable token, batch by batch
+     *
+     * @return The number of deleted rows
+     */
+    @Scheduled(fixedDelayString = "${application.token.purge.interval:1h}", initialDelayString = "${application.token.purge.initial-delay:5m}")
+    public long purge() {
+        if (!properties.enabled()) {
+            return 0;
+        }
+
+        final long start = System.nanoTime();
+        final Instant now = Instant.now();
+
+        // A revoked token may still have a valid access token for one access ttl
+        final Instant revokedBefore = now.minusSeconds(tokenProperties.accessTtl());
+
+        final long expired = deleteInBatches(() -> repository.deleteExpired(now, properties.batchSize()));
+        final long revoked = deleteInBatches(() -> repository.deleteRevoked(revokedBefore, properties.batchSize()));
+
+        expiredPurged.add(expired);
+        revokedPurged.add(revoked);
+        runs.increment();
+        runNanos.add(System.nanoTime() - start);
+
+        log.info("Purged {} expired and {} revoked tokens in {} ms.", expired, revoked, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return expired + revoked;
+    }
+
+    /**
+     * Runs the delete until a batch comes back smaller than the limit
+     *
+     * @param batch {@link IntSupplier} Deletes one batch and returns the affected rows
+     * @return The total number of deleted rows
+     */
+    private long deleteInBatches(final IntSupplier batch) {
+        long total = 0;
+        int deleted;
+
+        do {
+            deleted = batch.getAsInt();
+            total += deleted;
+
+            if (deleted == properties.batchSize() && !pause()) {
+                break;
+            }
+        } while (deleted == properties.batchSize());
+
+        return total;
+    }
+
+    /**
+     * Sleeps between batches
+     *
+     * @return {@code false} if the thread was interrupted (shutdown)
+     */
+    private boolean pause() {
+        try {
+            Thread.sleep(properties.pause());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Registers the purge meters
+     *
+     * @param registry {@link MeterRegistry} The meter registry
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        FunctionCounter.builder("vetl.tokens.purged", expiredPurged, LongAdder::sum)
+                .description("Tokens deleted by the purge job")
+                .tag("reason", "expired")
+                .register(registry);
+
+        FunctionCounter.builder("vetl.tokens.purged", revokedPurged, LongAdder::sum)
+                .description("Tokens deleted by the purge job")
+                .tag("reason", "revoked")
+                .register(registry);
+
+        FunctionTimer.builder("vetl.tokens.purge", this, job -> job.runs.sum(), job -> job.runNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Purge job runs and duration")
+                .register(registry);
+    }
+}
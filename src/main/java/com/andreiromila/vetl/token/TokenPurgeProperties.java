@@ -0,0 +1,26 @@
+package com.andreiromila.vetl.token;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the expired and revoked token purge job.
+ * The run interval is {@code application.token.purge.interval}.
+ *
+ * @param enabled   {@link Boolean} Whether the job runs
+ * @param batchSize {@link Integer} Maximum number of rows deleted per statement
+ * @param pause     {@link Duration} Pause between two batches, lets other transactions take the locks
+ */
+@ConfigurationProperties(prefix = "application.token.purge")
+public record TokenPurgeProperties(
+        @DefaultValue("true")
+        boolean enabled,
+
+        @DefaultValue("1000")
+        int batchSize,
+
+        @DefaultValue("100ms")
+        Duration pause
+) { }
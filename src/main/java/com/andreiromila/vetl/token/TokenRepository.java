@@ -2,9 +2,15 @@ package com.andreiromila.vetl.token;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jdbc.repository.query.Modifying;
+import org.springframework.data.jdbc.repository.query.Query;
 import org.springframework.data.repository.ListCrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
+import java.time.Instant;
+import java.util.List;
+
 /**
  * Spring Data repository for token
  * persistence operations.
@@ -25,4 +31,62 @@ public interface TokenRepository extends ListCrudRepository<Token, String>, Pagi
      */
     Page<Token> findByUsername(String username, Pageable pageable);
 
+    /**
+     * Finds a slice of tokens for a specific username, without counting them.
+     *
+     * @param username {@link String} The username whose tokens are to be retrieved.
+     * @param pageable {@link Pageable} The pagination and sorting information.
+     * @return A {@link Slice} of {@link Token} entities.
+     */
+    Slice<Token> findSliceByUsername(String username, Pageable pageable);
+
+    /**
+     * Counts the tokens of a specific username.
+     *
+     * @param username {@link String} The username whose tokens are counted.
+     * @return The number of tokens.
+     */
+    long countByUsername(String username);
+
+    /**
+     * Finds the disabled tokens that have not expired yet.
+     *
+     * @param now {@link Instant} The current instant
+     * @return The revoked tokens that could still be presented
+     */
+    List<Token> findByEnableFalseAndExpiresAtAfter(Instant now);
+
+    /**
+     * Disables a token and records when it was revoked.
+     *
+     * @param uuid      {@link String} The token uuid
+     * @param revokedAt {@link Instant} The revocation instant
+     */
+    @Modifying
+    @Query("UPDATE token SET enable = false, revoked_at = :revokedAt WHERE uuid = :uuid")
+    void revoke(String uuid, Instant revokedAt);
+
+    /**
+     * Deletes a batch of expired tokens.
+     *
+     * @param now   {@link Instant} The current instant
+     * @param limit {@link Integer} Maximum number of rows to delete
+     * @return The number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM token WHERE expires_at < :now LIMIT :limit")
+    int deleteExpired(Instant now, int limit);
+
+    /**
+     * Deletes a batch of tokens revoked before the given instant. Tokens
+     * disabled before revocations were recorded have no revocation instant.
+     *
+     * @param revokedBefore {@link Instant} Tokens revoked before this instant are deleted
+     * @param limit         {@link Integer} Maximum number of rows to delete
+     * @return The number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM token WHERE enable = false AND (revoked_at IS NULL OR revoked_at < :revokedBefore) LIMIT :limit")
+    int deleteRevoked(Instant revokedBefore, int limit);
+
 }
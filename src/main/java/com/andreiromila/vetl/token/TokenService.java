@@ -1,27 +1,58 @@
 package com.andreiromila.vetl.token;
 
+import com.andreiromila.vetl.invalidation.InvalidationBus;
+import com.andreiromila.vetl.invalidation.InvalidationTopic;
+import com.andreiromila.vetl.responses.TotalCountCache;
+import com.andreiromila.vetl.responses.TotalMode;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Objects;
 
 /**
  * Service handling JWT token lifecycle
  * management and validation.
  * <p>
- * Integrates with persistence layer
- * for token revocation tracking.
+ * Access tokens are short-lived and verified by signature only,
+ * refresh tokens are backed by the persistence layer for
+ * revocation tracking.
  */
 @Service
 public class TokenService {
 
+    /**
+     * Claim holding the token type, access or refresh
+     */
+    static final String TYPE_CLAIM = "typ";
+
+    /**
+     * Claim holding the hash of the User-Agent the access token was issued for
+     */
+    static final String USER_AGENT_CLAIM = "uah";
+
+    /**
+     * Short-lived token used on every request
+     */
+    static final String ACCESS_TYPE = "access";
+
+    /**
+     * Long-lived token used to get new access tokens
+     */
+    static final String REFRESH_TYPE = "refresh";
+
     /**
      * Token persistence component
      */
@@ -32,15 +63,48 @@ public class TokenService {
      */
     private final TokenProperties properties;
 
+    /**
+     * In-memory cache of token rows keyed by JWT id
+     */
+    private final TokenCache tokenCache;
+
+    /**
+     * In-memory set of revoked token ids
+     */
+    private final RevokedTokens revokedTokens;
+
+    /**
+     * Propagates revocations to the other nodes
+     */
+    private final InvalidationBus invalidationBus;
+
+    /**
+     * Recent counts for the approximate totals
+     */
+    private final TotalCountCache totalCountCache;
+
     /**
      * Constructs TokenService with required dependencies
      *
      * @param repository {@link TokenRepository} Token persistence component
      * @param properties {@link TokenProperties} Token configuration parameters
+     * @param tokenCache {@link TokenCache} In-memory cache of token rows
+     * @param revokedTokens {@link RevokedTokens} In-memory set of revoked token ids
+     * @param invalidationBus {@link InvalidationBus} Propagates revocations to the other nodes
+     * @param totalCountCache {@link TotalCountCache} Recent counts for the approximate totals
      */
-    public TokenService(final TokenRepository repository, final TokenProperties properties) {
+    public TokenService(final TokenRepository repository,
+                        final TokenProperties properties,
+                        final TokenCache tokenCache,
+                        final RevokedTokens revokedTokens,
+                        final InvalidationBus invalidationBus,
+                        final TotalCountCache totalCountCache) {
         this.repository = repository;
         this.properties = properties;
+        this.tokenCache = tokenCache;
+        this.revokedTokens = revokedTokens;
+        this.invalidationBus = invalidationBus;
+        this.totalCountCache = totalCountCache;
     }
 
     /**
@@ -63,35 +127,108 @@ public class TokenService {
     }
 
     /**
-     * Generates JWT token and stores associated metadata
+     * Generates the access and refresh tokens and stores the refresh token metadata.
+     * <p>
+     * The stored row backs the refresh token (revocation, user agent binding),
+     * the access token is short-lived and verified by signature only.
      *
      * @param username  {@link String} Authenticated username
      * @param userAgent {@link String} Client's User-Agent header
-     * @return {@link TokenWithExpiration} Generated JWT with expiration info
+     * @return {@link TokenWithExpiration} Generated JWTs with expiration info
      */
     public TokenWithExpiration createToken(String username, String userAgent) {
-        // Get the expiration date
-        final Date expiration = new Date(System.currentTimeMillis() + 1000 * properties.ttl());
+        // Get the refresh (session) expiration date
+        final Date refreshExpiration = new Date(System.currentTimeMillis() + 1000 * properties.ttl());
+
+        // Before we create the tokens, we must store the new Token ID into the database
+        // What if the token was stolen? It is mandatory to block the refresh
+        final Token token = save(username, userAgent, refreshExpiration.toInstant());
+
+        // Create the refresh token
+        final String refreshToken = Jwts.builder()
+                .claims(new HashMap<>())
+                .id(token.uuid())
+                .subject(username)
+                .claim(TYPE_CLAIM, REFRESH_TYPE)
+                .issuedAt(new Date(System.currentTimeMillis()))
+                .expiration(refreshExpiration)
+                .signWith(properties.secretKey())
+                .compact();
+
+        return issueAccessToken(token, refreshToken);
+    }
+
+    /**
+     * Exchanges a valid refresh token for a new access token.
+     * The refresh token is checked against the database.
+     *
+     * @param refreshToken {@link String} The refresh JWT
+     * @param userAgent    {@link String} Current request's User-Agent
+     * @return {@link TokenWithExpiration} The new access token and the same refresh token
+     * @throws IllegalArgumentException For invalid/revoked tokens
+     * @throws io.jsonwebtoken.JwtException If token validation fails
+     */
+    public TokenWithExpiration refresh(final String refreshToken, final String userAgent) {
+        // Validate signature and extract all claims
+        final Claims claims = extractClaims(refreshToken);
+        final String uuid = claims.getId();
+
+        if (!REFRESH_TYPE.equals(claims.get(TYPE_CLAIM, String.class))) {
+            throw new IllegalArgumentException("The provided token is not a refresh token.");
+        }
+
+        // Known revocations are rejected without loading the row
+        if (revokedTokens.isRevoked(uuid)) {
+            throw new IllegalArgumentException("The provided token has been disabled by the user or a system administrator.");
+        }
+
+        // Get the token from the cache, or the database on a miss
+        final Token token = tokenCache.get(uuid, repository::findById)
+                .orElseThrow(() -> new IllegalArgumentException("No token was found with id: %s".formatted(uuid)));
 
-        // Before we create the user, we must store the new Token ID into the database
-        // What if the token was stolen? It is mandatory to block the request
-        final Token token = save(username, userAgent, expiration.toInstant());
+        if (!token.enable()) {
+            throw new IllegalArgumentException("The provided token has been disabled by the user or a system administrator.");
+        }
+
+        if (!token.userAgent().equals(userAgent)) {
+            final String message = "Invalid User-Agent expected [%s] but received [%s].".formatted(token.userAgent(), userAgent);
+            throw new IllegalArgumentException(message);
+        }
+
+        return issueAccessToken(token, refreshToken);
+    }
+
+    /**
+     * Creates a short-lived access token bound to the stored token id and user agent
+     *
+     * @param token        {@link Token} The stored token
+     * @param refreshToken {@link String} The refresh JWT returned alongside
+     * @return {@link TokenWithExpiration} The access and refresh tokens
+     */
+    private TokenWithExpiration issueAccessToken(final Token token, final String refreshToken) {
+        // The access token never outlives its refresh token
+        final Instant accessExpiration = Instant.ofEpochMilli(
+                Math.min(System.currentTimeMillis() + 1000 * properties.accessTtl(), token.expiresAt().toEpochMilli())
+        );
 
         // Create the token
         final String compactToken = Jwts.builder()
                 .claims(new HashMap<>())
                 .id(token.uuid())
-                .subject(username)
+                .subject(token.username())
+                .claim(TYPE_CLAIM, ACCESS_TYPE)
+                .claim(USER_AGENT_CLAIM, hash(token.userAgent()))
                 .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(expiration)
+                .expiration(Date.from(accessExpiration))
                 .signWith(properties.secretKey())
                 .compact();
 
-        // Create the expiration timestamp
-        final ZonedDateTime expiresAt = ZonedDateTime.ofInstant(expiration.toInstant(), ZoneId.systemDefault());
+        // Create the expiration timestamps
+        final ZonedDateTime expiresAt = ZonedDateTime.ofInstant(accessExpiration, ZoneId.systemDefault());
+        final ZonedDateTime refreshExpiresAt = ZonedDateTime.ofInstant(token.expiresAt(), ZoneId.systemDefault());
 
-        // Return the login response with the token
-        return new TokenWithExpiration(token.uuid(), compactToken, expiresAt);
+        // Return the login response with the tokens
+        return new TokenWithExpiration(token.uuid(), compactToken, expiresAt, refreshToken, refreshExpiresAt);
     }
 
     /**
@@ -110,38 +247,75 @@ public class TokenService {
     }
 
     /**
-     * Validates JWT token and extracts username
+     * Validates an access token and extracts its id and username.
+     * <p>
+     * Only the signature, expiration and claims are checked, revocation is
+     * looked up in the in-memory {@link RevokedTokens} set, there is no
+     * database access. Revocations made on another node arrive through the
+     * invalidation bus; revocations made directly in the database are only
+     * seen once the access token expires (at most
+     * {@link TokenProperties#accessTtl()} seconds).
      *
      * @param bearerToken {@link String} JWT token from Authorization header
      * @param userAgent   {@link String} Current request's User-Agent
-     * @return {@link String} Authenticated username
-     * @throws IllegalArgumentException For invalid/revoked tokens
+     * @return {@link AccessTokenClaims} The token uuid, authenticated username and expiration
+     * @throws IllegalArgumentException For invalid tokens
+     * @throws io.jsonwebtoken.JwtException If token validation fails
      */
-    public String extractUsername(final String bearerToken, final String userAgent) {
+    public AccessTokenClaims validateAccessToken(final String bearerToken, final String userAgent) {
         // Validate signature and extract all claims
         final Claims claims = extractClaims(bearerToken);
-        final String uuid = claims.getId();
 
-        // Get the token from the database
-        final Token token = repository.findById(uuid)
-                .orElseThrow(() -> new IllegalArgumentException("No token was found with id: %s".formatted(uuid)));
+        if (!ACCESS_TYPE.equals(claims.get(TYPE_CLAIM, String.class))) {
+            throw new IllegalArgumentException("The provided token is not an access token.");
+        }
 
-        if (!token.enable()) {
+        if (revokedTokens.isRevoked(claims.getId())) {
             throw new IllegalArgumentException("The provided token has been disabled by the user or a system administrator.");
         }
 
-        if (!token.userAgent().equals(userAgent)) {
-            final String message = "Invalid User-Agent expected [%s] but received [%s].".formatted(token.userAgent(), userAgent);
-            throw new IllegalArgumentException(message);
+        if (!hash(userAgent).equals(claims.get(USER_AGENT_CLAIM, String.class))) {
+            throw new IllegalArgumentException("Invalid User-Agent for token [%s].".formatted(claims.getId()));
         }
 
-        return claims.getSubject();
+        return new AccessTokenClaims(claims.getId(), claims.getSubject(), claims.getExpiration().toInstant());
+    }
+
+    /**
+     * Validates an access token and extracts the username
+     *
+     * @param bearerToken {@link String} JWT token from Authorization header
+     * @param userAgent   {@link String} Current request's User-Agent
+     * @return {@link String} Authenticated username
+     * @throws IllegalArgumentException For invalid tokens
+     * @throws io.jsonwebtoken.JwtException If token validation fails
+     */
+    public String extractUsername(final String bearerToken, final String userAgent) {
+        return validateAccessToken(bearerToken, userAgent).username();
+    }
+
+    /**
+     * Hashes the user agent so it can be compared without storing it in the token
+     *
+     * @param userAgent {@link String} The User-Agent header, may be null
+     * @return The Base64 (url safe) SHA-256 of the user agent
+     */
+    private static String hash(final String userAgent) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(Objects.requireNonNullElse(userAgent, "").getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM must support SHA-256
+            throw new IllegalStateException(e);
+        }
     }
 
     /**
-     * Invalidates a valid token
+     * Invalidates a valid token, the stored row is disabled so
+     * the refresh token can no longer be used
      *
-     * @param bearerToken {@link String} The token to disable
+     * @param bearerToken {@link String} The access or refresh token to disable
      */
     public void invalidate(final String bearerToken) {
 
@@ -153,12 +327,15 @@ public class TokenService {
         final Token token = repository.findById(uuid)
                 .orElseThrow(() -> new IllegalArgumentException("No token was found with id: %s".formatted(uuid)));
 
-        // Disable the current token
-        repository.save(
-                token.toBuilder()
-                        .enable(false)
-                        .build()
-        );
+        // Disable the current token, the revocation instant tells the purge job when the row can go
+        repository.revoke(uuid, Instant.now());
+
+        // Evict it so the next refresh sees the disabled state
+        tokenCache.invalidate(uuid);
+
+        // Reject its access tokens right away, here and on the other nodes
+        revokedTokens.revoke(uuid, token.expiresAt());
+        invalidationBus.publish(InvalidationTopic.TOKEN, uuid, token.expiresAt());
     }
 
     /**
@@ -175,11 +352,18 @@ public class TokenService {
     /**
      * Retrieves a paginated list of access tokens for a specific user.
      *
-     * @param username {@link String} The username to filter tokens by.
-     * @param pageable {@link Pageable} The pagination and sorting information.
-     * @return A {@link Page} of {@link Token} entities for the specified user.
+     * @param username  {@link String} The username to filter tokens by.
+     * @param pageable  {@link Pageable} The pagination and sorting information.
+     * @param totalMode {@link TotalMode} How the total is computed.
+     * @return A {@link Slice} of {@link Token} entities for the specified user, a {@link Page} when it has a total.
      */
-    public Page<Token> findByUsername(String username, Pageable pageable) {
-        return repository.findByUsername(username, pageable);
+    public Slice<Token> findByUsername(String username, Pageable pageable, TotalMode totalMode) {
+        return switch (totalMode) {
+            case EXACT -> repository.findByUsername(username, pageable);
+            case NONE -> repository.findSliceByUsername(username, pageable);
+            case APPROXIMATE -> totalCountCache.estimate("token:" + username,
+                    repository.findSliceByUsername(username, pageable),
+                    () -> repository.countByUsername(username));
+        };
     }
 }
@@ -4,14 +4,19 @@ import java.time.ZonedDateTime;
 
 /**
  * Data transfer object for returning generated tokens with expiry information.
- * Contains the signed JWT and its system timezone-aware expiration timestamp.
+ * Contains the signed access and refresh JWTs and their system timezone-aware
+ * expiration timestamps.
  *
- * @param tokenUuid {@link String} The uuid of the stored token
- * @param token     {@link String} Compact JWT string
- * @param expiresAt {@link ZonedDateTime} Expiration time with zone information
+ * @param tokenUuid        {@link String} The uuid of the stored token
+ * @param token            {@link String} Compact access JWT string
+ * @param expiresAt        {@link ZonedDateTime} Access token expiration time with zone information
+ * @param refreshToken     {@link String} Compact refresh JWT string
+ * @param refreshExpiresAt {@link ZonedDateTime} Refresh token expiration time with zone information
  */
 public record TokenWithExpiration(
         String tokenUuid,
         String token,
-        ZonedDateTime expiresAt
+        ZonedDateTime expiresAt,
+        String refreshToken,
+        ZonedDateTime refreshExpiresAt
 ) { }
@@ -13,7 +13,11 @@ public record TokenBasicResponse(
 
         boolean enable,
 
-        Instant expiresAt
+        Instant expiresAt,
+
+        Instant lastUsedAt,
+
+        long requestCount
 ) {
 
     /**
@@ -28,7 +32,9 @@ public record TokenBasicResponse(
                 token.username(),
                 token.userAgent(),
                 token.enable(),
-                token.expiresAt()
+                token.expiresAt(),
+                token.lastUsedAt(),
+                token.requestCount()
         );
     }
 
@@ -1,15 +1,17 @@
 package com.andreiromila.vetl.token.web;
 
 import com.andreiromila.vetl.responses.CustomPage;
+import com.andreiromila.vetl.responses.TotalMode;
 import com.andreiromila.vetl.token.Token;
 import com.andreiromila.vetl.token.TokenService;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -24,7 +26,7 @@ public class TokenController {
     /**
      * The allowed sorting columns for the user table
      */
-    public static final Set<String> SORTING_COLUMNS = Set.of("uuid", "username", "userAgent", "enable", "expiresAt");
+    public static final Set<String> SORTING_COLUMNS = Set.of("uuid", "username", "userAgent", "enable", "expiresAt", "lastUsedAt", "requestCount");
 
     private final TokenService tokenService;
 
@@ -38,25 +40,27 @@ public class TokenController {
      *
      * @param username The username from the URL path.
      * @param pageable Pagination information.
+     * @param total    How the total is computed: exact (default), approximate or none.
      * @return A ResponseEntity containing a CustomPage of tokens.
      */
     @GetMapping("/users/{username}/access-tokens")
     @PreAuthorize("principal.username == #username or hasRole('ADMIN')")
     public ResponseEntity<CustomPage<TokenBasicResponse>> listForUser(@PathVariable String username,
-                                                                      Pageable pageable) {
+                                                                      Pageable pageable,
+                                                                      @RequestParam(value = "total", required = false) String total) {
 
         // Get the pageable with safe sorting
         final Pageable safeSort = getPageableWithSafeSort(pageable, SORTING_COLUMNS);
 
         // Paginate all tokens by username
-        final Page<Token> tokenPage = tokenService.findByUsername(username, safeSort);
+        final Slice<Token> tokenPage = tokenService.findByUsername(username, safeSort, TotalMode.parse(total));
 
         // Transform the token page to the expected output
         final List<TokenBasicResponse> tokenList = tokenPage.getContent().stream()
                 .map(TokenBasicResponse::from).toList();
 
         // Create the response body
-        final CustomPage<TokenBasicResponse> response = new CustomPage<>(tokenList, tokenPage.getPageable(), tokenPage.getTotalElements());
+        final CustomPage<TokenBasicResponse> response = CustomPage.from(tokenList, tokenPage);
 
         // Return the 200 ok response
         return ResponseEntity.ok(response);
@@ -0,0 +1,131 @@
+package com.andreiromila.vetl.user;
+
+import com.andreiromila.vetl.invalidation.CacheInvalidationEvent;
+import com.andreiromila.vetl.invalidation.InvalidationTopic;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Function;
+
+/**
+ * Bounded in-memory cache of fully hydrated principals
+ * (user, roles, authorities and avatar URL) keyed by username.
+ * <p>
+ * Every change to a user must call {@link #invalidate(String)} so the
+ * next authenticated request loads the new state; changes made on other
+ * nodes arrive through the invalidation bus. Callers always receive
+ * a copy, so mutating a returned {@link User} never leaks into the cache.
+ * <p>
+ * Hit, miss and eviction counters are exported as the {@code cache.*}
+ * meters tagged with {@code cache=principals}.
+ */
+@Component
+public class PrincipalCache implements MeterBinder {
+
+    /**
+     * The cache name used for the exported meters
+     */
+    static final String CACHE_NAME = "principals";
+
+    /**
+     * The underlying cache, keyed by username
+     */
+    private final Cache<String, User> cache;
+
+    /**
+     * Builds the cache with the configured bounds
+     *
+     * @param properties {@link PrincipalCacheProperties} Cache configuration
+     */
+    public PrincipalCache(final PrincipalCacheProperties properties) {
+        this.cache = Caffeine.newBuilder()
+                // A disabled cache keeps nothing, every lookup goes to the loader
+                .maximumSize(properties.enabled() ? properties.maxSize() : 0)
+                .expireAfterWrite(properties.ttl())
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns a copy of the cached principal or loads it with the given function.
+     * Exceptions thrown by the loader (e.g. user not found) are propagated and
+     * nothing is cached.
+     *
+     * @param username {@link String} The username
+     * @param loader   {@link Function} Loads the principal when it is not cached
+     * @return A copy of the cached principal
+     */
+    public User get(final String username, final Function<String, User> loader) {
+        return copyOf(cache.get(username, loader));
+    }
+
+    /**
+     * Evicts a principal now and again once the current transaction
+     * completes, so a concurrent request cannot re-cache the state
+     * that was read before the change was committed.
+     *
+     * @param username {@link String} The username to evict
+     */
+    public void invalidate(final String username) {
+        cache.invalidate(username);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(final int status) {
+                    cache.invalidate(username);
+                }
+            });
+        }
+    }
+
+    /**
+     * Evicts a principal changed on another node
+     *
+     * @param event {@link CacheInvalidationEvent} The received invalidation
+     */
+    @EventListener
+    public void onInvalidation(final CacheInvalidationEvent event) {
+        if (event.getTopic() == InvalidationTopic.PRINCIPAL) {
+            cache.invalidate(event.getKey());
+        }
+    }
+
+    /**
+     * Returns a snapshot of the hit, miss and eviction counters
+     *
+     * @return The current cache statistics
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Registers the cache meters
+     *
+     * @param registry {@link MeterRegistry} The meter registry
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Shallow copy of the principal; roles and authorities are immutable collections
+     *
+     * @param user {@link User} The cached principal
+     * @return A new instance with the same state
+     */
+    private static User copyOf(final User user) {
+        return user.toBuilder().build();
+    }
+}
@@ -0,0 +1,26 @@
+package com.andreiromila.vetl.user;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the in-memory principal cache
+ * used by {@link UserService#loadUserByUsername(String)}.
+ *
+ * @param enabled {@link Boolean} Whether loaded principals are kept in memory
+ * @param maxSize {@link Long} Maximum number of principals kept in memory
+ * @param ttl     {@link Duration} Time a cached principal stays valid after being loaded
+ */
+@ConfigurationProperties(prefix = "application.user.principal-cache")
+public record PrincipalCacheProperties(
+        @DefaultValue("true")
+        boolean enabled,
+
+        @DefaultValue("10000")
+        long maxSize,
+
+        @DefaultValue("10m")
+        Duration ttl
+) { }
@@ -0,0 +1,81 @@
+package com.andreiromila.vetl.user;
+
+import com.andreiromila.vetl.exceptions.HttpValidationException;
+import com.andreiromila.vetl.responses.ValidationError;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A username or email rejected by the unique index of the {@code user} table.
+ * <p>
+ * The uniqueness is validated before inserting, but two requests can pass
+ * the validation with the same value; the second insert then fails on the
+ * index. This reads the column and the value from the MySQL error so the
+ * services report it like the validation would have.
+ *
+ * @param field {@link String} The request field: username or email
+ * @param value {@link String} The duplicated value, as sent
+ */
+record UniqueUserViolation(String field, String value) {
+
+    /**
+     * The validation message of a taken username, same as {@code @UniqueUsername}
+     */
+    static final String USERNAME_TAKEN = "The username is already taken.";
+
+    /**
+     * The validation message of a taken email, same as {@code @UniqueEmail}
+     */
+    static final String EMAIL_TAKEN = "The email is already taken.";
+
+    /**
+     * MySQL error 1062, the key may be prefixed by the table name
+     */
+    private static final Pattern DUPLICATE_ENTRY = Pattern.compile("Duplicate entry '(.*)' for key '(?:user\\.)?(username|email)'");
+
+    /**
+     * Reads the violation from the exception, Spring Data JDBC wraps the
+     * {@link DuplicateKeyException} in a {@code DbActionExecutionException}
+     *
+     * @param exception {@link DataAccessException} The insert error
+     * @return The violation, empty if it is not a username or email duplicate
+     */
+    static Optional<UniqueUserViolation> of(final DataAccessException exception) {
+
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DuplicateKeyException duplicate && duplicate.getMostSpecificCause().getMessage() != null) {
+                final Matcher matcher = DUPLICATE_ENTRY.matcher(duplicate.getMostSpecificCause().getMessage());
+                return matcher.find()
+                        ? Optional.of(new UniqueUserViolation(matcher.group(2), matcher.group(1)))
+                        : Optional.empty();
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the validation message of the field
+     *
+     * @return The message
+     */
+    String message() {
+        return field.equals("username") ? USERNAME_TAKEN : EMAIL_TAKEN;
+    }
+
+    /**
+     * Returns the validation error, like the request body validation
+     *
+     * @param path {@link String} The field path, e.g. {@code username} or {@code rows[3].username}
+     * @return The 400 exception with the field error
+     */
+    HttpValidationException toException(final String path) {
+        return new HttpValidationException("The provided information is invalid.",
+                List.of(new ValidationError(path, message(), value)));
+    }
+}
@@ -1,6 +1,7 @@
 package com.andreiromila.vetl.user;
 
 import com.andreiromila.vetl.role.Role;
+import com.andreiromila.vetl.role.RoleCatalog;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -71,6 +72,12 @@ public class User implements UserDetails {
     @LastModifiedDate
     private Instant modifiedAt;
 
+    /**
+     * The user roles as a bitmask, see {@link RoleCatalog}
+     */
+    @Transient
+    private long roleMask;
+
     @Transient
     private Set<Role> roles;
 
@@ -0,0 +1,108 @@
+package com.andreiromila.vetl.user;
+
+import com.andreiromila.vetl.exceptions.HttpBadRequestException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Keyset position in the user search: the sort property and direction
+ * plus the sort value and id of the last user returned.
+ * <p>
+ * Clients receive it as an opaque, URL safe string and send it back to
+ * get the next page; the sort travels inside the cursor so it can not
+ * change between pages. The first page has no value and no id.
+ *
+ * @param property  {@link String} The sort property, one of {@link #PROPERTIES}
+ * @param direction {@link Sort.Direction} The sort direction, also used for the id tie-breaker
+ * @param value     {@link String} The sort value of the last user, null on the first page
+ * @param id        {@link Long} The id of the last user, null on the first page
+ */
+public record UserCursor(
+        String property,
+        Sort.Direction direction,
+        String value,
+        Long id
+) {
+
+    /**
+     * Properties a cursor can sort by, all of them backed by non null columns
+     */
+    public static final Set<String> PROPERTIES = Set.of("id", "username", "fullName", "email");
+
+    /**
+     * Returns the cursor of the first page for the requested sort
+     *
+     * @param sort {@link Sort} The requested sort, only its first allowed property is used
+     * @return The first page cursor, sorted by id when no property is allowed
+     */
+    public static UserCursor first(final Sort sort) {
+        return sort.stream()
+                .filter(order -> PROPERTIES.contains(order.getProperty()))
+                .findFirst()
+                .map(order -> new UserCursor(order.getProperty(), order.getDirection(), null, null))
+                .orElse(new UserCursor("id", Sort.Direction.ASC, null, null));
+    }
+
+    /**
+     * Returns the cursor positioned after the given user
+     *
+     * @param last {@link User} The last user of the current page
+     * @return The cursor of the next page, same sort
+     */
+    public UserCursor after(final User last) {
+        final String next = switch (property) {
+            case "username" -> last.getUsername();
+            case "fullName" -> last.getFullName();
+            case "email" -> last.getEmail();
+            default -> null;
+        };
+        return new UserCursor(property, direction, next, last.getId());
+    }
+
+    /**
+     * Whether this is the cursor of the first page
+     *
+     * @return {@code true} if there is no position yet
+     */
+    public boolean isFirst() {
+        return id == null;
+    }
+
+    /**
+     * Encodes the cursor as an opaque, URL safe string
+     *
+     * @return The encoded cursor
+     */
+    public String encode() {
+        // The value goes last, it may contain the separator
+        final String raw = String.join("|", property, direction.name(), String.valueOf(id), value == null ? "" : value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor previously returned by {@link #encode()}
+     *
+     * @param cursor {@link String} The encoded cursor
+     * @return The decoded cursor
+     * @throws HttpBadRequestException If the cursor is malformed
+     */
+    public static UserCursor decode(final String cursor) {
+        try {
+            final String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            final String[] parts = raw.split("\\|", 4);
+
+            if (parts.length != 4 || !PROPERTIES.contains(parts[0])) {
+                throw new IllegalArgumentException("Unexpected cursor format");
+            }
+
+            final String value = parts[0].equals("id") ? null : parts[3];
+            return new UserCursor(parts[0], Sort.Direction.valueOf(parts[1]), value, Long.valueOf(parts[2]));
+
+        } catch (IllegalArgumentException e) {
+            throw new HttpBadRequestException("Invalid cursor.");
+        }
+    }
+}
@@ -0,0 +1,504 @@
+package com.andreiromila.vetl.user;
+
+import com.andreiromila.vetl.invalidation.CacheInvalidationEvent;
+import com.andreiromila.vetl.invalidation.InvalidationTopic;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * In-memory trigram index of the user directory, backs the autocomplete.
+ * <p>
+ * Every username, full name and email is split into lowercase trigrams
+ * (substring matches) and word prefixes of one and two characters (for
+ * queries too short to have a trigram). Each key maps to a sorted
+ * {@code long[]} of user ids; a lookup takes the rarest key of the query
+ * and verifies its candidates, so its cost depends on the number of
+ * candidates and not on the size of the directory.
+ * <p>
+ * Reads are lock-free, writes (one user at a time) are serialized and
+ * replace the posting arrays copy-on-write. The directory is loaded on
+ * startup and kept current by {@link #refresh(String)}, called after
+ * commit by {@link UserService} and for changes made on other nodes.
+ * <p>
+ * Exported meters: {@code vetl.user.directory.size} and
+ * {@code vetl.user.directory.lookups}.
+ */
+@Log4j2
+@Component
+public class UserDirectory implements MeterBinder, SmartInitializingSingleton {
+
+    /**
+     * Minimal user data kept in memory
+     *
+     * @param id        {@link Long} The user id
+     * @param username  {@link String} The username
+     * @param fullName  {@link String} The full name
+     * @param email     {@link String} The email
+     * @param avatarKey {@link String} The avatar object key, may be null
+     * @param haystack  {@link String} Lowercase fields, one per line, for the match verification
+     */
+    record Entry(long id, String username, String fullName, String email, String avatarKey, String haystack) {
+
+        static Entry of(final long id, final String username, final String fullName, final String email, final String avatarKey) {
+            final String haystack = String.join("\n", username, fullName, email).toLowerCase(Locale.ROOT);
+            return new Entry(id, username, fullName, email, avatarKey, haystack);
+        }
+    }
+
+    private static final String SELECT_ALL = "SELECT id, username, full_name, email, avatar_key FROM user ORDER BY id";
+
+    private static final String SELECT_ONE = "SELECT id, username, full_name, email, avatar_key FROM user WHERE username = :username";
+
+    private static final long[] EMPTY = new long[0];
+
+    /**
+     * Contains the named parameter jdbc template
+     */
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Directory configuration
+     */
+    private final UserDirectoryProperties properties;
+
+    /**
+     * Users by id
+     */
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * User ids by lowercase username, to find the entry to replace
+     */
+    private final Map<String, Long> idsByUsername = new ConcurrentHashMap<>();
+
+    /**
+     * Sorted user ids by gram key, arrays are never modified once published
+     */
+    private final Map<Long, long[]> postings = new ConcurrentHashMap<>();
+
+    /**
+     * Ticket of the latest reload started per lowercase username, an older
+     * reload still in flight must not overwrite a newer read
+     */
+    private final Map<String, Long> reloads = new ConcurrentHashMap<>();
+
+    private final AtomicLong tickets = new AtomicLong();
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder lookupNanos = new LongAdder();
+
+    /**
+     * Constructs the directory, the users are loaded on startup
+     *
+     * @param jdbcTemplate {@link NamedParameterJdbcTemplate} Named parameter jdbc template
+     * @param properties   {@link UserDirectoryProperties} Directory configuration
+     */
+    public UserDirectory(final NamedParameterJdbcTemplate jdbcTemplate, final UserDirectoryProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    /**
+     * Loads every user once every bean is ready
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        // Rows come in id order, appending keeps every posting array sorted
+        final Map<Long, long[]> building = new HashMap<>();
+        final Map<Long, Integer> sizes = new HashMap<>();
+
+        jdbcTemplate.query(SELECT_ALL, rs -> {
+            final Entry entry = Entry.of(rs.getLong("id"), rs.getString("username"),
+                    rs.getString("full_name"), rs.getString("email"), rs.getString("avatar_key"));
+
+            entries.put(entry.id(), entry);
+            idsByUsername.put(entry.username().toLowerCase(Locale.ROOT), entry.id());
+
+            forEachKey(entry, key -> {
+                final int size = sizes.getOrDefault(key, 0);
+                long[] ids = building.getOrDefault(key, EMPTY);
+
+                if (size > 0 && ids[size - 1] == entry.id()) {
+                    return;
+                }
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, Math.max(4, size * 2));
+                    building.put(key, ids);
+                }
+                ids[size] = entry.id();
+                sizes.put(key, size + 1);
+            });
+        });
+
+        building.forEach((key, ids) -> postings.put(key, Arrays.copyOf(ids, sizes.get(key))));
+        log.info("Loaded {} users in the directory ({} keys).", entries.size(), postings.size());
+    }
+
+    /**
+     * Reloads a user from the database once the current transaction
+     * commits (right away without a transaction); removes it if it is gone
+     *
+     * @param username {@link String} The username of the created or changed user
+     */
+    public void refresh(final String username) {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reload(username);
+                }
+            });
+        } else {
+            reload(username);
+        }
+    }
+
+    /**
+     * Adds users created in bulk once the current transaction commits, from
+     * the given data and without reading them back from the database
+     *
+     * @param users {@link List} The created users, with their ids
+     */
+    public void addAll(final List<User> users) {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        final List<Entry> created = users.stream()
+                .map(user -> Entry.of(user.getId(), user.getUsername(), user.getFullName(), user.getEmail(), user.getAvatarKey()))
+                .toList();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    created.forEach(UserDirectory.this::put);
+                }
+            });
+        } else {
+            created.forEach(this::put);
+        }
+    }
+
+    /**
+     * Reloads a user changed on another node
+     *
+     * @param event {@link CacheInvalidationEvent} The received invalidation
+     */
+    @EventListener
+    public void onInvalidation(final CacheInvalidationEvent event) {
+        if (event.getTopic() == InvalidationTopic.PRINCIPAL) {
+            refresh(event.getKey());
+        }
+    }
+
+    /**
+     * Finds the users whose username, full name or email contains the query
+     * (queries shorter than three characters match word prefixes)
+     *
+     * @param query {@link String} The typed text
+     * @param limit {@link Integer} Maximum number of suggestions, capped by the configuration
+     * @return The best matches: username prefix first, then any word prefix, then by username
+     */
+    public List<Entry> search(final String query, final int limit) {
+
+        final long start = System.nanoTime();
+
+        try {
+            final String needle = query == null ? "" : query.strip().toLowerCase(Locale.ROOT);
+            if (needle.isEmpty()) {
+                return List.of();
+            }
+
+            final int max = maxResults(limit);
+
+            final long[] candidates = rarestPosting(needle);
+            final Comparator<Ranked> order = Comparator.comparingInt(Ranked::rank).thenComparing(r -> r.entry().username());
+
+            // Keeps the worst of the best "limit" matches on top
+            final PriorityQueue<Ranked> best = new PriorityQueue<>(order.reversed());
+
+            for (long id : candidates) {
+                final Entry entry = entries.get(id);
+                if (entry == null) {
+                    continue;
+                }
+
+                final int rank = rank(entry, needle);
+                if (rank < 0) {
+                    continue;
+                }
+
+                best.add(new Ranked(entry, rank));
+                if (best.size() > max) {
+                    best.poll();
+                }
+            }
+
+            final List<Ranked> ranked = new ArrayList<>(best);
+            ranked.sort(order);
+            return ranked.stream().map(Ranked::entry).toList();
+
+        } finally {
+            lookups.increment();
+            lookupNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Whether the directory is loaded and can serve lookups
+     *
+     * @return {@code true} if enabled
+     */
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * Caps a requested number of suggestions to the configured maximum
+     *
+     * @param requested {@link Integer} The requested number of suggestions
+     * @return A number between 1 and the configured maximum
+     */
+    public int maxResults(final int requested) {
+        return Math.max(1, Math.min(requested, properties.maxResults()));
+    }
+
+    /**
+     * Returns the number of users in the directory
+     *
+     * @return The directory size
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Adds or replaces a user
+     *
+     * @param entry {@link Entry} The user data
+     */
+    synchronized void put(final Entry entry) {
+        final Entry previous = entries.get(entry.id());
+        if (previous != null) {
+            forEachKey(previous, key -> removeId(key, previous.id()));
+            idsByUsername.remove(previous.username().toLowerCase(Locale.ROOT));
+        }
+
+        // The entry goes in first, a posting must always find it
+        entries.put(entry.id(), entry);
+        idsByUsername.put(entry.username().toLowerCase(Locale.ROOT), entry.id());
+        forEachKey(entry, key -> addId(key, entry.id()));
+    }
+
+    /**
+     * Removes a user
+     *
+     * @param username {@link String} The username
+     */
+    synchronized void remove(final String username) {
+        final Long id = idsByUsername.remove(username.toLowerCase(Locale.ROOT));
+        final Entry previous = id == null ? null : entries.remove(id);
+        if (previous != null) {
+            forEachKey(previous, key -> removeId(key, previous.id()));
+        }
+    }
+
+    /**
+     * Reads a user and applies it, unless a newer reload of the same user
+     * started meanwhile: it read after this one, its result wins
+     *
+     * @param username {@link String} The username
+     */
+    void reload(final String username) {
+        final String key = username.toLowerCase(Locale.ROOT);
+        final long ticket = tickets.incrementAndGet();
+        reloads.put(key, ticket);
+
+        try {
+            final List<Entry> rows = jdbcTemplate.query(SELECT_ONE, Map.of("username", username), (rs, rowNum) ->
+                    Entry.of(rs.getLong("id"), rs.getString("username"),
+                            rs.getString("full_name"), rs.getString("email"), rs.getString("avatar_key")));
+
+            synchronized (this) {
+                // A newer reload is in flight or already applied
+                if (!Long.valueOf(ticket).equals(reloads.get(key))) {
+                    return;
+                }
+
+                if (rows.isEmpty()) {
+                    remove(username);
+                } else {
+                    put(rows.getFirst());
+                }
+            }
+        } finally {
+            reloads.remove(key, ticket);
+        }
+    }
+
+    /**
+     * Returns the shortest posting among the keys of the query
+     */
+    private long[] rarestPosting(final String needle) {
+
+        if (needle.length() < 3) {
+            return postings.getOrDefault(prefixKey(needle, 0, needle.length()), EMPTY);
+        }
+
+        long[] rarest = null;
+        for (int i = 0; i + 3 <= needle.length(); i++) {
+            final long[] ids = postings.getOrDefault(trigramKey(needle, i), EMPTY);
+            if (rarest == null || ids.length < rarest.length) {
+                rarest = ids;
+            }
+            if (rarest.length == 0) {
+                break;
+            }
+        }
+        return rarest;
+    }
+
+    /**
+     * Ranks a candidate: 0 username prefix, 1 word prefix, 2 substring, -1 no match
+     */
+    private static int rank(final Entry entry, final String needle) {
+
+        final String haystack = entry.haystack();
+
+        if (haystack.startsWith(needle)) {
+            return 0;
+        }
+
+        for (int i = haystack.indexOf(needle); i >= 0; i = haystack.indexOf(needle, i + 1)) {
+            if (!Character.isLetterOrDigit(haystack.charAt(i - 1))) {
+                return 1;
+            }
+        }
+
+        // Short queries only match word prefixes
+        return needle.length() >= 3 && haystack.contains(needle) ? 2 : -1;
+    }
+
+    /**
+     * Calls the consumer with every key of the entry, keys may repeat
+     */
+    private static void forEachKey(final Entry entry, final LongConsumer consumer) {
+        for (String field : List.of(entry.username(), entry.fullName(), entry.email())) {
+            final String value = field == null ? "" : field.toLowerCase(Locale.ROOT);
+
+            for (int i = 0; i + 3 <= value.length(); i++) {
+                consumer.accept(trigramKey(value, i));
+            }
+
+            for (int i = 0; i < value.length(); i++) {
+                if (Character.isLetterOrDigit(value.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(value.charAt(i - 1)))) {
+                    consumer.accept(prefixKey(value, i, 1));
+                    if (i + 1 < value.length()) {
+                        consumer.accept(prefixKey(value, i, 2));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Three chars of 16 bits packed in the low 48 bits
+     */
+    private static long trigramKey(final String value, final int from) {
+        return ((long) value.charAt(from) << 32) | ((long) value.charAt(from + 1) << 16) | value.charAt(from + 2);
+    }
+
+    /**
+     * One or two chars tagged with their length above the trigram bits
+     */
+    private static long prefixKey(final String value, final int from, final int length) {
+        final long chars = length == 1
+                ? value.charAt(from)
+                : ((long) value.charAt(from) << 16) | value.charAt(from + 1);
+        return ((long) length << 48) | chars;
+    }
+
+    private void addId(final long key, final long id) {
+        final long[] ids = postings.getOrDefault(key, EMPTY);
+        final int index = Arrays.binarySearch(ids, id);
+        if (index >= 0) {
+            return;
+        }
+
+        final int at = -index - 1;
+        final long[] updated = new long[ids.length + 1];
+        System.arraycopy(ids, 0, updated, 0, at);
+        updated[at] = id;
+        System.arraycopy(ids, at, updated, at + 1, ids.length - at);
+        postings.put(key, updated);
+    }
+
+    private void removeId(final long key, final long id) {
+        final long[] ids = postings.getOrDefault(key, EMPTY);
+        final int index = Arrays.binarySearch(ids, id);
+        if (index < 0) {
+            return;
+        }
+
+        if (ids.length == 1) {
+            postings.remove(key);
+            return;
+        }
+
+        final long[] updated = new long[ids.length - 1];
+        System.arraycopy(ids, 0, updated, 0, index);
+        System.arraycopy(ids, index + 1, updated, index, ids.length - index - 1);
+        postings.put(key, updated);
+    }
+
+    /**
+     * Registers the directory meters
+     *
+     * @param registry {@link MeterRegistry} The meter registry
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+
+        Gauge.builder("vetl.user.directory.size", entries, Map::size)
+                .description("Users in the in-memory directory")
+                .register(registry);
+
+        FunctionTimer.builder("vetl.user.directory.lookups", this, d -> d.lookups.sum(), d -> d.lookupNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Autocomplete lookups served by the in-memory directory")
+                .register(registry);
+    }
+
+    private record Ranked(Entry entry, int rank) { }
+}
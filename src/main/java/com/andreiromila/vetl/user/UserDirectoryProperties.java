@@ -0,0 +1,19 @@
+package com.andreiromila.vetl.user;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties for the in-memory user directory used by the autocomplete.
+ *
+ * @param enabled    {@link Boolean} Whether the directory is loaded, otherwise the autocomplete queries the database
+ * @param maxResults {@link Integer} Upper bound for the number of suggestions per request
+ */
+@ConfigurationProperties(prefix = "application.user.directory")
+public record UserDirectoryProperties(
+        @DefaultValue("true")
+        boolean enabled,
+
+        @DefaultValue("20")
+        int maxResults
+) { }
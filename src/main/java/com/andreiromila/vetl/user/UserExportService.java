@@ -0,0 +1,56 @@
+package com.andreiromila.vetl.user;
+
+import com.andreiromila.vetl.storage.FileStorageService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.function.Consumer;
+
+/**
+ * Exports the user directory row by row, for downloads of any size.
+ * <p>
+ * Users are streamed from the database row by row and handed to the caller as
+ * they arrive; roles come from the role mask of the same row, so there
+ * is no query per user and nothing is accumulated in memory.
+ */
+@Service
+public class UserExportService {
+
+    /**
+     * Data access component for user-related database operations
+     */
+    private final UserRepository userRepository;
+
+    /**
+     * Service for file storage operations, builds the avatar URLs
+     */
+    private final FileStorageService fileStorageService;
+
+    /**
+     * Constructs the export service
+     *
+     * @param userRepository     {@link UserRepository} The user repository bean
+     * @param fileStorageService {@link FileStorageService} Service for file storage operations
+     */
+    public UserExportService(final UserRepository userRepository,
+                             final FileStorageService fileStorageService) {
+        this.userRepository = userRepository;
+        this.fileStorageService = fileStorageService;
+    }
+
+    /**
+     * Hands every user matching the query, ordered by id, to the writer.
+     * The transaction (and the connection) stays open until the last user
+     * is written, a failing writer aborts the export.
+     *
+     * @param query  {@link String} The query filter, null or blank exports every user
+     * @param writer {@link Consumer} Receives each user with roles and avatar URL
+     */
+    @Transactional(readOnly = true)
+    public void export(final String query, final Consumer<User> writer) {
+        userRepository.stream(query, user -> {
+            user.setAvatarUrl(fileStorageService.getPublicFileUrl(user.getAvatarKey()));
+            writer.accept(user);
+        });
+    }
+}
@@ -2,9 +2,88 @@ package com.andreiromila.vetl.user;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserFilterRepository {
 
+    /**
+     * Searches users by full name, username or email and returns them
+     * with their roles and authorities. A null or blank query returns all users.
+     *
+     * @param query    {@link String} The query filter
+     * @param pageable {@link Pageable} The pagination data
+     * @return The page of users with roles
+     */
     Page<User> search(final String query, final Pageable pageable);
 
+    /**
+     * Searches users like {@link #search(String, Pageable)} without counting them
+     *
+     * @param query    {@link String} The query filter
+     * @param pageable {@link Pageable} The pagination data
+     * @return The slice of users with roles
+     */
+    Slice<User> searchSlice(final String query, final Pageable pageable);
+
+    /**
+     * Counts the users matching the query filter
+     *
+     * @param query {@link String} The query filter, null or blank counts every user
+     * @return The number of matching users
+     */
+    long count(final String query);
+
+    /**
+     * Searches users like {@link #search(String, Pageable)} but seeks to the
+     * cursor position instead of skipping rows, and without counting them.
+     *
+     * @param query  {@link String} The query filter
+     * @param cursor {@link UserCursor} The sort and position to continue from
+     * @param size   {@link Integer} The maximum number of users to return
+     * @return The slice of users with roles, {@link Slice#hasNext()} tells if there are more
+     */
+    Slice<User> scroll(final String query, final UserCursor cursor, final int size);
+
+    /**
+     * Reads every user matching the query, ordered by id, and hands them
+     * one by one to the action while the result set is being read; the
+     * users are never collected, memory does not grow with the user count.
+     * Must run inside a transaction, the action runs on the open connection.
+     *
+     * @param query  {@link String} The query filter, null or blank reads every user
+     * @param action {@link Consumer} Receives each user with roles
+     */
+    void stream(final String query, final Consumer<User> action);
+
+    /**
+     * Finds which of the usernames are taken, with one query per chunk of
+     * candidates on the unique index
+     *
+     * @param usernames {@link Collection} The candidate usernames
+     * @return The taken usernames, as stored (the comparison is case-insensitive)
+     */
+    Set<String> findExistingUsernames(final Collection<String> usernames);
+
+    /**
+     * Finds which of the emails are taken, see {@link #findExistingUsernames(Collection)}
+     *
+     * @param emails {@link Collection} The candidate emails
+     * @return The taken emails, as stored
+     */
+    Set<String> findExistingEmails(final Collection<String> emails);
+
+    /**
+     * Finds a user with its roles and authorities in a single statement,
+     * always from the primary database
+     *
+     * @param username {@link String} The username
+     * @return The user with roles, if it exists
+     */
+    Optional<User> findWithRolesByUsername(final String username);
+
 }
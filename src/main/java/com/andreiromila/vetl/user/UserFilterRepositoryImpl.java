@@ -1,33 +1,116 @@
 package com.andreiromila.vetl.user;
 
+import com.andreiromila.vetl.role.RoleCatalog;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jdbc.core.JdbcAggregateTemplate;
-import org.springframework.data.relational.core.query.Criteria;
-import org.springframework.data.relational.core.query.Query;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static com.andreiromila.vetl.user.UserWithRolesExtractor.roleMask;
+import static com.andreiromila.vetl.user.UserWithRolesExtractor.userColumns;
+import static java.util.Objects.isNull;
 
 /**
- * User filter repository implementation
+ * User filter repository implementation.
+ * <p>
+ * Users are hydrated with their roles in a single statement: every row
+ * carries the user role bitmask, aggregated from {@code user_role}, which
+ * the {@link RoleCatalog} resolves in memory. The page of users is selected
+ * in a derived table, so only its rows get a role mask; the total is a
+ * separate {@code COUNT}, skipped when the page alone tells it.
+ * <p>
+ * Queries use the ngram {@code FULLTEXT} index (as a quoted phrase, which
+ * behaves like a substring match) and, unless a sort is requested, are
+ * ordered by relevance. Queries shorter than
+ * {@link UserSearchProperties#minFullTextLength()} fall back to LIKE.
  */
 @Repository
 public class UserFilterRepositoryImpl implements UserFilterRepository {
 
     /**
-     * Contains the jdbc aggregate template instance
+     * Sortable properties mapped to their column, anything else is ignored
      */
-    private final JdbcAggregateTemplate aggregateTemplate;
+    static final Map<String, String> SORT_COLUMNS = Map.of(
+            "id", "id",
+            "username", "username",
+            "fullName", "full_name",
+            "email", "email"
+    );
+
+    /**
+     * Single user lookup with roles
+     */
+    private static final String FIND_BY_USERNAME = """
+            SELECT %s, %s
+            FROM user u
+            WHERE u.username = :username
+            """.formatted(userColumns("u"), roleMask("u"));
+
+    /**
+     * The LIKE search filter, the collation is case-insensitive
+     */
+    private static final String LIKE_FILTER = "(u.full_name LIKE :query OR u.username LIKE :query OR u.email LIKE :query)";
+
+    /**
+     * The full-text search filter, also the relevance score
+     */
+    private static final String FULL_TEXT_FILTER = "MATCH (u.full_name, u.username, u.email) AGAINST (:query IN BOOLEAN MODE)";
+
+    /**
+     * The relevance column name
+     */
+    private static final String SCORE_COLUMN = "score";
+
+    /**
+     * Maximum number of values per existence query
+     */
+    private static final int EXISTING_CHUNK_SIZE = 1000;
+
+    /**
+     * Contains the named parameter jdbc template
+     */
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Resolves the role masks
+     */
+    private final RoleCatalog roleCatalog;
+
+    /**
+     * Search configuration
+     */
+    private final UserSearchProperties properties;
 
     /**
      * User filter repository constructor
      *
-     * @param aggregateTemplate {@link JdbcAggregateTemplate} Jdbc Aggregate Template
+     * @param jdbcTemplate {@link NamedParameterJdbcTemplate} Named parameter jdbc template
+     * @param roleCatalog  {@link RoleCatalog} The in-memory role catalog
+     * @param properties   {@link UserSearchProperties} Search configuration
      */
-    public UserFilterRepositoryImpl(final JdbcAggregateTemplate aggregateTemplate) {
-        this.aggregateTemplate = aggregateTemplate;
+    public UserFilterRepositoryImpl(final NamedParameterJdbcTemplate jdbcTemplate, final RoleCatalog roleCatalog, final UserSearchProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.roleCatalog = roleCatalog;
+        this.properties = properties;
     }
 
     /**
@@ -42,32 +125,310 @@ public class UserFilterRepositoryImpl implements UserFilterRepository {
     @Transactional(readOnly = true)
     public Page<User> search(final String query, final Pageable pageable) {
 
-        // Get the criteria based on the filter list
-        final Criteria criteria = getCriteriaList(query).stream()
-                .reduce(Criteria.empty(), Criteria::or);
+        final List<User> users = select(query, pageable, pageable.getPageSize());
+
+        // The page reads only its rows through the order index, the total is a separate COUNT
+        return PageableExecutionUtils.getPage(users, pageable, () -> count(query));
+    }
+
+    /**
+     * Searches like {@link #search(String, Pageable)} without counting,
+     * one extra row is read to know whether there is a next page
+     *
+     * @param query    {@link String} The query filter
+     * @param pageable {@link Pageable} The pagination data
+     * @return The slice of users with roles
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<User> searchSlice(final String query, final Pageable pageable) {
+
+        final List<User> users = select(query, pageable, pageable.getPageSize() + 1);
 
-        // Execute the query
-        return aggregateTemplate.findAll(Query.query(criteria), User.class, pageable);
+        final boolean hasNext = users.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? users.subList(0, pageable.getPageSize()) : users, pageable, hasNext);
     }
 
     /**
-     * Creates the criteria list for searching
+     * Counts the users matching the filter
      *
-     * @param query {@link String} The query to search by
+     * @param query {@link String} The query filter
+     * @return The number of matching users
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long count(final String query) {
+        final MapSqlParameterSource params = new MapSqlParameterSource();
+        final String filter = filter(query, params);
+        final String where = isNull(filter) ? "" : "WHERE " + filter;
+
+        final Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user u " + where, params, Long.class);
+        return total == null ? 0 : total;
+    }
+
+    /**
+     * Selects a page of users with their role masks in one statement
      *
-     * @return The list of criteria
+     * @param query    {@link String} The query filter
+     * @param pageable {@link Pageable} The pagination data
+     * @param limit    {@link Integer} The number of rows to read
+     * @return The users with roles
      */
-    private List<Criteria> getCriteriaList(final String query) {
+    private List<User> select(final String query, final Pageable pageable, final int limit) {
 
-        // Add the % for the like
-        final String likeQuery = "%" + query + "%";
+        final MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("limit", limit)
+                .addValue("offset", pageable.getOffset());
 
-        // Create the list of criteria
-        return List.of(
-                Criteria.where("fullName").like(likeQuery).ignoreCase(true),
-                Criteria.where("username").like(likeQuery).ignoreCase(true),
-                Criteria.where("email").like(likeQuery).ignoreCase(true)
+        final String filter = filter(query, params);
+        final String where = isNull(filter) ? "" : "WHERE " + filter;
+
+        // Best matches first, unless the client asked for a specific order
+        final boolean byRelevance = isFullText(filter) && pageable.getSort().isUnsorted();
+        final String score = byRelevance ? ", %s AS %s".formatted(FULL_TEXT_FILTER, SCORE_COLUMN) : "";
+
+        final String sql = """
+                SELECT %s, %s
+                FROM (
+                    SELECT %s%s
+                    FROM user u
+                    %s
+                    ORDER BY %s
+                    LIMIT :limit OFFSET :offset
+                ) p
+                ORDER BY %s
+                """.formatted(
+                userColumns("p"), roleMask("p"),
+                userColumns("u"), score,
+                where,
+                byRelevance ? SCORE_COLUMN + " DESC, u.id ASC" : orderBy("u", pageable.getSort()),
+                byRelevance ? "p." + SCORE_COLUMN + " DESC, p.id ASC" : orderBy("p", pageable.getSort())
         );
+
+        return jdbcTemplate.query(sql, params, new UserWithRolesExtractor(roleCatalog));
+    }
+
+    /**
+     * Keyset search: seeks past the cursor with a {@code (column, id)}
+     * comparison that can use the column index, no OFFSET and no count.
+     * One extra row is read to know whether there is a next page.
+     *
+     * @param query  {@link String} The query filter
+     * @param cursor {@link UserCursor} The sort and position to continue from
+     * @param size   {@link Integer} The maximum number of users to return
+     * @return The slice of users with roles
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<User> scroll(final String query, final UserCursor cursor, final int size) {
+
+        final List<String> conditions = new ArrayList<>();
+        final MapSqlParameterSource params = new MapSqlParameterSource("limit", size + 1);
+
+        // Filter only, the cursor order is the requested column
+        final String filter = filter(query, params);
+        if (!isNull(filter)) {
+            conditions.add(filter);
+        }
+
+        final String column = SORT_COLUMNS.get(cursor.property());
+        final String operator = cursor.direction().isAscending() ? ">" : "<";
+
+        if (!cursor.isFirst()) {
+            if (column.equals("id")) {
+                conditions.add("u.id %s :id".formatted(operator));
+            } else {
+                conditions.add("(u.%1$s %2$s :value OR (u.%1$s = :value AND u.id %2$s :id))".formatted(column, operator));
+                params.addValue("value", cursor.value());
+            }
+            params.addValue("id", cursor.id());
+        }
+
+        final String direction = cursor.direction().name();
+        final String orderBy = column.equals("id")
+                ? "u.id " + direction
+                : "u.%s %s, u.id %s".formatted(column, direction, direction);
+
+        final String sql = """
+                SELECT %s, %s
+                FROM user u
+                %s
+                ORDER BY %s
+                LIMIT :limit
+                """.formatted(
+                userColumns("u"), roleMask("u"),
+                conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions),
+                orderBy
+        );
+
+        final List<User> users = jdbcTemplate.query(sql, params, new UserWithRolesExtractor(roleCatalog));
+        final boolean hasNext = users.size() > size;
+
+        return new SliceImpl<>(hasNext ? users.subList(0, size) : users, PageRequest.ofSize(size), hasNext);
     }
-}
 
+    /**
+     * Streams the matching users through a forward-only result set. A
+     * dedicated template sets the fetch size to {@link Integer#MIN_VALUE}
+     * on this statement only, which makes the MySQL driver read the rows
+     * from the socket one at a time instead of buffering the whole result;
+     * the connection properties (and every other statement) are unchanged.
+     * The driver raises {@code net_write_timeout} while streaming, a slow
+     * client does not make the server abort the result.
+     *
+     * @param query  {@link String} The query filter
+     * @param action {@link Consumer} Receives each user with roles
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void stream(final String query, final Consumer<User> action) {
+
+        final MapSqlParameterSource params = new MapSqlParameterSource();
+        final String filter = filter(query, params);
+
+        final String sql = """
+                SELECT %s, %s
+                FROM user u
+                %s
+                ORDER BY u.id
+                """.formatted(userColumns("u"), roleMask("u"), isNull(filter) ? "" : "WHERE " + filter);
+
+        // The shared template must keep the default fetch size
+        final JdbcTemplate streaming = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getJdbcTemplate().getDataSource()));
+        streaming.setFetchSize(Integer.MIN_VALUE);
+
+        final UserWithRolesExtractor extractor = new UserWithRolesExtractor(roleCatalog);
+        new NamedParameterJdbcTemplate(streaming).query(sql, params, (RowCallbackHandler) rs -> action.accept(extractor.mapRow(rs)));
+    }
+
+    /**
+     * Finds which of the usernames are taken
+     *
+     * @param usernames {@link Collection} The candidate usernames
+     * @return The taken usernames, as stored
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Set<String> findExistingUsernames(final Collection<String> usernames) {
+        return findExisting("username", usernames);
+    }
+
+    /**
+     * Finds which of the emails are taken
+     *
+     * @param emails {@link Collection} The candidate emails
+     * @return The taken emails, as stored
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Set<String> findExistingEmails(final Collection<String> emails) {
+        return findExisting("email", emails);
+    }
+
+    /**
+     * Selects the stored values of a unique column among the candidates,
+     * the query only reads the unique index
+     *
+     * @param column {@link String} The unique column
+     * @param values {@link Collection} The candidate values
+     * @return The stored values
+     */
+    private Set<String> findExisting(final String column, final Collection<String> values) {
+
+        final List<String> candidates = values.stream().filter(Objects::nonNull).distinct().toList();
+        final Set<String> existing = new HashSet<>();
+
+        for (int from = 0; from < candidates.size(); from += EXISTING_CHUNK_SIZE) {
+            final List<String> chunk = candidates.subList(from, Math.min(candidates.size(), from + EXISTING_CHUNK_SIZE));
+            existing.addAll(jdbcTemplate.queryForList(
+                    "SELECT %1$s FROM user WHERE %1$s IN (:values)".formatted(column),
+                    new MapSqlParameterSource("values", chunk),
+                    String.class));
+        }
+
+        return existing;
+    }
+
+    /**
+     * Finds a user with its roles and authorities in a single statement.
+     * <p>
+     * Not a read-only transaction, so it reads from the primary: it loads
+     * the principal cache, a lagging replica would cache the state from
+     * before a disable or a demotion for the whole time to live.
+     *
+     * @param username {@link String} The username
+     * @return The user with roles, if it exists
+     */
+    @Override
+    public Optional<User> findWithRolesByUsername(final String username) {
+        final List<User> users = jdbcTemplate.query(
+                FIND_BY_USERNAME,
+                new MapSqlParameterSource("username", username),
+                new UserWithRolesExtractor(roleCatalog)
+        );
+
+        return users.stream().findFirst();
+    }
+
+    /**
+     * Builds the search condition and adds its parameter
+     *
+     * @param query  {@link String} The query filter (may be null or blank)
+     * @param params {@link MapSqlParameterSource} The query parameters
+     * @return The condition, null when there is nothing to filter
+     */
+    private String filter(final String query, final MapSqlParameterSource params) {
+
+        if (isNull(query) || query.isBlank()) {
+            return null;
+        }
+
+        // Quotes would end the boolean mode phrase
+        final String phrase = query.replace('"', ' ').strip();
+
+        if (properties.fullText() && phrase.length() >= properties.minFullTextLength()) {
+            // A quoted phrase matches the consecutive ngrams of the query
+            params.addValue("query", '"' + phrase + '"');
+            return FULL_TEXT_FILTER;
+        }
+
+        // Add the % for the like
+        params.addValue("query", "%" + query + "%");
+        return LIKE_FILTER;
+    }
+
+    /**
+     * Whether the filter is the full-text one, only its matches have a relevance
+     *
+     * @param filter {@link String} The filter returned by {@link #filter(String, MapSqlParameterSource)}
+     * @return {@code true} for the full-text filter
+     */
+    private static boolean isFullText(final String filter) {
+        return FULL_TEXT_FILTER.equals(filter);
+    }
+
+    /**
+     * Builds the ORDER BY clause from the allowed sort properties,
+     * always ending with the id so pages are stable.
+     *
+     * @param alias {@link String} The user table alias
+     * @param sort  {@link Sort} The requested sort
+     * @return The ORDER BY expression list
+     */
+    static String orderBy(final String alias, final Sort sort) {
+
+        final List<String> orders = new ArrayList<>();
+
+        for (Sort.Order order : sort) {
+            final String column = SORT_COLUMNS.get(order.getProperty());
+            if (column != null && !column.equals("id")) {
+                orders.add("%s.%s %s".formatted(alias, column, order.getDirection().name()));
+            }
+        }
+
+        final Sort.Order idOrder = sort.getOrderFor("id");
+        orders.add("%s.id %s".formatted(alias, idOrder == null ? "ASC" : idOrder.getDirection().name()));
+
+        return String.join(", ", orders);
+    }
+}
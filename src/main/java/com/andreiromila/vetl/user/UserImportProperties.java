@@ -0,0 +1,19 @@
+package com.andreiromila.vetl.user;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties for the bulk user import.
+ *
+ * @param maxRows   {@link Integer} Maximum number of users per import
+ * @param batchSize {@link Integer} Rows per JDBC batch and per uniqueness query
+ */
+@ConfigurationProperties(prefix = "application.user.import")
+public record UserImportProperties(
+        @DefaultValue("10000")
+        int maxRows,
+
+        @DefaultValue("500")
+        int batchSize
+) { }
@@ -0,0 +1,383 @@
+package com.andreiromila.vetl.user;
+
+import com.andreiromila.vetl.exceptions.HttpBadRequestException;
+import com.andreiromila.vetl.exceptions.HttpValidationException;
+import com.andreiromila.vetl.invalidation.InvalidationBus;
+import com.andreiromila.vetl.invalidation.InvalidationTopic;
+import com.andreiromila.vetl.outbox.Outbox;
+import com.andreiromila.vetl.outbox.OutboxEventType;
+import com.andreiromila.vetl.responses.ValidationError;
+import com.andreiromila.vetl.role.RoleCatalog;
+import com.andreiromila.vetl.user.event.UserCreatedEvent;
+import com.andreiromila.vetl.user.web.UserImportRow;
+import com.andreiromila.vetl.utils.StringUtils;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Creates many users at once, for customer onboarding.
+ * <p>
+ * The whole batch is validated before anything is written: field rules,
+ * duplicates inside the batch, unknown roles, and usernames or emails
+ * already taken, checked with one {@code IN} query per chunk instead of
+ * one query per user. A value taken concurrently after the validation is
+ * reported the same way, from the unique index violation. Users and their
+ * roles are then inserted with JDBC batch statements, along with one
+ * {@link UserCreatedEvent} per user in the outbox: the invitations and the
+ * audit entries are handled in the background once the import commits.
+ * <p>
+ * An import is all or nothing: any invalid row rejects the batch.
+ */
+@Service
+public class UserImportService {
+
+    private static final String INSERT_USER = """
+            INSERT INTO user (username, email, full_name, password, enabled, email_activation_code, created_at, modified_at)
+            VALUES (:username, :email, :fullName, NULL, FALSE, :activationCode, :now, :now)
+            """;
+
+    private static final String INSERT_USER_ROLE = "INSERT INTO user_role (user, role) VALUES (:user, :role)";
+
+    /**
+     * Contains the named parameter jdbc template
+     */
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Checks the taken usernames and emails
+     */
+    private final UserRepository userRepository;
+
+    /**
+     * Validates the field rules of every row
+     */
+    private final Validator validator;
+
+    /**
+     * Checks the role ids without a query
+     */
+    private final RoleCatalog roleCatalog;
+
+    /**
+     * Makes the new users visible to the autocomplete
+     */
+    private final UserDirectory userDirectory;
+
+    /**
+     * Propagates the new users to the other nodes
+     */
+    private final InvalidationBus invalidationBus;
+
+    /**
+     * Carries the invitations and audit entries to their handlers
+     */
+    private final Outbox outbox;
+
+    /**
+     * Import configuration
+     */
+    private final UserImportProperties properties;
+
+    /**
+     * Constructs the import service
+     *
+     * @param jdbcTemplate    {@link NamedParameterJdbcTemplate} Named parameter jdbc template
+     * @param userRepository  {@link UserRepository} The user repository bean
+     * @param validator       {@link Validator} Bean validator
+     * @param roleCatalog     {@link RoleCatalog} The in-memory role catalog
+     * @param userDirectory   {@link UserDirectory} In-memory directory backing the autocomplete
+     * @param invalidationBus {@link InvalidationBus} Propagates the new users to the other nodes
+     * @param outbox          {@link Outbox} Carries the domain events to their handlers
+     * @param properties      {@link UserImportProperties} Import configuration
+     */
+    public UserImportService(final NamedParameterJdbcTemplate jdbcTemplate,
+                             final UserRepository userRepository,
+                             final Validator validator,
+                             final RoleCatalog roleCatalog,
+                             final UserDirectory userDirectory,
+                             final InvalidationBus invalidationBus,
+                             final Outbox outbox,
+                             final UserImportProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userRepository = userRepository;
+        this.validator = validator;
+        this.roleCatalog = roleCatalog;
+        this.userDirectory = userDirectory;
+        this.invalidationBus = invalidationBus;
+        this.outbox = outbox;
+        this.properties = properties;
+    }
+
+    /**
+     * Validates and creates the users, disabled and with an activation code
+     * like {@link UserService#createUser}
+     *
+     * @param rows {@link List} The users to create
+     * @return The created users, in the order of the rows
+     * @throws HttpValidationException If any row is invalid, nothing is created
+     */
+    @Transactional
+    public List<User> importUsers(final List<UserImportRow> rows) {
+
+        if (rows == null || rows.isEmpty()) {
+            throw new HttpBadRequestException("There are no users to import.");
+        }
+
+        if (rows.size() > properties.maxRows()) {
+            throw new HttpBadRequestException("Too many users, the maximum per import is %d.".formatted(properties.maxRows()));
+        }
+
+        final List<ValidationError> errors = validate(rows);
+        if (!errors.isEmpty()) {
+            throw new HttpValidationException("The provided information is invalid.", errors);
+        }
+
+        final List<User> users;
+        try {
+            users = insertUsers(rows);
+        } catch (DuplicateKeyException e) {
+            // Another request took a username or email after the validation
+            final Optional<UniqueUserViolation> violation = UniqueUserViolation.of(e);
+            final int row = violation.map(v -> rowOf(rows, v)).orElse(-1);
+            if (row < 0) {
+                throw e;
+            }
+            throw violation.get().toException("rows[%d].%s".formatted(row, violation.get().field()));
+        }
+
+        insertUserRoles(rows, users);
+
+        // Visible to the autocomplete after commit, here and on the other nodes
+        userDirectory.addAll(users);
+        invalidationBus.publishAll(InvalidationTopic.PRINCIPAL, users.stream().map(User::getUsername).toList());
+
+        // One event per user, written with a single batch: invitations and audit are handled after commit
+        outbox.appendAll(OutboxEventType.USER_CREATED, users.stream().map(UserCreatedEvent::of).toList());
+
+        return users;
+    }
+
+    /**
+     * Collects every error of the batch, sorted by row
+     *
+     * @param rows {@link List} The rows to validate
+     * @return The errors, the field is prefixed with the row index
+     */
+    private List<ValidationError> validate(final List<UserImportRow> rows) {
+
+        final List<IndexedError> errors = new ArrayList<>();
+
+        // Compares like the case and accent insensitive collation of the columns
+        final Collator collation = collation();
+        final Map<CollationKey, Integer> usernames = new HashMap<>();
+        final Map<CollationKey, Integer> emails = new HashMap<>();
+
+        // Only the values that passed the field rules are checked against the table
+        final Set<String> checkedUsernames = new HashSet<>();
+        final Set<String> checkedEmails = new HashSet<>();
+
+        for (int index = 0; index < rows.size(); index++) {
+
+            final int i = index;
+            final UserImportRow row = rows.get(i);
+            if (row == null) {
+                errors.add(new IndexedError(i, "", "must not be null", null));
+                continue;
+            }
+
+            final Set<String> invalid = new HashSet<>();
+            for (ConstraintViolation<UserImportRow> violation : validator.validate(row)) {
+                invalid.add(violation.getPropertyPath().toString());
+                errors.add(new IndexedError(i, "." + violation.getPropertyPath(), violation.getMessage(), violation.getInvalidValue()));
+            }
+
+            duplicate(collation, usernames, row.username(), i).ifPresent(first ->
+                    errors.add(new IndexedError(i, ".username", "is repeated in row " + first, row.username())));
+            duplicate(collation, emails, row.email(), i).ifPresent(first ->
+                    errors.add(new IndexedError(i, ".email", "is repeated in row " + first, row.email())));
+
+            if (!invalid.contains("username")) {
+                checkedUsernames.add(row.username());
+            }
+            if (!invalid.contains("email")) {
+                checkedEmails.add(row.email());
+            }
+
+            if (row.roles() != null) {
+                row.roles().stream()
+                        .filter(role -> role == null || roleCatalog.findById(role).isEmpty())
+                        .forEach(role -> errors.add(new IndexedError(i, ".roles", "contains an unknown role", role)));
+            }
+        }
+
+        for (String taken : userRepository.findExistingUsernames(checkedUsernames)) {
+            // Not matched here, the unique index still rejects it on insert
+            final Integer row = usernames.get(collation.getCollationKey(taken));
+            if (row != null) {
+                errors.add(new IndexedError(row, ".username", UniqueUserViolation.USERNAME_TAKEN, rows.get(row).username()));
+            }
+        }
+
+        for (String taken : userRepository.findExistingEmails(checkedEmails)) {
+            final Integer row = emails.get(collation.getCollationKey(taken));
+            if (row != null) {
+                errors.add(new IndexedError(row, ".email", UniqueUserViolation.EMAIL_TAKEN, rows.get(row).email()));
+            }
+        }
+
+        return errors.stream()
+                .sorted(Comparator.comparingInt(IndexedError::row))
+                .map(IndexedError::toValidationError)
+                .toList();
+    }
+
+    /**
+     * Remembers the first row of every value
+     *
+     * @return The first row with the same value, if this one is repeated
+     */
+    private static Optional<Integer> duplicate(final Collator collation,
+                                               final Map<CollationKey, Integer> firstRows,
+                                               final String value,
+                                               final int row) {
+        if (value == null) {
+            return Optional.empty();
+        }
+        final Integer first = firstRows.putIfAbsent(collation.getCollationKey(value), row);
+        return Optional.ofNullable(first);
+    }
+
+    /**
+     * Creates a collator that, like the {@code utf8mb4_0900_ai_ci} collation
+     * of the username and email columns, ignores case and accents: a batch
+     * value {@code jose} matches a stored {@code José}. Collators are not
+     * thread safe, one per validation.
+     *
+     * @return The collator
+     */
+    private static Collator collation() {
+        final Collator collation = Collator.getInstance(Locale.ROOT);
+        collation.setStrength(Collator.PRIMARY);
+        return collation;
+    }
+
+    /**
+     * Inserts the users in batches and reads back the generated ids
+     *
+     * @param rows {@link List} The validated rows
+     * @return The created users
+     */
+    private List<User> insertUsers(final List<UserImportRow> rows) {
+
+        final Instant now = Instant.now();
+        final List<User> users = rows.stream()
+                .map(row -> User.builder()
+                        .username(row.username())
+                        .email(row.email())
+                        .fullName(row.fullName())
+                        .enabled(false)
+                        .emailActivationCode(StringUtils.generateRandomString(64))
+                        .createdAt(now)
+                        .modifiedAt(now)
+                        .build())
+                .toList();
+
+        forEachBatch(users, batch -> {
+
+            final SqlParameterSource[] params = batch.stream()
+                    .map(user -> new MapSqlParameterSource()
+                            .addValue("username", user.getUsername())
+                            .addValue("email", user.getEmail())
+                            .addValue("fullName", user.getFullName())
+                            .addValue("activationCode", user.getEmailActivationCode())
+                            .addValue("now", Timestamp.from(now)))
+                    .toArray(SqlParameterSource[]::new);
+
+            final KeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(INSERT_USER, params, keys, new String[]{"id"});
+
+            final List<Map<String, Object>> ids = keys.getKeyList();
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setId(((Number) ids.get(i).values().iterator().next()).longValue());
+            }
+        });
+
+        return users;
+    }
+
+    /**
+     * Inserts every user role pair in batches
+     *
+     * @param rows  {@link List} The validated rows
+     * @param users {@link List} The created users, same order as the rows
+     */
+    private void insertUserRoles(final List<UserImportRow> rows, final List<User> users) {
+
+        final List<SqlParameterSource> pairs = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            final Set<Long> roles = rows.get(i).roles() == null ? Set.of() : new HashSet<>(rows.get(i).roles());
+            for (Long role : roles) {
+                pairs.add(new MapSqlParameterSource()
+                        .addValue("user", users.get(i).getId())
+                        .addValue("role", role));
+            }
+        }
+
+        forEachBatch(pairs, batch -> jdbcTemplate.batchUpdate(INSERT_USER_ROLE, batch.toArray(SqlParameterSource[]::new)));
+    }
+
+    /**
+     * Finds the row with the duplicated value of a unique violation
+     *
+     * @return The row index, -1 if no row has the value
+     */
+    private static int rowOf(final List<UserImportRow> rows, final UniqueUserViolation violation) {
+        final Collator collation = collation();
+        for (int i = 0; i < rows.size(); i++) {
+            final String value = violation.field().equals("username") ? rows.get(i).username() : rows.get(i).email();
+            if (value != null && collation.equals(violation.value(), value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private <T> void forEachBatch(final List<T> items, final Consumer<List<T>> action) {
+        for (int from = 0; from < items.size(); from += properties.batchSize()) {
+            action.accept(items.subList(from, Math.min(items.size(), from + properties.batchSize())));
+        }
+    }
+
+    /**
+     * A validation error with its row, to sort the errors
+     */
+    private record IndexedError(int row, String path, String message, Object value) {
+
+        ValidationError toValidationError() {
+            return new ValidationError("rows[%d]%s".formatted(row, path), message, value);
+        }
+    }
+}
@@ -15,6 +15,24 @@ public interface UserRepository extends UserFilterRepository, ListCrudRepository
 
     Optional<User> findByEmail(final String email);
 
+    /**
+     * Checks whether a username is taken, reading only the unique index
+     *
+     * @param username {@link String} The username
+     * @return True if a user has the username (case-insensitive)
+     */
+    @Query("SELECT EXISTS (SELECT 1 FROM user WHERE username = :username LIMIT 1)")
+    boolean existsByUsername(@Param("username") String username);
+
+    /**
+     * Checks whether an email is taken, reading only the unique index
+     *
+     * @param email {@link String} The email
+     * @return True if a user has the email (case-insensitive)
+     */
+    @Query("SELECT EXISTS (SELECT 1 FROM user WHERE email = :email LIMIT 1)")
+    boolean existsByEmail(@Param("email") String email);
+
     @Modifying
     @Query("INSERT INTO user_role (user, role) VALUES (:userId, :roleId)")
     void insertUserRole(Long userId, Long roleId);
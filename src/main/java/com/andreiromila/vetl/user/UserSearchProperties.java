@@ -0,0 +1,22 @@
+package com.andreiromila.vetl.user;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties for the user search.
+ * <p>
+ * Full-text indexes only see committed rows, tests running inside a
+ * rolled back transaction disable it.
+ *
+ * @param fullText          {@link Boolean} Whether queries use the ngram full-text index
+ * @param minFullTextLength {@link Integer} Shorter queries use LIKE, they match too many ngrams
+ */
+@ConfigurationProperties(prefix = "application.user.search")
+public record UserSearchProperties(
+        @DefaultValue("true")
+        boolean fullText,
+
+        @DefaultValue("3")
+        int minFullTextLength
+) { }
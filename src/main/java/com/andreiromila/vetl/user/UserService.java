@@ -3,9 +3,12 @@ package com.andreiromila.vetl.user;
 import com.andreiromila.vetl.exceptions.HttpBadRequestException;
 import com.andreiromila.vetl.exceptions.HttpGoneException;
 import com.andreiromila.vetl.exceptions.HttpNotFoundException;
-import com.andreiromila.vetl.role.Role;
-import com.andreiromila.vetl.role.RoleRepository;
-import com.andreiromila.vetl.role.UserRole;
+import com.andreiromila.vetl.invalidation.InvalidationBus;
+import com.andreiromila.vetl.invalidation.InvalidationTopic;
+import com.andreiromila.vetl.outbox.Outbox;
+import com.andreiromila.vetl.outbox.OutboxEventType;
+import com.andreiromila.vetl.responses.TotalCountCache;
+import com.andreiromila.vetl.responses.TotalMode;
 import com.andreiromila.vetl.storage.FileStorageService;
 import com.andreiromila.vetl.user.event.UserCreatedEvent;
 import com.andreiromila.vetl.user.web.UserCreateRequest;
@@ -13,26 +16,21 @@ import com.andreiromila.vetl.user.web.UserDetailsUpdateRequest;
 import com.andreiromila.vetl.user.web.UserPasswordChangeRequest;
 import com.andreiromila.vetl.utils.StringUtils;
 import jakarta.validation.Valid;
-import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
-import java.util.Objects;
-import java.util.Set;
-import java.util.stream.Collectors;
-
-import static java.util.Objects.isNull;
+import java.util.Locale;
 
 /**
  * Service class handling user management
@@ -49,11 +47,6 @@ public class UserService implements UserDetailsService {
      */
     private final UserRepository userRepository;
 
-    /**
-     * Role repository bean
-     */
-    private final RoleRepository roleRepository;
-
     /**
      * Component for password encryption and validation
      */
@@ -65,33 +58,62 @@ public class UserService implements UserDetailsService {
     private final FileStorageService fileStorageService;
 
     /**
-     * Event publisher.
+     * Carries the domain events to their handlers.
+     */
+    private final Outbox outbox;
+
+    /**
+     * In-memory cache of hydrated principals.
+     */
+    private final PrincipalCache principalCache;
+
+    /**
+     * Propagates user changes to the other nodes.
+     */
+    private final InvalidationBus invalidationBus;
+
+    /**
+     * In-memory directory backing the autocomplete.
+     */
+    private final UserDirectory userDirectory;
+
+    /**
+     * Recent counts for the approximate totals.
      */
-    private final ApplicationEventPublisher eventPublisher;
+    private final TotalCountCache totalCountCache;
 
     /**
      * Constructs a UserService with required dependencies
      *
      * @param userRepository  {@link UserRepository} The user repository bean
-     * @param roleRepository  {@link RoleRepository} The role repository bean
      * @param passwordEncoder {@link PasswordEncoder} The password encoder bean
      * @param fileStorageService {@link FileStorageService} Service for file storage operations.
-     * @param eventPublisher {@link ApplicationEventPublisher} Event publisher.
+     * @param outbox {@link Outbox} Carries the domain events to their handlers.
+     * @param principalCache {@link PrincipalCache} In-memory cache of hydrated principals.
+     * @param invalidationBus {@link InvalidationBus} Propagates user changes to the other nodes.
+     * @param userDirectory {@link UserDirectory} In-memory directory backing the autocomplete.
+     * @param totalCountCache {@link TotalCountCache} Recent counts for the approximate totals.
      */
     public UserService(final UserRepository userRepository,
-                       final RoleRepository roleRepository,
                        final PasswordEncoder passwordEncoder,
                        final FileStorageService fileStorageService,
-                       final ApplicationEventPublisher eventPublisher) {
+                       final Outbox outbox,
+                       final PrincipalCache principalCache,
+                       final InvalidationBus invalidationBus,
+                       final UserDirectory userDirectory,
+                       final TotalCountCache totalCountCache) {
         this.userRepository = userRepository;
-        this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
         this.fileStorageService = fileStorageService;
-        this.eventPublisher = eventPublisher;
+        this.outbox = outbox;
+        this.principalCache = principalCache;
+        this.invalidationBus = invalidationBus;
+        this.userDirectory = userDirectory;
+        this.totalCountCache = totalCountCache;
     }
 
     /**
-     * Loads a user from the database by username
+     * Loads a user by username, served from the principal cache when possible
      *
      * @param username {@link String} The username to search for
      * @return The UserDetails
@@ -99,24 +121,21 @@ public class UserService implements UserDetailsService {
      */
     @Override
     public User loadUserByUsername(final String username) {
-        final User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new HttpNotFoundException("No user found with username: " + username));
-
-        // Get all role references for the current user
-        final Set<UserRole> roleReferences = roleRepository.findUserRoleByUsers(List.of(user.getId()));
-
-        // Find all roles
-        final List<Role> userRoles = roleRepository.findAllById(roleReferences.stream().map(UserRole::role).toList());
-
-        // Setup user roles with prefix ROLE_ so we can use hasRole("ADMIN")
-        user.setAuthorities(
-                userRoles.stream()
-                        .map(role -> new SimpleGrantedAuthority("ROLE_" + role.name()))
-                        .toList()
-        );
+        return principalCache.get(username, this::loadPrincipal);
+    }
 
-        // Set the user roles
-        user.setRoles(Set.copyOf(userRoles));
+    /**
+     * Loads a user with its roles and authorities from the primary database,
+     * never from a replica that may not have the latest disable or demotion
+     *
+     * @param username {@link String} The username to search for
+     * @return The hydrated user
+     * @throws HttpNotFoundException If the user was not found
+     */
+    private User loadPrincipal(final String username) {
+        // User, roles and authorities in a single round trip
+        final User user = userRepository.findWithRolesByUsername(username)
+                .orElseThrow(() -> new HttpNotFoundException("No user found with username: " + username));
 
         // Populate the transient avatar URL field
         return userWithAvatarUrl(user);
@@ -152,16 +171,26 @@ public class UserService implements UserDetailsService {
         user.setEmailActivationCode(activationCode);
 
         // No default roles
-        final User savedUser = userRepository.save(user);
+        final User savedUser;
+        try {
+            savedUser = userRepository.save(user);
+        } catch (DataAccessException e) {
+            // Another request took the username or email after the validation
+            throw UniqueUserViolation.of(e)
+                    .map(violation -> violation.toException(violation.field()))
+                    .orElseThrow(() -> e);
+        }
 
         if (request.roles() != null && ! request.roles().isEmpty()) {
             // Now lets save the roles if the user has any
             userRepository.insertUserRoles(savedUser.getId(), request.roles());
         }
 
-        // Broadcast the event now - the listeners
-        // should send the email and audit or whatever ...
-        eventPublisher.publishEvent(new UserCreatedEvent(this, savedUser));
+        // Make the new user visible to the autocomplete, here and on the other nodes
+        publishUserChange(savedUser.getUsername());
+
+        // Written with the user, the email and the audit entry are handled after commit in the background
+        outbox.append(OutboxEventType.USER_CREATED, UserCreatedEvent.of(savedUser));
 
         // Now, generate and send the invitation for the newly created user
         return savedUser;
@@ -222,98 +251,89 @@ public class UserService implements UserDetailsService {
         user.setEmailValidatedAt(Instant.now());
         user.setEmailActivationCode(null);
 
+        publishUserChange(username);
+
         return userRepository.save(user);
     }
 
     /**
-     * Searches the database for users based on the provided query
+     * Searches the database for users based on the provided query.
+     * The users are hydrated with their roles in the same query, the
+     * matches are counted as requested: exactly, from a recent count or not at all.
      *
-     * @param query {@link String} The string to search for
-     * @param pageable {@link Pageable} Pagination data
-     * @return The page of matching users
+     * @param query     {@link String} The string to search for
+     * @param pageable  {@link Pageable} Pagination data
+     * @param totalMode {@link TotalMode} How the total is computed
+     * @return The slice of matching users, a {@link Page} when it has a total
      */
-    public Page<User> searchUsers(final String query, final Pageable pageable) {
-
-        // Get the user page first
-        final Page<User> userPage;
+    public Slice<User> searchUsers(final String query, final Pageable pageable, final TotalMode totalMode) {
 
-        if (isNull(query) || query.isBlank()) {
-            userPage = userRepository.findAll(pageable);
-        } else {
-            userPage = userRepository.search(query, pageable);
-        }
-
-        // If there are no user there is no need to search for roles
-        if (userPage.isEmpty()) {
-            return userPage;
-        }
+        final Slice<User> users = switch (totalMode) {
+            case EXACT -> userRepository.search(query, pageable);
+            case NONE -> userRepository.searchSlice(query, pageable);
+            case APPROXIMATE -> totalCountCache.estimate(totalKey(query),
+                    userRepository.searchSlice(query, pageable),
+                    () -> userRepository.count(query));
+        };
 
-        // Get all user_role references based on the user page
-        final Set<UserRole> roleReferences = roleRepository.findUserRoleByUsers(
-                userPage.get()
-                        .map(User::getId)
-                        .toList()
-        );
-
-        // Now get all the roles for those users
-        final List<Role> roles = roleRepository.findAllById(
-                roleReferences.stream()
-                        .map(UserRole::role)
-                        .collect(Collectors.toSet())
-        );
-
-        // Lastly we must combine and set the roles for every user
-        final List<User> usersWithRoles = userPage.get()
-                .map(user -> userWithRoles(user, roleReferences, roles))
-                .map(this::userWithAvatarUrl)
-                .toList();
+        return users.map(this::userWithAvatarUrl);
+    }
 
-        // Create the final page with the users
-        return new PageImpl<>(usersWithRoles, userPage.getPageable(), userPage.getTotalElements());
+    /**
+     * Searches the database for users after the cursor position, without
+     * counting the matches; deep pages cost the same as the first one.
+     *
+     * @param query  {@link String} The string to search for
+     * @param cursor {@link UserCursor} The sort and position to continue from
+     * @param size   {@link Integer} The page size
+     * @return The slice of matching users
+     */
+    public Slice<User> scrollUsers(final String query, final UserCursor cursor, final int size) {
+        return userRepository.scroll(query, cursor, size)
+                .map(this::userWithAvatarUrl);
     }
 
     /**
-     * It maps the roles to the user
+     * Suggests users whose username, full name or email contains the query,
+     * served from the in-memory directory (or the search when it is disabled).
+     * The suggestions only carry the id, username, full name and avatar URL.
      *
-     * @param user {@link User} The user to associate
-     * @param roleReferences {@link Set} The ids of roles
-     * @param roles {@link List} The list with all the roles from the database
-     * @return The newly created user
+     * @param query {@link String} The typed text
+     * @param limit {@link Integer} Maximum number of suggestions
+     * @return The suggested users, best matches first
      */
-    private User userWithRoles(User user, Set<UserRole> roleReferences, List<Role> roles) {
-
-        // Get the role IDs for the current user
-        final Set<Long> userRoleIdentifiers = roleReferences.stream()
-                .filter(it -> Objects.equals(it.user(), user.getId()))
-                .map(UserRole::role)
-                .collect(Collectors.toSet());
-
-        // Create the list for the current user
-        final Set<Role> userRoles = roles.stream()
-                .filter(it -> userRoleIdentifiers.contains(it.id()))
-                .collect(Collectors.toSet());
-
-        // Return the new user with its roles
-        return user.toBuilder()
-                .roles(userRoles)
-                .build();
+    public List<User> autocomplete(final String query, final int limit) {
+
+        if (!userDirectory.isEnabled()) {
+            return searchUsers(query, PageRequest.of(0, userDirectory.maxResults(limit)), TotalMode.NONE).getContent();
+        }
+
+        return userDirectory.search(query, limit).stream()
+                .map(entry -> User.builder()
+                        .id(entry.id())
+                        .username(entry.username())
+                        .fullName(entry.fullName())
+                        .avatarUrl(fileStorageService.getPublicFileUrl(entry.avatarKey()))
+                        .build())
+                .toList();
     }
 
     /**
      * Updates the avatar for a user identified by their username. This method
-     * contains the complete, transactional business logic for the operation.
+     * contains the transactional part of the operation, the file is already
+     * uploaded so no connection is held during the upload.
      * It performs a lightweight query to find the user, avoiding the overhead
      * of loading associated roles.
      *
-     * @param username {@link String} The username of the user to update.
-     * @param file     {@link MultipartFile} The new avatar file.
+     * @param username  {@link String} The username of the user to update.
+     * @param avatarKey {@link String} The storage key of the uploaded avatar.
      *
-     * @return The public URL of the newly uploaded avatar.
+     * @return The public URL of the new avatar.
      *
      * @throws UsernameNotFoundException if a user with the given username does not exist.
      */
     @Transactional
-    public String updateAvatarKey(String username, MultipartFile file) {
+    public String updateAvatarKey(String username, String avatarKey) {
 
         // Find the user or throw an exception if not found
         final User user = userRepository.findByUsername(username)
@@ -322,22 +342,32 @@ public class UserService implements UserDetailsService {
         // Get the current avatar key to delete it later
         final String oldAvatarKey = user.getAvatarKey();
 
-        // Upload the new file to get the new key
-        String newAvatarKey = fileStorageService.uploadFile(file);
-
         // Update the database with the new key. This is the core transactional step.
         // Si esta operación falla, toda la transacción hará rollback.
-        userRepository.updateAvatarKey(user.getId(), newAvatarKey);
+        userRepository.updateAvatarKey(user.getId(), avatarKey);
+        publishUserChange(username);
 
         // If the database update was successful and there was an old avatar, delete it.
         // This operation is outside the core transaction in a sense, but happens only on commit.
         fileStorageService.deleteFile(oldAvatarKey);
 
         // Return the public URL for the controller to build the response
-        return fileStorageService.getPublicFileUrl(newAvatarKey);
+        return fileStorageService.getPublicFileUrl(avatarKey);
 
     }
 
+    /**
+     * Evicts the cached principal and refreshes the directory entry on
+     * this node and, once the transaction commits, on every other node
+     *
+     * @param username {@link String} The username of the created or changed user
+     */
+    private void publishUserChange(final String username) {
+        principalCache.invalidate(username);
+        userDirectory.refresh(username);
+        invalidationBus.publish(InvalidationTopic.PRINCIPAL, username, null);
+    }
+
     /**
      * Helper method to populate a User object with its public avatar URL.
      *
@@ -356,6 +386,17 @@ public class UserService implements UserDetailsService {
         return user;
     }
 
+    /**
+     * Returns the approximate total key of a search, the search
+     * is case-insensitive so differently cased queries share it.
+     *
+     * @param query {@link String} The search query (may be null)
+     * @return The listing key
+     */
+    private static String totalKey(final String query) {
+        return "user:" + (query == null ? "" : query.strip().toLowerCase(Locale.ROOT));
+    }
+
     /**
      * Updates the details of a user as a privileged operation by an administrator.
      * This includes changing the full name, enabled status, and role.
@@ -376,6 +417,8 @@ public class UserService implements UserDetailsService {
         userRepository.deleteUserRoles(user.getId());
         userRepository.insertUserRole(user.getId(), request.roleId());
 
+        publishUserChange(username);
+
         // TODO: Publish a UserUpdatedEvent for the audit log.
     }
 
@@ -398,6 +441,7 @@ public class UserService implements UserDetailsService {
         user.setFullName(request.fullName());
 
         userRepository.save(user);
+        publishUserChange(username);
 
         // TODO: Publish a UserUpdatedEvent for the audit log.
     }
@@ -424,6 +468,7 @@ public class UserService implements UserDetailsService {
         // Encode and set the new password.
         user.setPassword(passwordEncoder.encode(request.password()));
         userRepository.save(user);
+        publishUserChange(username);
 
         // TODO: Publish a UserPasswordChangedEvent for the audit log.
     }
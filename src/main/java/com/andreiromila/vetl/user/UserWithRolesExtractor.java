@@ -0,0 +1,131 @@
+package com.andreiromila.vetl.user;
+
+import com.andreiromila.vetl.role.RoleCatalog;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hydrates {@link User} aggregates, with their roles and authorities,
+ * from rows of the {@code user} table plus a {@code role_mask} column
+ * (see {@link #roleMask(String)}).
+ * <p>
+ * The roles and authorities are the shared instances of the
+ * {@link RoleCatalog}, nothing is allocated per role.
+ */
+final class UserWithRolesExtractor implements ResultSetExtractor<List<User>> {
+
+    /**
+     * The role mask column name
+     */
+    static final String ROLE_MASK_COLUMN = "role_mask";
+
+    /**
+     * Resolves the masks into roles and authorities
+     */
+    private final RoleCatalog roleCatalog;
+
+    /**
+     * Creates the extractor
+     *
+     * @param roleCatalog {@link RoleCatalog} The role catalog
+     */
+    UserWithRolesExtractor(final RoleCatalog roleCatalog) {
+        this.roleCatalog = roleCatalog;
+    }
+
+    /**
+     * Returns the user columns prefixed by the given table alias
+     *
+     * @param alias {@link String} The user table alias
+     * @return The comma separated column list
+     */
+    static String userColumns(final String alias) {
+        return String.join(", ",
+                alias + ".id", alias + ".username", alias + ".password", alias + ".email",
+                alias + ".full_name", alias + ".avatar_key", alias + ".enabled",
+                alias + ".email_activation_code", alias + ".email_validated_at",
+                alias + ".created_at", alias + ".modified_at");
+    }
+
+    /**
+     * Returns the role mask select expression of the user with the given alias,
+     * a correlated aggregate so the query keeps one row per user
+     *
+     * @param alias {@link String} The user table alias
+     * @return The role mask expression, aliased as {@code role_mask}
+     */
+    static String roleMask(final String alias) {
+        return "(SELECT COALESCE(BIT_OR(1 << ur.role), 0) FROM user_role ur WHERE ur.user = %s.id) AS %s"
+                .formatted(alias, ROLE_MASK_COLUMN);
+    }
+
+    /**
+     * Maps the whole result set
+     *
+     * @param rs {@link ResultSet} The user rows
+     * @return The users with roles and authorities, in read order
+     * @throws SQLException On column access errors
+     */
+    @Override
+    public List<User> extractData(final ResultSet rs) throws SQLException {
+
+        final List<User> users = new ArrayList<>();
+
+        while (rs.next()) {
+            users.add(mapRow(rs));
+        }
+
+        return users;
+    }
+
+    /**
+     * Maps the current row, for callers reading the result set themselves
+     *
+     * @param rs {@link ResultSet} The result set, positioned on a user row
+     * @return The user with roles and authorities
+     * @throws SQLException On column access errors
+     */
+    User mapRow(final ResultSet rs) throws SQLException {
+        return withRoles(mapUser(rs), rs.getLong(ROLE_MASK_COLUMN));
+    }
+
+    /**
+     * Sets the role mask, the roles and the ROLE_ prefixed authorities
+     *
+     * @param user {@link User} The user
+     * @param mask {@link Long} The user role mask
+     * @return The same user instance
+     */
+    private User withRoles(final User user, final long mask) {
+        user.setRoleMask(mask);
+        user.setRoles(roleCatalog.roles(mask));
+        user.setAuthorities(roleCatalog.authorities(mask));
+        return user;
+    }
+
+    private static User mapUser(final ResultSet rs) throws SQLException {
+        return User.builder()
+                .id(rs.getLong("id"))
+                .username(rs.getString("username"))
+                .password(rs.getString("password"))
+                .email(rs.getString("email"))
+                .fullName(rs.getString("full_name"))
+                .avatarKey(rs.getString("avatar_key"))
+                .enabled(rs.getBoolean("enabled"))
+                .emailActivationCode(rs.getString("email_activation_code"))
+                .emailValidatedAt(instant(rs.getTimestamp("email_validated_at")))
+                .createdAt(instant(rs.getTimestamp("created_at")))
+                .modifiedAt(instant(rs.getTimestamp("modified_at")))
+                .build();
+    }
+
+    private static Instant instant(final Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+}
@@ -1,21 +1,49 @@
 package com.andreiromila.vetl.user.event;
 
 import com.andreiromila.vetl.user.User;
-import lombok.Getter;
-import org.springframework.context.ApplicationEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 /**
- * Event published when a new user is created.
- * Contains the user object that was created.
+ * Event written to the outbox when a new user is created or imported.
+ * <p>
+ * Handled in the background, so it carries what the handlers need from
+ * the request: the created user and the authenticated actor.
+ *
+ * @param userId        {@link Long} The created user id
+ * @param username      {@link String} The created username
+ * @param email         {@link String} The created user email
+ * @param fullName      {@link String} The created user full name
+ * @param actorId       {@link Long} The user who created it, null for the system
+ * @param actorUsername {@link String} The username of the actor, null for the system
  */
-@Getter
-public class UserCreatedEvent extends ApplicationEvent {
+public record UserCreatedEvent(
+        Long userId,
+        String username,
+        String email,
+        String fullName,
+        Long actorId,
+        String actorUsername
+) {
 
-    private final User user;
+    /**
+     * Creates the event of a user created by the authenticated user
+     *
+     * @param user {@link User} The created user
+     * @return The event
+     */
+    public static UserCreatedEvent of(final User user) {
 
-    public UserCreatedEvent(Object source, User user) {
-        super(source);
-        this.user = user;
+        final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        final User actor = authentication != null && authentication.getPrincipal() instanceof User principal ? principal : null;
+
+        return new UserCreatedEvent(
+                user.getId(),
+                user.getUsername(),
+                user.getEmail(),
+                user.getFullName(),
+                actor == null ? null : actor.getId(),
+                actor == null ? null : actor.getUsername()
+        );
     }
 }
-
@@ -1,44 +1,92 @@
 package com.andreiromila.vetl.user.event;
 
 import com.andreiromila.vetl.mail.EmailService;
+import com.andreiromila.vetl.outbox.OutboxEvent;
+import com.andreiromila.vetl.outbox.OutboxEventType;
+import com.andreiromila.vetl.outbox.OutboxHandler;
 import com.andreiromila.vetl.user.User;
+import com.andreiromila.vetl.user.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 /**
- * Listens for user-related application events and triggers actions.
+ * Sends the activation email of the created and imported users, relayed
+ * by the outbox once the creation is committed.
+ * <p>
+ * One event per call: a failure only resends the failed email. A user
+ * already activated when the event is (re)delivered gets no email.
  */
 @Component
 @Slf4j
-public class UserEventListener {
+public class UserEventListener implements OutboxHandler {
 
     private final EmailService emailService;
 
-    public UserEventListener(EmailService emailService) {
+    private final UserRepository userRepository;
+
+    private final ObjectMapper objectMapper;
+
+    public UserEventListener(EmailService emailService, UserRepository userRepository, ObjectMapper objectMapper) {
         this.emailService = emailService;
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String name() {
+        return "ACTIVATION_EMAIL";
+    }
+
+    @Override
+    public OutboxEventType type() {
+        return OutboxEventType.USER_CREATED;
+    }
+
+    @Override
+    public int batchSize() {
+        return 1;
     }
 
     /**
      * Handles the UserCreatedEvent by sending an activation email.
      *
-     * @param event The event containing the newly created user.
+     * @param events The events of the newly created users.
      */
-    @EventListener
-    public void handleUserCreatedEvent(UserCreatedEvent event) {
+    @Override
+    public void handle(List<OutboxEvent> events) {
+
+        for (OutboxEvent event : events) {
 
-        log.info("Handling UserCreatedEvent for username: {}", event.getUser().getUsername());
+            final UserCreatedEvent created = event.payload(objectMapper, UserCreatedEvent.class);
+            log.info("Handling UserCreatedEvent for username: {}", created.username());
 
-        final User user = event.getUser();
-        // Construye el enlace de invitación
+            // Deleted or already activated, nothing to send
+            final User user = userRepository.findById(created.userId()).orElse(null);
+            if (user == null || user.isEnabled() || user.getEmailActivationCode() == null) {
+                continue;
+            }
+
+            if (!emailService.sendActivationEmail(user, activationLink(user))) {
+                throw new IllegalStateException("The activation email to %s could not be sent.".formatted(user.getEmail()));
+            }
+        }
+    }
 
+    /**
+     * Builds the invitation link of a user
+     *
+     * @param user The user with its activation code.
+     * @return The link to the set password page.
+     */
+    private static String activationLink(User user) {
         // TODO: Externalizar la URL base del frontend a application.yml
-        final String activationLink = "http://localhost:5173/set-password?username="
+        return "http://localhost:5173/set-password?username="
                 + user.getUsername()
                 + "&token="
                 + user.getEmailActivationCode();
-
-        emailService.sendActivationEmail(user, activationLink);
     }
 
 }
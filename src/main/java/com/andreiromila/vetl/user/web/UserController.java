@@ -1,12 +1,24 @@
 package com.andreiromila.vetl.user.web;
 
+import com.andreiromila.vetl.datasource.BulkheadGroup;
+import com.andreiromila.vetl.datasource.DatabaseBulkheads;
+import com.andreiromila.vetl.datasource.WithoutDatabaseBulkhead;
 import com.andreiromila.vetl.exceptions.HttpBadRequestException;
+import com.andreiromila.vetl.responses.CursorPage;
 import com.andreiromila.vetl.responses.CustomPage;
+import com.andreiromila.vetl.responses.TotalMode;
+import com.andreiromila.vetl.storage.FileStorageService;
 import com.andreiromila.vetl.user.User;
+import com.andreiromila.vetl.user.UserCursor;
+import com.andreiromila.vetl.user.UserExportService;
+import com.andreiromila.vetl.user.UserImportService;
 import com.andreiromila.vetl.user.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -20,6 +32,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URI;
 import java.util.List;
@@ -46,12 +59,105 @@ public class UserController {
     private final UserService userService;
 
     /**
-     * Constructs the controller with a dependency-injected UserService.
+     * Streams the user export.
+     */
+    private final UserExportService userExportService;
+
+    /**
+     * Creates users in bulk.
+     */
+    private final UserImportService userImportService;
+
+    /**
+     * Serializes the NDJSON export lines.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Uploads the avatars.
+     */
+    private final FileStorageService fileStorageService;
+
+    /**
+     * Limits the avatar update, the upload runs without a database slot.
+     */
+    private final DatabaseBulkheads bulkheads;
+
+    /**
+     * Constructs the controller with its dependency-injected services.
      *
-     * @param userService {@link UserService} Service layer for user operations.
+     * @param userService        {@link UserService} Service layer for user operations.
+     * @param userExportService  {@link UserExportService} Streams the user export.
+     * @param userImportService  {@link UserImportService} Creates users in bulk.
+     * @param objectMapper       {@link ObjectMapper} Serializes the NDJSON export lines.
+     * @param fileStorageService {@link FileStorageService} Uploads the avatars.
+     * @param bulkheads          {@link DatabaseBulkheads} Limits the avatar update.
      */
-    public UserController(final UserService userService) {
+    public UserController(final UserService userService,
+                          final UserExportService userExportService,
+                          final UserImportService userImportService,
+                          final ObjectMapper objectMapper,
+                          final FileStorageService fileStorageService,
+                          final DatabaseBulkheads bulkheads) {
         this.userService = userService;
+        this.userExportService = userExportService;
+        this.userImportService = userImportService;
+        this.objectMapper = objectMapper;
+        this.fileStorageService = fileStorageService;
+        this.bulkheads = bulkheads;
+    }
+
+    /**
+     * Suggests users for the type-ahead: the username, full name or email
+     * contains the query (one or two characters match word prefixes).
+     * Served from memory, this endpoint does not hit the database.
+     *
+     * @param query {@link String} The typed text
+     * @param limit {@link Integer} Maximum number of suggestions, capped by the configuration
+     * @return ResponseEntity containing the list of {@link UserSuggestion}, best matches first.
+     */
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<UserSuggestion>> autocomplete(@RequestParam(value = "query", required = false) String query,
+                                                             @RequestParam(value = "limit", defaultValue = "10") int limit) {
+
+        final List<UserSuggestion> suggestions = userService.autocomplete(query, limit).stream()
+                .map(UserSuggestion::from)
+                .toList();
+
+        return ResponseEntity.ok(suggestions);
+    }
+
+    /**
+     * Exports the users matching the query (all of them by default) as a
+     * download, ordered by id. The rows are written while they are read
+     * from the database, the response is not paginated and its size is
+     * not limited by the memory of the server.
+     *
+     * @param query  {@link String} An optional search term, like the user search
+     * @param format {@link String} The format: ndjson (default) or csv
+     * @return ResponseEntity with the streamed body
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(value = "query", required = false) String query,
+                                                        @RequestParam(value = "format", required = false) String format) {
+
+        final UserExportFormat exportFormat = UserExportFormat.parse(format);
+
+        // Runs after the handler returns, on the async request thread
+        final StreamingResponseBody body = output -> {
+            try (UserExportWriter writer = new UserExportWriter(exportFormat, output, objectMapper)) {
+                userExportService.export(query, writer::write);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("users." + exportFormat.extension())
+                        .build()
+                        .toString())
+                .body(body);
     }
 
     /**
@@ -93,6 +199,34 @@ public class UserController {
 
     }
 
+    /**
+     * Creates many users at once from a JSON array. The batch is validated
+     * as a whole (errors are reported per row, e.g. {@code rows[3].email})
+     * and nothing is created if any row is invalid. The invitations are
+     * sent in the background once the users are stored.
+     *
+     * @param rows {@link List} The users to create
+     * @return Response entity with the created users
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserImportResponse> importJson(@RequestBody List<UserImportRow> rows) {
+        return ResponseEntity.ok(UserImportResponse.from(userImportService.importUsers(rows)));
+    }
+
+    /**
+     * Creates many users at once from a CSV with a header line,
+     * see {@link #importJson(List)} and {@link UserImportCsv}.
+     *
+     * @param csv {@link String} The CSV content
+     * @return Response entity with the created users
+     */
+    @PostMapping(value = "/import", consumes = "text/csv")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserImportResponse> importCsv(@RequestBody String csv) {
+        return ResponseEntity.ok(UserImportResponse.from(userImportService.importUsers(UserImportCsv.parse(csv))));
+    }
+
     /**
      * Updates a user's details.
      * <p>
@@ -158,20 +292,39 @@ public class UserController {
      * <p>
      * This method also sanitizes the sorting parameters provided by the client
      * to prevent unauthorized column sorting.
+     * <p>
+     * When the {@code cursor} parameter is present (empty for the first page)
+     * the keyset mode is used instead: the response is a {@link CursorPage}
+     * with the cursor of the next page, there is no total and deep pages are
+     * as fast as the first one. Only the first allowed sort property is used,
+     * and the following pages keep the sort encoded in the cursor.
+     * <p>
+     * Otherwise {@code total=none} skips the count ({@code totalElements}
+     * is -1, {@code hasNext} still tells if there are more) and
+     * {@code total=approximate} reuses a recent count of the same search.
      *
      * @param query    {@link String} An optional search term to filter users. The search is case-insensitive.
+     * @param cursor   {@link String} An optional cursor, switches to the keyset mode
+     * @param total    {@link String} How the total is computed: exact (default), approximate or none
      * @param pageable {@link Pageable} A Spring Data Pageable object containing pagination and
      *                 sorting information provided via URL parameters (e.g., ?page=1&size=10&sort=username,asc).
-     * @return A {@link ResponseEntity} containing a {@link CustomPage} of {@link UserBasicResponse} objects.
+     * @return A {@link ResponseEntity} containing a {@link CustomPage} (or {@link CursorPage}) of {@link UserBasicResponse} objects.
      */
     @GetMapping
-    public ResponseEntity<?> search(@RequestParam(value = "query", required = false) String query, Pageable pageable) {
+    public ResponseEntity<?> search(@RequestParam(value = "query", required = false) String query,
+                                    @RequestParam(value = "cursor", required = false) String cursor,
+                                    @RequestParam(value = "total", required = false) String total,
+                                    Pageable pageable) {
+
+        if (cursor != null) {
+            return ResponseEntity.ok(scroll(query, cursor, pageable));
+        }
 
         // Get the pageable with safe sorting
         final Pageable safeSort = getPageableWithSafeSort(pageable, sortingColumns);
 
         // Get the list of users from the database
-        final Page<User> userPage = userService.searchUsers(query, safeSort);
+        final Slice<User> userPage = userService.searchUsers(query, safeSort, TotalMode.parse(total));
 
         // Transform the user page to the expected output
         final List<UserBasicResponse> userList = userPage.getContent()
@@ -180,13 +333,42 @@ public class UserController {
                 .toList();
 
         // Create the response body
-        final CustomPage<UserBasicResponse> response = new CustomPage<>(userList, userPage.getPageable(), userPage.getTotalElements());
+        final CustomPage<UserBasicResponse> response = CustomPage.from(userList, userPage);
 
         // Return the 200 ok response
         return ResponseEntity.ok(response);
 
     }
 
+    /**
+     * Keyset mode of the user search
+     *
+     * @param query    {@link String} An optional search term to filter users
+     * @param cursor   {@link String} The cursor from the previous page, blank for the first page
+     * @param pageable {@link Pageable} Page size and, for the first page, the sort
+     * @return The cursor page
+     */
+    private CursorPage<UserBasicResponse> scroll(final String query, final String cursor, final Pageable pageable) {
+
+        // The first page takes the sort from the request, the next ones from the cursor
+        final UserCursor position = cursor.isBlank()
+                ? UserCursor.first(pageable.getSort())
+                : UserCursor.decode(cursor);
+
+        final Slice<User> slice = userService.scrollUsers(query, position, pageable.getPageSize());
+
+        final List<UserBasicResponse> userList = slice.getContent()
+                .stream()
+                .map(UserBasicResponse::from)
+                .toList();
+
+        final String nextCursor = slice.hasNext()
+                ? position.after(slice.getContent().getLast()).encode()
+                : null;
+
+        return new CursorPage<>(userList, pageable.getPageSize(), nextCursor);
+    }
+
     /**
      * Handles the avatar upload for a specific user, identified by username.
      * Access is restricted to the user themselves or an administrator.
@@ -197,6 +379,7 @@ public class UserController {
      */
     @PostMapping(path = "/{username}/avatar", consumes = {MediaType.MULTIPART_FORM_DATA_VALUE})
     @PreAuthorize("#username == principal.username or hasRole('ADMIN')")
+    @WithoutDatabaseBulkhead
     public ResponseEntity<Void> uploadAvatarForUser(@PathVariable String username,
                                                     @RequestParam("file") MultipartFile file) {
 
@@ -205,8 +388,18 @@ public class UserController {
             throw new HttpBadRequestException("File is empty or exceeds the 5MB limit.");
         }
 
+        // Upload first, only the database update takes a write slot
+        final String avatarKey = fileStorageService.uploadFile(file);
+
         // Update the user's record in the database with the new key
-        final String publicAvatarUrl = userService.updateAvatarKey(username, file);
+        final String publicAvatarUrl;
+        try {
+            publicAvatarUrl = bulkheads.call(BulkheadGroup.WRITE, () -> userService.updateAvatarKey(username, avatarKey));
+        } catch (RuntimeException e) {
+            // No user references the uploaded file
+            fileStorageService.deleteFile(avatarKey);
+            throw e;
+        }
 
         // Returns the 201 created
         return ResponseEntity.created(
@@ -0,0 +1,65 @@
+package com.andreiromila.vetl.user.web;
+
+import com.andreiromila.vetl.exceptions.HttpBadRequestException;
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+/**
+ * The formats of the user export, requested with the {@code format} parameter.
+ */
+public enum UserExportFormat {
+
+    /**
+     * One JSON object per line, the same fields as {@link UserBasicResponse}
+     */
+    NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+
+    /**
+     * Comma separated values with a header row, role names separated by {@code |}
+     */
+    CSV(MediaType.parseMediaType("text/csv;charset=UTF-8"), "csv");
+
+    /**
+     * The response content type
+     */
+    private final MediaType mediaType;
+
+    /**
+     * The download file extension
+     */
+    private final String extension;
+
+    UserExportFormat(final MediaType mediaType, final String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    /**
+     * Parses the request parameter, case-insensitively
+     *
+     * @param value {@link String} The parameter value, null for NDJSON
+     * @return The export format
+     * @throws HttpBadRequestException If the value is not a known format
+     */
+    public static UserExportFormat parse(final String value) {
+
+        if (value == null || value.isBlank()) {
+            return NDJSON;
+        }
+
+        try {
+            return valueOf(value.strip().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new HttpBadRequestException("Invalid export format, expected one of: ndjson, csv.");
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.andreiromila.vetl.user.web;
+
+import com.andreiromila.vetl.role.Role;
+import com.andreiromila.vetl.user.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Writes exported users to a response stream, one line per user.
+ * <p>
+ * Only a small buffer is kept: each user is written as soon as it is
+ * read, so the memory used does not depend on the number of users.
+ * Write errors (e.g. the client went away) are rethrown unchecked to
+ * abort the database read.
+ */
+final class UserExportWriter implements AutoCloseable {
+
+    /**
+     * The CSV header row
+     */
+    static final List<String> CSV_COLUMNS = List.of("id", "username", "email", "full_name", "enabled", "roles", "created_at", "modified_at");
+
+    /**
+     * Cells starting with these characters are run as formulas by spreadsheets
+     */
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    /**
+     * The output format
+     */
+    private final UserExportFormat format;
+
+    /**
+     * Serializes the NDJSON lines
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Buffered UTF-8 writer over the response body
+     */
+    private final Writer writer;
+
+    /**
+     * Creates the writer, the CSV header is written right away
+     *
+     * @param format       {@link UserExportFormat} The output format
+     * @param output       {@link OutputStream} The response body
+     * @param objectMapper {@link ObjectMapper} Serializes the NDJSON lines
+     */
+    UserExportWriter(final UserExportFormat format, final OutputStream output, final ObjectMapper objectMapper) {
+        this.format = format;
+        this.objectMapper = objectMapper;
+        this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+
+        if (format == UserExportFormat.CSV) {
+            line(String.join(",", CSV_COLUMNS));
+        }
+    }
+
+    /**
+     * Writes one user
+     *
+     * @param user {@link User} The user with roles
+     */
+    void write(final User user) {
+        switch (format) {
+            case NDJSON -> line(json(user));
+            case CSV -> line(csv(user));
+        }
+    }
+
+    /**
+     * Flushes the remaining buffered lines, the response stream is closed by the container
+     */
+    @Override
+    public void close() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Serializes a user as one NDJSON line, the same shape as the user listing
+     *
+     * @param user {@link User} The user with roles
+     * @return The JSON object, without line break
+     */
+    private String json(final User user) {
+        try {
+            return objectMapper.writeValueAsString(UserBasicResponse.from(user));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Formats a user as one CSV row, in the order of {@link #CSV_COLUMNS}
+     *
+     * @param user {@link User} The user with roles
+     * @return The row, without line break
+     */
+    private static String csv(final User user) {
+
+        final String roles = user.getRoles().stream()
+                .map(Role::name)
+                .sorted()
+                .collect(Collectors.joining("|"));
+
+        return String.join(",",
+                String.valueOf(user.getId()),
+                cell(user.getUsername()),
+                cell(user.getEmail()),
+                cell(user.getFullName()),
+                String.valueOf(user.isEnabled()),
+                cell(roles),
+                instant(user.getCreatedAt()),
+                instant(user.getModifiedAt()));
+    }
+
+    /**
+     * Escapes a CSV cell (RFC 4180) and neutralizes spreadsheet formulas
+     *
+     * @param value {@link String} The raw value (may be null)
+     * @return The cell text
+     */
+    static String cell(final String value) {
+
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+
+        final String text = FORMULA_PREFIXES.indexOf(value.charAt(0)) >= 0 ? "'" + value : value;
+
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Formats an optional timestamp as ISO-8601
+     *
+     * @param instant {@link Instant} The timestamp (may be null)
+     * @return The text, empty for null
+     */
+    private static String instant(final Instant instant) {
+        return Objects.toString(instant, "");
+    }
+
+    /**
+     * Writes one line to the buffer
+     *
+     * @param line {@link String} The line, without line break
+     * @throws UncheckedIOException If the response can not be written
+     */
+    private void line(final String line) {
+        try {
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.andreiromila.vetl.user.web;
+
+import com.andreiromila.vetl.exceptions.HttpBadRequestException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads the CSV body of a bulk user import (RFC 4180, UTF-8).
+ * <p>
+ * The first line is the header with the {@code fullName} (or {@code full_name}),
+ * {@code username}, {@code email} and optional {@code roles} columns, in any
+ * order; roles are role ids separated by {@code |}. The field rules are
+ * validated later, like the JSON import.
+ */
+final class UserImportCsv {
+
+    private UserImportCsv() {
+    }
+
+    /**
+     * Parses the rows of the CSV
+     *
+     * @param csv {@link String} The request body
+     * @return The rows, in the file order
+     * @throws HttpBadRequestException If the CSV is malformed
+     */
+    static List<UserImportRow> parse(final String csv) {
+
+        final List<List<String>> records = records(csv == null ? "" : csv);
+        if (records.isEmpty()) {
+            throw new HttpBadRequestException("The CSV is empty, the first line must be the header.");
+        }
+
+        final Map<String, Integer> columns = header(records.getFirst());
+        final List<UserImportRow> rows = new ArrayList<>(records.size() - 1);
+
+        for (int i = 1; i < records.size(); i++) {
+            final List<String> record = records.get(i);
+            rows.add(new UserImportRow(
+                    value(record, columns.get("fullname")),
+                    value(record, columns.get("username")),
+                    value(record, columns.get("email")),
+                    roles(value(record, columns.get("roles")), i + 1)
+            ));
+        }
+
+        return rows;
+    }
+
+    private static Map<String, Integer> header(final List<String> names) {
+
+        final Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).strip().replace("_", "").toLowerCase(Locale.ROOT), i);
+        }
+
+        for (String required : List.of("fullname", "username", "email")) {
+            if (!columns.containsKey(required)) {
+                throw new HttpBadRequestException("The CSV header must contain the fullName, username and email columns.");
+            }
+        }
+
+        return columns;
+    }
+
+    private static String value(final List<String> record, final Integer column) {
+        if (column == null || column >= record.size()) {
+            return null;
+        }
+        final String value = record.get(column).strip();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Set<Long> roles(final String value, final int line) {
+
+        if (value == null) {
+            return Set.of();
+        }
+
+        try {
+            final Set<Long> roles = new LinkedHashSet<>();
+            Arrays.stream(value.split("\\|"))
+                    .map(String::strip)
+                    .filter(role -> !role.isEmpty())
+                    .forEach(role -> roles.add(Long.parseLong(role)));
+            return roles;
+        } catch (NumberFormatException e) {
+            throw new HttpBadRequestException("Invalid roles at line %d, expected role ids separated by |.".formatted(line));
+        }
+    }
+
+    /**
+     * Splits the text into records of fields, blank lines are skipped
+     */
+    private static List<List<String>> records(final String csv) {
+
+        final List<List<String>> records = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int line = 1;
+
+        // A byte order mark is not part of the header
+        final int start = csv.startsWith("\uFEFF") ? 1 : 0;
+
+        for (int i = start; i < csv.length(); i++) {
+            final char c = csv.charAt(i);
+
+            if (quoted) {
+                if (c == '"' && i + 1 < csv.length() && csv.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append(c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 < csv.length() && csv.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                record.add(field.toString());
+                field.setLength(0);
+                addRecord(records, record);
+                record = new ArrayList<>();
+                line++;
+            } else {
+                field.append(c);
+            }
+        }
+
+        if (quoted) {
+            throw new HttpBadRequestException("Unterminated quoted field at line %d.".formatted(line));
+        }
+
+        record.add(field.toString());
+        addRecord(records, record);
+
+        return records;
+    }
+
+    private static void addRecord(final List<List<String>> records, final List<String> record) {
+        final boolean blank = record.stream().allMatch(String::isBlank);
+        if (!blank) {
+            records.add(record);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.andreiromila.vetl.user.web;
+
+import com.andreiromila.vetl.user.User;
+
+import java.util.List;
+
+/**
+ * Result of a bulk user import
+ *
+ * @param imported {@link Integer} Number of created users
+ * @param users    {@link List} The created users, in the order of the import
+ */
+public record UserImportResponse(
+        int imported,
+        List<UserCreateResponse> users
+) {
+
+    /**
+     * Maps the created users
+     *
+     * @param users {@link List} The users stored in the database
+     * @return The import response
+     */
+    public static UserImportResponse from(final List<User> users) {
+        return new UserImportResponse(users.size(), users.stream().map(UserCreateResponse::from).toList());
+    }
+}
@@ -0,0 +1,40 @@
+package com.andreiromila.vetl.user.web;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.util.Set;
+
+/**
+ * One user of a bulk import, with the same rules as {@link UserCreateRequest}.
+ * <p>
+ * The username and email uniqueness is not checked per row: the import
+ * checks the whole batch with a few set-based queries.
+ *
+ * @param fullName {@link String} User's full name. Allows letters, numbers, accents, apostrophes, and spaces.
+ * @param username {@link String} Unique identifier for login. Alphanumeric with underscores/dots, starting with a letter.
+ * @param email    {@link String} Valid email address, unique.
+ * @param roles    {@link Set} The role ids, may be empty.
+ */
+public record UserImportRow(
+
+        @NotNull
+        @Size(min = 4, max = 100)
+        @Pattern(regexp = "^[a-zA-Z0-9'\\sÀ-ÿ.]+$")
+        String fullName,
+
+        @NotNull
+        @Size(min = 4, max = 100)
+        @Pattern(regexp = "^[a-zA-Z][a-zA-Z0-9_.]+$")
+        String username,
+
+        @NotNull
+        @Size(max = 200)
+        @Email
+        String email,
+
+        Set<Long> roles
+
+) { }
@@ -0,0 +1,34 @@
+package com.andreiromila.vetl.user.web;
+
+import com.andreiromila.vetl.user.User;
+
+/**
+ * Lightweight user representation for the type-ahead.
+ *
+ * @param id        {@link Long} Unique user identifier.
+ * @param username  {@link String} User's login handle.
+ * @param fullName  {@link String} User's full name.
+ * @param avatarUrl {@link String} The public URL to the user's avatar image, may be null.
+ */
+public record UserSuggestion(
+        Long id,
+        String username,
+        String fullName,
+        String avatarUrl
+) {
+
+    /**
+     * Factory method to convert a {@link User} entity to a {@link UserSuggestion}.
+     *
+     * @param user {@link User} Entity to transform.
+     * @return The suggestion
+     */
+    public static UserSuggestion from(final User user) {
+        return new UserSuggestion(
+                user.getId(),
+                user.getUsername(),
+                user.getFullName(),
+                user.getAvatarUrl()
+        );
+    }
+}
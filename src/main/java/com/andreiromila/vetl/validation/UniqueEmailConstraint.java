@@ -15,7 +15,7 @@ public class UniqueEmailConstraint implements ConstraintValidator<UniqueEmail, S
     @Override
     public boolean isValid(String email, ConstraintValidatorContext context) {
         // Indicates if the current user is already registered in the database
-        return userRepository.findByEmail(email).isEmpty();
+        return email == null || !userRepository.existsByEmail(email);
     }
 
 }
\ No newline at end of file
@@ -14,6 +14,7 @@ public class UniqueUsernameConstraint implements ConstraintValidator<UniqueUsern
 
     @Override
     public boolean isValid(final String value, final ConstraintValidatorContext context) {
-        return userRepository.findByUsername(value).isEmpty();
+        // Null values are reported by @NotNull
+        return value == null || !userRepository.existsByUsername(value);
     }
 }
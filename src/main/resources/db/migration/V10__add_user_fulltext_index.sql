@@ -0,0 +1,19 @@
+-- V10__add_user_fulltext_index.sql
+-- Full-text index for the user search. The ngram parser indexes every
+-- substring of ngram_token_size (2 by default) characters, so a quoted
+-- boolean-mode phrase behaves like a substring match that can use the
+-- index, unlike LIKE '%query%' which scans the whole table.
+-- The ngram parser also skips every token that contains a stopword, and
+-- the default InnoDB list has single letters ("a", "i"): most bigrams of a
+-- name like "Maria" would never be indexed. The stopword setting is
+-- captured when the index is built, so it is disabled for this session.
+-- Migrations that rebuild the user table later must disable it too (the
+-- local database also starts with --innodb-ft-enable-stopword=0, see
+-- docker-compose.yml).
+
+SET SESSION innodb_ft_enable_stopword = 0;
+
+ALTER TABLE `user`
+    ADD FULLTEXT INDEX `ft_user_search` (`full_name`, `username`, `email`) WITH PARSER ngram;
+
+SET SESSION innodb_ft_enable_stopword = DEFAULT;
@@ -0,0 +1,26 @@
+-- V11__create_outbox_event_table.sql
+-- Transactional outbox: domain events are written in the same transaction as
+-- the change and relayed to their handlers in the background, at least once.
+-- One row per event and handler, so a failing handler only retries itself.
+
+CREATE TABLE `outbox_event` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+
+    `event_type` VARCHAR(50) NOT NULL COMMENT 'e.g., USER_CREATED',
+    `handler` VARCHAR(50) NOT NULL COMMENT 'e.g., ACTIVATION_EMAIL, AUDIT',
+    `payload` JSON NOT NULL,
+
+    -- Failed deliveries are retried with a growing delay, up to a maximum of attempts
+    `attempts` INT NOT NULL DEFAULT 0,
+    `available_at` TIMESTAMP(3) NOT NULL,
+    `last_error` VARCHAR(1000) NULL,
+
+    -- Lease taken by the relay of a node, expired leases are claimed again
+    `locked_by` VARCHAR(36) NULL,
+    `locked_until` TIMESTAMP(3) NULL,
+
+    `processed_at` TIMESTAMP(3) NULL,
+    `created_at` TIMESTAMP(3) NOT NULL,
+
+    INDEX `idx_outbox_event_pending` (`processed_at`, `available_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
@@ -0,0 +1,23 @@
+-- V12__add_audit_log_feed_indexes.sql
+-- Indexes of the keyset activity feed. Every filter leads an index that
+-- ends with created_at; InnoDB secondary indexes carry the primary key, so
+-- each one also serves the (created_at, id) seek and order within the
+-- filter values as a range scan, without sorting:
+--
+--   no filter, time range     -> idx_audit_log_created_at   (created_at, id)
+--   actor, or sort by actor   -> idx_audit_log_actor        (actor_username, created_at, id)
+--   action, or sort by action -> idx_audit_log_action       (action_type, created_at, id)
+--   target type               -> idx_audit_log_target_type  (target_type, created_at, id)
+--   target type and id        -> idx_audit_log_target       (target_type, target_id, created_at, id)
+--
+-- The target index gains created_at, it replaces the (target_type, target_id) one.
+
+ALTER TABLE `audit_log`
+    ADD INDEX `idx_audit_log_actor` (`actor_username`, `created_at`),
+    ADD INDEX `idx_audit_log_action` (`action_type`, `created_at`),
+    ADD INDEX `idx_audit_log_target_type` (`target_type`, `created_at`),
+    ADD INDEX `idx_audit_log_target_created_at` (`target_type`, `target_id`, `created_at`),
+    DROP INDEX `idx_audit_log_target`;
+
+ALTER TABLE `audit_log`
+    RENAME INDEX `idx_audit_log_target_created_at` TO `idx_audit_log_target`;
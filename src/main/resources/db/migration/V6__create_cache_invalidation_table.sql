@@ -0,0 +1,21 @@
+-- V6__create_cache_invalidation_table.sql
+-- Change log tailed by every API node to evict local caches (tokens, principals)
+-- after a change made on another node. Rows are short-lived and purged periodically.
+
+CREATE TABLE `cache_invalidation` (
+    -- Monotonic cursor, each node remembers the last id it has applied
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+
+    `topic` VARCHAR(50) NOT NULL COMMENT 'e.g., TOKEN, PRINCIPAL',
+    `entity_key` VARCHAR(255) NOT NULL COMMENT 'Token uuid or username.',
+
+    -- Only for token revocations, lets the receivers drop the entry once expired
+    `expires_at` TIMESTAMP NULL,
+
+    -- The node that published the change, it skips its own rows
+    `origin` VARCHAR(36) NOT NULL,
+
+    `created_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    INDEX `idx_cache_invalidation_created_at` (`created_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
@@ -0,0 +1,8 @@
+-- V7__add_token_revoked_at.sql
+-- Records when a token was revoked so the purge job knows when its
+-- access tokens can no longer be in use, and indexes the purge predicates.
+
+ALTER TABLE `token`
+    ADD COLUMN `revoked_at` TIMESTAMP NULL AFTER `enable`,
+    ADD INDEX `idx_token_expires_at` (`expires_at`),
+    ADD INDEX `idx_token_revoked_at` (`enable`, `revoked_at`);
@@ -0,0 +1,7 @@
+-- V8__add_token_activity_columns.sql
+-- Per-session activity, written in batches by the application (write-behind),
+-- never on the request path.
+
+ALTER TABLE `token`
+    ADD COLUMN `last_used_at` TIMESTAMP NULL,
+    ADD COLUMN `request_count` BIGINT NOT NULL DEFAULT 0;
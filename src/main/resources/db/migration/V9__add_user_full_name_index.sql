@@ -0,0 +1,7 @@
+-- V9__add_user_full_name_index.sql
+-- Keyset pagination seeks on (sort column, id). Username and email are
+-- already covered by their unique indexes; InnoDB secondary indexes carry
+-- the primary key, so this index serves the (full_name, id) order too.
+
+ALTER TABLE `user`
+    ADD INDEX `idx_user_full_name` (`full_name`);
@@ -1,7 +1,12 @@
 package com.andreiromila.vetl;
 
+import com.andreiromila.vetl.role.RoleCatalog;
+import com.andreiromila.vetl.user.UserSearchProperties;
 import org.junit.jupiter.api.BeforeAll;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.MySQLContainer;
@@ -10,6 +15,9 @@ import org.testcontainers.utility.DockerImageName;
 
 @DataJdbcTest
 @Testcontainers
+@ActiveProfiles("test")
+@Import(RoleCatalog.class) // Needed by the user repository
+@EnableConfigurationProperties(UserSearchProperties.class)
 public abstract class AbstractDatabaseTest {
 
     static final MySQLContainer<?> mySqlContainer =
@@ -6,7 +6,9 @@ import com.andreiromila.vetl.audit.AuditLog;
 import com.andreiromila.vetl.audit.AuditLogRepository;
 import com.andreiromila.vetl.audit.AuditTargetType;
 import com.andreiromila.vetl.audit.web.ActivityLogView;
+import com.andreiromila.vetl.responses.CursorPage;
 import com.andreiromila.vetl.responses.CustomPage;
+import com.andreiromila.vetl.responses.ErrorResponse;
 import com.andreiromila.vetl.user.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -141,4 +143,50 @@ public class ActivityIntegrationTest extends AbstractIntegrationTest {
         List<ActivityLogView> content = page.content();
         assertThat(content).isSortedAccordingTo(Comparator.comparing(ActivityLogView::createdAt).reversed());
     }
+
+    @Test
+    void getRecentActivity_withCursorAndFilters_walksTheMatchingEntries() {
+        // When se pide la primera página filtrada en modo cursor
+        ResponseEntity<CursorPage<ActivityLogView>> first = http.exchange(
+                "/api/v1/activity?cursor=&size=2&actor=test.actor&actionType=user_created&targetType=USER",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<>() {}
+        );
+
+        // Then
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(first.getBody()).isNotNull();
+        assertThat(first.getBody().content()).extracting(ActivityLogView::targetId).containsExactly("target10", "target9");
+        assertThat(first.getBody().nextCursor()).isNotNull();
+
+        // And the next page continues from the cursor, with the same filters
+        ResponseEntity<CursorPage<ActivityLogView>> second = http.exchange(
+                "/api/v1/activity?cursor={cursor}&size=2&actor=test.actor",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<>() {},
+                first.getBody().nextCursor()
+        );
+
+        assertThat(second.getBody()).isNotNull();
+        assertThat(second.getBody().content()).extracting(ActivityLogView::targetId).containsExactly("target8", "target7");
+    }
+
+    @Test
+    void getRecentActivity_withFiltersWithoutCursor_returnsBadRequest() {
+
+        ResponseEntity<ErrorResponse> response = http.getForEntity("/api/v1/activity?actor=test.actor", ErrorResponse.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void getRecentActivity_sortedByActionWithTheActorFilter_returnsBadRequest() {
+
+        // No index gives the entries of an actor ordered by action
+        ResponseEntity<ErrorResponse> response = http.getForEntity("/api/v1/activity?cursor=&sort=actionType,asc&actor=test.actor", ErrorResponse.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
 }
@@ -0,0 +1,83 @@
+package com.andreiromila.vetl.api.audit;
+
+import com.andreiromila.vetl.AbstractIntegrationTest;
+import com.andreiromila.vetl.audit.web.ActivityBroadcaster;
+import com.andreiromila.vetl.user.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The activity stream through the security chain. The latest activity is
+ * disabled in the test profile, the streams only receive heartbeats.
+ */
+public class ActivityStreamIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    ActivityBroadcaster broadcaster;
+
+    /**
+     * Opens a stream with the access token
+     */
+    MvcResult open(final String token) throws Exception {
+        return mvc.perform(get("/api/v1/activity/stream")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .header(HttpHeaders.USER_AGENT, SPRING_BOOT_AGENT)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    @Test
+    void streamActivity_asGuest_returnsHttp401Unauthorized() throws Exception {
+        mvc.perform(get("/api/v1/activity/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void streamActivity_afterTheTokenIsRevoked_closesOnTheNextHeartbeat() throws Exception {
+
+        // Given an open stream
+        loginViewer("stream.viewer");
+        final String token = tokenService.createToken("stream.viewer", SPRING_BOOT_AGENT).token();
+        final int subscribers = broadcaster.subscribers();
+        final MvcResult result = open(token);
+        assertThat(broadcaster.subscribers()).isEqualTo(subscribers + 1);
+
+        // When the token is revoked
+        tokenService.invalidate(token);
+        broadcaster.heartbeat();
+
+        // Then the stream completes
+        result.getAsyncResult(5_000);
+        mvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        assertThat(broadcaster.subscribers()).isEqualTo(subscribers);
+    }
+
+    @Test
+    void streamActivity_afterTheUserIsDisabled_closesOnTheNextHeartbeat() throws Exception {
+
+        // Given an open stream
+        final User user = loginViewer("stream.disabled");
+        final String token = tokenService.createToken("stream.disabled", SPRING_BOOT_AGENT).token();
+        final int subscribers = broadcaster.subscribers();
+        final MvcResult result = open(token);
+
+        // When the user is disabled
+        user.setEnabled(false);
+        userRepository.save(user);
+        broadcaster.heartbeat();
+
+        // Then the stream completes
+        result.getAsyncResult(5_000);
+        assertThat(broadcaster.subscribers()).isEqualTo(subscribers);
+    }
+}
@@ -0,0 +1,105 @@
+package com.andreiromila.vetl.api.audit;
+
+import com.andreiromila.vetl.AbstractIntegrationTest;
+import com.andreiromila.vetl.audit.AuditActionType;
+import com.andreiromila.vetl.audit.AuditLog;
+import com.andreiromila.vetl.audit.AuditLogRepository;
+import com.andreiromila.vetl.audit.AuditTargetType;
+import com.andreiromila.vetl.audit.RecentActivity;
+import com.andreiromila.vetl.audit.web.ActivityLogView;
+import com.andreiromila.vetl.responses.CustomPage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The first page of the activity feed served by the in-memory latest
+ * activity. The entries are appended like the outbox relay does once its
+ * transaction committed, they are never written to the database.
+ */
+@TestPropertySource(properties = "application.audit.recent.enabled = true")
+public class RecentActivityIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    RecentActivity recentActivity;
+
+    @Autowired
+    AuditLogRepository auditLogRepository;
+
+    @Test
+    void getRecentActivity_firstPage_isServedFromMemory() {
+
+        // Given
+        loginViewer("memory.viewer");
+        final long total = recentActivity.total();
+
+        final Instant future = Instant.now().plusSeconds(3600);
+        final List<AuditLog> entries = LongStream.rangeClosed(1, 3)
+                .mapToObj(i -> new AuditLog(Long.MAX_VALUE - i, null, "memory.actor", AuditActionType.USER_CREATED,
+                        AuditTargetType.USER, "memory" + i, "Memory " + i, null, future.plusSeconds(i)))
+                .toList();
+
+        // Outside the test transaction, appended right away
+        CompletableFuture.runAsync(() -> recentActivity.append(entries)).join();
+
+        // When
+        ResponseEntity<CustomPage<ActivityLogView>> response = http.exchange(
+                "/api/v1/activity?size=3",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<>() {}
+        );
+
+        // Then the page has the appended entries, newest first, and the running total of the buffer
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().content())
+                .extracting(ActivityLogView::targetId)
+                .containsExactly("memory3", "memory2", "memory1");
+        assertThat(response.getBody().totalElements()).isEqualTo(total + 3);
+        assertThat(response.getBody().exactTotal()).isFalse();
+    }
+
+    @Test
+    void getRecentActivity_withExactTotal_countsTheTable() {
+
+        // Given
+        loginViewer("exact.viewer");
+
+        final Instant future = Instant.now().plusSeconds(7200);
+        final List<AuditLog> entries = LongStream.rangeClosed(1, 2)
+                .mapToObj(i -> new AuditLog(Long.MAX_VALUE - 10 - i, null, "exact.actor", AuditActionType.USER_CREATED,
+                        AuditTargetType.USER, "exact" + i, "Exact " + i, null, future.plusSeconds(i)))
+                .toList();
+
+        CompletableFuture.runAsync(() -> recentActivity.append(entries)).join();
+
+        // When
+        ResponseEntity<CustomPage<ActivityLogView>> response = http.exchange(
+                "/api/v1/activity?size=2&total=exact",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<>() {}
+        );
+
+        // Then the page is still served from memory, the total is the count of the table
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().content())
+                .extracting(ActivityLogView::targetId)
+                .containsExactly("exact2", "exact1");
+        assertThat(response.getBody().totalElements()).isEqualTo(auditLogRepository.count());
+        assertThat(response.getBody().exactTotal()).isTrue();
+    }
+}
@@ -3,6 +3,7 @@ package com.andreiromila.vetl.api.auth;
 import com.andreiromila.vetl.AbstractIntegrationTest;
 import com.andreiromila.vetl.audit.AuditEventListener;
 import com.andreiromila.vetl.auth.LoginResponse;
+import com.andreiromila.vetl.auth.LoginThrottle;
 import com.andreiromila.vetl.mail.EmailService;
 import com.andreiromila.vetl.responses.ErrorResponse;
 import com.andreiromila.vetl.user.User;
@@ -12,16 +13,19 @@ import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 
 import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
 import static org.springframework.http.HttpHeaders.WWW_AUTHENTICATE;
 
 public class LoginIntegrationTest extends AbstractIntegrationTest {
@@ -41,6 +45,9 @@ public class LoginIntegrationTest extends AbstractIntegrationTest {
     @MockitoBean
     AuditEventListener auditEventListener;
 
+    @MockitoSpyBean
+    LoginThrottle loginThrottle;
+
     @Test
     void login_usingNullUsername_returnsUnauthorized() {
 
@@ -105,6 +112,27 @@ public class LoginIntegrationTest extends AbstractIntegrationTest {
         assertThat(response.getBody().message()).isEqualTo("Invalid credentials.");
     }
 
+    @Test
+    void login_behindTheLoadBalancer_throttlesTheForwardedClientAddress() {
+
+        String body = """
+                {
+                    "username": "nonexistent",
+                    "password": "Pa$$w0rd!"
+                }
+                """;
+
+        // The test client connects from the loopback, a trusted proxy
+        final HttpHeaders headers = new HttpHeaders();
+        headers.add("X-Forwarded-For", "198.51.100.1, 203.0.113.7");
+
+        ResponseEntity<ErrorResponse> response = http.postForEntity("/api/v1/login", new HttpEntity<>(body, headers), ErrorResponse.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        verify(loginThrottle).checkAllowed("nonexistent", "203.0.113.7");
+        verify(loginThrottle).recordFailure("nonexistent", "203.0.113.7");
+    }
+
     @Test
     void login_withValidCredentials_returnsOkResponse() {
 
@@ -139,6 +167,10 @@ public class LoginIntegrationTest extends AbstractIntegrationTest {
         assertThat(response.getBody().token()).isNotBlank();
         assertThat(response.getBody().expiresAt()).isAfter(ZonedDateTime.now());
 
+        // And a refresh token that outlives the access token
+        assertThat(response.getBody().refreshToken()).isNotBlank();
+        assertThat(response.getBody().refreshExpiresAt()).isAfter(response.getBody().expiresAt());
+
     }
 
     private static @NotNull UserCreateRequest getUserCreateRequest() {
@@ -0,0 +1,81 @@
+package com.andreiromila.vetl.api.auth;
+
+import com.andreiromila.vetl.AbstractIntegrationTest;
+import com.andreiromila.vetl.auth.LoginResponse;
+import com.andreiromila.vetl.responses.ErrorResponse;
+import com.andreiromila.vetl.token.TokenWithExpiration;
+import com.andreiromila.vetl.user.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.ZonedDateTime;
+
+import static com.andreiromila.vetl.factories.AggregatesFactory.createUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RefreshIntegrationTest extends AbstractIntegrationTest {
+
+    @Test
+    void refresh_withValidRefreshToken_returnsNewAccessToken() {
+
+        // Given we have a user with a session
+        final User john = userRepository.save(createUser("john"));
+        final TokenWithExpiration session = tokenService.createToken(john.getUsername(), SPRING_BOOT_AGENT);
+
+        String body = """
+                { "refreshToken": "%s" }
+                """.formatted(session.refreshToken());
+
+        ResponseEntity<LoginResponse> response = http.postForEntity("/api/v1/refresh", new HttpEntity<>(body), LoginResponse.class);
+
+        // Should get a new access token for the same session
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().tokenUuid()).isEqualTo(session.tokenUuid());
+        assertThat(response.getBody().token()).isNotBlank();
+        assertThat(response.getBody().expiresAt()).isAfter(ZonedDateTime.now());
+    }
+
+    @Test
+    void refresh_withAccessToken_returnsUnauthorized() {
+
+        // Given we have a user with a session
+        final User john = userRepository.save(createUser("john"));
+        final TokenWithExpiration session = tokenService.createToken(john.getUsername(), SPRING_BOOT_AGENT);
+
+        String body = """
+                { "refreshToken": "%s" }
+                """.formatted(session.token());
+
+        ResponseEntity<ErrorResponse> response = http.postForEntity("/api/v1/refresh", new HttpEntity<>(body), ErrorResponse.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().message()).isEqualTo("Invalid refresh token.");
+    }
+
+    @Test
+    void refresh_afterLogout_returnsUnauthorized() {
+
+        // Given we have a user with a session
+        final User john = userRepository.save(createUser("john"));
+        final TokenWithExpiration session = tokenService.createToken(john.getUsername(), SPRING_BOOT_AGENT);
+
+        // And the user logs out
+        addAuthorizationHeader(session.token());
+        http.postForEntity("/api/v1/logout", new HttpEntity<>(null), Void.class);
+
+        String body = """
+                { "refreshToken": "%s" }
+                """.formatted(session.refreshToken());
+
+        ResponseEntity<ErrorResponse> response = http.postForEntity("/api/v1/refresh", new HttpEntity<>(body), ErrorResponse.class);
+
+        // The revoked session cannot get new access tokens
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().code()).isEqualTo(401);
+    }
+}
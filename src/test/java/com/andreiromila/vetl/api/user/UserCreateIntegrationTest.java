@@ -2,6 +2,7 @@ package com.andreiromila.vetl.api.user;
 
 import com.andreiromila.vetl.AbstractIntegrationTest;
 import com.andreiromila.vetl.mail.EmailService;
+import com.andreiromila.vetl.outbox.Outbox;
 import com.andreiromila.vetl.responses.ErrorResponse;
 import com.andreiromila.vetl.user.User;
 import com.andreiromila.vetl.user.web.UserCreateResponse;
@@ -25,8 +26,10 @@ import java.util.stream.IntStream;
 import static com.andreiromila.vetl.factories.AggregatesFactory.createUser;
 import static com.andreiromila.vetl.utils.StringUtils.generateRandomString;
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.timeout;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class UserCreateIntegrationTest extends AbstractIntegrationTest {
 
@@ -36,6 +39,9 @@ public class UserCreateIntegrationTest extends AbstractIntegrationTest {
     @MockitoBean
     EmailService emailService;
 
+    @Autowired
+    Outbox outbox;
+
     MockMvcTester.MockMvcRequestBuilder httpPost() {
         return mvc.post()
                 .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
@@ -107,12 +113,16 @@ public class UserCreateIntegrationTest extends AbstractIntegrationTest {
 
         // --- VERIFICACIÓN DEL ENVÍO DE EMAIL ---
 
+        // The email is sent by the outbox relay, the test transaction never commits so we run it here
+        when(emailService.sendActivationEmail(any(), any())).thenReturn(true);
+        assertThat(outbox.relay()).isEqualTo(2);
+
         // Creamos un ArgumentCaptor para capturar el cuerpo del email que se envió
         ArgumentCaptor<User> userCaptor = ArgumentCaptor.forClass(User.class);
         ArgumentCaptor<String> linkCaptor = ArgumentCaptor.forClass(String.class);
 
         // Verificamos que el email se ha enviado
-        verify(emailService, timeout(1000).times(1))
+        verify(emailService, times(1))
                 .sendActivationEmail(userCaptor.capture(), linkCaptor.capture());
 
         User capturedUser = userCaptor.getValue();
@@ -0,0 +1,42 @@
+package com.andreiromila.vetl.api.user;
+
+import com.andreiromila.vetl.AbstractIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The exported rows are read on the async request thread, outside the
+ * rolled back test transaction; the content is covered by the repository
+ * and writer tests.
+ */
+public class UserExportIntegrationTest extends AbstractIntegrationTest {
+
+    @Test
+    void exportUsers_byRegularUser_returnsForbidden() {
+
+        loginViewer("regular.user");
+
+        final ResponseEntity<String> response = http.exchange(
+                "/api/v1/users/export", HttpMethod.GET, new HttpEntity<>(""), String.class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void exportUsers_withUnknownFormat_returnsBadRequest() {
+
+        loginAdmin("john");
+
+        final ResponseEntity<String> response = http.exchange(
+                "/api/v1/users/export?format=xml", HttpMethod.GET, new HttpEntity<>(""), String.class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+}
@@ -0,0 +1,114 @@
+package com.andreiromila.vetl.api.user;
+
+import com.andreiromila.vetl.AbstractIntegrationTest;
+import com.andreiromila.vetl.mail.EmailService;
+import com.andreiromila.vetl.responses.ErrorResponse;
+import com.andreiromila.vetl.responses.ValidationError;
+import com.andreiromila.vetl.user.User;
+import com.andreiromila.vetl.user.web.UserImportResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import static com.andreiromila.vetl.factories.AggregatesFactory.createUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UserImportIntegrationTest extends AbstractIntegrationTest {
+
+    @MockitoBean
+    EmailService emailService;
+
+    @Test
+    void importUsers_byAdmin_createsEveryUserWithRoles() {
+
+        loginAdmin("john");
+
+        final String body = """
+                [
+                    {"fullName": "Jane Imported", "username": "jane.imported", "email": "jane@imported.com", "roles": [2, 3]},
+                    {"fullName": "Mike Imported", "username": "mike.imported", "email": "mike@imported.com"}
+                ]
+                """;
+
+        final ResponseEntity<UserImportResponse> response = http.postForEntity("/api/v1/users/import", new HttpEntity<>(body), UserImportResponse.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().imported()).isEqualTo(2);
+
+        final User jane = userRepository.findWithRolesByUsername("jane.imported").orElseThrow();
+        assertThat(jane.getId()).isEqualTo(response.getBody().users().getFirst().id());
+        assertThat(jane.isEnabled()).isFalse();
+        assertThat(jane.getEmailActivationCode()).hasSize(64);
+        assertThat(jane.getRoles()).extracting("name").containsExactlyInAnyOrder("EDITOR", "VIEWER");
+
+        assertThat(userRepository.findWithRolesByUsername("mike.imported").orElseThrow().getRoles()).isEmpty();
+    }
+
+    @Test
+    void importUsers_withTakenAndRepeatedValues_rejectsTheWholeBatch() {
+
+        loginAdmin("john");
+        userRepository.save(createUser("taken.user"));
+
+        final String body = """
+                [
+                    {"fullName": "Valid User", "username": "valid.user", "email": "valid@imported.com"},
+                    {"fullName": "Taken User", "username": "taken.user", "email": "other@imported.com"},
+                    {"fullName": "Repeated User", "username": "VALID.user", "email": "repeated@imported.com", "roles": [99]}
+                ]
+                """;
+
+        final ResponseEntity<ErrorResponse> response = http.postForEntity("/api/v1/users/import", new HttpEntity<>(body), ErrorResponse.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().validationErrors())
+                .extracting(ValidationError::field)
+                .containsExactly("rows[1].username", "rows[2].username", "rows[2].roles");
+
+        // Nothing was created
+        assertThat(userRepository.findByUsername("valid.user")).isEmpty();
+    }
+
+    @Test
+    void importUsers_withValuesTakenWithAccents_rejectsTheRows() {
+
+        loginAdmin("john");
+
+        final User jose = createUser("jose.user");
+        jose.setEmail("jose@imported.com");
+        userRepository.save(jose);
+
+        // The collation ignores accents: josé matches the stored jose, the username fails its pattern first
+        final String body = """
+                [
+                    {"fullName": "José Imported", "username": "josé.user", "email": "JOSÉ@imported.com"}
+                ]
+                """;
+
+        final ResponseEntity<ErrorResponse> response = http.postForEntity("/api/v1/users/import", new HttpEntity<>(body), ErrorResponse.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().validationErrors())
+                .extracting(ValidationError::field)
+                .containsExactly("rows[0].username", "rows[0].email");
+        assertThat(response.getBody().validationErrors().getLast().message()).isEqualTo("The email is already taken.");
+    }
+
+    @Test
+    void importUsers_byRegularUser_returnsForbidden() {
+
+        loginViewer("regular.user");
+
+        final ResponseEntity<ErrorResponse> response = http.postForEntity("/api/v1/users/import",
+                new HttpEntity<>("[{\"fullName\": \"Jane Imported\", \"username\": \"jane.imported\", \"email\": \"jane@imported.com\"}]"),
+                ErrorResponse.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        assertThat(userRepository.findByUsername("jane.imported")).isEmpty();
+    }
+}
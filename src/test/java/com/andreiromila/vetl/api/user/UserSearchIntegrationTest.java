@@ -1,8 +1,10 @@
 package com.andreiromila.vetl.api.user;
 
 import com.andreiromila.vetl.AbstractIntegrationTest;
+import com.andreiromila.vetl.responses.CursorPage;
 import com.andreiromila.vetl.responses.CustomPage;
 import com.andreiromila.vetl.user.web.UserBasicResponse;
+import com.andreiromila.vetl.user.web.UserSuggestion;
 import org.junit.jupiter.api.Test;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
@@ -145,4 +147,103 @@ public class UserSearchIntegrationTest extends AbstractIntegrationTest {
         assertThat(response.getBody().content().get(3).username()).isEqualTo("john");
     }
 
+    @Test
+    void listUsers_withCursor_returnsKeysetPagesUntilTheEnd() {
+
+        // Given we have a verified user that is logged in
+        loginAdmin("john");
+
+        // And 3 more users
+        userRepository.save(createUser("b_second"));
+        userRepository.save(createUser("a_first"));
+        userRepository.save(createUser("c_third"));
+
+        // When John asks for the first cursor page sorted by username
+        final ResponseEntity<CursorPage<UserBasicResponse>> first = http.exchange(
+                "/api/v1/users?cursor=&size=3&sort=username,asc", HttpMethod.GET, new HttpEntity<>(""), new ParameterizedTypeReference<>() {
+                }
+        );
+
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(first.getBody()).isNotNull();
+        assertThat(first.getBody().content()).extracting(UserBasicResponse::username).containsExactly("a_first", "b_second", "c_third");
+        assertThat(first.getBody().nextCursor()).isNotBlank();
+
+        // Then the next cursor returns the rest, with the same sort
+        final ResponseEntity<CursorPage<UserBasicResponse>> second = http.exchange(
+                "/api/v1/users?size=3&cursor=" + first.getBody().nextCursor(), HttpMethod.GET, new HttpEntity<>(""), new ParameterizedTypeReference<>() {
+                }
+        );
+
+        assertThat(second.getBody()).isNotNull();
+        assertThat(second.getBody().content()).extracting(UserBasicResponse::username).containsExactly("john");
+        assertThat(second.getBody().nextCursor()).isNull();
+    }
+
+    @Test
+    void listUsers_withoutTotal_returnsHasNextInsteadOfTheCount() {
+
+        // Given we have a verified user that is logged in
+        loginAdmin("john");
+
+        // And 3 more users
+        userRepository.saveAll(createUsers(3));
+
+        // When John asks for the first page without the total
+        final ResponseEntity<CustomPage<UserBasicResponse>> response = http.exchange(
+                "/api/v1/users?total=none&size=2", HttpMethod.GET, new HttpEntity<>(""), new ParameterizedTypeReference<>() {
+                }
+        );
+
+        // Then the page is not counted but knows there is more
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .isNotNull()
+                .satisfies(body -> {
+                    assertThat(body.content()).hasSize(2);
+                    assertThat(body.totalElements()).isEqualTo(-1);
+                    assertThat(body.exactTotal()).isFalse();
+                    assertThat(body.hasNext()).isTrue();
+                });
+    }
+
+    @Test
+    void listUsers_withUnknownTotalMode_returnsBadRequest() {
+
+        loginAdmin("john");
+
+        final ResponseEntity<String> response = http.exchange(
+                "/api/v1/users?total=maybe", HttpMethod.GET, new HttpEntity<>(""), String.class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void listUsers_withInvalidCursor_returnsBadRequest() {
+
+        loginAdmin("john");
+
+        final ResponseEntity<String> response = http.exchange(
+                "/api/v1/users?cursor=@@@", HttpMethod.GET, new HttpEntity<>(""), String.class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void autocomplete_isNotMistakenForAUsername() {
+
+        loginAdmin("john");
+
+        // Users created inside the test transaction reach the directory only after commit
+        final ResponseEntity<List<UserSuggestion>> response = http.exchange(
+                "/api/v1/users/autocomplete?query=zzz_nobody", HttpMethod.GET, new HttpEntity<>(""), new ParameterizedTypeReference<>() {
+                }
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEmpty();
+    }
+
 }
@@ -0,0 +1,73 @@
+package com.andreiromila.vetl.audit;
+
+import com.andreiromila.vetl.exceptions.HttpBadRequestException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ActivityCursorTest {
+
+    static AuditLog log(long id, String actor) {
+        return new AuditLog(id, null, actor, AuditActionType.USER_UPDATED, AuditTargetType.USER, "7", "John", null, Instant.parse("2025-01-01T10:00:00Z"));
+    }
+
+    @Test
+    void first_withoutAllowedProperties_isNewestFirst() {
+
+        final ActivityCursor cursor = ActivityCursor.first(Sort.by("details"));
+
+        assertThat(cursor).isEqualTo(new ActivityCursor("createdAt", Sort.Direction.DESC, null, null, null));
+        assertThat(cursor.isFirst()).isTrue();
+    }
+
+    @Test
+    void after_thenEncodeAndDecode_keepsSortAndPosition() {
+
+        final ActivityCursor next = ActivityCursor.first(Sort.by("actorUsername")).after(log(42, "jo|hn"));
+
+        assertThat(ActivityCursor.decode(next.encode()))
+                .isEqualTo(new ActivityCursor("actorUsername", Sort.Direction.ASC, "jo|hn", Instant.parse("2025-01-01T10:00:00Z"), 42L));
+    }
+
+    @Test
+    void after_aSystemAction_keepsTheNullActor() {
+
+        final ActivityCursor next = ActivityCursor.first(Sort.by(Sort.Order.desc("actorUsername"))).after(log(7, null));
+
+        assertThat(ActivityCursor.decode(next.encode()).value()).isNull();
+        assertThat(ActivityCursor.decode(next.encode()).id()).isEqualTo(7L);
+    }
+
+    @Test
+    void decode_withMalformedCursor_throwsBadRequest() {
+
+        assertThatThrownBy(() -> ActivityCursor.decode("not a cursor"))
+                .isInstanceOf(HttpBadRequestException.class)
+                .hasMessage("Invalid cursor.");
+
+        // Valid base64, but the property is not allowed
+        final String forged = new ActivityCursor("details", Sort.Direction.ASC, "x", Instant.EPOCH, 1L).encode();
+        assertThatThrownBy(() -> ActivityCursor.decode(forged))
+                .isInstanceOf(HttpBadRequestException.class);
+    }
+
+    @Test
+    void filterParse_validatesTheValues() {
+
+        final ActivityFilter filter = ActivityFilter.parse(" john ", "user_created", "User", "42", "2025-01-01T00:00:00Z", null);
+
+        assertThat(filter).isEqualTo(new ActivityFilter("john", AuditActionType.USER_CREATED, AuditTargetType.USER, "42", Instant.parse("2025-01-01T00:00:00Z"), null));
+        assertThat(ActivityFilter.parse(null, "", null, " ", null, null).isEmpty()).isTrue();
+
+        assertThatThrownBy(() -> ActivityFilter.parse(null, "DANCED", null, null, null, null))
+                .isInstanceOf(HttpBadRequestException.class);
+        assertThatThrownBy(() -> ActivityFilter.parse(null, null, null, "42", null, null))
+                .hasMessage("The target id filter requires the target type.");
+        assertThatThrownBy(() -> ActivityFilter.parse(null, null, null, null, "2025-02-01T00:00:00Z", "2025-01-01T00:00:00Z"))
+                .isInstanceOf(HttpBadRequestException.class);
+    }
+}
@@ -2,9 +2,12 @@ package com.andreiromila.vetl.audit;
 
 import com.andreiromila.vetl.AbstractIntegrationTest;
 import com.andreiromila.vetl.mail.EmailService;
+import com.andreiromila.vetl.outbox.Outbox;
 import com.andreiromila.vetl.user.User;
+import com.andreiromila.vetl.user.UserImportService;
 import com.andreiromila.vetl.user.UserService;
 import com.andreiromila.vetl.user.web.UserCreateRequest;
+import com.andreiromila.vetl.user.web.UserImportRow;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,17 +19,19 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
  * Integration test for the AuditEventListener.
- * This test verifies that application events, specifically UserCreatedEvent,
- * correctly trigger the creation of audit log entries via the listener.
+ * This test verifies that the UserCreatedEvent outbox rows correctly
+ * trigger the creation of audit log entries via the listener.
  * <p>
- * It operates by calling the service layer directly and then asserting
- * the state of the audit_log table.
+ * It operates by calling the service layer directly, relaying the outbox
+ * (the test transaction never commits) and then asserting the state of
+ * the audit_log table.
  */
 @Transactional // Hereda de AbstractIntegrationTest que ya lo tiene
 public class AuditEventListenerTest extends AbstractIntegrationTest {
@@ -34,9 +39,15 @@ public class AuditEventListenerTest extends AbstractIntegrationTest {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserImportService userImportService;
+
     @Autowired
     private AuditLogRepository auditLogRepository;
 
+    @Autowired
+    private Outbox outbox;
+
     @MockitoBean
     private EmailService emailService;
 
@@ -82,6 +93,7 @@ public class AuditEventListenerTest extends AbstractIntegrationTest {
 
         // --- WHEN ---
         final User createdUser = userService.createUser(newUserRequest);
+        outbox.relay();
 
         // --- THEN ---
         assertThat(auditLogRepository.count()).isEqualTo(1);
@@ -104,5 +116,26 @@ public class AuditEventListenerTest extends AbstractIntegrationTest {
         assertThat(savedLog.details()).isNotNull();
         assertThat(savedLog.createdAt()).isNotNull();
     }
-}
 
+    @Test
+    void whenUsersAreImported_handleUserCreatedEvents_createsOneAuditLogEntryPerUser() {
+
+        // --- WHEN ---
+        final List<User> imported = userImportService.importUsers(List.of(
+                new UserImportRow("First Imported", "first.imported", "first.imported@example.com", Set.of(3L)),
+                new UserImportRow("Second Imported", "second.imported", "second.imported@example.com", Set.of())
+        ));
+        outbox.relay();
+
+        // --- THEN ---
+        assertThat(auditLogRepository.findAll())
+                .extracting(AuditLog::targetId)
+                .containsExactlyInAnyOrder(imported.get(0).getId().toString(), imported.get(1).getId().toString());
+
+        assertThat(auditLogRepository.findAll())
+                .allSatisfy(log -> {
+                    assertThat(log.actionType()).isEqualTo(AuditActionType.USER_CREATED);
+                    assertThat(log.actorUsername()).isEqualTo("audit.admin");
+                });
+    }
+}
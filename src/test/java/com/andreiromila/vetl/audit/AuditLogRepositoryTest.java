@@ -0,0 +1,145 @@
+package com.andreiromila.vetl.audit;
+
+import com.andreiromila.vetl.AbstractDatabaseTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AuditLogRepositoryTest extends AbstractDatabaseTest {
+
+    static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    @Autowired
+    AuditLogRepository auditLogRepository;
+
+    @Autowired
+    NamedParameterJdbcTemplate jdbcTemplate;
+
+    AuditLog save(String actor, AuditActionType action, String targetId, int minute) {
+        return auditLogRepository.save(new AuditLog(null, null, actor, action, AuditTargetType.USER, targetId, "Target " + targetId, null, NOW.plusSeconds(minute * 60L)));
+    }
+
+    /**
+     * Reads every page of the feed, size by size
+     */
+    List<AuditLog> walk(ActivityFilter filter, ActivityCursor cursor, int size) {
+        final List<AuditLog> all = new ArrayList<>();
+        Slice<AuditLog> slice;
+        do {
+            slice = auditLogRepository.scroll(filter, cursor, size);
+            all.addAll(slice.getContent());
+            if (slice.hasNext()) {
+                cursor = cursor.after(slice.getContent().getLast());
+            }
+        } while (slice.hasNext());
+        return all;
+    }
+
+    @Test
+    void scroll_byCreatedAt_walksEveryEntryNewestFirstWithTies() {
+        // Given two entries in the same second
+        final AuditLog a = save("john", AuditActionType.USER_CREATED, "1", 0);
+        final AuditLog b = save("john", AuditActionType.USER_UPDATED, "1", 1);
+        final AuditLog c = save("jane", AuditActionType.USER_UPDATED, "2", 1);
+        final AuditLog d = save("jane", AuditActionType.USER_DELETED, "2", 2);
+
+        // When
+        final List<AuditLog> feed = walk(ActivityFilter.NONE, ActivityCursor.first(Sort.unsorted()), 1);
+
+        // Then
+        assertThat(feed).extracting(AuditLog::id).containsExactly(d.id(), c.id(), b.id(), a.id());
+    }
+
+    @Test
+    void scroll_byActor_placesTheSystemActionsLast() {
+        // Given
+        final AuditLog system = save(null, AuditActionType.USER_ACTIVATED, "1", 0);
+        final AuditLog olderSystem = save(null, AuditActionType.USER_ACTIVATED, "2", -1);
+        final AuditLog john = save("john", AuditActionType.USER_CREATED, "1", 0);
+        final AuditLog jane = save("jane", AuditActionType.USER_CREATED, "2", 0);
+
+        // When
+        final ActivityCursor descending = ActivityCursor.first(Sort.by(Sort.Order.desc("actorUsername")));
+        final ActivityCursor ascending = ActivityCursor.first(Sort.by("actorUsername"));
+
+        // Then
+        assertThat(walk(ActivityFilter.NONE, descending, 1)).extracting(AuditLog::id)
+                .containsExactly(john.id(), jane.id(), system.id(), olderSystem.id());
+        assertThat(walk(ActivityFilter.NONE, ascending, 1)).extracting(AuditLog::id)
+                .containsExactly(olderSystem.id(), system.id(), jane.id(), john.id());
+    }
+
+    @Test
+    void scroll_withFilters_returnsOnlyTheMatchingEntries() {
+        // Given
+        save("john", AuditActionType.USER_CREATED, "1", 0);
+        final AuditLog updated = save("john", AuditActionType.USER_UPDATED, "1", 5);
+        save("john", AuditActionType.USER_UPDATED, "2", 6);
+        save("jane", AuditActionType.USER_UPDATED, "1", 7);
+
+        // When
+        final ActivityFilter filter = new ActivityFilter("john", AuditActionType.USER_UPDATED, AuditTargetType.USER, "1", NOW, NOW.plusSeconds(600));
+        final Slice<AuditLog> slice = auditLogRepository.scroll(filter, ActivityCursor.first(Sort.unsorted()), 10);
+
+        // Then
+        assertThat(slice.getContent()).extracting(AuditLog::id).containsExactly(updated.id());
+        assertThat(slice.hasNext()).isFalse();
+    }
+
+    static Stream<Arguments> allowedFiltersAndSorts() {
+        final Instant to = NOW.plusSeconds(600);
+        return Stream.of(
+                Arguments.of(ActivityFilter.NONE, "createdAt"),
+                Arguments.of(new ActivityFilter(null, null, null, null, NOW, to), "createdAt"),
+                Arguments.of(new ActivityFilter("john", null, null, null, NOW, to), "createdAt"),
+                Arguments.of(new ActivityFilter(null, AuditActionType.USER_UPDATED, null, null, NOW, to), "createdAt"),
+                Arguments.of(new ActivityFilter(null, null, AuditTargetType.USER, null, NOW, to), "createdAt"),
+                Arguments.of(new ActivityFilter(null, null, AuditTargetType.USER, "1", NOW, to), "createdAt"),
+                Arguments.of(new ActivityFilter("john", AuditActionType.USER_UPDATED, AuditTargetType.USER, null, null, null), "createdAt"),
+                Arguments.of(new ActivityFilter(null, AuditActionType.USER_UPDATED, AuditTargetType.USER, null, null, null), "createdAt"),
+                Arguments.of(ActivityFilter.NONE, "actorUsername"),
+                Arguments.of(new ActivityFilter("john", null, null, null, NOW, to), "actorUsername"),
+                Arguments.of(ActivityFilter.NONE, "actionType"),
+                Arguments.of(new ActivityFilter(null, AuditActionType.USER_UPDATED, null, null, NOW, to), "actionType")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("allowedFiltersAndSorts")
+    void scroll_everyAllowedFilterAndSort_readsAnIndexWithoutSorting(ActivityFilter filter, String property) {
+        // Given a combination the feed accepts
+        filter.checkSortedBy(property);
+        final AuditLog last = save("john", AuditActionType.USER_UPDATED, "1", 1);
+
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            final ActivityCursor first = ActivityCursor.first(Sort.by(direction, property));
+
+            // When the first and the next pages are explained
+            for (ActivityCursor cursor : List.of(first, first.after(last))) {
+                final MapSqlParameterSource params = new MapSqlParameterSource("limit", 21);
+                final List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + AuditLogFilterRepositoryImpl.sql(filter, cursor, params), params);
+
+                // Then one index gives the rows in order
+                assertThat(plan).singleElement().satisfies(row -> {
+                    assertThat(row.get("key")).isEqualTo(AuditLogFilterRepositoryImpl.index(filter, AuditLogFilterRepositoryImpl.SORT_COLUMNS.get(property)));
+                    assertThat(row.get("type")).isNotEqualTo("ALL");
+                    assertThat(String.valueOf(row.get("Extra"))).doesNotContain("filesort");
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.andreiromila.vetl.audit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class AuditLogWriterTest {
+
+    NamedParameterJdbcTemplate jdbcTemplate;
+
+    RecentActivity recentActivity;
+
+    AuditLogWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        recentActivity = mock(RecentActivity.class);
+        writer = new AuditLogWriter(jdbcTemplate, recentActivity);
+    }
+
+    static List<AuditLog> logs(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new AuditLog(null, 1L, "admin", AuditActionType.USER_CREATED, AuditTargetType.USER,
+                        String.valueOf(i), "User " + i, null, Instant.now()))
+                .toList();
+    }
+
+    @Test
+    void write_insertsEveryEntryWithOneBatch() {
+
+        writer.write(logs(3));
+
+        final ArgumentCaptor<SqlParameterSource[]> params = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate).batchUpdate(anyString(), params.capture(), any(KeyHolder.class), any(String[].class));
+        assertThat(params.getValue()).hasSize(3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void write_handsTheEntriesWithTheirGeneratedIdToTheRecentActivity() {
+
+        doAnswer(invocation -> {
+            final KeyHolder keys = invocation.getArgument(2);
+            keys.getKeyList().addAll(List.of(Map.of("id", 7L), Map.of("id", 8L)));
+            return new int[2];
+        }).when(jdbcTemplate).batchUpdate(anyString(), any(SqlParameterSource[].class), any(KeyHolder.class), any(String[].class));
+
+        writer.write(logs(2));
+
+        final ArgumentCaptor<List<AuditLog>> appended = ArgumentCaptor.forClass(List.class);
+        verify(recentActivity).append(appended.capture());
+        assertThat(appended.getValue()).extracting(AuditLog::id).containsExactly(7L, 8L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void write_handsTheCreationTimeAtTheColumnPrecision() {
+
+        final Instant createdAt = Instant.parse("2025-01-01T10:00:00.700Z");
+        writer.write(List.of(new AuditLog(null, 1L, "admin", AuditActionType.USER_CREATED, AuditTargetType.USER,
+                "1", "User 1", null, createdAt)));
+
+        final ArgumentCaptor<List<AuditLog>> appended = ArgumentCaptor.forClass(List.class);
+        verify(recentActivity).append(appended.capture());
+        assertThat(appended.getValue()).extracting(AuditLog::createdAt)
+                .containsExactly(Instant.parse("2025-01-01T10:00:01Z"));
+    }
+
+    @Test
+    void write_recordsTheBatchSizeAndTheFlushLatency() {
+
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        writer.bindTo(registry);
+
+        writer.write(logs(3));
+        writer.write(logs(1));
+
+        assertThat(registry.get("vetl.audit.batch.size").summary().count()).isEqualTo(2);
+        assertThat(registry.get("vetl.audit.batch.size").summary().max()).isEqualTo(3);
+        assertThat(registry.get("vetl.audit.flush").timer().count()).isEqualTo(2);
+        assertThat(registry.get("vetl.audit.written").functionCounter().count()).isEqualTo(4);
+    }
+
+    @Test
+    void write_withoutEntries_runsNoStatement() {
+
+        writer.write(List.of());
+
+        verifyNoInteractions(jdbcTemplate, recentActivity);
+    }
+}
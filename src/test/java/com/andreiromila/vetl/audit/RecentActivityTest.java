@@ -0,0 +1,253 @@
+package com.andreiromila.vetl.audit;
+
+import com.andreiromila.vetl.invalidation.CacheInvalidationEvent;
+import com.andreiromila.vetl.invalidation.InvalidationBus;
+import com.andreiromila.vetl.invalidation.InvalidationTopic;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class RecentActivityTest {
+
+    static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    NamedParameterJdbcTemplate jdbcTemplate;
+    InvalidationBus invalidationBus;
+    ApplicationEventPublisher eventPublisher;
+
+    /**
+     * The scheduled reloads, run by the tests
+     */
+    List<Runnable> tasks;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        invalidationBus = mock(InvalidationBus.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        tasks = new ArrayList<>();
+
+        // The database has the entries 2 and 1, newest first
+        when(jdbcTemplate.query(anyString(), any(SqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(log(2, 20), log(1, 10)));
+        when(jdbcTemplate.queryForObject(anyString(), any(SqlParameterSource.class), eq(Long.class)))
+                .thenReturn(40L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    static AuditLog log(long id, int second) {
+        return new AuditLog(id, null, "admin", AuditActionType.USER_CREATED, AuditTargetType.USER,
+                String.valueOf(id), "User " + id, null, NOW.plusSeconds(second));
+    }
+
+    RecentActivity recent(int capacity) {
+        final RecentActivity recent = new RecentActivity(jdbcTemplate, invalidationBus, eventPublisher, tasks::add, new RecentActivityProperties(true, capacity));
+        recent.afterSingletonsInstantiated();
+        return recent;
+    }
+
+    void runTasks() {
+        final List<Runnable> scheduled = List.copyOf(tasks);
+        tasks.clear();
+        scheduled.forEach(Runnable::run);
+    }
+
+    static CacheInvalidationEvent written(int count, long firstId) {
+        return new CacheInvalidationEvent(RecentActivityTest.class, InvalidationTopic.ACTIVITY, count + ":" + firstId, null);
+    }
+
+    static List<Long> ids(RecentActivity recent, int count) {
+        return recent.latest(count).orElseThrow().content().stream().map(AuditLog::id).toList();
+    }
+
+    List<List<Long>> published() {
+        final ArgumentCaptor<NewActivityEvent> events = ArgumentCaptor.forClass(NewActivityEvent.class);
+        verify(eventPublisher, atLeast(0)).publishEvent(events.capture());
+        return events.getAllValues().stream()
+                .map(event -> event.getEntries().stream().map(AuditLog::id).toList())
+                .toList();
+    }
+
+    @Test
+    void latest_afterStartup_servesTheLoadedEntriesWithTheTotal() {
+
+        final RecentActivity recent = recent(3);
+
+        final RecentActivity.Snapshot snapshot = recent.latest(3).orElseThrow();
+
+        assertThat(snapshot.content()).extracting(AuditLog::id).containsExactly(2L, 1L);
+        assertThat(snapshot.total()).isEqualTo(40);
+    }
+
+    @Test
+    void append_onceFull_overwritesTheOldestEntry() {
+
+        final RecentActivity recent = recent(3);
+
+        recent.append(List.of(log(3, 30), log(4, 40)));
+
+        assertThat(ids(recent, 3)).containsExactly(4L, 3L, 2L);
+        assertThat(recent.total()).isEqualTo(42);
+        assertThat(published()).containsExactly(List.of(3L, 4L));
+        verify(invalidationBus).publish(eq(InvalidationTopic.ACTIVITY), eq("2:3"), isNull());
+    }
+
+    @Test
+    void append_aDelayedEntry_isPlacedInCreationOrder() {
+
+        final RecentActivity recent = recent(3);
+
+        // Entry 6 was written late, it is older than entry 2
+        recent.append(List.of(log(5, 30), log(6, 15)));
+
+        assertThat(ids(recent, 3)).containsExactly(5L, 2L, 6L);
+
+        // Older than every kept entry, only counted
+        recent.append(List.of(log(7, 0)));
+        assertThat(ids(recent, 3)).containsExactly(5L, 2L, 6L);
+        assertThat(recent.total()).isEqualTo(43);
+    }
+
+    @Test
+    void append_inTheSameSecond_ordersByIdLikeTheDatabase() {
+
+        final RecentActivity recent = recent(4);
+
+        // Entry 3 of another node arrives after entry 4, both in the second of entry 2
+        recent.append(List.of(log(4, 20)));
+        recent.append(List.of(log(3, 20)));
+
+        assertThat(ids(recent, 4)).containsExactly(4L, 3L, 2L, 1L);
+    }
+
+    @Test
+    void append_inATransaction_waitsForTheCommit() {
+
+        final RecentActivity recent = recent(3);
+        TransactionSynchronizationManager.initSynchronization();
+
+        recent.append(List.of(log(3, 30)));
+        assertThat(ids(recent, 3)).containsExactly(2L, 1L);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(ids(recent, 3)).containsExactly(3L, 2L, 1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void latest_afterAnotherNodeWrote_reloadsOnceWithoutCounting() {
+
+        final RecentActivity recent = recent(3);
+
+        recent.onInvalidation(written(3, 3));
+        recent.latest(3);
+        final RecentActivity.Snapshot snapshot = recent.latest(3).orElseThrow();
+
+        // The startup load and one reload, only the first one counts
+        verify(jdbcTemplate, times(2)).query(anyString(), any(SqlParameterSource.class), any(RowMapper.class));
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), any(SqlParameterSource.class), eq(Long.class));
+        assertThat(snapshot.total()).isEqualTo(43);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void onInvalidation_whileFollowed_publishesTheEntriesOfOtherNodesOnce() {
+
+        when(jdbcTemplate.query(anyString(), any(SqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(log(2, 20), log(1, 10)))
+                .thenReturn(List.of(log(3, 30)));
+
+        final RecentActivity recent = recent(3);
+        recent.follow();
+
+        recent.onInvalidation(written(1, 3));
+        runTasks();
+
+        // Reloaded in the background, the startup load is not new
+        assertThat(published()).containsExactly(List.of(3L));
+
+        // Committed here too, found by the reload first
+        recent.append(List.of(log(3, 30), log(4, 40)));
+        assertThat(published()).containsExactly(List.of(3L), List.of(4L));
+        assertThat(ids(recent, 3)).containsExactly(4L, 3L, 2L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void onInvalidation_withoutFollowers_waitsForTheNextRead() {
+
+        final RecentActivity recent = recent(3);
+
+        recent.onInvalidation(written(1, 3));
+
+        // Only the startup load
+        assertThat(tasks).isEmpty();
+        verify(jdbcTemplate, times(1)).query(anyString(), any(SqlParameterSource.class), any(RowMapper.class));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void onInvalidation_manyWhileFollowed_reloadOnceFromTheEarliestId() {
+
+        when(jdbcTemplate.query(anyString(), any(SqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(log(2, 20), log(1, 10)))
+                .thenReturn(List.of(log(5, 50), log(4, 40), log(3, 30)));
+
+        final RecentActivity recent = recent(3);
+        recent.follow();
+
+        // Received by one poll, entry 3 committed after entries 4 and 5
+        recent.onInvalidation(written(2, 4));
+        recent.onInvalidation(written(1, 3));
+
+        // Nothing read on the poll thread, one reload scheduled
+        assertThat(tasks).hasSize(1);
+        verify(jdbcTemplate, times(1)).query(anyString(), any(SqlParameterSource.class), any(RowMapper.class));
+
+        runTasks();
+
+        final ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(jdbcTemplate, times(2)).query(anyString(), params.capture(), any(RowMapper.class));
+        assertThat(params.getValue().getValue("since")).isEqualTo(3L);
+
+        assertThat(ids(recent, 3)).containsExactly(5L, 4L, 3L);
+        assertThat(recent.total()).isEqualTo(43);
+        assertThat(published()).containsExactly(List.of(3L, 4L, 5L));
+    }
+
+    @Test
+    void latest_largerThanTheCapacity_isNotServed() {
+        assertThat(recent(3).latest(4)).isEmpty();
+    }
+}
@@ -0,0 +1,228 @@
+package com.andreiromila.vetl.audit.web;
+
+import com.andreiromila.vetl.audit.AuditActionType;
+import com.andreiromila.vetl.audit.AuditLog;
+import com.andreiromila.vetl.audit.AuditTargetType;
+import com.andreiromila.vetl.audit.NewActivityEvent;
+import com.andreiromila.vetl.audit.RecentActivity;
+import com.andreiromila.vetl.exceptions.HttpServiceUnavailableException;
+import com.andreiromila.vetl.token.AccessTokenClaims;
+import com.andreiromila.vetl.token.RevokedTokens;
+import com.andreiromila.vetl.user.User;
+import com.andreiromila.vetl.user.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static com.andreiromila.vetl.factories.AggregatesFactory.createUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ActivityBroadcasterTest {
+
+    static final AccessTokenClaims VIEWER = claims("token-1", "viewer");
+
+    static AccessTokenClaims claims(String uuid, String username) {
+        return new AccessTokenClaims(uuid, username, Instant.now().plus(Duration.ofHours(1)));
+    }
+
+    RecentActivity recentActivity;
+    UserService userService;
+    RevokedTokens revokedTokens;
+
+    @BeforeEach
+    void setUp() {
+        recentActivity = mock(RecentActivity.class);
+        userService = mock(UserService.class);
+        revokedTokens = mock(RevokedTokens.class);
+
+        final User viewer = createUser("viewer");
+        when(userService.loadUserByUsername("viewer")).thenReturn(viewer);
+    }
+
+    ActivityBroadcaster broadcaster(int maxSubscribers, int bufferSize) {
+        // The senders never start, the buffers only fill up
+        return new ActivityBroadcaster(recentActivity, new ObjectMapper().registerModule(new JavaTimeModule()),
+                new ActivityStreamProperties(maxSubscribers, bufferSize, Duration.ofSeconds(30), Duration.ofMinutes(30)),
+                userService, revokedTokens,
+                runnable -> Thread.ofVirtual().unstarted(() -> { }),
+                SseEmitter::new);
+    }
+
+    static NewActivityEvent event(long... ids) {
+        return new NewActivityEvent(ActivityBroadcasterTest.class, LongStream.of(ids)
+                .mapToObj(id -> new AuditLog(id, 1L, "admin", AuditActionType.USER_CREATED, AuditTargetType.USER,
+                        String.valueOf(id), "User " + id, null, Instant.now()))
+                .toList());
+    }
+
+    @Test
+    void subscribe_followsTheLatestActivity() {
+
+        final ActivityBroadcaster broadcaster = broadcaster(10, 10);
+
+        broadcaster.subscribe(VIEWER);
+        broadcaster.subscribe(VIEWER);
+
+        assertThat(broadcaster.subscribers()).isEqualTo(2);
+        verify(recentActivity, times(2)).follow();
+    }
+
+    @Test
+    void subscribe_withAnAccessTokenExpiringFirst_timesOutWithIt() {
+
+        final ActivityBroadcaster broadcaster = broadcaster(10, 10);
+
+        final SseEmitter emitter = broadcaster.subscribe(new AccessTokenClaims("token-1", "viewer", Instant.now().plus(Duration.ofMinutes(5))));
+
+        assertThat(emitter.getTimeout()).isBetween(Duration.ofMinutes(4).toMillis(), Duration.ofMinutes(5).toMillis());
+        assertThat(broadcaster.subscribe(VIEWER).getTimeout()).isEqualTo(Duration.ofMinutes(30).toMillis());
+    }
+
+    @Test
+    void subscribe_overTheLimit_isRejected() {
+
+        final ActivityBroadcaster broadcaster = broadcaster(1, 10);
+        broadcaster.subscribe(VIEWER);
+
+        assertThatThrownBy(() -> broadcaster.subscribe(VIEWER)).isInstanceOf(HttpServiceUnavailableException.class);
+        assertThat(broadcaster.subscribers()).isEqualTo(1);
+    }
+
+    @Test
+    void onNewActivity_aSubscriberWithAFullBuffer_isDroppedWithoutBlocking() {
+
+        // The first heartbeat takes one slot
+        final ActivityBroadcaster broadcaster = broadcaster(10, 4);
+        broadcaster.subscribe(VIEWER);
+
+        broadcaster.onNewActivity(event(1, 2, 3));
+        assertThat(broadcaster.subscribers()).isEqualTo(1);
+
+        broadcaster.onNewActivity(event(4));
+        assertThat(broadcaster.subscribers()).isZero();
+        verify(recentActivity).unfollow();
+    }
+
+    @Test
+    void heartbeat_closesTheStreamsOfRevokedTokensAndDisabledUsers() {
+
+        final User disabled = createUser("disabled");
+        disabled.setEnabled(false);
+        when(userService.loadUserByUsername("disabled")).thenReturn(disabled);
+        when(userService.loadUserByUsername("deleted")).thenThrow(new UsernameNotFoundException("deleted"));
+        when(revokedTokens.isRevoked("token-2")).thenReturn(true);
+
+        final ActivityBroadcaster broadcaster = broadcaster(10, 10);
+        broadcaster.subscribe(VIEWER);
+        broadcaster.subscribe(claims("token-2", "viewer"));
+        broadcaster.subscribe(claims("token-3", "disabled"));
+        broadcaster.subscribe(claims("token-4", "deleted"));
+
+        broadcaster.heartbeat();
+
+        // Only the stream of the valid token is left, its user was loaded once
+        assertThat(broadcaster.subscribers()).isEqualTo(1);
+        verify(recentActivity, times(3)).unfollow();
+        verify(userService, times(1)).loadUserByUsername("viewer");
+    }
+
+    @Test
+    void heartbeat_whenTheUserCanNotBeLoaded_keepsTheStream() {
+
+        when(userService.loadUserByUsername("viewer")).thenThrow(new IllegalStateException("Database unavailable"));
+
+        final ActivityBroadcaster broadcaster = broadcaster(10, 10);
+        broadcaster.subscribe(VIEWER);
+
+        broadcaster.heartbeat();
+
+        assertThat(broadcaster.subscribers()).isEqualTo(1);
+    }
+
+    @Test
+    void destroy_closesEveryStream() {
+
+        final ActivityBroadcaster broadcaster = broadcaster(10, 10);
+        broadcaster.subscribe(VIEWER);
+        broadcaster.subscribe(VIEWER);
+
+        broadcaster.destroy();
+
+        assertThat(broadcaster.subscribers()).isZero();
+        verify(recentActivity, times(2)).unfollow();
+
+        // Nobody left to offer to
+        broadcaster.onNewActivity(event(1));
+        assertThat(broadcaster.subscribers()).isZero();
+    }
+
+    @Test
+    void onNewActivity_withTheSenderStuckInASend_dropsWithoutWaitingForIt() throws Exception {
+
+        // A client that stopped reading: the send holds the emitter lock and ignores interrupts
+        final StalledEmitter emitter = new StalledEmitter();
+        final ActivityBroadcaster broadcaster = new ActivityBroadcaster(recentActivity, new ObjectMapper().registerModule(new JavaTimeModule()),
+                new ActivityStreamProperties(10, 1, Duration.ofSeconds(30), Duration.ofMinutes(30)),
+                userService, revokedTokens,
+                Thread.ofVirtual().name("sender").factory(),
+                timeout -> emitter);
+
+        broadcaster.subscribe(VIEWER);
+        assertThat(emitter.sending.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When the buffer overflows, the publisher returns right away
+        CompletableFuture.runAsync(() -> broadcaster.onNewActivity(event(1, 2))).get(5, TimeUnit.SECONDS);
+        assertThat(broadcaster.subscribers()).isZero();
+
+        // Then the sender completes the stream once its send returns
+        emitter.release.countDown();
+        assertThat(emitter.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(emitter.completedBy).isEqualTo("sender");
+    }
+
+    /**
+     * An emitter whose sends block until released
+     */
+    static class StalledEmitter extends SseEmitter {
+
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        volatile String completedBy;
+
+        @Override
+        public synchronized void send(final SseEventBuilder builder) {
+            sending.countDown();
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // A stalled socket write is not interrupted
+                }
+            }
+        }
+
+        @Override
+        public synchronized void complete() {
+            completedBy = Thread.currentThread().getName();
+            completed.countDown();
+        }
+    }
+}
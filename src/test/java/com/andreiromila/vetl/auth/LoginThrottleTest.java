@@ -0,0 +1,135 @@
+package com.andreiromila.vetl.auth;
+
+import com.andreiromila.vetl.exceptions.HttpTooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginThrottleTest {
+
+    /**
+     * Mutable clock, lets the tests move the time forward
+     */
+    static class TestClock extends Clock {
+
+        Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    TestClock clock;
+
+    LoginThrottle throttle;
+
+    @BeforeEach
+    void setUp() {
+        clock = new TestClock();
+        throttle = new LoginThrottle(new LoginThrottleProperties(true, Duration.ofMinutes(10), 3, 5, 1024), clock);
+    }
+
+    @Test
+    void checkAllowed_afterTooManyUsernameFailures_rejectsTheUsername() {
+
+        // Given john failed three times
+        for (int i = 0; i < 3; i++) {
+            throttle.recordFailure("john", "10.0.0." + i);
+        }
+
+        // Then john is rejected from any address, case-insensitively
+        assertThatThrownBy(() -> throttle.checkAllowed("John", "10.0.0.99"))
+                .isInstanceOf(HttpTooManyRequestsException.class);
+
+        // But other users are not
+        assertThatCode(() -> throttle.checkAllowed("jane", "10.0.0.99")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void checkAllowed_afterTooManyAddressFailures_rejectsTheAddress() {
+
+        // Given one address failed with five different usernames
+        for (int i = 0; i < 5; i++) {
+            throttle.recordFailure("user" + i, "10.0.0.1");
+        }
+
+        // Then the address is rejected, even for a fresh username
+        assertThatThrownBy(() -> throttle.checkAllowed("jane", "10.0.0.1"))
+                .isInstanceOf(HttpTooManyRequestsException.class);
+
+        assertThatCode(() -> throttle.checkAllowed("jane", "10.0.0.2")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void checkAllowed_afterTheWindowSlides_allowsAgain() {
+
+        // Given john is throttled
+        for (int i = 0; i < 3; i++) {
+            throttle.recordFailure("john", "10.0.0.1");
+        }
+
+        // When two windows have passed
+        clock.now = clock.now.plus(Duration.ofMinutes(20));
+
+        // Then the failures are forgotten
+        assertThatCode(() -> throttle.checkAllowed("john", "10.0.0.1")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void recordSuccess_clearsTheUsernameFailures() {
+
+        throttle.recordFailure("john", "10.0.0.1");
+        throttle.recordFailure("john", "10.0.0.1");
+        throttle.recordSuccess("john");
+        throttle.recordFailure("john", "10.0.0.1");
+
+        assertThatCode(() -> throttle.checkAllowed("john", "10.0.0.2")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void checkAllowed_whenDisabled_neverRejects() {
+
+        final LoginThrottle disabled = new LoginThrottle(new LoginThrottleProperties(false, Duration.ofMinutes(10), 1, 1, 1024), clock);
+
+        disabled.recordFailure("john", "10.0.0.1");
+        disabled.recordFailure("john", "10.0.0.1");
+
+        assertThatCode(() -> disabled.checkAllowed("john", "10.0.0.1")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void bindTo_exportsFailuresAndRejections() {
+
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        throttle.bindTo(registry);
+
+        for (int i = 0; i < 3; i++) {
+            throttle.recordFailure("john", "10.0.0." + i);
+        }
+        assertThatThrownBy(() -> throttle.checkAllowed("john", "10.0.0.99"));
+
+        assertThat(registry.get("vetl.login.failures").functionCounter().count()).isEqualTo(3);
+        assertThat(registry.get("vetl.login.throttled").tag("key", "username").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("vetl.login.throttled").tag("key", "address").functionCounter().count()).isZero();
+    }
+}
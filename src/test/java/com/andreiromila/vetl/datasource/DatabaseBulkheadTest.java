@@ -0,0 +1,145 @@
+package com.andreiromila.vetl.datasource;
+
+import com.andreiromila.vetl.exceptions.HttpServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DatabaseBulkheadTest {
+
+    static DatabaseBulkhead bulkhead(int maxConcurrent, int maxQueue, Duration maxWait) {
+        return new DatabaseBulkhead(BulkheadGroup.READ, new DatabaseBulkheadProperties.Group(maxConcurrent, maxQueue, maxWait));
+    }
+
+    @Test
+    void acquire_whenSaturated_waitsAtMostMaxWaitThenRejects() {
+
+        // Given every slot is taken
+        final DatabaseBulkhead bulkhead = bulkhead(1, 10, Duration.ofMillis(50));
+        bulkhead.acquire();
+
+        // Then the next one is rejected after waiting
+        final long start = System.nanoTime();
+        assertThatThrownBy(bulkhead::acquire).isInstanceOf(HttpServiceUnavailableException.class);
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+        assertThat(bulkhead.queued()).isZero();
+
+        // And a released slot can be taken again
+        bulkhead.release();
+        bulkhead.acquire();
+        assertThat(bulkhead.active()).isEqualTo(1);
+    }
+
+    @Test
+    void acquire_withAFullQueue_rejectsRightAway() throws InterruptedException {
+
+        // Given one slot taken and one request waiting for it
+        final DatabaseBulkhead bulkhead = bulkhead(1, 1, Duration.ofSeconds(5));
+        bulkhead.acquire();
+
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread.ofVirtual().start(() -> {
+            bulkhead.acquire();
+            bulkhead.release();
+            done.countDown();
+        });
+        while (bulkhead.queued() == 0) {
+            Thread.onSpinWait();
+        }
+
+        // Then the next request does not wait
+        final long start = System.nanoTime();
+        assertThatThrownBy(bulkhead::acquire).isInstanceOf(HttpServiceUnavailableException.class);
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(1));
+
+        // And the waiting one gets the slot once released
+        bulkhead.release();
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void bindTo_exportsTheWaitHistogramAndTheRejections() {
+
+        final DatabaseBulkhead bulkhead = bulkhead(1, 0, Duration.ZERO);
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        bulkhead.bindTo(registry);
+
+        bulkhead.acquire();
+        assertThatThrownBy(bulkhead::acquire).isInstanceOf(HttpServiceUnavailableException.class);
+
+        assertThat(registry.get("vetl.db.bulkhead.wait").tag("group", "read").timer().count()).isEqualTo(1);
+        assertThat(registry.get("vetl.db.bulkhead.rejected").tag("group", "read").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("vetl.db.bulkhead.active").tag("group", "read").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void groupOf_safeMethodsAreReads() {
+
+        assertThat(DatabaseBulkheadInterceptor.groupOf(new MockHttpServletRequest("GET", "/api/v1/users"))).isEqualTo(BulkheadGroup.READ);
+        assertThat(DatabaseBulkheadInterceptor.groupOf(new MockHttpServletRequest("POST", "/api/v1/users"))).isEqualTo(BulkheadGroup.WRITE);
+        assertThat(DatabaseBulkheadInterceptor.groupOf(new MockHttpServletRequest("DELETE", "/api/v1/users/1"))).isEqualTo(BulkheadGroup.WRITE);
+    }
+
+    @Test
+    void interceptor_withAStreamedBody_holdsTheSlotUntilTheAsyncProcessingEnds() throws Exception {
+
+        final DatabaseBulkheads bulkheads = bulkheads();
+        final DatabaseBulkheadInterceptor interceptor = new DatabaseBulkheadInterceptor(bulkheads);
+        final HandlerMethod handler = new HandlerMethod(new Handlers(), "export");
+
+        // Given a streamed response still being written after the controller returns
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/users/export");
+        request.setAsyncSupported(true);
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, handler);
+        request.startAsync();
+        interceptor.afterConcurrentHandlingStarted(request, response, handler);
+
+        // Then the slot is still taken
+        assertThat(bulkheads.get(BulkheadGroup.READ).active()).isEqualTo(1);
+
+        // And released once, when the body is written and the async processing completes
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        request.setDispatcherType(DispatcherType.ASYNC);
+        request.setAsyncStarted(false);
+        interceptor.afterCompletion(request, response, handler, null);
+
+        assertThat(bulkheads.get(BulkheadGroup.READ).active()).isZero();
+    }
+
+    @Test
+    void interceptor_withoutDatabaseBulkhead_takesNoSlot() throws Exception {
+
+        final DatabaseBulkheads bulkheads = bulkheads();
+        final DatabaseBulkheadInterceptor interceptor = new DatabaseBulkheadInterceptor(bulkheads);
+
+        interceptor.preHandle(new MockHttpServletRequest("POST", "/api/v1/login"), new MockHttpServletResponse(), new HandlerMethod(new Handlers(), "login"));
+
+        assertThat(bulkheads.get(BulkheadGroup.WRITE).active()).isZero();
+    }
+
+    static DatabaseBulkheads bulkheads() {
+        final DatabaseBulkheadProperties.Group group = new DatabaseBulkheadProperties.Group(1, 0, Duration.ZERO);
+        return new DatabaseBulkheads(new DatabaseBulkheadProperties(true, group, group, group));
+    }
+
+    static class Handlers {
+
+        public void export() { }
+
+        @WithoutDatabaseBulkhead
+        public void login() { }
+    }
+}
@@ -0,0 +1,128 @@
+package com.andreiromila.vetl.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_MOCKS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTest {
+
+    DataSource primary;
+    DataSource first;
+    DataSource second;
+    ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() {
+        primary = mock(DataSource.class, RETURNS_MOCKS);
+        first = mock(DataSource.class, RETURNS_MOCKS);
+        second = mock(DataSource.class, RETURNS_MOCKS);
+
+        final Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("first", first);
+        replicas.put("second", second);
+        routing = new ReplicaRoutingDataSource(primary, replicas);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void route_readOnly_alternatesBetweenTheHealthyReplicas() {
+
+        routing.setHealthy("first", true);
+        routing.setHealthy("second", true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(routing.route()).isEqualTo("first");
+        assertThat(routing.route()).isEqualTo("second");
+        assertThat(routing.route()).isEqualTo("first");
+
+        // An excluded replica is skipped
+        routing.setHealthy("first", false);
+        assertThat(routing.route()).isEqualTo("second");
+        assertThat(routing.route()).isEqualTo("second");
+    }
+
+    @Test
+    void route_withoutAHealthyReplicaOrForWrites_usesThePrimary() {
+
+        // Replicas are not used until the lag monitor checks them
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(routing.route()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+
+        routing.setHealthy("first", true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        assertThat(routing.route()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+    }
+
+    @Test
+    void getConnection_withAnUnreachableReplica_fallsBackToThePrimary() throws SQLException {
+
+        routing.setHealthy("first", true);
+        when(first.getConnection()).thenThrow(new SQLException("Connection refused"));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        routing.getConnection();
+
+        verify(primary).getConnection();
+        assertThat(routing.isHealthy("first")).isFalse();
+    }
+
+    @Test
+    void readOnlyTransaction_throughTheLazyProxy_runsOnAReplica() throws SQLException {
+
+        // Given the data source is wired like in the configuration
+        routing.setHealthy("second", true);
+        final DataSource dataSource = ReplicaDataSourceConfig.lazy(routing);
+        final TransactionTemplate transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        // When a read-only transaction runs a statement
+        transactions.setReadOnly(true);
+        transactions.executeWithoutResult(status -> jdbcTemplate.execute("SELECT 1"));
+
+        // Then the replica serves it
+        verify(second).getConnection();
+        verify(primary, never()).getConnection();
+
+        // And a read-write transaction goes to the primary
+        transactions.setReadOnly(false);
+        transactions.executeWithoutResult(status -> jdbcTemplate.execute("UPDATE user SET enabled = TRUE WHERE id = 0"));
+
+        verify(primary).getConnection();
+        verify(first, never()).getConnection();
+    }
+
+    @Test
+    void getConnection_outsideATransaction_usesThePrimary() throws SQLException {
+
+        routing.setHealthy("first", true);
+
+        final Connection connection = routing.getConnection();
+
+        assertThat(connection).isNotNull();
+        verify(primary).getConnection();
+        verify(first, never()).getConnection();
+        verify(primary, never()).getConnection(anyString(), anyString());
+    }
+}
@@ -0,0 +1,143 @@
+package com.andreiromila.vetl.datasource;
+
+import com.andreiromila.vetl.VortexEtlApp;
+import com.andreiromila.vetl.user.User;
+import com.andreiromila.vetl.user.UserRepository;
+import com.andreiromila.vetl.user.UserService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+import java.util.UUID;
+
+import static com.andreiromila.vetl.factories.AggregatesFactory.createUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs a node with a primary and a replica database. The replica is a
+ * standalone copy of the schema, so the tests decide what it lags behind.
+ */
+@Testcontainers
+class ReplicaRoutingIntegrationTest {
+
+    static MySQLContainer<?> primaryContainer = new MySQLContainer<>(DockerImageName.parse("mysql:8.0"));
+
+    static MySQLContainer<?> replicaContainer = new MySQLContainer<>(DockerImageName.parse("mysql:8.0"));
+
+    static ConfigurableApplicationContext node;
+
+    /**
+     * Writes to the replica only, like the replication thread would
+     */
+    static JdbcTemplate replica;
+
+    /**
+     * Writes to the primary only, without the application
+     */
+    static JdbcTemplate primary;
+
+    @BeforeAll
+    static void beforeAll() {
+        primaryContainer.start();
+        replicaContainer.start();
+
+        // The node migrates the primary only
+        Flyway.configure()
+                .dataSource(replicaContainer.getJdbcUrl(), replicaContainer.getUsername(), replicaContainer.getPassword())
+                .load()
+                .migrate();
+
+        replica = jdbcTemplate(replicaContainer);
+        primary = jdbcTemplate(primaryContainer);
+
+        node = new SpringApplicationBuilder(VortexEtlApp.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.profiles.active=test",
+                        "--spring.datasource.url=" + primaryContainer.getJdbcUrl(),
+                        "--spring.datasource.username=" + primaryContainer.getUsername(),
+                        "--spring.datasource.password=" + primaryContainer.getPassword(),
+                        "--spring.flyway.url=" + primaryContainer.getJdbcUrl(),
+                        "--spring.flyway.user=" + primaryContainer.getUsername(),
+                        "--spring.flyway.password=" + primaryContainer.getPassword(),
+                        "--application.datasource.replicas.enabled=true",
+                        "--application.datasource.replicas.instances[0].name=replica",
+                        "--application.datasource.replicas.instances[0].url=" + replicaContainer.getJdbcUrl(),
+                        "--application.datasource.replicas.instances[0].username=" + replicaContainer.getUsername(),
+                        "--application.datasource.replicas.instances[0].password=" + replicaContainer.getPassword(),
+                        // Not replicating, and without the REPLICATION CLIENT privilege: no lag
+                        "--application.datasource.replicas.lag-query=SELECT 0",
+                        "--application.datasource.replicas.lag-check-interval=1h",
+                        "--minio.endpoint=http://localhost:9000",
+                        "--minio.access-key=unused",
+                        "--minio.secret-key=unused",
+                        "--minio.bucket-name=unused",
+                        // Nothing is rolled back here, the principal cache can be used
+                        "--application.user.principal-cache.enabled=true"
+                );
+
+        node.getBean(ReplicaLagMonitor.class).check();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        node.close();
+        primaryContainer.stop();
+        replicaContainer.stop();
+    }
+
+    static JdbcTemplate jdbcTemplate(final MySQLContainer<?> container) {
+        return new JdbcTemplate(new DriverManagerDataSource(container.getJdbcUrl(), container.getUsername(), container.getPassword()));
+    }
+
+    /**
+     * Copies a user saved on the primary to the replica
+     */
+    static void replicate(final User user) {
+        replica.update("INSERT INTO user (id, username, password, email, full_name, enabled) VALUES (?, ?, ?, ?, ?, ?)",
+                user.getId(), user.getUsername(), user.getPassword(), user.getEmail(), user.getFullName(), user.isEnabled());
+    }
+
+    @Test
+    void readOnlyTransaction_isServedByTheReplica() {
+
+        // Given a user only the replica knows
+        final User user = createUser("replica." + UUID.randomUUID().toString().substring(0, 8));
+        user.setId(1_000_000L);
+        replicate(user);
+
+        // Then a read-only query finds it
+        assertThat(node.getBean(UserRepository.class).findExistingUsernames(List.of(user.getUsername())))
+                .containsExactly(user.getUsername());
+    }
+
+    @Test
+    void loadUserByUsername_afterADisableNotYetReplicated_readsThePrimary() {
+
+        // Given an enabled user on both databases
+        final String username = "stale." + UUID.randomUUID().toString().substring(0, 8);
+        final User user = node.getBean(UserRepository.class).save(createUser(username));
+        replicate(user);
+
+        // When the user is disabled on the primary and the replica lags behind
+        primary.update("UPDATE user SET enabled = FALSE WHERE id = ?", user.getId());
+
+        // Then the principal is loaded, and cached, from the primary
+        final UserService userService = node.getBean(UserService.class);
+        assertThat(userService.loadUserByUsername(username).isEnabled()).isFalse();
+        assertThat(userService.loadUserByUsername(username).isEnabled()).isFalse();
+
+        // While the replica still has the old state
+        assertThat(replica.queryForObject("SELECT enabled FROM user WHERE id = ?", Boolean.class, user.getId())).isTrue();
+    }
+}
@@ -0,0 +1,125 @@
+package com.andreiromila.vetl.invalidation;
+
+import com.andreiromila.vetl.VortexEtlApp;
+import com.andreiromila.vetl.token.TokenService;
+import com.andreiromila.vetl.token.TokenWithExpiration;
+import com.andreiromila.vetl.user.User;
+import com.andreiromila.vetl.user.UserRepository;
+import com.andreiromila.vetl.user.UserService;
+import com.andreiromila.vetl.user.web.UserDetailsUpdateRequest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.UUID;
+
+import static com.andreiromila.vetl.factories.AggregatesFactory.createUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs two application contexts (nodes) against the same database.
+ * The tests drive the polling so they do not depend on timing.
+ */
+@Testcontainers
+class ClusterInvalidationIntegrationTest {
+
+    static final String AGENT = "Cluster Integration-Tests Agent";
+
+    static MySQLContainer<?> mySqlContainer =
+            new MySQLContainer<>(DockerImageName.parse("mysql:8.0"))
+                    .withReuse(true);
+
+    static ConfigurableApplicationContext nodeA;
+
+    static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void beforeAll() {
+        mySqlContainer.start();
+        nodeA = startNode();
+        nodeB = startNode();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    static ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(VortexEtlApp.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.profiles.active=test",
+                        "--spring.datasource.url=" + mySqlContainer.getJdbcUrl(),
+                        "--spring.datasource.username=" + mySqlContainer.getUsername(),
+                        "--spring.datasource.password=" + mySqlContainer.getPassword(),
+                        "--spring.flyway.url=" + mySqlContainer.getJdbcUrl(),
+                        "--spring.flyway.user=" + mySqlContainer.getUsername(),
+                        "--spring.flyway.password=" + mySqlContainer.getPassword(),
+                        "--minio.endpoint=http://localhost:9000",
+                        "--minio.access-key=unused",
+                        "--minio.secret-key=unused",
+                        "--minio.bucket-name=unused",
+                        // Nothing is rolled back here, the principal cache can be used
+                        "--application.user.principal-cache.enabled=true",
+                        // The tests call poll() themselves
+                        "--application.invalidation.poll-interval=1h"
+                );
+    }
+
+    @Test
+    void invalidate_onOneNode_revokesTheTokenOnTheOtherNode() {
+
+        // Given a session used on both nodes
+        final TokenWithExpiration session = nodeA.getBean(TokenService.class).createToken("cluster." + UUID.randomUUID(), AGENT);
+        final TokenService tokenServiceB = nodeB.getBean(TokenService.class);
+        tokenServiceB.refresh(session.refreshToken(), AGENT);
+
+        // When the user logs out on node A
+        nodeA.getBean(TokenService.class).invalidate(session.token());
+
+        // And node B tails the change log
+        nodeB.getBean(InvalidationBus.class).poll();
+
+        // Then node B rejects both tokens without a restart
+        assertThatThrownBy(() -> tokenServiceB.extractUsername(session.token(), AGENT))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("disabled");
+
+        assertThatThrownBy(() -> tokenServiceB.refresh(session.refreshToken(), AGENT))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("disabled");
+    }
+
+    @Test
+    void updateUserDetails_onOneNode_evictsThePrincipalOnTheOtherNode() {
+
+        // Given a user cached on node B
+        final String username = "cluster." + UUID.randomUUID().toString().substring(0, 8);
+        final User user = nodeA.getBean(UserRepository.class).save(createUser(username));
+        final UserService userServiceB = nodeB.getBean(UserService.class);
+        userServiceB.loadUserByUsername(username);
+
+        try {
+            // When the user is renamed on node A
+            nodeA.getBean(UserService.class).updateUserDetails(username, new UserDetailsUpdateRequest("Renamed On Node A", 3L, true));
+
+            // And node B tails the change log
+            nodeB.getBean(InvalidationBus.class).poll();
+
+            // Then node B loads the new state
+            assertThat(userServiceB.loadUserByUsername(username).getFullName()).isEqualTo("Renamed On Node A");
+
+        } finally {
+            nodeA.getBean(UserRepository.class).delete(user);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.andreiromila.vetl.invalidation;
+
+import com.andreiromila.vetl.AbstractDatabaseTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InvalidationBusTest extends AbstractDatabaseTest {
+
+    @Autowired
+    NamedParameterJdbcTemplate jdbcTemplate;
+
+    final List<CacheInvalidationEvent> received = new ArrayList<>();
+
+    final ApplicationEventPublisher publisher = event -> received.add((CacheInvalidationEvent) event);
+
+    InvalidationBus node(Duration gapGrace, ApplicationEventPublisher eventPublisher) {
+        final InvalidationBus bus = new InvalidationBus(jdbcTemplate, eventPublisher, new InvalidationProperties(true, 100, gapGrace, Duration.ofHours(1)));
+        bus.afterSingletonsInstantiated();
+        return bus;
+    }
+
+    @Test
+    void poll_withChangesFromAnotherNode_publishesThemLocally() {
+
+        // Given two nodes tailing the same table
+        final InvalidationBus nodeA = node(Duration.ofSeconds(10), event -> { });
+        final InvalidationBus nodeB = node(Duration.ofSeconds(10), publisher);
+
+        // When node A publishes a revocation
+        final Instant expiresAt = Instant.now().plusSeconds(60);
+        nodeA.publish(InvalidationTopic.TOKEN, "token-uuid", expiresAt);
+        nodeB.poll();
+
+        // Then node B receives it
+        assertThat(received).hasSize(1);
+        assertThat(received.getFirst().getTopic()).isEqualTo(InvalidationTopic.TOKEN);
+        assertThat(received.getFirst().getKey()).isEqualTo("token-uuid");
+        assertThat(received.getFirst().getExpiresAt()).isNotNull();
+    }
+
+    @Test
+    void poll_withOwnChanges_doesNotPublishThem() {
+
+        // Given a node that already applied its change locally
+        final InvalidationBus node = node(Duration.ofSeconds(10), publisher);
+        node.publish(InvalidationTopic.PRINCIPAL, "john", null);
+
+        // When it reads its own row
+        node.poll();
+
+        // Then nothing is published again, but the cursor moves
+        assertThat(received).isEmpty();
+        assertThat(node.cursor()).isEqualTo(maxId());
+    }
+
+    @Test
+    void poll_calledTwice_publishesEachChangeOnce() {
+
+        final InvalidationBus nodeA = node(Duration.ofSeconds(10), event -> { });
+        final InvalidationBus nodeB = node(Duration.ofSeconds(10), publisher);
+
+        nodeA.publish(InvalidationTopic.PRINCIPAL, "john", null);
+        nodeB.poll();
+        nodeB.poll();
+
+        assertThat(received).hasSize(1);
+    }
+
+    @Test
+    void poll_withMissingId_waitsForItDuringTheGrace() {
+
+        // Given a row whose previous id is not visible (uncommitted or rolled back)
+        final InvalidationBus node = node(Duration.ofHours(1), publisher);
+        final long start = node.cursor();
+        insert(start + 2, "john");
+
+        // When the node polls twice
+        node.poll();
+        node.poll();
+
+        // Then the row is applied once and the cursor waits before the hole
+        assertThat(received).hasSize(1);
+        assertThat(node.cursor()).isEqualTo(start);
+
+        // And moves on when the missing row shows up
+        insert(start + 1, "jane");
+        node.poll();
+
+        assertThat(received).extracting(CacheInvalidationEvent::getKey).containsExactly("john", "jane");
+        assertThat(node.cursor()).isEqualTo(start + 2);
+    }
+
+    @Test
+    void poll_withMissingIdAfterTheGrace_skipsIt() {
+
+        // Given a node that does not wait for missing ids
+        final InvalidationBus node = node(Duration.ZERO, publisher);
+        final long start = node.cursor();
+        insert(start + 2, "john");
+
+        // When it polls
+        node.poll();
+
+        // Then the hole is skipped
+        assertThat(received).hasSize(1);
+        assertThat(node.cursor()).isEqualTo(start + 2);
+    }
+
+    private void insert(long id, String username) {
+        jdbcTemplate.update("INSERT INTO cache_invalidation (id, topic, entity_key, origin) VALUES (:id, 'PRINCIPAL', :key, 'other-node')",
+                new MapSqlParameterSource().addValue("id", id).addValue("key", username));
+    }
+
+    private long maxId() {
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM cache_invalidation", new MapSqlParameterSource(), Long.class);
+    }
+}
@@ -63,9 +63,10 @@ class EmailServiceTest {
         when(mockEmailSender.createMimeMessage()).thenReturn(mimeMessage);
 
         // When
-        emailService.sendActivationEmail(testUser, activationLink);
+        final boolean sent = emailService.sendActivationEmail(testUser, activationLink);
 
         // Then
+        assertThat(sent).isTrue();
         ArgumentCaptor<MimeMessage> captor = ArgumentCaptor.forClass(MimeMessage.class);
         verify(mockEmailSender).send(captor.capture());
 
@@ -86,9 +87,10 @@ class EmailServiceTest {
         freemarkerConfig.setTemplateLoader(null); // Desactivamos el cargador de plantillas para forzar un error.
 
         // When
-        emailService.sendActivationEmail(testUser, "some-link");
+        final boolean sent = emailService.sendActivationEmail(testUser, "some-link");
 
-        // Then
+        // Then the failure is reported, the outbox retries it
+        assertThat(sent).isFalse();
         verify(mockEmailSender, never()).send(any(MimeMessage.class));
     }
 
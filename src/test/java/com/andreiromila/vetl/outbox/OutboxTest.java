@@ -0,0 +1,187 @@
+package com.andreiromila.vetl.outbox;
+
+import com.andreiromila.vetl.AbstractDatabaseTest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OutboxTest extends AbstractDatabaseTest {
+
+    static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    record Ping(String value) {
+    }
+
+    /**
+     * Records the payloads it receives, or fails every call
+     */
+    static class RecordingHandler implements OutboxHandler {
+
+        final String name;
+        final boolean failing;
+        final List<List<String>> calls = new ArrayList<>();
+
+        RecordingHandler(String name, boolean failing) {
+            this.name = name;
+            this.failing = failing;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public OutboxEventType type() {
+            return OutboxEventType.USER_CREATED;
+        }
+
+        @Override
+        public int batchSize() {
+            return 2;
+        }
+
+        @Override
+        public void handle(List<OutboxEvent> events) {
+            if (failing) {
+                throw new IllegalStateException("SMTP is down");
+            }
+            calls.add(events.stream().map(event -> event.payload(objectMapper, Ping.class).value()).toList());
+        }
+    }
+
+    Outbox outbox(OutboxHandler... handlers) {
+        return new Outbox(jdbcTemplate, objectMapper, List.of(handlers), transactionManager, Runnable::run,
+                new OutboxProperties(true, 100, Duration.ofMinutes(5), 10, Duration.ofSeconds(10), Duration.ofDays(7)));
+    }
+
+    @Test
+    void relay_deliversEachEventToEveryHandlerInBatches() {
+
+        // Given two handlers of the same type
+        final RecordingHandler audit = new RecordingHandler("AUDIT", false);
+        final RecordingHandler email = new RecordingHandler("EMAIL", false);
+        final Outbox outbox = outbox(audit, email);
+
+        // When three events are appended and relayed
+        outbox.appendAll(OutboxEventType.USER_CREATED, List.of(new Ping("a"), new Ping("b"), new Ping("c")));
+        final int handled = outbox.relay();
+
+        // Then every handler got every event, in order and in batches of two
+        assertThat(handled).isEqualTo(6);
+        assertThat(audit.calls).containsExactly(List.of("a", "b"), List.of("c"));
+        assertThat(email.calls).containsExactly(List.of("a", "b"), List.of("c"));
+        assertThat(pending()).isZero();
+    }
+
+    @Test
+    void relay_calledTwice_deliversEachEventOnce() {
+
+        final RecordingHandler audit = new RecordingHandler("AUDIT", false);
+        final Outbox outbox = outbox(audit);
+
+        outbox.append(OutboxEventType.USER_CREATED, new Ping("a"));
+        outbox.relay();
+        outbox.relay();
+
+        assertThat(audit.calls).containsExactly(List.of("a"));
+    }
+
+    @Test
+    void relay_withFailingHandler_schedulesTheRetry() {
+
+        // Given a handler that fails
+        final Outbox outbox = outbox(new RecordingHandler("EMAIL", true));
+        outbox.append(OutboxEventType.USER_CREATED, new Ping("a"));
+
+        // When the event is relayed twice
+        assertThat(outbox.relay()).isZero();
+        assertThat(outbox.relay()).isZero();
+
+        // Then it failed once and waits for its retry delay
+        assertThat(jdbcTemplate.queryForObject("""
+                SELECT attempts FROM outbox_event WHERE processed_at IS NULL AND available_at > :now AND last_error = 'SMTP is down'
+                """, new MapSqlParameterSource("now", Timestamp.from(Instant.now())), Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void relay_withTheLeaseTakenByAnotherRelay_rollsBackTheCall() {
+
+        // Given a handler whose rows are reclaimed by another relay while it runs
+        final RecordingHandler audit = new RecordingHandler("AUDIT", false) {
+            @Override
+            public void handle(List<OutboxEvent> events) {
+                super.handle(events);
+                jdbcTemplate.update("UPDATE outbox_event SET locked_by = 'another-relay'", new MapSqlParameterSource());
+            }
+        };
+        final Outbox outbox = outbox(audit);
+        outbox.append(OutboxEventType.USER_CREATED, new Ping("a"));
+
+        // When it is relayed
+        final int handled = outbox.relay();
+
+        // Then the call is not counted, and the row is neither processed nor failed
+        assertThat(audit.calls).containsExactly(List.of("a"));
+        assertThat(handled).isZero();
+        assertThat(pending()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT attempts FROM outbox_event", new MapSqlParameterSource(), Integer.class)).isZero();
+    }
+
+    @Test
+    void relay_countsTheBacklogOfEachHandler() {
+
+        // Given a handler that delivers and one that fails
+        final Outbox outbox = outbox(new RecordingHandler("AUDIT", false), new RecordingHandler("EMAIL", true));
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        outbox.bindTo(registry);
+
+        // When two events are relayed
+        outbox.appendAll(OutboxEventType.USER_CREATED, List.of(new Ping("a"), new Ping("b")));
+        outbox.relay();
+
+        // Then only the failed rows are left, waiting for their retry
+        assertThat(registry.get("vetl.outbox.pending").tag("handler", "AUDIT").gauge().value()).isZero();
+        assertThat(registry.get("vetl.outbox.pending").tag("handler", "EMAIL").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void append_withoutHandlers_writesNothing() {
+
+        outbox().append(OutboxEventType.USER_CREATED, new Ping("a"));
+
+        assertThat(pending()).isZero();
+    }
+
+    @Test
+    void retryDelay_doublesUpToOneHour() {
+
+        final Outbox outbox = outbox();
+
+        assertThat(outbox.retryDelay(0)).isEqualTo(Duration.ofSeconds(10));
+        assertThat(outbox.retryDelay(3)).isEqualTo(Duration.ofSeconds(80));
+        assertThat(outbox.retryDelay(30)).isEqualTo(Duration.ofHours(1));
+    }
+
+    long pending() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_event WHERE processed_at IS NULL", new MapSqlParameterSource(), Long.class);
+    }
+}
@@ -0,0 +1,105 @@
+package com.andreiromila.vetl.responses;
+
+import com.andreiromila.vetl.exceptions.HttpBadRequestException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TotalCountCacheTest {
+
+    static TotalCountCache cache() {
+        return new TotalCountCache(new TotalCountProperties(Duration.ofMinutes(1), 10));
+    }
+
+    @Test
+    void estimate_calledTwice_countsOnlyOnce() {
+
+        // Given a slice with a next page
+        final TotalCountCache cache = cache();
+        final AtomicInteger counts = new AtomicInteger();
+        final Slice<String> slice = new SliceImpl<>(List.of("a", "b"), PageRequest.of(0, 2), true);
+
+        // When the same listing is estimated twice
+        cache.estimate("users", slice, () -> { counts.incrementAndGet(); return 40; });
+        final Slice<String> page = cache.estimate("users", slice, () -> { counts.incrementAndGet(); return 50; });
+
+        // Then the second request reuses the first count
+        assertThat(counts).hasValue(1);
+        assertThat(page).isInstanceOf(EstimatedPage.class);
+        assertThat(((EstimatedPage<String>) page).getTotalElements()).isEqualTo(40);
+    }
+
+    @Test
+    void estimate_onTheLastSlice_returnsTheExactTotalWithoutCounting() {
+
+        final Slice<String> slice = new SliceImpl<>(List.of("e"), PageRequest.of(2, 2), false);
+
+        final Slice<String> page = cache().estimate("users", slice, () -> { throw new AssertionError("counted"); });
+
+        assertThat(CustomPage.from(page.getContent(), page))
+                .satisfies(custom -> {
+                    assertThat(custom.totalElements()).isEqualTo(5);
+                    assertThat(custom.totalPages()).isEqualTo(3);
+                    assertThat(custom.exactTotal()).isTrue();
+                    assertThat(custom.hasNext()).isFalse();
+                });
+    }
+
+    @Test
+    void estimate_withAStaleCount_neverReportsLessThanTheRowsSeen() {
+
+        // Given a count taken when there were fewer rows
+        final Slice<String> slice = new SliceImpl<>(List.of("e", "f"), PageRequest.of(2, 2), true);
+
+        final Slice<String> page = cache().estimate("users", slice, () -> 3);
+
+        // Then the total covers the rows read so far plus the next one
+        final CustomPage<String> custom = CustomPage.from(page.getContent(), page);
+        assertThat(custom.totalElements()).isEqualTo(7);
+        assertThat(custom.exactTotal()).isFalse();
+        assertThat(custom.hasNext()).isTrue();
+    }
+
+    @Test
+    void estimatedPage_map_keepsTheTotalEstimated() {
+
+        final Slice<String> page = cache().estimate("users", new SliceImpl<>(List.of("a"), PageRequest.of(0, 1), true), () -> 9);
+
+        final Slice<Integer> mapped = page.map(String::length);
+
+        assertThat(mapped).isInstanceOf(EstimatedPage.class);
+        assertThat(CustomPage.from(mapped.getContent(), mapped).totalElements()).isEqualTo(9);
+    }
+
+    @Test
+    void customPage_fromASlice_hasNoTotal() {
+
+        final Slice<String> slice = new SliceImpl<>(List.of("a", "b"), PageRequest.of(0, 2), true);
+
+        final CustomPage<String> custom = CustomPage.from(slice.getContent(), slice);
+
+        assertThat(custom.totalElements()).isEqualTo(-1);
+        assertThat(custom.totalPages()).isEqualTo(-1);
+        assertThat(custom.page()).isEqualTo(1);
+        assertThat(custom.hasNext()).isTrue();
+    }
+
+    @Test
+    void totalMode_parse_isCaseInsensitiveAndDefaultsToExact() {
+
+        assertThat(TotalMode.parse(null)).isEqualTo(TotalMode.EXACT);
+        assertThat(TotalMode.parse("None")).isEqualTo(TotalMode.NONE);
+        assertThat(TotalMode.parse("approximate")).isEqualTo(TotalMode.APPROXIMATE);
+
+        assertThatThrownBy(() -> TotalMode.parse("maybe"))
+                .isInstanceOf(HttpBadRequestException.class);
+    }
+}
@@ -0,0 +1,83 @@
+package com.andreiromila.vetl.role;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RoleCatalogTest {
+
+    static final Role ADMIN = new Role(1L, "ADMIN", "", Instant.now(), Instant.now());
+    static final Role EDITOR = new Role(2L, "EDITOR", "", Instant.now(), Instant.now());
+    static final Role VIEWER = new Role(3L, "VIEWER", "", Instant.now(), Instant.now());
+
+    RoleRepository roleRepository;
+
+    RoleCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        roleRepository = mock(RoleRepository.class);
+        when(roleRepository.findAll()).thenReturn(List.of(VIEWER, ADMIN, EDITOR));
+        catalog = new RoleCatalog(roleRepository);
+        catalog.afterSingletonsInstantiated();
+    }
+
+    @Test
+    void findAll_returnsTheRolesOrderedById() {
+        assertThat(catalog.findAll()).containsExactly(ADMIN, EDITOR, VIEWER);
+        assertThat(catalog.findById(2)).contains(EDITOR);
+        assertThat(catalog.findById(9)).isEmpty();
+    }
+
+    @Test
+    void rolesAndAuthorities_resolveTheMask() {
+
+        final long mask = RoleCatalog.mask(Set.of(1L, 3L));
+
+        assertThat(catalog.roles(mask)).containsExactlyInAnyOrder(ADMIN, VIEWER);
+        assertThat(catalog.authorities(mask)).extracting("authority").containsExactly("ROLE_ADMIN", "ROLE_VIEWER");
+        assertThat(catalog.roles(0)).isEmpty();
+        assertThat(catalog.authorities(0)).isEmpty();
+    }
+
+    @Test
+    void rolesAndAuthorities_returnSharedInstancesPerMask() {
+
+        final long mask = RoleCatalog.bit(2);
+
+        assertThat(catalog.roles(mask)).isSameAs(catalog.roles(mask));
+        assertThat(catalog.authorities(mask)).isSameAs(catalog.authorities(mask));
+
+        // Unknown bits are ignored
+        assertThat(catalog.authorities(mask | RoleCatalog.bit(40))).isSameAs(catalog.authorities(mask));
+    }
+
+    @Test
+    void refresh_swapsTheSnapshot() {
+
+        final Role auditor = new Role(4L, "AUDITOR", "", Instant.now(), Instant.now());
+        when(roleRepository.findAll()).thenReturn(List.of(ADMIN, EDITOR, VIEWER, auditor));
+
+        catalog.refresh();
+
+        assertThat(catalog.findAll()).hasSize(4);
+        assertThat(catalog.roles(RoleCatalog.bit(4))).containsExactly(auditor);
+        verify(roleRepository, times(2)).findAll();
+    }
+
+    @Test
+    void bit_outOfTheMaskRange_throwsException() {
+        assertThatThrownBy(() -> RoleCatalog.bit(63)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RoleCatalog.bit(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,116 @@
+package com.andreiromila.vetl.security;
+
+import com.andreiromila.vetl.exceptions.HttpServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPasswordEncoderTest {
+
+    /**
+     * Encoder blocking until released, keeps the pool busy
+     */
+    static class BlockingEncoder implements PasswordEncoder {
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+
+    @Test
+    void encodeAndMatches_delegateToTheWrappedEncoder() {
+
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), new PasswordHashingProperties(1, 4, Duration.ofSeconds(5)))) {
+
+            final String hash = encoder.encode("Pa$$w0rd!");
+
+            assertThat(encoder.matches("Pa$$w0rd!", hash)).isTrue();
+            assertThat(encoder.matches("wrong", hash)).isFalse();
+        }
+    }
+
+    @Test
+    void encode_withSaturatedPool_failsFastWithServiceUnavailable() throws Exception {
+
+        final BlockingEncoder blocking = new BlockingEncoder();
+
+        // One thread and one queue slot
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(blocking, new PasswordHashingProperties(1, 1, Duration.ofSeconds(10)))) {
+
+            // Given the thread and the queue are taken
+            final CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+            final CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+            waitUntilQueued(encoder);
+
+            // When another request comes in it is rejected right away
+            assertThatThrownBy(() -> encoder.encode("c"))
+                    .isInstanceOf(HttpServiceUnavailableException.class);
+
+            // And the accepted ones complete once the pool frees up
+            blocking.release.countDown();
+            assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("a");
+            assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("b");
+        }
+    }
+
+    @Test
+    void encode_waitingLongerThanTheTimeout_failsWithServiceUnavailable() {
+
+        final BlockingEncoder blocking = new BlockingEncoder();
+
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(blocking, new PasswordHashingProperties(1, 1, Duration.ofMillis(50)))) {
+
+            assertThatThrownBy(() -> encoder.encode("a"))
+                    .isInstanceOf(HttpServiceUnavailableException.class);
+
+            blocking.release.countDown();
+        }
+    }
+
+    @Test
+    void bindTo_exportsTimingPerOperation() {
+
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), new PasswordHashingProperties(1, 4, Duration.ofSeconds(5)))) {
+            encoder.bindTo(registry);
+
+            encoder.matches("a", encoder.encode("a"));
+
+            assertThat(registry.get("vetl.password.hashing").tag("operation", "encode").functionTimer().count()).isEqualTo(1);
+            assertThat(registry.get("vetl.password.hashing").tag("operation", "matches").functionTimer().count()).isEqualTo(1);
+        }
+    }
+
+    private static void waitUntilQueued(BoundedPasswordEncoder encoder) throws InterruptedException {
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        encoder.bindTo(registry);
+
+        final long deadline = System.currentTimeMillis() + 5_000;
+        while (registry.get("vetl.password.hashing.queued").gauge().value() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
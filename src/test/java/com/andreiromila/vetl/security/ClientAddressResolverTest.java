@@ -0,0 +1,47 @@
+package com.andreiromila.vetl.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientAddressResolverTest {
+
+    final ClientAddressResolver resolver = new ClientAddressResolver(new TrustedProxiesProperties(List.of("10.0.0.0/8", "127.0.0.1")));
+
+    static MockHttpServletRequest request(String remoteAddress, String forwardedFor) {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddress);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+
+    @Test
+    void resolve_withoutProxy_returnsTheRemoteAddress() {
+        assertThat(resolver.resolve(request("203.0.113.7", null))).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    void resolve_behindTrustedProxies_returnsTheFirstUntrustedHop() {
+
+        // The client forged the first hop, the balancer and an internal proxy appended theirs
+        final String address = resolver.resolve(request("10.0.0.2", "1.2.3.4, 203.0.113.7, 10.0.0.1"));
+
+        assertThat(address).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    void resolve_fromAnUntrustedAddress_ignoresTheHeader() {
+        assertThat(resolver.resolve(request("198.51.100.1", "203.0.113.7"))).isEqualTo("198.51.100.1");
+    }
+
+    @Test
+    void resolve_aMalformedHop_stopsAtTheLastTrustedProxy() {
+        assertThat(resolver.resolve(request("127.0.0.1", "evil.example.com"))).isEqualTo("127.0.0.1");
+        assertThat(resolver.resolve(request("127.0.0.1", "203.0.113.7, unknown, 10.0.0.1"))).isEqualTo("10.0.0.1");
+    }
+}
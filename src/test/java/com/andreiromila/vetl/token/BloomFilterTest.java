@@ -0,0 +1,38 @@
+package com.andreiromila.vetl.token;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void mightContain_withAddedKeys_alwaysReturnsTrue() {
+
+        final BloomFilter filter = new BloomFilter(1_000, 0.01);
+        final var keys = IntStream.range(0, 1_000).mapToObj(i -> UUID.randomUUID().toString()).toList();
+
+        keys.forEach(filter::put);
+
+        assertThat(keys).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void mightContain_withUnknownKeys_staysCloseToTheFalsePositiveRate() {
+
+        // Given a filter filled up to its expected size
+        final BloomFilter filter = new BloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.put(UUID.randomUUID().toString()));
+
+        // When unknown keys are checked
+        final long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> filter.mightContain(UUID.randomUUID().toString()))
+                .count();
+
+        // Then the false positive rate is around 1%
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+}
@@ -0,0 +1,82 @@
+package com.andreiromila.vetl.token;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RevokedTokensTest {
+
+    static RevokedTokens revokedTokens(TokenRepository repository) {
+        return new RevokedTokens(repository, new RevokedTokenProperties(100, 0.01));
+    }
+
+    @Test
+    void afterSingletonsInstantiated_loadsDisabledTokensFromTheDatabase() {
+
+        // Given the database has a disabled token
+        final TokenRepository repository = mock(TokenRepository.class);
+        when(repository.findByEnableFalseAndExpiresAtAfter(any()))
+                .thenReturn(List.of(new Token("a", "john", "Postman 9.2", false, Instant.now().plusSeconds(60), null, 0)));
+
+        // When the set is loaded on startup
+        final RevokedTokens revoked = revokedTokens(repository);
+        revoked.afterSingletonsInstantiated();
+
+        // Then only that token is revoked
+        assertThat(revoked.isRevoked("a")).isTrue();
+        assertThat(revoked.isRevoked("b")).isFalse();
+    }
+
+    @Test
+    void isRevoked_afterRevoke_returnsTrue() {
+
+        final RevokedTokens revoked = revokedTokens(mock(TokenRepository.class));
+
+        revoked.revoke("a", Instant.now().plusSeconds(60));
+
+        assertThat(revoked.isRevoked("a")).isTrue();
+        assertThat(revoked.size()).isEqualTo(1);
+    }
+
+    @Test
+    void prune_dropsExpiredTokens() {
+
+        // Given an expired and a valid revocation
+        final RevokedTokens revoked = revokedTokens(mock(TokenRepository.class));
+        revoked.revoke("expired", Instant.now().minusSeconds(1));
+        revoked.revoke("valid", Instant.now().plusSeconds(60));
+
+        // When the set is pruned
+        revoked.prune();
+
+        // Then only the valid one is kept
+        assertThat(revoked.size()).isEqualTo(1);
+        assertThat(revoked.isRevoked("expired")).isFalse();
+        assertThat(revoked.isRevoked("valid")).isTrue();
+    }
+
+    @Test
+    void bindTo_exportsTheCheckOutcomes() {
+
+        // Given a registry bound to the set
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final RevokedTokens revoked = revokedTokens(mock(TokenRepository.class));
+        revoked.bindTo(registry);
+
+        // When a revoked and an unknown token are checked
+        revoked.revoke("a", Instant.now().plusSeconds(60));
+        revoked.isRevoked("a");
+        revoked.isRevoked("unknown");
+
+        // Then the meters reflect it
+        assertThat(registry.get("vetl.tokens.revoked").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("vetl.tokens.revocation.checks").tag("result", "revoked").functionCounter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,89 @@
+package com.andreiromila.vetl.token;
+
+import com.andreiromila.vetl.AbstractDatabaseTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@Import({TokenActivityTracker.class, TokenRepositoryConfig.class})
+@EnableConfigurationProperties(TokenActivityProperties.class)
+public class TokenActivityTrackerTest extends AbstractDatabaseTest {
+
+    @Autowired
+    TokenActivityTracker activityTracker;
+
+    @Autowired
+    TokenRepository tokenRepository;
+
+    Token save() {
+        return tokenRepository.save(Token.builder()
+                .username("john")
+                .userAgent("Postman 9.2")
+                .enable(true)
+                .expiresAt(Instant.now().plus(1, ChronoUnit.HOURS))
+                .build());
+    }
+
+    @Test
+    void record_isOnlyWrittenOnFlush() {
+
+        // Given a token used three times
+        final Token token = save();
+        activityTracker.record(token.uuid());
+        activityTracker.record(token.uuid());
+        activityTracker.record(token.uuid());
+
+        // Then nothing is written before the flush
+        assertThat(tokenRepository.findById(token.uuid()).orElseThrow().requestCount()).isZero();
+
+        // When the activity is flushed
+        assertThat(activityTracker.flush()).isEqualTo(1);
+
+        // Then the row has the accumulated activity
+        final Token updated = tokenRepository.findById(token.uuid()).orElseThrow();
+        assertThat(updated.requestCount()).isEqualTo(3);
+        assertThat(updated.lastUsedAt()).isNotNull();
+    }
+
+    @Test
+    void flush_addsToTheStoredCount() {
+
+        // Given a token already flushed once
+        final Token token = save();
+        activityTracker.record(token.uuid());
+        activityTracker.flush();
+
+        // When it is used again and flushed
+        activityTracker.record(token.uuid());
+        activityTracker.flush();
+
+        // Then the counts are added, not replaced
+        assertThat(tokenRepository.findById(token.uuid()).orElseThrow().requestCount()).isEqualTo(2);
+
+        // And an idle flush writes nothing
+        assertThat(activityTracker.flush()).isZero();
+    }
+
+    @Test
+    void save_doesNotOverwriteTheActivity() {
+
+        // Given a token with activity
+        final Token token = save();
+        activityTracker.record(token.uuid());
+        activityTracker.flush();
+
+        // When the entity is saved again
+        tokenRepository.save(tokenRepository.findById(token.uuid()).orElseThrow().toBuilder().userAgent("Postman 9.3").build());
+
+        // Then the activity columns are kept
+        assertThat(tokenRepository.findById(token.uuid()).orElseThrow().requestCount()).isEqualTo(1);
+    }
+}
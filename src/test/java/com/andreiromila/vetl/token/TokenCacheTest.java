@@ -0,0 +1,83 @@
+package com.andreiromila.vetl.token;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenCacheTest {
+
+    static Token token(String uuid) {
+        return new Token(uuid, "john", "Postman 9.2", true, Instant.now().plusSeconds(60), null, 0);
+    }
+
+    @Test
+    void get_withCachedToken_doesNotCallTheLoaderAgain() {
+
+        // Given an empty cache
+        final TokenCache cache = new TokenCache(new TokenCacheProperties(10, Duration.ofMinutes(5)));
+        final AtomicInteger loads = new AtomicInteger();
+
+        // When the same token is requested twice
+        cache.get("a", uuid -> { loads.incrementAndGet(); return Optional.of(token(uuid)); });
+        final Optional<Token> cached = cache.get("a", uuid -> { loads.incrementAndGet(); return Optional.of(token(uuid)); });
+
+        // Then the loader was called once and the second call is a hit
+        assertThat(cached).isPresent();
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+        assertThat(cache.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void get_withMissingToken_doesNotCacheTheAbsence() {
+
+        final TokenCache cache = new TokenCache(new TokenCacheProperties(10, Duration.ofMinutes(5)));
+
+        assertThat(cache.get("missing", uuid -> Optional.empty())).isEmpty();
+
+        // A later load that finds the token must not be shadowed by the first miss
+        assertThat(cache.get("missing", uuid -> Optional.of(token(uuid)))).isPresent();
+    }
+
+    @Test
+    void invalidate_removesTheEntry() {
+
+        final TokenCache cache = new TokenCache(new TokenCacheProperties(10, Duration.ofMinutes(5)));
+        cache.get("a", uuid -> Optional.of(token(uuid)));
+
+        cache.invalidate("a");
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void get_overMaximumSize_evictsEntries() {
+
+        final TokenCache cache = new TokenCache(new TokenCacheProperties(2, Duration.ofMinutes(5)));
+
+        for (int i = 0; i < 10; i++) {
+            cache.get("token-" + i, uuid -> Optional.of(token(uuid)));
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(2);
+        assertThat(cache.stats().evictionCount()).isGreaterThanOrEqualTo(8);
+    }
+
+    @Test
+    void bindTo_registersTheCacheMeters() {
+
+        final TokenCache cache = new TokenCache(new TokenCacheProperties(10, Duration.ofMinutes(5)));
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        cache.bindTo(registry);
+
+        assertThat(registry.find("cache.gets").tag("cache", "tokens").meters()).isNotEmpty();
+        assertThat(registry.find("cache.evictions").tag("cache", "tokens").meters()).isNotEmpty();
+    }
+}
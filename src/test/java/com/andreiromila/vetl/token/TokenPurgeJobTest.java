@@ -0,0 +1,71 @@
+package com.andreiromila.vetl.token;
+
+import com.andreiromila.vetl.AbstractDatabaseTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@Import({TokenPurgeJob.class, TokenRepositoryConfig.class})
+@EnableConfigurationProperties({TokenProperties.class, TokenPurgeProperties.class})
+@TestPropertySource(properties = {
+        "application.token.purge.batch-size=2",
+        "application.token.purge.pause=0ms"
+})
+public class TokenPurgeJobTest extends AbstractDatabaseTest {
+
+    @Autowired
+    TokenPurgeJob purgeJob;
+
+    @Autowired
+    TokenRepository tokenRepository;
+
+    Token save(Instant expiresAt) {
+        return tokenRepository.save(Token.builder()
+                .username("john")
+                .userAgent("Postman 9.2")
+                .enable(true)
+                .expiresAt(expiresAt)
+                .build());
+    }
+
+    @Test
+    void purge_deletesExpiredTokensInBatches() {
+
+        // Given five expired tokens (more than one batch) and a valid one
+        IntStream.range(0, 5).forEach(i -> save(Instant.now().minus(1, ChronoUnit.HOURS)));
+        final Token valid = save(Instant.now().plus(1, ChronoUnit.HOURS));
+
+        // When the job runs
+        final long purged = purgeJob.purge();
+
+        // Then only the valid token is kept
+        assertThat(purged).isEqualTo(5);
+        assertThat(tokenRepository.findAll()).extracting(Token::uuid).containsExactly(valid.uuid());
+    }
+
+    @Test
+    void purge_keepsRecentlyRevokedTokensUntilTheirAccessTokensExpire() {
+
+        // Given a token revoked long ago and one revoked right now
+        final Token old = save(Instant.now().plus(1, ChronoUnit.HOURS));
+        final Token recent = save(Instant.now().plus(1, ChronoUnit.HOURS));
+        tokenRepository.revoke(old.uuid(), Instant.now().minus(1, ChronoUnit.DAYS));
+        tokenRepository.revoke(recent.uuid(), Instant.now());
+
+        // When the job runs
+        purgeJob.purge();
+
+        // Then the recent revocation is kept, it still blocks live access tokens after a restart
+        assertThat(tokenRepository.findAll()).extracting(Token::uuid).containsExactly(recent.uuid());
+    }
+}
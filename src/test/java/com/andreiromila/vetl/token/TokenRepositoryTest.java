@@ -20,7 +20,7 @@ public class TokenRepositoryTest extends AbstractDatabaseTest {
 
         // When a new token is saved
         final Token token = tokenRepository.save(
-                new Token(null, "john", "Postman 9.2", true, Instant.now())
+                new Token(null, "john", "Postman 9.2", true, Instant.now(), null, 0)
         );
 
         // It should have a generated uuid
@@ -33,7 +33,7 @@ public class TokenRepositoryTest extends AbstractDatabaseTest {
 
         // Given we have a token
         final Token token = tokenRepository.save(
-                new Token(null, "john", "Postman 9.2", true, Instant.now())
+                new Token(null, "john", "Postman 9.2", true, Instant.now(), null, 0)
         );
 
         // And modify the username
@@ -1,7 +1,15 @@
 package com.andreiromila.vetl.token;
 
 import com.andreiromila.vetl.AbstractDatabaseTest;
+import com.andreiromila.vetl.invalidation.InvalidationBus;
+import com.andreiromila.vetl.invalidation.InvalidationProperties;
+import com.andreiromila.vetl.responses.TotalCountCache;
+import com.andreiromila.vetl.responses.TotalCountProperties;
+import com.andreiromila.vetl.responses.TotalMode;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Import;
@@ -13,8 +21,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @ActiveProfiles("test")
-@Import({TokenService.class, TokenRepositoryConfig.class})
-@EnableConfigurationProperties(TokenProperties.class)
+@Import({TokenService.class, TokenCache.class, RevokedTokens.class, InvalidationBus.class, TotalCountCache.class, TokenRepositoryConfig.class})
+@EnableConfigurationProperties({TokenProperties.class, TokenCacheProperties.class, RevokedTokenProperties.class, InvalidationProperties.class, TotalCountProperties.class})
 public class TokenServiceTest extends AbstractDatabaseTest {
 
     @Autowired
@@ -23,12 +31,17 @@ public class TokenServiceTest extends AbstractDatabaseTest {
     @Autowired
     TokenRepository tokenRepository;
 
+    @Autowired
+    TokenCache tokenCache;
+
     @Test
     void createToken_returnsCompactedTokenWithExpirationTimestamp() {
 
         TokenWithExpiration response = tokenService.createToken("john", "Postman 9.2");
 
         assertThat(response.expiresAt()).isAfter(ZonedDateTime.now());
+        assertThat(response.refreshExpiresAt()).isAfter(response.expiresAt());
+        assertThat(response.refreshToken()).isNotEqualTo(response.token());
         assertThat(tokenRepository.count()).isEqualTo(1);
 
     }
@@ -45,7 +58,7 @@ public class TokenServiceTest extends AbstractDatabaseTest {
     }
 
     @Test
-    void extractUsername_withNonExistentToken_throwsIllegalArgumentException() {
+    void extractUsername_withoutDatabaseRow_returnsUsername() {
 
         // Given we have a valid token
         TokenWithExpiration token = tokenService.createToken("john", "Postman 9.2");
@@ -53,14 +66,94 @@ public class TokenServiceTest extends AbstractDatabaseTest {
         // And no data in the database
         tokenRepository.deleteAll();
 
+        // Access tokens are verified by signature only
+        assertThat(tokenService.extractUsername(token.token(), "Postman 9.2")).isEqualTo("john");
+    }
+
+    @Test
+    void extractUsername_withRefreshToken_throwsIllegalArgumentException() {
+
+        // Given we have a valid token
+        TokenWithExpiration token = tokenService.createToken("john", "Postman 9.2");
+
+        // When we try to authenticate with the refresh token we should get an exception
+        assertThatThrownBy(() -> tokenService.extractUsername(token.refreshToken(), "Postman 9.2"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("The provided token is not an access token.");
+    }
+
+    @Test
+    void extractUsername_withInvalidUserAgent_throwsIllegalArgumentException() {
+
+        // Given we have a valid token
+        TokenWithExpiration token = tokenService.createToken("john", "Postman 9.2");
+
         // When we try to extract the username we should get an exception
+        assertThatThrownBy(() -> tokenService.extractUsername(token.token(), "Invalid User Agent"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Invalid User-Agent");
+    }
+
+    @Test
+    void extractUsername_afterInvalidate_throwsIllegalArgumentException() {
+
+        // Given we have a valid token
+        TokenWithExpiration token = tokenService.createToken("john", "Postman 9.2");
+
+        // When the session is invalidated
+        tokenService.invalidate(token.token());
+
+        // Then the access token is rejected by the in-memory revocation set
         assertThatThrownBy(() -> tokenService.extractUsername(token.token(), "Postman 9.2"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("The provided token has been disabled by the user or a system administrator.");
+    }
+
+    @Test
+    void refresh_withValidToken_returnsNewAccessToken() {
+
+        // Given we have a valid token
+        TokenWithExpiration token = tokenService.createToken("john", "Postman 9.2");
+
+        // When we refresh it
+        TokenWithExpiration refreshed = tokenService.refresh(token.refreshToken(), "Postman 9.2");
+
+        // Then the new access token belongs to the same session
+        assertThat(refreshed.tokenUuid()).isEqualTo(token.tokenUuid());
+        assertThat(refreshed.refreshToken()).isEqualTo(token.refreshToken());
+        assertThat(tokenService.extractUsername(refreshed.token(), "Postman 9.2")).isEqualTo("john");
+        assertThat(tokenRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void refresh_withAccessToken_throwsIllegalArgumentException() {
+
+        // Given we have a valid token
+        TokenWithExpiration token = tokenService.createToken("john", "Postman 9.2");
+
+        // When we try to refresh with the access token we should get an exception
+        assertThatThrownBy(() -> tokenService.refresh(token.token(), "Postman 9.2"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("The provided token is not a refresh token.");
+    }
+
+    @Test
+    void refresh_withNonExistentToken_throwsIllegalArgumentException() {
+
+        // Given we have a valid token
+        TokenWithExpiration token = tokenService.createToken("john", "Postman 9.2");
+
+        // And no data in the database
+        tokenRepository.deleteAll();
+
+        // When we try to refresh we should get an exception
+        assertThatThrownBy(() -> tokenService.refresh(token.refreshToken(), "Postman 9.2"))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageStartingWith("No token was found with id:");
     }
 
     @Test
-    void extractUsername_withDisabledToken_throwsIllegalArgumentException() {
+    void refresh_withDisabledToken_throwsIllegalArgumentException() {
 
         // Given we have a valid token
         final TokenWithExpiration compacted = tokenService.createToken("john", "Postman 9.2");
@@ -71,22 +164,69 @@ public class TokenServiceTest extends AbstractDatabaseTest {
                 token.toBuilder().enable(false).build()
         );
 
-        // When we try to extract the username we should get an exception
-        assertThatThrownBy(() -> tokenService.extractUsername(compacted.token(), "Postman 9.2"))
+        // When we try to refresh we should get an exception
+        assertThatThrownBy(() -> tokenService.refresh(compacted.refreshToken(), "Postman 9.2"))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("The provided token has been disabled by the user or a system administrator.");
     }
 
-
     @Test
-    void extractUsername_withInvalidUserAgent_throwsIllegalArgumentException() {
+    void refresh_withInvalidUserAgent_throwsIllegalArgumentException() {
 
         // Given we have a valid token
         TokenWithExpiration token = tokenService.createToken("john", "Postman 9.2");
 
-        // When we try to extract the username we should get an exception
-        assertThatThrownBy(() -> tokenService.extractUsername(token.token(), "Invalid User Agent"))
+        // When we try to refresh from another client we should get an exception
+        assertThatThrownBy(() -> tokenService.refresh(token.refreshToken(), "Invalid User Agent"))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageStartingWith("Invalid User-Agent");
     }
+
+    @Test
+    void refresh_calledTwice_loadsTheTokenFromTheCache() {
+
+        // Given we have a valid token
+        TokenWithExpiration token = tokenService.createToken("john", "Postman 9.2");
+        final long hits = tokenCache.stats().hitCount();
+
+        // When the same token is refreshed twice
+        tokenService.refresh(token.refreshToken(), "Postman 9.2");
+        tokenService.refresh(token.refreshToken(), "Postman 9.2");
+
+        // Then the second lookup is served from memory
+        assertThat(tokenCache.stats().hitCount()).isEqualTo(hits + 1);
+    }
+
+    @Test
+    void refresh_afterInvalidate_throwsIllegalArgumentException() {
+
+        // Given we have a valid token that is already cached
+        TokenWithExpiration token = tokenService.createToken("john", "Postman 9.2");
+        tokenService.refresh(token.refreshToken(), "Postman 9.2");
+
+        // When the token is invalidated
+        tokenService.invalidate(token.token());
+
+        // Then the cached entry is evicted and the disabled state is visible
+        assertThatThrownBy(() -> tokenService.refresh(token.refreshToken(), "Postman 9.2"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("The provided token has been disabled by the user or a system administrator.");
+    }
+
+    @Test
+    void findByUsername_withoutTotal_returnsASliceThatKnowsIfThereIsMore() {
+
+        // Given a user with three tokens
+        tokenService.createToken("john", "Postman 9.2");
+        tokenService.createToken("john", "Postman 9.2");
+        tokenService.createToken("john", "Postman 9.2");
+
+        // When the first two are listed without counting
+        Slice<Token> slice = tokenService.findByUsername("john", PageRequest.of(0, 2), TotalMode.NONE);
+
+        // Then there is no total but the next page is known
+        assertThat(slice).isNotInstanceOf(Page.class);
+        assertThat(slice.getContent()).hasSize(2);
+        assertThat(slice.hasNext()).isTrue();
+    }
 }
@@ -0,0 +1,44 @@
+package com.andreiromila.vetl.user;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UniqueUserViolationTest {
+
+    static DuplicateKeyException duplicate(String message) {
+        return new DuplicateKeyException("INSERT INTO user", new SQLIntegrityConstraintViolationException(message));
+    }
+
+    @Test
+    void of_readsTheColumnAndValueOfTheMysqlError() {
+
+        assertThat(UniqueUserViolation.of(duplicate("Duplicate entry 'jane' for key 'user.username'")))
+                .contains(new UniqueUserViolation("username", "jane"));
+
+        // Older servers do not prefix the key with the table
+        assertThat(UniqueUserViolation.of(duplicate("Duplicate entry 'jane@example.com' for key 'email'")))
+                .contains(new UniqueUserViolation("email", "jane@example.com"));
+    }
+
+    @Test
+    void of_withAnotherKey_isEmpty() {
+
+        assertThat(UniqueUserViolation.of(duplicate("Duplicate entry '1-2' for key 'user_role.PRIMARY'"))).isEmpty();
+    }
+
+    @Test
+    void toException_reportsTheFieldLikeTheRequestValidation() {
+
+        final var exception = new UniqueUserViolation("email", "jane@example.com").toException("rows[2].email");
+
+        assertThat(exception.getValidationErrors()).singleElement().satisfies(error -> {
+            assertThat(error.field()).isEqualTo("rows[2].email");
+            assertThat(error.message()).isEqualTo(UniqueUserViolation.EMAIL_TAKEN);
+            assertThat(error.value()).isEqualTo("jane@example.com");
+        });
+    }
+}
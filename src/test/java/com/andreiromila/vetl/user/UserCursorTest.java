@@ -0,0 +1,49 @@
+package com.andreiromila.vetl.user;
+
+import com.andreiromila.vetl.exceptions.HttpBadRequestException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserCursorTest {
+
+    @Test
+    void first_usesTheFirstAllowedSortProperty() {
+
+        final UserCursor cursor = UserCursor.first(Sort.by(Sort.Order.desc("unknown"), Sort.Order.desc("fullName")));
+
+        assertThat(cursor.property()).isEqualTo("fullName");
+        assertThat(cursor.direction()).isEqualTo(Sort.Direction.DESC);
+        assertThat(cursor.isFirst()).isTrue();
+    }
+
+    @Test
+    void first_withoutAllowedProperties_sortsById() {
+        assertThat(UserCursor.first(Sort.unsorted())).isEqualTo(new UserCursor("id", Sort.Direction.ASC, null, null));
+    }
+
+    @Test
+    void after_thenEncodeAndDecode_keepsSortAndPosition() {
+
+        final User last = User.builder().id(42L).username("jo|hn").fullName("John Doe").email("john@example.com").build();
+
+        final UserCursor next = UserCursor.first(Sort.by("username")).after(last);
+
+        assertThat(UserCursor.decode(next.encode())).isEqualTo(new UserCursor("username", Sort.Direction.ASC, "jo|hn", 42L));
+    }
+
+    @Test
+    void decode_withMalformedCursor_throwsBadRequest() {
+
+        assertThatThrownBy(() -> UserCursor.decode("not a cursor"))
+                .isInstanceOf(HttpBadRequestException.class)
+                .hasMessage("Invalid cursor.");
+
+        // Valid base64, but the property is not allowed
+        final String forged = new UserCursor("password", Sort.Direction.ASC, "x", 1L).encode();
+        assertThatThrownBy(() -> UserCursor.decode(forged))
+                .isInstanceOf(HttpBadRequestException.class);
+    }
+}
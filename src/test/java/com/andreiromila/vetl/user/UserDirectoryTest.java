@@ -0,0 +1,121 @@
+package com.andreiromila.vetl.user;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserDirectoryTest {
+
+    UserDirectory directory;
+
+    @BeforeEach
+    void setUp() {
+        // Entries are added by hand, the database is never used
+        directory = new UserDirectory(null, new UserDirectoryProperties(true, 5));
+        directory.put(UserDirectory.Entry.of(1, "john", "John Doe", "john@example.com", "john.png"));
+        directory.put(UserDirectory.Entry.of(2, "jane", "Jane Johnson", "jane@example.com", null));
+        directory.put(UserDirectory.Entry.of(3, "mike", "Mike Ajohnny", "mike@example.org", null));
+        directory.put(UserDirectory.Entry.of(4, "tech.guru", "Ann Smith", "ann@tech.io", null));
+    }
+
+    @Test
+    void search_withSubstring_matchesAnyFieldRankedByPrefix() {
+
+        final List<UserDirectory.Entry> found = directory.search("JOHN", 10);
+
+        // Username prefix, then word prefix, then plain substring
+        assertThat(found).extracting(UserDirectory.Entry::username).containsExactly("john", "jane", "mike");
+    }
+
+    @Test
+    void search_withShortQuery_matchesWordPrefixesOnly() {
+
+        assertThat(directory.search("sm", 10)).extracting(UserDirectory.Entry::username).containsExactly("tech.guru");
+
+        // "oh" is inside "john" but does not start a word
+        assertThat(directory.search("oh", 10)).isEmpty();
+    }
+
+    @Test
+    void search_respectsTheLimitAndTheConfiguredMaximum() {
+
+        assertThat(directory.search("example", 1)).hasSize(1);
+        assertThat(directory.maxResults(100)).isEqualTo(5);
+        assertThat(directory.search("", 10)).isEmpty();
+        assertThat(directory.search("zzz", 10)).isEmpty();
+    }
+
+    @Test
+    void put_withExistingUser_replacesTheOldKeys() {
+
+        directory.put(UserDirectory.Entry.of(1, "john", "Juan Perez", "john@example.com", null));
+
+        assertThat(directory.search("doe", 10)).isEmpty();
+        assertThat(directory.search("perez", 10)).extracting(UserDirectory.Entry::id).containsExactly(1L);
+        assertThat(directory.size()).isEqualTo(4);
+    }
+
+    @Test
+    void remove_dropsTheUser() {
+
+        directory.remove("JOHN");
+
+        assertThat(directory.search("john", 10)).extracting(UserDirectory.Entry::username).containsExactly("jane", "mike");
+        assertThat(directory.size()).isEqualTo(3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reload_stillInFlight_doesNotOverwriteANewerReload() throws Exception {
+
+        final NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        final UserDirectory directory = new UserDirectory(jdbcTemplate, new UserDirectoryProperties(true, 5));
+
+        final CountDownLatch reading = new CountDownLatch(1);
+        final CountDownLatch newerApplied = new CountDownLatch(1);
+
+        // The first reload reads the old name and stalls, the second one reads the new name
+        when(jdbcTemplate.query(anyString(), anyMap(), any(RowMapper.class)))
+                .thenAnswer(invocation -> {
+                    reading.countDown();
+                    newerApplied.await(5, TimeUnit.SECONDS);
+                    return List.of(UserDirectory.Entry.of(1, "john", "John Doe", "john@example.com", null));
+                })
+                .thenReturn(List.of(UserDirectory.Entry.of(1, "john", "Juan Perez", "john@example.com", null)));
+
+        final Thread older = Thread.ofVirtual().start(() -> directory.reload("john"));
+        reading.await(5, TimeUnit.SECONDS);
+
+        directory.reload("john");
+        newerApplied.countDown();
+        older.join(5000);
+
+        assertThat(directory.search("perez", 10)).extracting(UserDirectory.Entry::id).containsExactly(1L);
+        assertThat(directory.search("doe", 10)).isEmpty();
+    }
+
+    @Test
+    void bindTo_exportsSizeAndLookups() {
+
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        directory.bindTo(registry);
+
+        directory.search("john", 10);
+
+        assertThat(registry.get("vetl.user.directory.size").gauge().value()).isEqualTo(4);
+        assertThat(registry.get("vetl.user.directory.lookups").functionTimer().count()).isEqualTo(1);
+    }
+}
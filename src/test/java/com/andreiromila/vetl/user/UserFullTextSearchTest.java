@@ -0,0 +1,112 @@
+package com.andreiromila.vetl.user;
+
+import com.andreiromila.vetl.AbstractDatabaseTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+import static com.andreiromila.vetl.factories.AggregatesFactory.createUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Full-text indexes only see committed rows, these tests commit
+ * their data and delete it afterwards.
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "application.user.search.full-text = true")
+public class UserFullTextSearchTest extends AbstractDatabaseTest {
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    NamedParameterJdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM user WHERE username LIKE 'ft\\_%'", Map.of());
+    }
+
+    @Test
+    void search_withLongQuery_matchesSubstringsOfAnyColumn() {
+        // Given
+        userRepository.save(createUser("ft_techguru"));
+        userRepository.save(createUser("ft_biotech"));
+        userRepository.save(createUser("ft_other"));
+
+        // When
+        Page<User> page = userRepository.search("TECH", PageRequest.of(0, 10));
+
+        // Then
+        assertThat(page.getContent()).extracting(User::getUsername).containsExactlyInAnyOrder("ft_techguru", "ft_biotech");
+        assertThat(page.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    void search_withoutSort_ordersByRelevance() {
+        // Given a user matching the query twice
+        User partial = createUser("ft_anna");
+        partial.setFullName("Maria Lopez");
+        User both = createUser("ft_maria");
+        both.setFullName("Maria Maria");
+        userRepository.save(partial);
+        userRepository.save(both);
+
+        // When
+        Page<User> page = userRepository.search("maria", PageRequest.of(0, 10));
+
+        // Then the best match comes first
+        assertThat(page.getContent()).extracting(User::getUsername).startsWith("ft_maria");
+    }
+
+    @Test
+    void search_withSort_keepsTheRequestedOrder() {
+        // Given
+        userRepository.save(createUser("ft_tech_b"));
+        userRepository.save(createUser("ft_tech_a"));
+
+        // When
+        Page<User> page = userRepository.search("ft_tech", PageRequest.of(0, 10, Sort.by("username")));
+
+        // Then
+        assertThat(page.getContent()).extracting(User::getUsername).containsExactly("ft_tech_a", "ft_tech_b");
+    }
+
+    @Test
+    void search_withTermsMadeOfStopwordLetters_matches() {
+        // Given names whose bigrams contain "a" and "i", default InnoDB stopwords
+        User gloria = createUser("ft_gloria");
+        gloria.setFullName("Gloria Stone");
+        User other = createUser("ft_other");
+        other.setFullName("Bob Stone");
+        userRepository.save(gloria);
+        userRepository.save(other);
+
+        // When
+        Page<User> page = userRepository.search("ria", PageRequest.of(0, 10));
+
+        // Then
+        assertThat(page.getContent()).extracting(User::getUsername).containsExactly("ft_gloria");
+    }
+
+    @Test
+    void search_withShortQuery_fallsBackToLike() {
+        // Given
+        userRepository.save(createUser("ft_zq"));
+
+        // When
+        Page<User> page = userRepository.search("zq", PageRequest.of(0, 10));
+
+        // Then
+        assertThat(page.getContent()).extracting(User::getUsername).contains("ft_zq");
+    }
+}
@@ -1,11 +1,17 @@
 package com.andreiromila.vetl.user;
 
 import com.andreiromila.vetl.AbstractDatabaseTest;
+import com.andreiromila.vetl.role.RoleCatalog;
 import com.andreiromila.vetl.role.RoleRepository;
 import com.andreiromila.vetl.role.UserRole;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -48,4 +54,150 @@ public class UserRepositoryTest extends AbstractDatabaseTest {
         assertThat(userRoles.iterator().next().role()).isEqualTo(1L);
     }
 
+    @Test
+    void findWithRolesByUsername_returnsUserWithRolesAndAuthorities() {
+        // Given
+        User savedUser = userRepository.save(createUser());
+        userRepository.insertUserRoles(savedUser.getId(), Set.of(1L, 3L));
+
+        // When
+        User foundUser = userRepository.findWithRolesByUsername(savedUser.getUsername()).orElseThrow();
+
+        // Then
+        assertThat(foundUser.getId()).isEqualTo(savedUser.getId());
+        assertThat(foundUser.getRoles()).extracting("name").containsExactlyInAnyOrder("ADMIN", "VIEWER");
+        assertThat(foundUser.getAuthorities()).extracting("authority").containsExactlyInAnyOrder("ROLE_ADMIN", "ROLE_VIEWER");
+        assertThat(foundUser.getRoleMask()).isEqualTo(RoleCatalog.mask(Set.of(1L, 3L)));
+    }
+
+    @Test
+    void findWithRolesByUsername_withoutRoles_returnsUserWithEmptyRoles() {
+        // Given
+        User savedUser = userRepository.save(createUser());
+
+        // When
+        User foundUser = userRepository.findWithRolesByUsername(savedUser.getUsername()).orElseThrow();
+
+        // Then
+        assertThat(foundUser.getRoles()).isEmpty();
+        assertThat(foundUser.getAuthorities()).isEmpty();
+    }
+
+    @Test
+    void search_returnsPageOfUsersWithRolesAndTotal() {
+        // Given
+        User john = userRepository.save(createUser("qx_john"));
+        User jane = userRepository.save(createUser("qx_jane"));
+        userRepository.save(createUser("mike"));
+        userRepository.insertUserRoles(john.getId(), Set.of(1L, 2L));
+        userRepository.insertUserRole(jane.getId(), 3L);
+
+        // When
+        Page<User> page = userRepository.search("qx_", PageRequest.of(0, 1, Sort.by("username")));
+
+        // Then
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.getContent().getFirst().getUsername()).isEqualTo("qx_jane");
+        assertThat(page.getContent().getFirst().getRoles()).extracting("name").containsExactly("VIEWER");
+    }
+
+    @Test
+    void search_pageOutOfRange_stillReturnsTheTotal() {
+        // Given
+        userRepository.save(createUser("john"));
+
+        // When
+        Page<User> page = userRepository.search(null, PageRequest.of(5, 10));
+
+        // Then
+        assertThat(page.getContent()).isEmpty();
+        assertThat(page.getTotalElements()).isEqualTo(userRepository.count());
+    }
+
+    @Test
+    void searchSlice_readsOneExtraRowToKnowIfThereIsANextPage() {
+        // Given
+        userRepository.save(createUser("qx_a"));
+        userRepository.save(createUser("qx_b"));
+        userRepository.save(createUser("qx_c"));
+
+        // When
+        Slice<User> first = userRepository.searchSlice("qx_", PageRequest.of(0, 2, Sort.by("username")));
+        Slice<User> last = userRepository.searchSlice("qx_", PageRequest.of(1, 2, Sort.by("username")));
+
+        // Then
+        assertThat(first.getContent()).extracting(User::getUsername).containsExactly("qx_a", "qx_b");
+        assertThat(first.hasNext()).isTrue();
+        assertThat(last.getContent()).extracting(User::getUsername).containsExactly("qx_c");
+        assertThat(last.hasNext()).isFalse();
+        assertThat(userRepository.count("qx_")).isEqualTo(3);
+    }
+
+    @Test
+    void existsByUsernameAndEmail_ignoreTheCase() {
+        // Given
+        User john = userRepository.save(createUser("john"));
+
+        // Then
+        assertThat(userRepository.existsByUsername("JOHN")).isTrue();
+        assertThat(userRepository.existsByUsername("jane")).isFalse();
+        assertThat(userRepository.existsByEmail(john.getEmail().toUpperCase())).isTrue();
+        assertThat(userRepository.existsByEmail("nobody@example.com")).isFalse();
+    }
+
+    @Test
+    void findExistingUsernames_returnsOnlyTheTakenCandidates() {
+        // Given
+        User john = userRepository.save(createUser("john"));
+        userRepository.save(createUser("mike"));
+
+        // When
+        Set<String> usernames = userRepository.findExistingUsernames(List.of("John", "jane", "mike"));
+        Set<String> emails = userRepository.findExistingEmails(List.of(john.getEmail(), "nobody@example.com"));
+
+        // Then the stored values are returned
+        assertThat(usernames).containsExactlyInAnyOrder("john", "mike");
+        assertThat(emails).containsExactly(john.getEmail());
+        assertThat(userRepository.findExistingUsernames(List.of())).isEmpty();
+    }
+
+    @Test
+    void stream_handsEveryMatchToTheActionInIdOrder() {
+        // Given
+        User first = userRepository.save(createUser("qx_first"));
+        User second = userRepository.save(createUser("qx_second"));
+        userRepository.insertUserRole(second.getId(), 1L);
+        userRepository.save(createUser("mike"));
+
+        // When
+        List<User> streamed = new ArrayList<>();
+        userRepository.stream("qx_", streamed::add);
+
+        // Then
+        assertThat(streamed).extracting(User::getId).containsExactly(first.getId(), second.getId());
+        assertThat(streamed.getLast().getRoles()).extracting("name").containsExactly("ADMIN");
+    }
+
+    @Test
+    void scroll_walksAllMatchesInOrderWithoutGapsOrDuplicates() {
+        // Given
+        userRepository.save(createUser("qx_c"));
+        userRepository.save(createUser("qx_a"));
+        userRepository.save(createUser("qx_d"));
+        userRepository.save(createUser("qx_b"));
+        userRepository.save(createUser("mike"));
+
+        // When
+        UserCursor cursor = UserCursor.first(Sort.by(Sort.Order.desc("username")));
+        Slice<User> first = userRepository.scroll("qx_", cursor, 3);
+        Slice<User> second = userRepository.scroll("qx_", cursor.after(first.getContent().getLast()), 3);
+
+        // Then
+        assertThat(first.getContent()).extracting(User::getUsername).containsExactly("qx_d", "qx_c", "qx_b");
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getContent()).extracting(User::getUsername).containsExactly("qx_a");
+        assertThat(second.hasNext()).isFalse();
+    }
+
 }
@@ -0,0 +1,107 @@
+package com.andreiromila.vetl.user;
+
+import com.andreiromila.vetl.AbstractDatabaseTest;
+import com.andreiromila.vetl.role.RoleCatalog;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the LIKE and the full-text search over a generated user table.
+ * <p>
+ * Disabled by default, run with:
+ * {@code mvn test -Dtest=UserSearchBenchmarkTest -Dbenchmark=true [-Dbenchmark.users=1000000]}
+ */
+@Log4j2
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class UserSearchBenchmarkTest extends AbstractDatabaseTest {
+
+    static final List<String> QUERIES = List.of("smith", "john", "bench_4242", "@example", "martinez 77");
+
+    static final int ITERATIONS = 20;
+
+    @Autowired
+    NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    RoleCatalog roleCatalog;
+
+    @BeforeAll
+    void generateUsers() {
+
+        final int users = Integer.getInteger("benchmark.users", 1_000_000);
+
+        // Ten digits cross joined six times: up to one million rows, no recursion limits
+        final String sql = """
+                INSERT INTO user (username, password, email, full_name)
+                SELECT CONCAT('bench_', n), 'x', CONCAT('bench_', n, '@example.com'),
+                       CONCAT(ELT(1 + n % 10, 'John', 'Jane', 'Maria', 'Pedro', 'Anna', 'Luis', 'Sofia', 'Mark', 'Elena', 'Ivan'), ' ',
+                              ELT(1 + (n DIV 10) % 10, 'Smith', 'Garcia', 'Martinez', 'Lopez', 'Brown', 'Popescu', 'Rossi', 'Novak', 'Muller', 'Silva'), ' ',
+                              n)
+                FROM (
+                    SELECT d1.d + d2.d * 10 + d3.d * 100 + d4.d * 1000 + d5.d * 10000 + d6.d * 100000 AS n
+                    FROM (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+                          UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d1,
+                         (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+                          UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d2,
+                         (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+                          UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d3,
+                         (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+                          UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d4,
+                         (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+                          UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d5,
+                         (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+                          UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d6
+                ) numbers
+                WHERE n < :users
+                """;
+
+        final long start = System.nanoTime();
+        jdbcTemplate.update(sql, Map.of("users", users));
+        jdbcTemplate.update("ANALYZE TABLE user", Map.of());
+        log.info("Generated {} users in {} ms.", users, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @AfterAll
+    void deleteUsers() {
+        jdbcTemplate.update("DELETE FROM user WHERE username LIKE 'bench\\_%'", Map.of());
+    }
+
+    @Test
+    void likeVersusFullText() {
+
+        final UserFilterRepositoryImpl like = new UserFilterRepositoryImpl(jdbcTemplate, roleCatalog, new UserSearchProperties(false, 3));
+        final UserFilterRepositoryImpl fullText = new UserFilterRepositoryImpl(jdbcTemplate, roleCatalog, new UserSearchProperties(true, 3));
+
+        for (String query : QUERIES) {
+            log.info("Query '{}': LIKE {} ms, FULLTEXT {} ms (average of {} first pages).",
+                    query, averageMillis(like, query), averageMillis(fullText, query), ITERATIONS);
+        }
+    }
+
+    private static double averageMillis(final UserFilterRepositoryImpl repository, final String query) {
+
+        // Warm up the buffer pool and the plan
+        repository.search(query, PageRequest.of(0, 10));
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            repository.search(query, PageRequest.of(0, 10));
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS;
+    }
+}
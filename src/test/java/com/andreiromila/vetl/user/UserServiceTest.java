@@ -2,17 +2,29 @@ package com.andreiromila.vetl.user;
 
 import com.andreiromila.vetl.AbstractDatabaseTest;
 import com.andreiromila.vetl.exceptions.HttpNotFoundException;
-import com.andreiromila.vetl.role.RoleRepository;
+import com.andreiromila.vetl.exceptions.HttpValidationException;
+import com.andreiromila.vetl.invalidation.InvalidationBus;
+import com.andreiromila.vetl.invalidation.InvalidationProperties;
+import com.andreiromila.vetl.outbox.Outbox;
+import com.andreiromila.vetl.outbox.OutboxProperties;
+import com.andreiromila.vetl.responses.TotalCountCache;
+import com.andreiromila.vetl.responses.TotalCountProperties;
 import com.andreiromila.vetl.storage.FileStorageService;
 import com.andreiromila.vetl.user.web.UserCreateRequest;
+import com.andreiromila.vetl.user.web.UserDetailsUpdateRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Set;
 
 import static com.andreiromila.vetl.factories.AggregatesFactory.createUser;
@@ -26,20 +38,34 @@ public class UserServiceTest extends AbstractDatabaseTest {
     @Autowired
     UserRepository userRepository;
 
-    @Autowired
-    RoleRepository roleRepository;
-
     @MockitoBean
     FileStorageService storageService;
 
     UserService userService;
 
+    PrincipalCache principalCache;
+
+    UserDirectory userDirectory;
+
     @Autowired
     ApplicationEventPublisher eventPublisher;
 
+    @Autowired
+    NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
     @BeforeEach
     void setUp() {
-        userService = new UserService(userRepository, roleRepository, bcrypt, storageService, eventPublisher);
+        principalCache = new PrincipalCache(new PrincipalCacheProperties(true, 100, Duration.ofMinutes(5)));
+        final InvalidationBus invalidationBus = new InvalidationBus(jdbcTemplate, eventPublisher, new InvalidationProperties(true, 100, Duration.ofSeconds(10), Duration.ofHours(1)));
+        userDirectory = new UserDirectory(jdbcTemplate, new UserDirectoryProperties(true, 20));
+        // Without handlers, nothing is written to the outbox
+        final Outbox outbox = new Outbox(jdbcTemplate, new ObjectMapper(), List.of(), transactionManager, Runnable::run,
+                new OutboxProperties(true, 100, Duration.ofMinutes(5), 10, Duration.ofSeconds(10), Duration.ofDays(7)));
+        userService = new UserService(userRepository, bcrypt, storageService, outbox, principalCache, invalidationBus, userDirectory,
+                new TotalCountCache(new TotalCountProperties(Duration.ofMinutes(1), 100)));
     }
 
     @Test
@@ -63,6 +89,49 @@ public class UserServiceTest extends AbstractDatabaseTest {
 
     }
 
+    @Test
+    void loadUserByUsername_calledTwice_servesTheSecondCallFromTheCache() {
+
+        // Given we have a user into the database
+        userRepository.save(createUser("john"));
+
+        // When the user is loaded twice
+        userService.loadUserByUsername("john");
+        userService.loadUserByUsername("john");
+
+        // Then the second call is a cache hit
+        assertThat(principalCache.stats().hitCount()).isEqualTo(1);
+        assertThat(principalCache.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void loadUserByUsername_afterUpdateUserDetails_returnsTheNewState() {
+
+        // Given we have a cached user
+        userRepository.save(createUser("john"));
+        userService.loadUserByUsername("john");
+
+        // When the user changes the full name
+        userService.updateUserDetails("john", new UserDetailsUpdateRequest("John Updated", 3L, true));
+
+        // Then the next load sees the change
+        assertThat(userService.loadUserByUsername("john").getFullName()).isEqualTo("John Updated");
+    }
+
+    @Test
+    void loadUserByUsername_returnsACopyOfTheCachedPrincipal() {
+
+        // Given we have a cached user
+        userRepository.save(createUser("john"));
+        final User loaded = userService.loadUserByUsername("john");
+
+        // When the returned instance is modified
+        loaded.setEnabled(false);
+
+        // Then the cached principal is not affected
+        assertThat(userService.loadUserByUsername("john").isEnabled()).isTrue();
+    }
+
     @Test
     void createUser_withValidData_autoGeneratesUserIdentifier() {
 
@@ -74,6 +143,22 @@ public class UserServiceTest extends AbstractDatabaseTest {
         assertThat(createdUser.getId()).isNotNull();
     }
 
+    @Test
+    void createUser_withATakenUsername_throwsTheValidationErrorFromTheUniqueIndex() {
+
+        // Given the username was taken after the request was validated
+        userRepository.save(createUser("john"));
+
+        // When the insert hits the unique index
+        assertThatThrownBy(() -> userService.createUser(getUserCreateRequest()))
+                .isInstanceOfSatisfying(HttpValidationException.class, e ->
+                        // Then it is reported like the request validation
+                        assertThat(e.getValidationErrors()).singleElement().satisfies(error -> {
+                            assertThat(error.field()).isEqualTo("username");
+                            assertThat(error.message()).isEqualTo("The username is already taken.");
+                        }));
+    }
+
     private static @NotNull UserCreateRequest getUserCreateRequest() {
         return new UserCreateRequest("John Doe.", "john", "john@example.com", Set.of(3L));
     }
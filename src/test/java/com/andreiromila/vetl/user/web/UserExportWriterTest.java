@@ -0,0 +1,83 @@
+package com.andreiromila.vetl.user.web;
+
+import com.andreiromila.vetl.user.User;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Set;
+
+import static com.andreiromila.vetl.factories.AggregatesFactory.createUser;
+import static com.andreiromila.vetl.factories.AggregatesFactory.getAdminRole;
+import static com.andreiromila.vetl.factories.AggregatesFactory.getEditorRole;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserExportWriterTest {
+
+    static final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    static User user(long id, String username, String fullName) {
+        final User user = createUser(username);
+        user.setId(id);
+        user.setFullName(fullName);
+        user.setRoles(Set.of(getEditorRole(), getAdminRole()));
+        user.setCreatedAt(Instant.parse("2025-01-01T10:00:00Z"));
+        return user;
+    }
+
+    static String export(UserExportFormat format, User... users) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (UserExportWriter writer = new UserExportWriter(format, output, objectMapper)) {
+            for (User user : users) {
+                writer.write(user);
+            }
+        }
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void write_ndjson_writesOneJsonObjectPerLine() throws Exception {
+
+        final String[] lines = export(UserExportFormat.NDJSON, user(1, "john", "John Doe"), user(2, "jane", "Jane Doe")).split("\n");
+
+        assertThat(lines).hasSize(2);
+        final JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.get("username").asText()).isEqualTo("john");
+        assertThat(first.get("roles")).hasSize(2);
+        assertThat(first.has("password")).isFalse();
+    }
+
+    @Test
+    void write_csv_writesTheHeaderAndOneRowPerUser() {
+
+        final String[] lines = export(UserExportFormat.CSV, user(1, "john", "Doe, John")).split("\n");
+
+        assertThat(lines[0]).isEqualTo(String.join(",", UserExportWriter.CSV_COLUMNS));
+        assertThat(lines[1]).startsWith("1,john,")
+                .contains(",\"Doe, John\",true,Admin|Editor,2025-01-01T10:00:00Z,");
+    }
+
+    @Test
+    void cell_quotesSeparatorsAndNeutralizesFormulas() {
+
+        assertThat(UserExportWriter.cell(null)).isEmpty();
+        assertThat(UserExportWriter.cell("plain")).isEqualTo("plain");
+        assertThat(UserExportWriter.cell("say \"hi\"")).isEqualTo("\"say \"\"hi\"\"\"");
+        assertThat(UserExportWriter.cell("=HYPERLINK(\"x\")")).isEqualTo("\"'=HYPERLINK(\"\"x\"\")\"");
+    }
+
+    @Test
+    void parse_withUnknownFormat_throwsBadRequest() {
+
+        assertThat(UserExportFormat.parse(null)).isEqualTo(UserExportFormat.NDJSON);
+        assertThat(UserExportFormat.parse("CSV")).isEqualTo(UserExportFormat.CSV);
+
+        assertThatThrownBy(() -> UserExportFormat.parse("xml"))
+                .hasMessageStartingWith("Invalid export format");
+    }
+}
@@ -0,0 +1,54 @@
+package com.andreiromila.vetl.user.web;
+
+import com.andreiromila.vetl.exceptions.HttpBadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserImportCsvTest {
+
+    @Test
+    void parse_readsTheColumnsByHeaderName() {
+
+        final List<UserImportRow> rows = UserImportCsv.parse("""
+                email,username,full_name,roles
+                jane@example.com,jane.doe,"Doe, Jane",2|3
+                mike@example.com,mike.doe,Mike Doe,
+                """);
+
+        assertThat(rows).containsExactly(
+                new UserImportRow("Doe, Jane", "jane.doe", "jane@example.com", Set.of(2L, 3L)),
+                new UserImportRow("Mike Doe", "mike.doe", "mike@example.com", Set.of())
+        );
+    }
+
+    @Test
+    void parse_handlesQuotesLineBreaksAndBlankLines() {
+
+        final List<UserImportRow> rows = UserImportCsv.parse("\uFEFFfullName,username,email\r\n\"Jane \"\"JD\"\" Doe\",jane.doe,jane@example.com\r\n\r\n");
+
+        assertThat(rows).hasSize(1);
+        assertThat(rows.getFirst().fullName()).isEqualTo("Jane \"JD\" Doe");
+        assertThat(rows.getFirst().roles()).isEmpty();
+    }
+
+    @Test
+    void parse_withoutRequiredColumns_throwsBadRequest() {
+
+        assertThatThrownBy(() -> UserImportCsv.parse("username,email\njane.doe,jane@example.com"))
+                .isInstanceOf(HttpBadRequestException.class)
+                .hasMessageContaining("header");
+    }
+
+    @Test
+    void parse_withInvalidRoles_throwsBadRequest() {
+
+        assertThatThrownBy(() -> UserImportCsv.parse("fullName,username,email,roles\nJane Doe,jane.doe,jane@example.com,admin"))
+                .isInstanceOf(HttpBadRequestException.class)
+                .hasMessageContaining("line 2");
+    }
+}